@@ -369,14 +369,8 @@ public class RuleRegistryImpl extends AbstractRegistry<Rule, String, RuleProvide
 
     @Override
     public Rule get(String key) {
-        for (Collection<Rule> rules : elementMap.values()) {
-            for (Rule rule : rules) {
-                if (rule.getUID().equals(key)) {
-                    return RuleUtils.getRuleCopy(rule);
-                }
-            }
-        }
-        return null;
+        Rule rule = super.get(key);
+        return rule != null ? RuleUtils.getRuleCopy(rule) : null;
     }
 
     @Override
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+
+/**
+ * Tests the default implementations of {@link PersistenceService#store(java.util.Collection)} and
+ * {@link ModifiablePersistenceService#store(java.util.Collection)}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceServiceTest {
+
+    /**
+     * A persistence service which records the calls of the single store methods.
+     */
+    private static class RecordingPersistenceService implements ModifiablePersistenceService {
+
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public String getId() {
+            return "recording";
+        }
+
+        @Override
+        public String getLabel(Locale locale) {
+            return "Recording";
+        }
+
+        @Override
+        public void store(Item item) {
+            calls.add(item.getName() + "=" + item.getState());
+        }
+
+        @Override
+        public void store(Item item, String alias) {
+            calls.add(alias + "=" + item.getState());
+        }
+
+        @Override
+        public void store(Item item, Date date, State state) {
+            calls.add(item.getName() + "=" + state + "@" + date.getTime());
+        }
+
+        @Override
+        public Iterable<HistoricItem> query(FilterCriteria filter) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Set<PersistenceItemInfo> getItemInfo() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean remove(FilterCriteria filter) {
+            return false;
+        }
+    }
+
+    private final NumberItem item = new NumberItem("number");
+
+    @Test
+    public void assertThatDefaultBatchStoresCurrentStateInOrder() {
+        final List<String> calls = new ArrayList<>();
+        PersistenceService service = new PersistenceService() {
+            @Override
+            public String getId() {
+                return "simple";
+            }
+
+            @Override
+            public String getLabel(Locale locale) {
+                return "Simple";
+            }
+
+            @Override
+            public void store(Item item) {
+                calls.add(item.getName() + "=" + item.getState());
+            }
+
+            @Override
+            public void store(Item item, String alias) {
+                calls.add(alias + "=" + item.getState());
+            }
+        };
+        item.setState(new DecimalType(3));
+
+        service.store(Arrays.asList(record(null, 1, 1000), record("alias", 2, 2000), record(null, 3, 3000)));
+
+        // the simple store methods can only persist the current state of the item
+        assertThat(calls, is(Arrays.asList("number=3", "alias=3", "number=3")));
+    }
+
+    @Test
+    public void assertThatModifiableBatchStoresRecordedStates() {
+        RecordingPersistenceService service = new RecordingPersistenceService();
+        item.setState(new DecimalType(3));
+
+        service.store(Arrays.asList(record(null, 1, 1000), record("number", 2, 2000), record("alias", 4, 4000)));
+
+        assertThat(service.calls, is(Arrays.asList("number=1@1000", "number=2@2000", "alias=3")));
+    }
+
+    private PersistenceRecord record(String alias, int value, long time) {
+        return new PersistenceRecord(item, alias, new DecimalType(value), new Date(time));
+    }
+
+}
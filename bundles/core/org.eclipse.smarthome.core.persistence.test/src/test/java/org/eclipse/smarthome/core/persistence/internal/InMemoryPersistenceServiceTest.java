@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.persistence.PersistenceServiceRegistry;
+import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+/**
+ * Tests the queries of the {@link InMemoryPersistenceService}, with and without a backend.
+ *
+ * @author agent - Initial contribution
+ */
+public class InMemoryPersistenceServiceTest {
+
+    private InMemoryPersistenceService service;
+
+    private QueryablePersistenceService backend;
+
+    private final List<HistoricItem> backendResult = Collections.singletonList(mock(HistoricItem.class));
+
+    @Before
+    public void setup() {
+        service = new InMemoryPersistenceService();
+        service.activate(Collections.emptyMap());
+
+        backend = mock(QueryablePersistenceService.class);
+        when(backend.query(Matchers.any(FilterCriteria.class))).thenReturn(backendResult);
+        PersistenceServiceRegistry registry = mock(PersistenceServiceRegistry.class);
+        when(registry.get("backend")).thenReturn(backend);
+        service.setPersistenceServiceRegistry(registry);
+    }
+
+    @Test
+    public void assertThatStatesAreQueriedFromMemoryWithoutBackend() throws InterruptedException {
+        Date begin = new Date(System.currentTimeMillis() - 1000);
+        NumberItem item = new NumberItem("number");
+        store(item, 1, 2, 3);
+        item.setState(UnDefType.UNDEF);
+        service.store(item);
+
+        assertThat(values(service.query(new FilterCriteria().setItemName("number"))), is(Arrays.asList(3, 2, 1)));
+        // older states are not known, but there is no backend to ask
+        assertThat(values(service.query(new FilterCriteria().setItemName("number").setBeginDate(begin))),
+                is(Arrays.asList(3, 2, 1)));
+        assertThat(service.query(new FilterCriteria().setItemName("unknown")).iterator().hasNext(), is(false));
+        assertThat(service.getItemInfo().iterator().next().getCount(), is(3));
+        verifyZeroInteractions(backend);
+    }
+
+    @Test
+    public void assertThatIncompleteQueriesArePassedToTheBackend() throws InterruptedException {
+        service.modified(Collections.singletonMap("backend", "backend"));
+        NumberItem item = new NumberItem("number");
+        store(item, 1, 2, 3);
+
+        // the latest two states are in memory
+        assertThat(values(service.query(new FilterCriteria().setItemName("number").setPageSize(2))),
+                is(Arrays.asList(3, 2)));
+        verifyZeroInteractions(backend);
+
+        // older states might belong to the result
+        FilterCriteria filter = new FilterCriteria().setItemName("number")
+                .setBeginDate(new Date(System.currentTimeMillis() - 60000));
+        assertThat(service.query(filter), is(sameInstance(backendResult)));
+        verify(backend).query(filter);
+
+        // neither unknown items nor queries for all items can be answered from memory
+        filter = new FilterCriteria().setItemName("unknown");
+        assertThat(service.query(filter), is(sameInstance(backendResult)));
+        filter = new FilterCriteria();
+        assertThat(service.query(filter), is(sameInstance(backendResult)));
+    }
+
+    @Test
+    public void assertThatAllItemsAreQueriedPageByPage() throws InterruptedException {
+        NumberItem item1 = new NumberItem("number1");
+        NumberItem item2 = new NumberItem("number2");
+        store(item1, 1);
+        store(item2, 2);
+        store(item1, 3);
+        store(item2, 4);
+        store(item1, 5);
+
+        FilterCriteria filter = new FilterCriteria().setPageSize(2);
+        assertThat(values(service.query(filter)), is(Arrays.asList(5, 4)));
+        assertThat(values(service.query(filter.setPageNumber(1))), is(Arrays.asList(3, 2)));
+        assertThat(values(service.query(filter.setPageNumber(2))), is(Arrays.asList(1)));
+        assertThat(values(service.query(filter.setPageNumber(3))).isEmpty(), is(true));
+
+        filter = new FilterCriteria().setOrdering(Ordering.ASCENDING).setPageSize(3).setPageNumber(1);
+        assertThat(values(service.query(filter)), is(Arrays.asList(4, 5)));
+    }
+
+    private void store(NumberItem item, int... values) throws InterruptedException {
+        for (int value : values) {
+            item.setState(new DecimalType(value));
+            service.store(item);
+            // the states are stored with the current time, which orders them
+            Thread.sleep(2);
+        }
+    }
+
+    private List<Integer> values(Iterable<HistoricItem> items) {
+        List<Integer> values = new ArrayList<>();
+        for (HistoricItem item : items) {
+            values.add(((DecimalType) item.getState()).intValue());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Operator;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ItemHistory}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemHistoryTest {
+
+    private final ItemHistory history = new ItemHistory("item");
+
+    @Test
+    public void assertThatHistoryGrowsUpToTheMaximumSize() {
+        addStates(0, 100, 1000);
+
+        assertThat(history.size(), is(100));
+        assertThat(history.getEarliest(), is(new Date(0)));
+        assertThat(history.getLatest(), is(new Date(99000)));
+        assertThat(values(history.query(ascending(), true)), is(range(0, 100)));
+    }
+
+    @Test
+    public void assertThatOldestStatesAreOverwrittenWhenFull() {
+        addStates(0, 50, 20);
+
+        assertThat(history.size(), is(20));
+        assertThat(history.getEarliest(), is(new Date(30000)));
+        assertThat(history.getLatest(), is(new Date(49000)));
+        assertThat(values(history.query(ascending(), true)), is(range(30, 50)));
+
+        List<Integer> descending = range(30, 50);
+        Collections.reverse(descending);
+        assertThat(values(history.query(new FilterCriteria(), true)), is(descending));
+    }
+
+    @Test
+    public void assertThatEarlierTimesAreRaisedToTheLatestTime() {
+        history.add(5000, new DecimalType(1), 10);
+        history.add(3000, new DecimalType(2), 10);
+
+        assertThat(history.getEarliest(), is(new Date(5000)));
+        assertThat(history.getLatest(), is(new Date(5000)));
+    }
+
+    @Test
+    public void assertThatTrimmingKeepsTheLatestState() {
+        addStates(0, 10, 100);
+
+        history.removeOlderThan(5000);
+        assertThat(history.size(), is(5));
+        assertThat(history.getEarliest(), is(new Date(5000)));
+
+        history.removeOlderThan(60000);
+        assertThat(history.size(), is(1));
+        assertThat(history.getEarliest(), is(new Date(9000)));
+        assertThat(values(history.query(ascending(), true)), is(range(9, 10)));
+    }
+
+    @Test
+    public void assertThatHistoryKnowsWhetherItIsComplete() {
+        addStates(10, 20, 100);
+
+        // older states than the history might be in the range
+        FilterCriteria filter = ascending().setBeginDate(new Date(5000));
+        assertThat(history.query(filter, false), is(nullValue()));
+        assertThat(values(history.query(filter, true)), is(range(10, 20)));
+
+        // the history reaches back to the begin
+        filter = ascending().setBeginDate(new Date(10000)).setEndDate(new Date(12000));
+        assertThat(values(history.query(filter, false)), is(range(10, 13)));
+
+        // the latest states fill the page, older states cannot change it
+        filter = new FilterCriteria().setPageSize(3);
+        assertThat(values(history.query(filter, false)), is(Arrays.asList(19, 18, 17)));
+
+        // the page is not filled, so older states might be missing
+        filter = new FilterCriteria().setPageSize(30);
+        assertThat(history.query(filter, false), is(nullValue()));
+    }
+
+    @Test
+    public void assertThatStatesAreFilteredAndPaged() {
+        addStates(0, 10, 100);
+
+        FilterCriteria filter = ascending().setBeginDate(new Date(0)).setOperator(Operator.GTE)
+                .setState(new DecimalType(4)).setPageSize(2).setPageNumber(1);
+        assertThat(values(history.query(filter, false)), is(range(6, 8)));
+    }
+
+    private void addStates(int from, int to, int maxSize) {
+        for (int i = from; i < to; i++) {
+            history.add(i * 1000L, new DecimalType(i), maxSize);
+        }
+    }
+
+    private FilterCriteria ascending() {
+        return new FilterCriteria().setOrdering(Ordering.ASCENDING);
+    }
+
+    private List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private List<Integer> values(List<HistoricItem> items) {
+        List<Integer> values = new ArrayList<>();
+        for (HistoricItem item : items) {
+            assertThat(item.getName(), is("item"));
+            values.add(((DecimalType) item.getState()).intValue());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.persistence.PersistenceRecord;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.eclipse.smarthome.core.persistence.PersistenceServiceConfiguration;
+import org.eclipse.smarthome.core.persistence.SimpleItemConfiguration;
+import org.eclipse.smarthome.core.persistence.config.SimpleConfig;
+import org.eclipse.smarthome.core.persistence.config.SimpleGroupConfig;
+import org.eclipse.smarthome.core.persistence.config.SimpleItemConfig;
+import org.eclipse.smarthome.core.persistence.strategy.SimpleStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link PersistenceManagerImpl} keeps its routing table up to date when configurations and items
+ * change.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceManagerImplTest {
+
+    private static final String SERVICE = "db";
+
+    private final Map<String, Item> items = new LinkedHashMap<>();
+
+    private final List<String> stored = new ArrayList<>();
+
+    private PersistenceManagerImpl manager;
+
+    private PersistenceService service;
+
+    @Before
+    public void setup() throws ItemNotFoundException {
+        ItemRegistry itemRegistry = mock(ItemRegistry.class);
+        when(itemRegistry.getItems()).thenAnswer(invocation -> new ArrayList<>(items.values()));
+        when(itemRegistry.getItem(anyString())).thenAnswer(invocation -> {
+            Item item = items.get(invocation.getArguments()[0]);
+            if (item == null) {
+                throw new ItemNotFoundException((String) invocation.getArguments()[0]);
+            }
+            return item;
+        });
+
+        manager = new PersistenceManagerImpl();
+        manager.setItemRegistry(itemRegistry);
+        service = new PersistenceService() {
+            @Override
+            public String getId() {
+                return SERVICE;
+            }
+
+            @Override
+            public String getLabel(Locale locale) {
+                return SERVICE;
+            }
+
+            @Override
+            public void store(Item item) {
+                stored.add(item.getName());
+            }
+
+            @Override
+            public void store(Item item, String alias) {
+                stored.add(alias);
+            }
+        };
+        manager.addPersistenceService(service);
+    }
+
+    @Test
+    public void assertThatItemsAddedAfterTheConfigurationAreRouted() {
+        addConfig(new SimpleItemConfig("switch"));
+
+        SwitchItem item = new SwitchItem("switch");
+        changeState(item);
+        assertThat(stored.isEmpty(), is(true));
+
+        addItem(item);
+        changeState(item);
+        assertThat(stored, is(Collections.singletonList("switch")));
+
+        removeItem(item);
+        changeState(item);
+        assertThat(stored, is(Collections.singletonList("switch")));
+    }
+
+    @Test
+    public void assertThatMembersAreRoutedWhenTheirGroupIsAdded() {
+        addConfig(new SimpleGroupConfig("group"));
+        SwitchItem member = new SwitchItem("member");
+        member.addGroupName("group");
+        addItem(member);
+        changeState(member);
+        assertThat(stored.isEmpty(), is(true));
+
+        GroupItem group = new GroupItem("group");
+        group.addMember(member);
+        addItem(group);
+        changeState(member);
+        assertThat(stored, is(Collections.singletonList("member")));
+
+        removeItem(group);
+        changeState(member);
+        assertThat(stored, is(Collections.singletonList("member")));
+    }
+
+    @Test
+    public void assertThatRoutesFollowUpdatedGroupMemberships() {
+        addConfig(new SimpleGroupConfig("group"));
+        GroupItem group = new GroupItem("group");
+        addItem(group);
+        SwitchItem member = new SwitchItem("member");
+        addItem(member);
+
+        // the registry adds the member to the group before it notifies the listeners
+        SwitchItem updatedMember = new SwitchItem("member");
+        updatedMember.addGroupName("group");
+        group.addMember(updatedMember);
+        items.put("member", updatedMember);
+        manager.updated(member, updatedMember);
+
+        changeState(updatedMember);
+        assertThat(stored, is(Collections.singletonList("member")));
+    }
+
+    @Test
+    public void assertThatRoutesAreRemovedWithTheConfiguration() {
+        SwitchItem item = new SwitchItem("switch");
+        addItem(item);
+        addConfig(new SimpleItemConfig("switch"));
+        changeState(item);
+        assertThat(stored, is(Collections.singletonList("switch")));
+
+        manager.removeConfig(SERVICE);
+        changeState(item);
+        assertThat(stored, is(Collections.singletonList("switch")));
+    }
+
+    @Test
+    public void assertThatRecordsForRemovedServicesAreDiscarded() {
+        SwitchItem item = new SwitchItem("switch");
+        addItem(item);
+        manager.store(SERVICE, service, Collections.singletonList(new PersistenceRecord(item, null)));
+        assertThat(stored, is(Collections.singletonList("switch")));
+
+        // e.g. a persistence job which has looked up the service before it was removed
+        manager.removePersistenceService(service);
+        manager.store(SERVICE, service, Collections.singletonList(new PersistenceRecord(item, null)));
+        assertThat(stored, is(Collections.singletonList("switch")));
+    }
+
+    private void addConfig(SimpleConfig config) {
+        SimpleItemConfiguration itemConfig = new SimpleItemConfiguration(Collections.singletonList(config), null,
+                Collections.<SimpleStrategy> emptyList(), Collections.emptyList());
+        manager.addConfig(SERVICE, new PersistenceServiceConfiguration(Collections.singletonList(itemConfig),
+                Arrays.asList(SimpleStrategy.Globals.CHANGE), Collections.<SimpleStrategy> emptyList()));
+    }
+
+    private void addItem(Item item) {
+        items.put(item.getName(), item);
+        manager.added(item);
+    }
+
+    private void removeItem(Item item) {
+        items.remove(item.getName());
+        manager.removed(item);
+    }
+
+    private void changeState(Item item) {
+        // calls the manager directly, so that the services are called synchronously
+        manager.stateChanged(item, OnOffType.OFF, OnOffType.ON);
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.smarthome.core.persistence.internal.PersistenceRoutingTable.Route;
+import org.junit.Test;
+
+/**
+ * Tests the {@link PersistenceRoutingTable}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceRoutingTableTest {
+
+    @Test
+    public void assertThatEntriesAreGroupedByItemAndService() {
+        PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
+        builder.add("item", "db1", null, true, false);
+        builder.add("item", "db2", "alias", false, true);
+        builder.add("item", "db1", "alias", true, true);
+        builder.add("other", "db2", null, false, true);
+        PersistenceRoutingTable table = builder.build();
+
+        assertThat(table.size(), is(2));
+        List<Route> routes = table.getRoutes("item");
+        assertThat(routes.size(), is(2));
+        assertThat(routes.get(0).getServiceName(), is("db1"));
+        assertThat(routes.get(0).getChangeAliases(), is(Arrays.asList(null, "alias")));
+        assertThat(routes.get(0).getUpdateAliases(), is(Collections.singletonList("alias")));
+        assertThat(routes.get(1).getServiceName(), is("db2"));
+        assertThat(routes.get(1).getChangeAliases().isEmpty(), is(true));
+        assertThat(routes.get(1).getUpdateAliases(), is(Collections.singletonList("alias")));
+
+        assertThat(table.getRoutes("unknown").isEmpty(), is(true));
+    }
+
+    @Test
+    public void assertThatRoutesOfItemsAreReplaced() {
+        PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
+        builder.add("item1", "db1", null, true, false);
+        builder.add("item2", "db1", null, true, false);
+        builder.add("item3", "db1", null, true, false);
+        PersistenceRoutingTable table = builder.build();
+        List<Route> routesOfItem3 = table.getRoutes("item3");
+
+        PersistenceRoutingTable.Builder patch = new PersistenceRoutingTable.Builder();
+        patch.add("item1", "db2", "alias", false, true);
+        patch.add("item4", "db1", null, true, false);
+        // item2 has no routes anymore, item3 is not replaced
+        table.replaceRoutes(Arrays.asList("item1", "item2", "item4"), patch);
+
+        assertThat(table.size(), is(3));
+        assertThat(table.getRoutes("item1").size(), is(1));
+        assertThat(table.getRoutes("item1").get(0).getServiceName(), is("db2"));
+        assertThat(table.getRoutes("item1").get(0).getUpdateAliases(), is(Collections.singletonList("alias")));
+        assertThat(table.getRoutes("item2").isEmpty(), is(true));
+        assertThat(table.getRoutes("item3"), is(sameInstance(routesOfItem3)));
+        assertThat(table.getRoutes("item4").get(0).getServiceName(), is("db1"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void assertThatRoutesCannotBeModified() {
+        PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
+        builder.add("item", "db1", null, true, false);
+        builder.build().getRoutes("item").clear();
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.junit.Test;
+
+/**
+ * Tests the default service of the {@link PersistenceServiceRegistryImpl}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceServiceRegistryImplTest {
+
+    private final PersistenceServiceRegistryImpl registry = new PersistenceServiceRegistryImpl();
+
+    @Test
+    public void assertThatTheOnlyAddOnIsTheDefaultWithoutConfiguration() {
+        registry.activate(Collections.emptyMap());
+        PersistenceService addOn = service("rrd4j");
+        registry.addPersistenceService(addOn);
+
+        // the in-memory service requires a configuration, so it is not registered here
+        assertThat(registry.getDefaultId(), is("rrd4j"));
+        assertThat(registry.getDefault(), is(sameInstance(addOn)));
+
+        registry.addPersistenceService(service("inmemory"));
+        assertThat(registry.getDefaultId(), is(nullValue()));
+    }
+
+    @Test
+    public void assertThatTheConfiguredDefaultIsUsed() {
+        registry.activate(Collections.singletonMap("default", "inmemory"));
+        registry.addPersistenceService(service("rrd4j"));
+        PersistenceService inMemory = service("inmemory");
+        registry.addPersistenceService(inMemory);
+
+        assertThat(registry.getDefaultId(), is("inmemory"));
+        assertThat(registry.getDefault(), is(sameInstance(inMemory)));
+    }
+
+    private PersistenceService service(String id) {
+        PersistenceService service = mock(PersistenceService.class);
+        when(service.getId()).thenReturn(id);
+        return service;
+    }
+
+}
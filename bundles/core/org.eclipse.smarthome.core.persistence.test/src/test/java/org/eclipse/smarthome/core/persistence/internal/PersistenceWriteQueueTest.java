@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.PersistenceRecord;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.eclipse.smarthome.core.persistence.PersistenceServiceStatistics;
+import org.eclipse.smarthome.test.java.JavaTest;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link PersistenceWriteQueue}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceWriteQueueTest extends JavaTest {
+
+    /**
+     * A persistence service which records the batches it stores.
+     */
+    private static class BatchPersistenceService implements PersistenceService {
+
+        private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String getId() {
+            return "batch";
+        }
+
+        @Override
+        public String getLabel(Locale locale) {
+            return "Batch";
+        }
+
+        @Override
+        public void store(Item item) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void store(Item item, String alias) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void store(Collection<PersistenceRecord> records) {
+            List<Integer> batch = new ArrayList<>(records.size());
+            for (PersistenceRecord record : records) {
+                batch.add(((DecimalType) record.getState()).intValue());
+            }
+            batches.add(batch);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        private List<Integer> getStoredValues() {
+            List<Integer> values = new ArrayList<>();
+            synchronized (batches) {
+                for (List<Integer> batch : batches) {
+                    values.addAll(batch);
+                }
+            }
+            return values;
+        }
+    }
+
+    private final NumberItem item = new NumberItem("number");
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private BatchPersistenceService service;
+
+    @Before
+    public void setup() {
+        service = new BatchPersistenceService();
+    }
+
+    @Test
+    public void assertThatRecordsAreStoredInOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PersistenceWriteQueue queue = new PersistenceWriteQueue(service, executor, 100, 7);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                queue.add(record(i));
+                expected.add(i);
+            }
+
+            waitForAssert(() -> assertThat(service.getStoredValues(), is(expected)));
+            for (List<Integer> batch : service.batches) {
+                assertTrue(batch.size() <= 7);
+            }
+            PersistenceServiceStatistics statistics = queue.getStatistics();
+            assertThat(statistics.getStoredRecords(), is(1000L));
+            assertThat(statistics.getQueueSize(), is(0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void assertThatCallerWritesWhenQueueIsFull() {
+        PersistenceWriteQueue queue = new PersistenceWriteQueue(service, tasks::add, 2, 2);
+        for (int i = 1; i <= 5; i++) {
+            queue.add(record(i));
+        }
+
+        // the executor has not run yet, so the full queue has been written by the calling thread
+        assertThat(tasks.size(), is(1));
+        assertThat(service.batches, is(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4))));
+        assertThat(service.threads, everyItem(is(Thread.currentThread().getName())));
+        assertThat(queue.getStatistics().getQueueSize(), is(1));
+
+        tasks.get(0).run();
+        assertThat(service.getStoredValues(), is(Arrays.asList(1, 2, 3, 4, 5)));
+        assertThat(queue.getStatistics().getQueueSize(), is(0));
+    }
+
+    @Test
+    public void assertThatQueueIsDrainedOnClose() {
+        PersistenceWriteQueue queue = new PersistenceWriteQueue(service, tasks::add, 100, 2);
+        queue.addAll(Arrays.asList(record(1), record(2), record(3)));
+        assertThat(service.batches.isEmpty(), is(true));
+
+        queue.close();
+        assertThat(service.getStoredValues(), is(Arrays.asList(1, 2, 3)));
+
+        // records which arrive after the close are discarded
+        queue.add(record(4));
+        assertThat(service.getStoredValues(), is(Arrays.asList(1, 2, 3)));
+
+        // the scheduled write finds nothing left to do
+        tasks.forEach(Runnable::run);
+        assertThat(service.getStoredValues(), is(Arrays.asList(1, 2, 3)));
+        assertThat(queue.getStatistics().getQueueSize(), is(0));
+    }
+
+    @Test
+    public void assertThatFailedBatchesAreCounted() {
+        PersistenceService failingService = new BatchPersistenceService() {
+            @Override
+            public void store(Collection<PersistenceRecord> records) {
+                throw new IllegalStateException("database is gone");
+            }
+        };
+        PersistenceWriteQueue queue = new PersistenceWriteQueue(failingService, tasks::add, 100, 10);
+        queue.addAll(Arrays.asList(record(1), record(2)));
+        tasks.forEach(Runnable::run);
+
+        PersistenceServiceStatistics statistics = queue.getStatistics();
+        assertThat(statistics.getFailedRecords(), is(2L));
+        assertThat(statistics.getStoredRecords(), is(0L));
+        assertThat(statistics.getQueueSize(), is(0));
+    }
+
+    private PersistenceRecord record(int value) {
+        return new PersistenceRecord(item, null, new DecimalType(value), new Date());
+    }
+
+}
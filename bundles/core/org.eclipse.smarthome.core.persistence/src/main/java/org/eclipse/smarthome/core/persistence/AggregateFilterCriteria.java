@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * This class is used to define an aggregation query for a {@link QueryablePersistenceService}.
+ *
+ * <p>
+ * In addition to the constraints of the {@link FilterCriteria}, it defines the size of the time buckets and the
+ * {@link AggregateFunction}s which are computed per item and bucket. The buckets start at the begin date of the
+ * filter, or at a multiple of the bucket size since the epoch if there is no begin date. A bucket size of 0 aggregates
+ * the whole time range into a single bucket. If no function is given, all functions are computed.
+ *
+ * <p>
+ * The ordering and paging of the filter criteria are not used, the aggregated buckets are always returned in ascending
+ * order of time. Buckets without any persisted state are omitted.
+ *
+ * <p>
+ * The setters of the {@link FilterCriteria} are overridden to return this class, so that an aggregation query can be
+ * built fluently.
+ *
+ * @author agent - Initial contribution
+ */
+public class AggregateFilterCriteria extends FilterCriteria {
+
+    /** the length of a bucket in milliseconds */
+    private long bucketSize = 0;
+
+    /** the functions which are computed per bucket */
+    private final Set<AggregateFunction> functions = EnumSet.noneOf(AggregateFunction.class);
+
+    public long getBucketSize() {
+        return bucketSize;
+    }
+
+    public Set<AggregateFunction> getFunctions() {
+        if (functions.isEmpty()) {
+            return Collections.unmodifiableSet(EnumSet.allOf(AggregateFunction.class));
+        }
+        return Collections.unmodifiableSet(functions);
+    }
+
+    public AggregateFilterCriteria setBucketSize(long bucketSize) {
+        if (bucketSize < 0) {
+            throw new IllegalArgumentException("The bucket size must not be negative.");
+        }
+        this.bucketSize = bucketSize;
+        return this;
+    }
+
+    public AggregateFilterCriteria addFunction(AggregateFunction function) {
+        this.functions.add(function);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setItemName(String itemName) {
+        super.setItemName(itemName);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setBeginDate(Date beginDate) {
+        super.setBeginDate(beginDate);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setEndDate(Date endDate) {
+        super.setEndDate(endDate);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setPageNumber(int pageNumber) {
+        super.setPageNumber(pageNumber);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setPageSize(int pageSize) {
+        super.setPageSize(pageSize);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setOperator(Operator operator) {
+        super.setOperator(operator);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setOrdering(Ordering ordering) {
+        super.setOrdering(ordering);
+        return this;
+    }
+
+    @Override
+    public AggregateFilterCriteria setState(State state) {
+        super.setState(state);
+        return this;
+    }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+/**
+ * The functions which can be computed per bucket by {@link QueryablePersistenceService#aggregate}.
+ *
+ * The numeric functions consider only the states which can be converted to a decimal value, e.g. numbers, switches and
+ * contacts. Their result is a {@link org.eclipse.smarthome.core.library.types.DecimalType DecimalType}.
+ *
+ * @author agent - Initial contribution
+ */
+public enum AggregateFunction {
+
+    /** the arithmetic mean of the numeric states, not weighted by time */
+    AVG,
+
+    /** the lowest numeric state */
+    MIN,
+
+    /** the highest numeric state */
+    MAX,
+
+    /** the sum of the numeric states */
+    SUM,
+
+    /** the number of persisted states, including those which are not numeric */
+    COUNT,
+
+    /** the latest persisted state, which does not have to be numeric */
+    LAST
+
+}
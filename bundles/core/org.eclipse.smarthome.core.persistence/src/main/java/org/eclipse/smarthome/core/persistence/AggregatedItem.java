@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+import java.util.Date;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * This interface is used by persistence services to represent the aggregated states of an item within one bucket of
+ * time.
+ *
+ * @author agent - Initial contribution
+ */
+public interface AggregatedItem {
+
+    /**
+     * returns the name of the item
+     *
+     * @return the name of the item
+     */
+    @NonNull
+    String getName();
+
+    /**
+     * returns the begin of the bucket
+     *
+     * @return the begin of the bucket (inclusive)
+     */
+    @NonNull
+    Date getBeginDate();
+
+    /**
+     * returns the end of the bucket
+     *
+     * @return the end of the bucket (exclusive)
+     */
+    @NonNull
+    Date getEndDate();
+
+    /**
+     * returns the result of an aggregate function for this bucket
+     *
+     * @param function the function
+     * @return the result or null, if the function has not been requested or none of the states of the bucket is
+     *         numeric
+     */
+    @Nullable
+    State getValue(@NonNull AggregateFunction function);
+
+}
@@ -7,6 +7,7 @@
  */
 package org.eclipse.smarthome.core.persistence;
 
+import java.util.Collection;
 import java.util.Date;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -41,6 +42,27 @@ public interface ModifiablePersistenceService extends QueryablePersistenceServic
      */
     void store(@NonNull Item item, @NonNull Date date, @NonNull State state);
 
+    /**
+     * Stores a batch of recorded item states.
+     * <p>
+     * The default implementation calls {@link #store(Item, Date, State)} for every record without an alias, so the
+     * recorded state and timestamp are persisted. Records with an alias other than the item name are passed to
+     * {@link #store(Item, String)} and thus persist the current state of the item.
+     *
+     * @param records the records to store in the order they were recorded
+     */
+    @Override
+    default void store(@NonNull Collection<PersistenceRecord> records) {
+        for (PersistenceRecord record : records) {
+            String alias = record.getAlias();
+            if (alias == null || alias.equals(record.getItem().getName())) {
+                store(record.getItem(), record.getTimestamp(), record.getState());
+            } else {
+                store(record.getItem(), alias);
+            }
+        }
+    }
+
     /**
      * Removes data associated with an item from a persistence service.
      * If all data is removed for the specified item, the persistence service should free any resources associated with
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+import java.util.Date;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * A state of an item to be stored by {@link PersistenceService#store(java.util.Collection)}, together with the time
+ * it was recorded and the alias under which it should be persisted.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceRecord {
+
+    private final Item item;
+
+    private final String alias;
+
+    private final State state;
+
+    private final Date timestamp;
+
+    /**
+     * Creates a record.
+     *
+     * @param item the item whose state is recorded (not null)
+     * @param alias the alias under which the item should be persisted, null to use the item name
+     * @param state the recorded state (not null)
+     * @param timestamp the time the state was recorded (not null)
+     */
+    public PersistenceRecord(Item item, String alias, State state, Date timestamp) {
+        this.item = item;
+        this.alias = alias;
+        this.state = state;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Creates a record of the current state of an item.
+     *
+     * @param item the item whose state is recorded (not null)
+     * @param alias the alias under which the item should be persisted, null to use the item name
+     */
+    public PersistenceRecord(Item item, String alias) {
+        this(item, alias, item.getState(), new Date());
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return item.getName() + (alias != null ? " (" + alias + ")" : "") + " -> " + state + " at " + timestamp;
+    }
+
+}
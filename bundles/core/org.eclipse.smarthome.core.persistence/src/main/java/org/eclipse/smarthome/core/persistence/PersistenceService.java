@@ -7,6 +7,7 @@
  */
 package org.eclipse.smarthome.core.persistence;
 
+import java.util.Collection;
 import java.util.Locale;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -66,4 +67,27 @@ public interface PersistenceService {
      * @param alias the alias under which the item should be persisted.
      */
     void store(@NonNull Item item, @NonNull String alias);
+
+    /**
+     * Stores a batch of recorded item states.
+     * <p>
+     * The persistence manager passes all records which are queued for this service at once, so implementors should
+     * override this method to write them in a single transaction or request, in the given order.
+     * <p>
+     * The default implementation calls {@link #store(Item)} or {@link #store(Item, String)} for every record and thus
+     * persists the <em>current</em> state of the items instead of the recorded state and timestamp. The persistence
+     * manager therefore only queues the records of services which override this method, the records for all other
+     * services are stored right away.
+     *
+     * @param records the records to store in the order they were recorded
+     */
+    default void store(@NonNull Collection<PersistenceRecord> records) {
+        for (PersistenceRecord record : records) {
+            if (record.getAlias() != null) {
+                store(record.getItem(), record.getAlias());
+            } else {
+                store(record.getItem());
+            }
+        }
+    }
 }
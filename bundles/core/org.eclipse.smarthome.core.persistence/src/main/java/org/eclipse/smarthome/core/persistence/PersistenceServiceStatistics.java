@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+/**
+ * The {@link PersistenceServiceStatistics} is a snapshot of the write queue of one {@link PersistenceService}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceServiceStatistics {
+
+    private final String serviceId;
+
+    private final int queueSize;
+
+    private final int queueCapacity;
+
+    private final long lag;
+
+    private final long storedRecords;
+
+    private final long failedRecords;
+
+    private final long batches;
+
+    private final long lastFlushLatency;
+
+    private final long maxFlushLatency;
+
+    /**
+     * Creates a new statistics snapshot.
+     *
+     * @param serviceId the id of the persistence service
+     * @param queueSize the number of records waiting to be stored
+     * @param queueCapacity the maximum number of records waiting to be stored
+     * @param lag the time in milliseconds the oldest waiting record is queued
+     * @param storedRecords the number of records stored so far
+     * @param failedRecords the number of records the persistence service failed to store
+     * @param batches the number of batches passed to the persistence service so far
+     * @param lastFlushLatency the time in milliseconds from queuing the first record of the last batch until the
+     *            batch was stored
+     * @param maxFlushLatency the maximum flush latency in milliseconds so far
+     */
+    public PersistenceServiceStatistics(String serviceId, int queueSize, int queueCapacity, long lag,
+            long storedRecords, long failedRecords, long batches, long lastFlushLatency, long maxFlushLatency) {
+        this.serviceId = serviceId;
+        this.queueSize = queueSize;
+        this.queueCapacity = queueCapacity;
+        this.lag = lag;
+        this.storedRecords = storedRecords;
+        this.failedRecords = failedRecords;
+        this.batches = batches;
+        this.lastFlushLatency = lastFlushLatency;
+        this.maxFlushLatency = maxFlushLatency;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the time in milliseconds the oldest record waiting to be stored is queued.
+     *
+     * @return the lag in milliseconds, 0 if the queue is empty
+     */
+    public long getLag() {
+        return lag;
+    }
+
+    public long getStoredRecords() {
+        return storedRecords;
+    }
+
+    public long getFailedRecords() {
+        return failedRecords;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns the time in milliseconds from queuing the first record of the last batch until the batch was stored.
+     *
+     * @return the latency in milliseconds, 0 if no batch has been stored yet
+     */
+    public long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    public long getMaxFlushLatency() {
+        return maxFlushLatency;
+    }
+
+    @Override
+    public String toString() {
+        return serviceId + " [queue=" + queueSize + "/" + queueCapacity + ", lag=" + lag + "ms, stored="
+                + storedRecords + ", failed=" + failedRecords + ", batches=" + batches + ", flushLatency="
+                + lastFlushLatency + "ms, maxFlushLatency=" + maxFlushLatency + "ms]";
+    }
+
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+import java.util.List;
+
+/**
+ * The {@link PersistenceStatistics} is provided by the persistence manager as OSGi service in order to monitor the
+ * write queues of the {@link PersistenceService}s.
+ *
+ * @author agent - Initial contribution
+ */
+public interface PersistenceStatistics {
+
+    /**
+     * Returns a snapshot of the write queues of all persistence services which store batches of records.
+     *
+     * @return the statistics per persistence service (not null)
+     */
+    List<PersistenceServiceStatistics> getPersistenceServiceStatistics();
+
+}
@@ -18,6 +18,7 @@ import org.eclipse.smarthome.core.items.Item;
  *
  * @author Kai Kreuzer - Initial contribution and API
  * @author Chris Jackson - Added getItems method
+ * @author agent - Added aggregate method
  */
 public interface QueryablePersistenceService extends PersistenceService {
 
@@ -30,6 +31,22 @@ public interface QueryablePersistenceService extends PersistenceService {
     @NonNull
     Iterable<@NonNull HistoricItem> query(@NonNull FilterCriteria filter);
 
+    /**
+     * Queries the {@link PersistenceService} for data with a given filter criteria and aggregates it per item and
+     * time bucket, see {@link AggregateFilterCriteria}.
+     *
+     * The default implementation iterates over the result of {@link #query(FilterCriteria)} and aggregates the states
+     * in a single pass without holding them in memory. Services which can aggregate in their database should override
+     * this method.
+     *
+     * @param filter the filter to apply to the query, together with the bucket size and aggregate functions
+     * @return the aggregated buckets in ascending order of time
+     */
+    @NonNull
+    default Iterable<@NonNull AggregatedItem> aggregate(@NonNull AggregateFilterCriteria filter) {
+        return new StreamingAggregation(this, filter);
+    }
+
     /**
      * Returns a list of items that are stored in the persistence service
      *
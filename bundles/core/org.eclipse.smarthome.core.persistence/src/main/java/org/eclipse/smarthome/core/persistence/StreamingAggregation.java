@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * The generic implementation of {@link QueryablePersistenceService#aggregate} for services which cannot aggregate
+ * natively.
+ *
+ * The persisted states are queried in ascending order of time and aggregated while iterating over them, so only the
+ * aggregates of the current bucket are held in memory, one per item. The query is run for every iteration.
+ *
+ * @author agent - Initial contribution
+ */
+final class StreamingAggregation implements Iterable<AggregatedItem> {
+
+    private final QueryablePersistenceService service;
+
+    private final AggregateFilterCriteria criteria;
+
+    StreamingAggregation(QueryablePersistenceService service, AggregateFilterCriteria criteria) {
+        this.service = service;
+        this.criteria = criteria;
+    }
+
+    @Override
+    public Iterator<AggregatedItem> iterator() {
+        FilterCriteria filter = new FilterCriteria().setItemName(criteria.getItemName())
+                .setBeginDate(criteria.getBeginDate()).setEndDate(criteria.getEndDate())
+                .setOperator(criteria.getOperator()).setState(criteria.getState()).setOrdering(Ordering.ASCENDING);
+        return new BucketIterator(service.query(filter).iterator());
+    }
+
+    private class BucketIterator implements Iterator<AggregatedItem> {
+
+        private final Iterator<HistoricItem> rows;
+
+        private final long bucketSize = criteria.getBucketSize();
+
+        private final long origin = criteria.getBeginDate() != null ? criteria.getBeginDate().getTime() : 0;
+
+        private final Set<AggregateFunction> functions = criteria.getFunctions();
+
+        private final Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+
+        private final Queue<AggregatedItem> completed = new ArrayDeque<>();
+
+        private long bucket;
+
+        private BucketIterator(Iterator<HistoricItem> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (completed.isEmpty() && (rows.hasNext() || !aggregates.isEmpty())) {
+                if (rows.hasNext()) {
+                    HistoricItem row = rows.next();
+                    long time = row.getTimestamp().getTime();
+                    long rowBucket = bucketSize > 0 ? Math.floorDiv(time - origin, bucketSize) : 0;
+                    if (rowBucket != bucket) {
+                        complete();
+                        bucket = rowBucket;
+                    }
+                    aggregates.computeIfAbsent(row.getName(), Aggregate::new).add(time, row.getState());
+                } else {
+                    complete();
+                }
+            }
+            return !completed.isEmpty();
+        }
+
+        @Override
+        public AggregatedItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return completed.poll();
+        }
+
+        private void complete() {
+            for (Aggregate aggregate : aggregates.values()) {
+                completed.add(aggregate.toItem());
+            }
+            aggregates.clear();
+        }
+
+        /**
+         * The aggregate of one item within the current bucket.
+         */
+        private class Aggregate {
+
+            private final String name;
+
+            private long count;
+
+            private long numericCount;
+
+            private BigDecimal sum = BigDecimal.ZERO;
+
+            private BigDecimal min;
+
+            private BigDecimal max;
+
+            private State last;
+
+            private long firstTime;
+
+            private long lastTime;
+
+            private Aggregate(String name) {
+                this.name = name;
+            }
+
+            private void add(long time, State state) {
+                if (count == 0) {
+                    firstTime = time;
+                }
+                count++;
+                lastTime = time;
+                last = state;
+                State decimal = state.as(DecimalType.class);
+                if (decimal instanceof DecimalType) {
+                    BigDecimal value = ((DecimalType) decimal).toBigDecimal();
+                    numericCount++;
+                    sum = sum.add(value);
+                    min = min == null || value.compareTo(min) < 0 ? value : min;
+                    max = max == null || value.compareTo(max) > 0 ? value : max;
+                }
+            }
+
+            private AggregatedItem toItem() {
+                Date begin;
+                Date end;
+                if (bucketSize > 0) {
+                    begin = new Date(origin + bucket * bucketSize);
+                    end = new Date(begin.getTime() + bucketSize);
+                } else {
+                    begin = criteria.getBeginDate() != null ? criteria.getBeginDate() : new Date(firstTime);
+                    end = criteria.getEndDate() != null ? criteria.getEndDate() : new Date(lastTime + 1);
+                }
+                Map<AggregateFunction, State> values = new EnumMap<>(AggregateFunction.class);
+                for (AggregateFunction function : functions) {
+                    State value = getValue(function);
+                    if (value != null) {
+                        values.put(function, value);
+                    }
+                }
+                return new SimpleAggregatedItem(name, begin, end, values);
+            }
+
+            private State getValue(AggregateFunction function) {
+                switch (function) {
+                    case COUNT:
+                        return new DecimalType(count);
+                    case LAST:
+                        return last;
+                    default:
+                        break;
+                }
+                if (numericCount == 0) {
+                    return null;
+                }
+                switch (function) {
+                    case AVG:
+                        return new DecimalType(
+                                sum.divide(BigDecimal.valueOf(numericCount), MathContext.DECIMAL64));
+                    case MIN:
+                        return new DecimalType(min);
+                    case MAX:
+                        return new DecimalType(max);
+                    case SUM:
+                        return new DecimalType(sum);
+                    default:
+                        return null;
+                }
+            }
+        }
+    }
+
+    private static class SimpleAggregatedItem implements AggregatedItem {
+
+        private final String name;
+
+        private final Date beginDate;
+
+        private final Date endDate;
+
+        private final Map<AggregateFunction, State> values;
+
+        private SimpleAggregatedItem(String name, Date beginDate, Date endDate, Map<AggregateFunction, State> values) {
+            this.name = name;
+            this.beginDate = beginDate;
+            this.endDate = endDate;
+            this.values = values;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Date getBeginDate() {
+            return beginDate;
+        }
+
+        @Override
+        public Date getEndDate() {
+            return endDate;
+        }
+
+        @Override
+        public State getValue(AggregateFunction function) {
+            return values.get(function);
+        }
+
+        @Override
+        public String toString() {
+            return name + " [" + beginDate + " - " + endDate + "]: " + values;
+        }
+    }
+
+}
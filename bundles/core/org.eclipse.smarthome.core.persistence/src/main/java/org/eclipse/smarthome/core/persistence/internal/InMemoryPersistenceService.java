@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.eclipse.smarthome.core.persistence.PersistenceServiceRegistry;
+import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link QueryablePersistenceService} which keeps the recent states of the items in memory, so that rules and
+ * charts can query the recent history, e.g. by the persistence extensions previousState, changedSince, historicState
+ * or lastUpdate, without accessing a database. It is configured by a "inmemory.persist" file like any other service.
+ *
+ * The service is only registered once a configuration for the pid {@code org.eclipse.smarthome.persistence.inmemory}
+ * exists, e.g. in services.cfg. Otherwise it would be an additional service in every installation, and the only
+ * installed persistence add-on would no longer be used as the default service.
+ *
+ * Undefined states are not stored. For every item, at most {@code maxSize} states are kept, and states older than
+ * {@code maxAge} milliseconds (0 keeps them until they are overwritten) are removed, except the latest one, see
+ * {@link ItemHistory}.
+ *
+ * If the id of another queryable persistence service is configured as {@code backend}, the queries which cannot be
+ * answered completely from memory, because older states might belong to the result, are passed on to the backend.
+ * This requires the same items to be persisted with the same strategies by both services, so that the recent states
+ * in memory are the same as in the backend.
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = PersistenceService.class, immediate = true,
+        configurationPid = "org.eclipse.smarthome.persistence.inmemory",
+        configurationPolicy = ConfigurationPolicy.REQUIRE)
+public class InMemoryPersistenceService implements QueryablePersistenceService {
+
+    private static final String SERVICE_ID = "inmemory";
+
+    private static final String CONFIG_MAX_SIZE = "maxSize";
+
+    private static final String CONFIG_MAX_AGE = "maxAge";
+
+    private static final String CONFIG_BACKEND = "backend";
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final long DEFAULT_MAX_AGE = 24 * 60 * 60 * 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(InMemoryPersistenceService.class);
+
+    private final Map<String, ItemHistory> histories = new ConcurrentHashMap<>();
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    private volatile long maxAge = DEFAULT_MAX_AGE;
+
+    private volatile String backendId;
+
+    private volatile PersistenceServiceRegistry persistenceServiceRegistry;
+
+    @Activate
+    protected void activate(Map<String, Object> config) {
+        modified(config);
+    }
+
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        maxSize = Math.max(1, (int) getLongConfig(config, CONFIG_MAX_SIZE, DEFAULT_MAX_SIZE));
+        maxAge = Math.max(0, getLongConfig(config, CONFIG_MAX_AGE, DEFAULT_MAX_AGE));
+        Object backendConfig = config != null ? config.get(CONFIG_BACKEND) : null;
+        backendId = backendConfig != null && !backendConfig.toString().trim().isEmpty()
+                ? backendConfig.toString().trim() : null;
+    }
+
+    private long getLongConfig(Map<String, Object> config, String key, long defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", value, key);
+            }
+        }
+        return defaultValue;
+    }
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    protected void setPersistenceServiceRegistry(PersistenceServiceRegistry persistenceServiceRegistry) {
+        this.persistenceServiceRegistry = persistenceServiceRegistry;
+    }
+
+    protected void unsetPersistenceServiceRegistry(PersistenceServiceRegistry persistenceServiceRegistry) {
+        this.persistenceServiceRegistry = null;
+    }
+
+    @Override
+    public String getId() {
+        return SERVICE_ID;
+    }
+
+    @Override
+    public String getLabel(Locale locale) {
+        return "In-Memory";
+    }
+
+    @Override
+    public void store(Item item) {
+        store(item, null);
+    }
+
+    @Override
+    public void store(Item item, String alias) {
+        if (item.getState() instanceof UnDefType) {
+            return;
+        }
+        String name = alias != null ? alias : item.getName();
+        ItemHistory history = histories.computeIfAbsent(name, ItemHistory::new);
+        long now = System.currentTimeMillis();
+        history.add(now, item.getState(), maxSize);
+        if (maxAge > 0) {
+            history.removeOlderThan(now - maxAge);
+        }
+    }
+
+    @Override
+    public Iterable<HistoricItem> query(FilterCriteria filter) {
+        QueryablePersistenceService backend = getBackend();
+        String itemName = filter.getItemName();
+        if (itemName == null) {
+            return backend != null ? backend.query(filter) : queryAll(filter);
+        }
+        ItemHistory history = histories.get(itemName);
+        if (history != null) {
+            if (maxAge > 0) {
+                history.removeOlderThan(System.currentTimeMillis() - maxAge);
+            }
+            List<HistoricItem> result = history.query(filter, backend == null);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (backend != null) {
+            logger.trace("Passing query for item '{}' on to persistence service '{}'", itemName, backendId);
+            return backend.query(filter);
+        }
+        return new ArrayList<>(0);
+    }
+
+    private List<HistoricItem> queryAll(FilterCriteria filter) {
+        FilterCriteria itemFilter = new FilterCriteria().setBeginDate(filter.getBeginDate())
+                .setEndDate(filter.getEndDate()).setOperator(filter.getOperator()).setState(filter.getState())
+                .setOrdering(filter.getOrdering());
+        List<HistoricItem> result = new ArrayList<>();
+        for (ItemHistory history : histories.values()) {
+            result.addAll(history.query(itemFilter, true));
+        }
+        Comparator<HistoricItem> byTime = Comparator.comparing(HistoricItem::getTimestamp);
+        result.sort(filter.getOrdering() == Ordering.ASCENDING ? byTime : byTime.reversed());
+        long from = Math.min(result.size(), (long) filter.getPageNumber() * filter.getPageSize());
+        long to = Math.min(result.size(), from + filter.getPageSize());
+        return new ArrayList<>(result.subList((int) from, (int) to));
+    }
+
+    private QueryablePersistenceService getBackend() {
+        String id = backendId;
+        PersistenceServiceRegistry registry = persistenceServiceRegistry;
+        if (id == null || registry == null || SERVICE_ID.equals(id)) {
+            return null;
+        }
+        PersistenceService service = registry.get(id);
+        return service instanceof QueryablePersistenceService ? (QueryablePersistenceService) service : null;
+    }
+
+    @Override
+    public Set<PersistenceItemInfo> getItemInfo() {
+        Set<PersistenceItemInfo> itemInfo = new HashSet<>();
+        for (ItemHistory history : histories.values()) {
+            final String name = history.getName();
+            final Integer count = history.size();
+            final Date earliest = history.getEarliest();
+            final Date latest = history.getLatest();
+            itemInfo.add(new PersistenceItemInfo() {
+
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public Integer getCount() {
+                    return count;
+                }
+
+                @Override
+                public Date getEarliest() {
+                    return earliest;
+                }
+
+                @Override
+                public Date getLatest() {
+                    return latest;
+                }
+            });
+        }
+        return itemInfo;
+    }
+
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * The {@link ItemHistory} keeps the recent states of one item for the {@link InMemoryPersistenceService}.
+ *
+ * The timestamps are held in a ring buffer of primitive longs, next to a ring buffer of the (immutable) states, which
+ * starts small and grows up to the maximum number of states. Once the buffer is full, the oldest state is overwritten.
+ * States older than the maximum age are removed, except the latest one, so that the state of the item at any time
+ * after it remains known. The timestamps never decrease, so the buffer is always ordered by time.
+ *
+ * Since the history is complete from its oldest state on, it knows whether it can answer a query completely or only
+ * in part.
+ *
+ * @author agent - Initial contribution
+ */
+final class ItemHistory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String name;
+
+    // guarded by this
+    private long[] times;
+
+    // guarded by this
+    private State[] states;
+
+    // guarded by this, the index of the oldest state
+    private int head;
+
+    // guarded by this
+    private int size;
+
+    ItemHistory(String name) {
+        this.name = name;
+        this.times = new long[INITIAL_CAPACITY];
+        this.states = new State[INITIAL_CAPACITY];
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Adds the latest state of the item.
+     *
+     * @param time the time of the state, it is raised to the time of the latest state if it is earlier
+     * @param state the state
+     * @param maxSize the maximum number of states to keep
+     */
+    synchronized void add(long time, State state, int maxSize) {
+        if (size > 0) {
+            time = Math.max(time, getTime(size - 1));
+        }
+        if (size == times.length && times.length < maxSize) {
+            grow(Math.min(maxSize, times.length * 2));
+        }
+        if (size < times.length) {
+            int index = (head + size) % times.length;
+            times[index] = time;
+            states[index] = state;
+            size++;
+        } else {
+            times[head] = time;
+            states[head] = state;
+            head = (head + 1) % times.length;
+        }
+        while (size > maxSize) {
+            removeOldest();
+        }
+    }
+
+    private void grow(int capacity) {
+        long[] newTimes = new long[capacity];
+        State[] newStates = new State[capacity];
+        for (int i = 0; i < size; i++) {
+            newTimes[i] = getTime(i);
+            newStates[i] = getState(i);
+        }
+        times = newTimes;
+        states = newStates;
+        head = 0;
+    }
+
+    private void removeOldest() {
+        states[head] = null;
+        head = (head + 1) % times.length;
+        size--;
+    }
+
+    /**
+     * Removes the states which are older than the given time, except the latest state.
+     *
+     * @param time the time of the oldest state to keep
+     */
+    synchronized void removeOlderThan(long time) {
+        while (size > 1 && getTime(0) < time) {
+            removeOldest();
+        }
+    }
+
+    private long getTime(int position) {
+        return times[(head + position) % times.length];
+    }
+
+    private State getState(int position) {
+        return states[(head + position) % times.length];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized Date getEarliest() {
+        return size > 0 ? new Date(getTime(0)) : null;
+    }
+
+    synchronized Date getLatest() {
+        return size > 0 ? new Date(getTime(size - 1)) : null;
+    }
+
+    /**
+     * Queries the states of the item. The item name of the filter is not checked.
+     *
+     * @param filter the filter to apply
+     * @param partial true if a partial result should be returned, false if null should be returned instead
+     * @return the matching states in the order and page of the filter, or null if states older than the history might
+     *         belong to the result and partial results are not requested
+     */
+    synchronized List<HistoricItem> query(FilterCriteria filter, boolean partial) {
+        long begin = filter.getBeginDate() != null ? filter.getBeginDate().getTime() : Long.MIN_VALUE;
+        long end = filter.getEndDate() != null ? filter.getEndDate().getTime() : Long.MAX_VALUE;
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        int pageSize = filter.getPageSize();
+        boolean descending = filter.getOrdering() != Ordering.ASCENDING;
+
+        // all states since the begin are known, if the history reaches back to it
+        boolean complete = size > 0 && begin >= getTime(0);
+        List<HistoricItem> result = new ArrayList<>(Math.min(pageSize, size));
+        long matches = 0;
+        for (int i = 0; i < size && result.size() < pageSize; i++) {
+            int position = descending ? size - 1 - i : i;
+            long time = getTime(position);
+            if (time < begin || time > end) {
+                continue;
+            }
+            State state = getState(position);
+            if (!matches(filter, state)) {
+                continue;
+            }
+            if (matches++ >= skip) {
+                result.add(new MemoryHistoricItem(name, state, time));
+            }
+        }
+        if (descending && result.size() == pageSize) {
+            // the page is filled with the latest matching states, older states cannot change it
+            complete = true;
+        }
+        return complete || partial ? result : null;
+    }
+
+    private boolean matches(FilterCriteria filter, State state) {
+        State filterState = filter.getState();
+        if (filterState == null) {
+            return true;
+        }
+        switch (filter.getOperator()) {
+            case EQ:
+                return filterState.equals(state);
+            case NEQ:
+                return !filterState.equals(state);
+            default:
+                break;
+        }
+        State value = state.as(DecimalType.class);
+        State filterValue = filterState.as(DecimalType.class);
+        if (!(value instanceof DecimalType) || !(filterValue instanceof DecimalType)) {
+            return false;
+        }
+        BigDecimal decimal = ((DecimalType) value).toBigDecimal();
+        int comparison = decimal.compareTo(((DecimalType) filterValue).toBigDecimal());
+        switch (filter.getOperator()) {
+            case GT:
+                return comparison > 0;
+            case GTE:
+                return comparison >= 0;
+            case LT:
+                return comparison < 0;
+            case LTE:
+                return comparison <= 0;
+            default:
+                return false;
+        }
+    }
+
+    private static final class MemoryHistoricItem implements HistoricItem {
+
+        private final String name;
+
+        private final State state;
+
+        private final long time;
+
+        private MemoryHistoricItem(String name, State state, long time) {
+            this.name = name;
+            this.state = state;
+            this.time = time;
+        }
+
+        @Override
+        public Date getTimestamp() {
+            return new Date(time);
+        }
+
+        @Override
+        public State getState() {
+            return state;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name + " -> " + state + " at " + new Date(time);
+        }
+    }
+
+}
@@ -7,10 +7,12 @@
  */
 package org.eclipse.smarthome.core.persistence.internal;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.persistence.PersistenceRecord;
 import org.eclipse.smarthome.core.persistence.PersistenceService;
 import org.eclipse.smarthome.core.persistence.PersistenceServiceConfiguration;
 import org.eclipse.smarthome.core.persistence.SimpleItemConfiguration;
@@ -45,17 +47,19 @@ public class PersistItemsJob implements Runnable {
             final PersistenceServiceConfiguration config = manager.persistenceServiceConfigs.get(dbId);
 
             if (persistenceService != null) {
+                List<PersistenceRecord> records = new ArrayList<>();
                 for (SimpleItemConfiguration itemConfig : config.getConfigs()) {
                     if (hasStrategy(config.getDefaults(), itemConfig, strategyName)) {
                         for (Item item : manager.getAllItems(itemConfig)) {
-                            long startTime = System.nanoTime();
-                            persistenceService.store(item, itemConfig.getAlias());
-                            logger.trace("Storing item '{}' with persistence service '{}' took {}ms", item.getName(),
-                                    dbId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                            records.add(new PersistenceRecord(item, itemConfig.getAlias()));
                         }
                     }
 
                 }
+                long startTime = System.nanoTime();
+                manager.store(dbId, persistenceService, records);
+                logger.trace("Storing {} items with persistence service '{}' took {}ms", records.size(), dbId,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
             }
         }
     }
@@ -9,7 +9,9 @@ package org.eclipse.smarthome.core.persistence.internal;
 
 import java.text.DateFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -17,7 +19,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.GroupItem;
 import org.eclipse.smarthome.core.items.Item;
@@ -28,8 +32,11 @@ import org.eclipse.smarthome.core.items.StateChangeListener;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
 import org.eclipse.smarthome.core.persistence.HistoricItem;
 import org.eclipse.smarthome.core.persistence.PersistenceManager;
+import org.eclipse.smarthome.core.persistence.PersistenceRecord;
 import org.eclipse.smarthome.core.persistence.PersistenceService;
 import org.eclipse.smarthome.core.persistence.PersistenceServiceConfiguration;
+import org.eclipse.smarthome.core.persistence.PersistenceServiceStatistics;
+import org.eclipse.smarthome.core.persistence.PersistenceStatistics;
 import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
 import org.eclipse.smarthome.core.persistence.SimpleItemConfiguration;
 import org.eclipse.smarthome.core.persistence.config.SimpleAllConfig;
@@ -43,7 +50,10 @@ import org.eclipse.smarthome.core.scheduler.ExpressionThreadPoolManager;
 import org.eclipse.smarthome.core.scheduler.ExpressionThreadPoolManager.ExpressionThreadPoolExecutor;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
@@ -53,11 +63,33 @@ import org.slf4j.LoggerFactory;
 /**
  * This class implements a persistence manager to manage all persistence services etc.
  *
+ * The records for persistence services which override {@link PersistenceService#store(Collection)} are queued and
+ * written in batches per service by a {@link PersistenceWriteQueue} on the "persistence" thread pool. The capacity of
+ * the queues and the maximum number of records per batch can be configured by {@code queueSize} and {@code batchSize}
+ * of the "system:persistence" configuration and apply to services added afterwards. The records for all other
+ * services are stored right away.
+ *
+ * Item state events are routed by a {@link PersistenceRoutingTable}, which is built when the configurations change
+ * and patched when items are added, updated or removed, so the event path neither takes a lock nor evaluates the
+ * configurations.
+ *
  * @author Kai Kreuzer - Initial contribution and API
  * @author Markus Rathgeb - Separation of persistence core and model, drop Quartz usage.
  */
-@Component(service = PersistenceManager.class, immediate = true)
-public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryChangeListener, StateChangeListener {
+@Component(service = { PersistenceManager.class,
+        PersistenceStatistics.class }, immediate = true, configurationPid = "org.eclipse.smarthome.persistence")
+public class PersistenceManagerImpl
+        implements PersistenceManager, PersistenceStatistics, ItemRegistryChangeListener, StateChangeListener {
+
+    private static final String CONFIG_QUEUE_SIZE = "queueSize";
+
+    private static final String CONFIG_BATCH_SIZE = "batchSize";
+
+    private static final String THREAD_POOL_NAME = "persistence";
+
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
 
     private final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
 
@@ -66,20 +98,52 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
 
     private ItemRegistry itemRegistry;
 
-    final Map<String, PersistenceService> persistenceServices = new HashMap<>();
+    final Map<String, PersistenceService> persistenceServices = new ConcurrentHashMap<>();
     final Map<String, PersistenceServiceConfiguration> persistenceServiceConfigs = new HashMap<>();
     private final Map<String, Set<Runnable>> persistenceJobs = new HashMap<>();
+    private final Map<String, PersistenceWriteQueue> writeQueues = new ConcurrentHashMap<>();
+
+    // replaced or patched while holding the lock of the configurations
+    private volatile PersistenceRoutingTable routingTable = new PersistenceRoutingTable.Builder().build();
+
+    private volatile int queueSize = DEFAULT_QUEUE_SIZE;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
 
     public PersistenceManagerImpl() {
     }
 
-    protected void activate() {
+    @Activate
+    protected void activate(Map<String, Object> config) {
+        modified(config);
         scheduler = ExpressionThreadPoolManager.getExpressionScheduledPool("persist");
     }
 
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        queueSize = getIntConfig(config, CONFIG_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        batchSize = getIntConfig(config, CONFIG_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    private int getIntConfig(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", value, key);
+            }
+        }
+        return defaultValue;
+    }
+
+    @Deactivate
     protected void deactivate() {
         scheduler.shutdown();
         scheduler = null;
+        for (PersistenceWriteQueue writeQueue : writeQueues.values()) {
+            writeQueue.close();
+        }
+        writeQueues.clear();
     }
 
     @Reference
@@ -92,11 +156,19 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
     protected void unsetItemRegistry(ItemRegistry itemRegistry) {
         itemRegistry.removeRegistryChangeListener(this);
         this.itemRegistry = null;
+        buildRoutingTable();
     }
 
     @Reference(cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC)
     protected void addPersistenceService(PersistenceService persistenceService) {
         logger.debug("Initializing {} persistence service.", persistenceService.getId());
+        if (overridesBatchStore(persistenceService)) {
+            PersistenceWriteQueue oldQueue = writeQueues.put(persistenceService.getId(), new PersistenceWriteQueue(
+                    persistenceService, ThreadPoolManager.getPool(THREAD_POOL_NAME), queueSize, batchSize));
+            if (oldQueue != null) {
+                oldQueue.close();
+            }
+        }
         persistenceServices.put(persistenceService.getId(), persistenceService);
         stopEventHandling(persistenceService.getId());
         startEventHandling(persistenceService.getId());
@@ -105,6 +177,50 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
     protected void removePersistenceService(PersistenceService persistenceService) {
         stopEventHandling(persistenceService.getId());
         persistenceServices.remove(persistenceService.getId());
+        PersistenceWriteQueue writeQueue = writeQueues.remove(persistenceService.getId());
+        if (writeQueue != null) {
+            writeQueue.close();
+        }
+    }
+
+    /**
+     * Checks if the given service stores the recorded states of a batch, so that its records can be queued.
+     *
+     * @param persistenceService the persistence service
+     * @return true, if the service overrides the default implementation of {@link PersistenceService#store(Collection)}
+     */
+    private boolean overridesBatchStore(PersistenceService persistenceService) {
+        try {
+            return persistenceService.getClass().getMethod("store", Collection.class)
+                    .getDeclaringClass() != PersistenceService.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores records with a persistence service. The records are queued if the service stores batches, otherwise they
+     * are stored right away. Records for a service which has been removed in the meantime are discarded.
+     *
+     * @param serviceName the id of the persistence service
+     * @param persistenceService the persistence service
+     * @param records the records to store
+     */
+    void store(String serviceName, PersistenceService persistenceService, Collection<PersistenceRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        // the service is removed before its queue, so a missing queue of a removed service is noticed here
+        PersistenceWriteQueue writeQueue = writeQueues.get(serviceName);
+        if (persistenceServices.get(serviceName) != persistenceService) {
+            logger.debug("Discarding {} records for removed persistence service '{}'.", records.size(), serviceName);
+            return;
+        }
+        if (writeQueue != null) {
+            writeQueue.addAll(records);
+        } else {
+            persistenceService.store(records);
+        }
     }
 
     /**
@@ -114,21 +230,91 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
      * @param onlyChanges true, if it has the change strategy, false otherwise
      */
     private void handleStateEvent(Item item, boolean onlyChanges) {
+        for (PersistenceRoutingTable.Route route : routingTable.getRoutes(item.getName())) {
+            final List<String> aliases = onlyChanges ? route.getChangeAliases() : route.getUpdateAliases();
+            if (aliases.isEmpty()) {
+                continue;
+            }
+            final PersistenceService persistenceService = persistenceServices.get(route.getServiceName());
+            if (persistenceService != null) {
+                List<PersistenceRecord> records = new ArrayList<>(aliases.size());
+                for (String alias : aliases) {
+                    records.add(new PersistenceRecord(item, alias));
+                }
+                store(route.getServiceName(), persistenceService, records);
+            }
+        }
+    }
+
+    /**
+     * Builds the routing table for the current configurations and items.
+     */
+    private void buildRoutingTable() {
         synchronized (persistenceServiceConfigs) {
+            final PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
+            if (itemRegistry != null) {
+                for (Entry<String, PersistenceServiceConfiguration> entry : persistenceServiceConfigs.entrySet()) {
+                    final String serviceName = entry.getKey();
+                    for (SimpleItemConfiguration itemConfig : entry.getValue().getConfigs()) {
+                        boolean onChange = hasStrategy(serviceName, itemConfig, SimpleStrategy.Globals.CHANGE);
+                        boolean onUpdate = hasStrategy(serviceName, itemConfig, SimpleStrategy.Globals.UPDATE);
+                        if (onChange || onUpdate) {
+                            for (Item item : getAllItems(itemConfig)) {
+                                builder.add(item.getName(), serviceName, itemConfig.getAlias(), onChange, onUpdate);
+                            }
+                        }
+                    }
+                }
+            }
+            routingTable = builder.build();
+            logger.debug("Built persistence routing table for {} items.", routingTable.size());
+        }
+    }
+
+    /**
+     * Replaces the routes of the given items and, for groups, of their members in the routing table.
+     *
+     * @param items the added or updated items
+     * @param oldItem a removed item or the old instance of an updated item, or null
+     */
+    private void updateRoutes(Collection<Item> items, Item oldItem) {
+        final Map<String, Item> affectedItems = new HashMap<>();
+        for (Item item : items) {
+            affectedItems.put(item.getName(), item);
+        }
+        for (Item item : items) {
+            if (item instanceof GroupItem) {
+                for (Item member : ((GroupItem) item).getAllMembers()) {
+                    affectedItems.putIfAbsent(member.getName(), member);
+                }
+            }
+        }
+        if (oldItem instanceof GroupItem) {
+            for (Item member : ((GroupItem) oldItem).getAllMembers()) {
+                affectedItems.putIfAbsent(member.getName(), member);
+            }
+        }
+        synchronized (persistenceServiceConfigs) {
+            final PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
             for (Entry<String, PersistenceServiceConfiguration> entry : persistenceServiceConfigs.entrySet()) {
                 final String serviceName = entry.getKey();
-                final PersistenceServiceConfiguration config = entry.getValue();
-                if (persistenceServices.containsKey(serviceName)) {
-                    for (SimpleItemConfiguration itemConfig : config.getConfigs()) {
-                        if (hasStrategy(serviceName, itemConfig,
-                                onlyChanges ? SimpleStrategy.Globals.CHANGE : SimpleStrategy.Globals.UPDATE)) {
+                for (SimpleItemConfiguration itemConfig : entry.getValue().getConfigs()) {
+                    boolean onChange = hasStrategy(serviceName, itemConfig, SimpleStrategy.Globals.CHANGE);
+                    boolean onUpdate = hasStrategy(serviceName, itemConfig, SimpleStrategy.Globals.UPDATE);
+                    if (onChange || onUpdate) {
+                        for (Item item : affectedItems.values()) {
                             if (appliesToItem(itemConfig, item)) {
-                                persistenceServices.get(serviceName).store(item, itemConfig.getAlias());
+                                builder.add(item.getName(), serviceName, itemConfig.getAlias(), onChange, onUpdate);
                             }
                         }
                     }
                 }
             }
+            final Set<String> itemNames = new HashSet<>(affectedItems.keySet());
+            if (oldItem != null) {
+                itemNames.add(oldItem.getName());
+            }
+            routingTable.replaceRoutes(itemNames, builder);
         }
     }
 
@@ -343,6 +529,7 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
     public void addConfig(final String dbId, final PersistenceServiceConfiguration config) {
         synchronized (persistenceServiceConfigs) {
             this.persistenceServiceConfigs.put(dbId, config);
+            buildRoutingTable();
             if (itemRegistry != null && persistenceServices.containsKey(dbId)) {
                 startEventHandling(dbId);
             }
@@ -354,6 +541,7 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
         synchronized (persistenceServiceConfigs) {
             stopEventHandling(dbId);
             this.persistenceServiceConfigs.remove(dbId);
+            buildRoutingTable();
         }
     }
 
@@ -385,19 +573,38 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
         }
     }
 
+    /*
+     * PersistenceStatistics
+     */
+
+    @Override
+    public List<PersistenceServiceStatistics> getPersistenceServiceStatistics() {
+        List<PersistenceServiceStatistics> statistics = new ArrayList<>(writeQueues.size());
+        for (PersistenceWriteQueue writeQueue : writeQueues.values()) {
+            statistics.add(writeQueue.getStatistics());
+        }
+        return statistics;
+    }
+
     /*
      * ItemRegistryChangeListener
      */
 
     @Override
     public void allItemsChanged(Collection<String> oldItemNames) {
+        buildRoutingTable();
         for (Item item : itemRegistry.getItems()) {
-            added(item);
+            addItem(item);
         }
     }
 
     @Override
     public void added(Item item) {
+        updateRoutes(Collections.singleton(item), null);
+        addItem(item);
+    }
+
+    private void addItem(Item item) {
         initialize(item);
         if (item instanceof GenericItem) {
             GenericItem genericItem = (GenericItem) item;
@@ -407,6 +614,7 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
 
     @Override
     public void removed(Item item) {
+        updateRoutes(Collections.<Item> emptySet(), item);
         if (item instanceof GenericItem) {
             GenericItem genericItem = (GenericItem) item;
             genericItem.removeStateChangeListener(this);
@@ -415,7 +623,8 @@ public class PersistenceManagerImpl implements PersistenceManager, ItemRegistryC
 
     @Override
     public void updated(Item oldItem, Item item) {
-        // not needed here
+        // the group memberships may have changed, also for the members of the old group
+        updateRoutes(Collections.singleton(item), oldItem);
     }
 
     /*
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link PersistenceRoutingTable} maps the name of an item to the persistence services which store its changes or
+ * updates, together with the aliases of the matching configuration entries. Group memberships and default strategies
+ * are resolved when the routes are added, so looking up the routes of an item does neither depend on the number of
+ * configuration entries nor require a lock.
+ *
+ * The {@link PersistenceManagerImpl} builds a new table whenever the configurations change and replaces the routes of
+ * single items when they are added, updated or removed. The routes of an item are replaced at once, so a lookup
+ * either gets the old or the new routes.
+ *
+ * @author agent - Initial contribution
+ */
+final class PersistenceRoutingTable {
+
+    /**
+     * The configuration entries of one persistence service which apply to an item.
+     */
+    static final class Route {
+
+        private final String serviceName;
+
+        private final List<String> changeAliases = new ArrayList<>(1);
+
+        private final List<String> updateAliases = new ArrayList<>(1);
+
+        private Route(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        String getServiceName() {
+            return serviceName;
+        }
+
+        /**
+         * Returns the aliases of all entries with the change strategy, an entry without an alias is listed as null.
+         *
+         * @return the aliases, must not be modified
+         */
+        List<String> getChangeAliases() {
+            return changeAliases;
+        }
+
+        /**
+         * Returns the aliases of all entries with the update strategy, an entry without an alias is listed as null.
+         *
+         * @return the aliases, must not be modified
+         */
+        List<String> getUpdateAliases() {
+            return updateAliases;
+        }
+    }
+
+    /**
+     * Collects the routes of a new table or of the items to replace in a table.
+     */
+    static final class Builder {
+
+        private final Map<String, Map<String, Route>> routes = new HashMap<>();
+
+        /**
+         * Adds a configuration entry of a persistence service which applies to an item.
+         *
+         * @param itemName the name of the item
+         * @param serviceName the id of the persistence service
+         * @param alias the alias of the entry, null if none
+         * @param onChange true if the entry has the change strategy
+         * @param onUpdate true if the entry has the update strategy
+         */
+        void add(String itemName, String serviceName, String alias, boolean onChange, boolean onUpdate) {
+            Route route = routes.computeIfAbsent(itemName, name -> new LinkedHashMap<>())
+                    .computeIfAbsent(serviceName, Route::new);
+            if (onChange) {
+                route.changeAliases.add(alias);
+            }
+            if (onUpdate) {
+                route.updateAliases.add(alias);
+            }
+        }
+
+        PersistenceRoutingTable build() {
+            PersistenceRoutingTable table = new PersistenceRoutingTable(routes.size());
+            for (Entry<String, Map<String, Route>> entry : routes.entrySet()) {
+                table.routes.put(entry.getKey(), getRoutes(entry.getValue()));
+            }
+            return table;
+        }
+
+        private List<Route> getRoutes(String itemName) {
+            Map<String, Route> itemRoutes = routes.get(itemName);
+            return itemRoutes != null ? getRoutes(itemRoutes) : null;
+        }
+
+        private static List<Route> getRoutes(Map<String, Route> itemRoutes) {
+            return Collections.unmodifiableList(new ArrayList<>(itemRoutes.values()));
+        }
+    }
+
+    private final Map<String, List<Route>> routes;
+
+    private PersistenceRoutingTable(int size) {
+        this.routes = new ConcurrentHashMap<>(size * 4 / 3 + 1);
+    }
+
+    /**
+     * Replaces the routes of the given items by the routes collected for them. Items without collected routes are
+     * removed from the table.
+     *
+     * @param itemNames the names of the items to replace
+     * @param builder the routes of the items
+     */
+    void replaceRoutes(Collection<String> itemNames, Builder builder) {
+        for (String itemName : itemNames) {
+            List<Route> itemRoutes = builder.getRoutes(itemName);
+            if (itemRoutes != null) {
+                routes.put(itemName, itemRoutes);
+            } else {
+                routes.remove(itemName);
+            }
+        }
+    }
+
+    /**
+     * Returns the routes of an item.
+     *
+     * @param itemName the name of the item
+     * @return the routes per persistence service, empty if the item is not persisted on changes or updates
+     */
+    List<Route> getRoutes(String itemName) {
+        List<Route> itemRoutes = routes.get(itemName);
+        return itemRoutes != null ? itemRoutes : Collections.emptyList();
+    }
+
+    int size() {
+        return routes.size();
+    }
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.persistence.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.eclipse.smarthome.core.persistence.PersistenceRecord;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.eclipse.smarthome.core.persistence.PersistenceServiceStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link PersistenceWriteQueue} collects the records to be stored by one {@link PersistenceService} and passes
+ * them in batches to {@link PersistenceService#store(Collection)} on a shared executor, so that neither the threads
+ * notifying state changes nor the persistence jobs wait for the service.
+ *
+ * Records which arrive while a batch is written are combined into the next batch. At most one batch is written at any
+ * time, so the records are stored in the order they were queued. If the queue is full, the queuing thread writes the
+ * next batch itself, so records are delayed but never dropped. Once the queue has been closed, because the service
+ * is removed, records which still arrive are discarded.
+ *
+ * @author agent - Initial contribution
+ */
+final class PersistenceWriteQueue implements Runnable {
+
+    private static final class QueuedRecord {
+
+        private final PersistenceRecord record;
+
+        private final long enqueueTime;
+
+        private QueuedRecord(PersistenceRecord record, long enqueueTime) {
+            this.record = record;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(PersistenceWriteQueue.class);
+
+    private final PersistenceService persistenceService;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final ArrayDeque<QueuedRecord> queue = new ArrayDeque<>();
+
+    // held while a batch is taken from the queue and stored, so that batches are stored in order
+    private final Object writeLock = new Object();
+
+    // guarded by this
+    private boolean scheduled;
+
+    // guarded by this
+    private boolean closed;
+
+    // guarded by this
+    private long storedRecords;
+
+    // guarded by this
+    private long failedRecords;
+
+    // guarded by this
+    private long batches;
+
+    // guarded by this
+    private long lastFlushLatency;
+
+    // guarded by this
+    private long maxFlushLatency;
+
+    PersistenceWriteQueue(PersistenceService persistenceService, Executor executor, int capacity, int batchSize) {
+        this.persistenceService = persistenceService;
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Queues records to be stored.
+     *
+     * @param records the records in the order they were recorded (not null)
+     */
+    void addAll(Collection<PersistenceRecord> records) {
+        for (PersistenceRecord record : records) {
+            add(record);
+        }
+    }
+
+    /**
+     * Queues a record to be stored.
+     *
+     * @param record the record (not null)
+     */
+    void add(PersistenceRecord record) {
+        boolean schedule = false;
+        while (true) {
+            synchronized (this) {
+                if (closed) {
+                    // the service has been removed and must not be called anymore
+                    logger.debug("Discarding record of item '{}' for removed persistence service '{}'.",
+                            record.getItem().getName(), persistenceService.getId());
+                    return;
+                }
+                if (queue.size() < capacity) {
+                    queue.addLast(new QueuedRecord(record, System.currentTimeMillis()));
+                    schedule = !scheduled;
+                    scheduled = true;
+                    break;
+                }
+            }
+            // the queue is full, so write the next batch in the calling thread
+            writeBatch();
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            logger.error("Scheduling the write of persistence service '{}' failed: {}", persistenceService.getId(),
+                    e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (writeBatch()) {
+            // write until the queue is empty
+        }
+    }
+
+    /**
+     * Takes the next batch from the queue and stores it.
+     *
+     * @return true if a batch has been stored, false if the queue was empty
+     */
+    private boolean writeBatch() {
+        synchronized (writeLock) {
+            List<PersistenceRecord> batch;
+            long firstEnqueueTime;
+            synchronized (this) {
+                QueuedRecord first = queue.peekFirst();
+                if (first == null) {
+                    scheduled = false;
+                    return false;
+                }
+                firstEnqueueTime = first.enqueueTime;
+                batch = new ArrayList<>(Math.min(queue.size(), batchSize));
+                while (batch.size() < batchSize && !queue.isEmpty()) {
+                    batch.add(queue.pollFirst().record);
+                }
+            }
+            store(batch, firstEnqueueTime);
+            return true;
+        }
+    }
+
+    private void store(List<PersistenceRecord> batch, long firstEnqueueTime) {
+        boolean success = true;
+        try {
+            persistenceService.store(batch);
+        } catch (Throwable t) {
+            success = false;
+            logger.error("Storing {} records with persistence service '{}' failed: {}", batch.size(),
+                    persistenceService.getId(), t.getMessage(), t);
+        }
+        long latency = Math.max(0, System.currentTimeMillis() - firstEnqueueTime);
+        logger.trace("Stored {} records with persistence service '{}' after {}ms", batch.size(),
+                persistenceService.getId(), latency);
+        synchronized (this) {
+            if (success) {
+                storedRecords += batch.size();
+            } else {
+                failedRecords += batch.size();
+            }
+            batches++;
+            lastFlushLatency = latency;
+            maxFlushLatency = Math.max(maxFlushLatency, latency);
+        }
+    }
+
+    /**
+     * Stores all queued records in the calling thread. Records queued afterwards are discarded.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        while (writeBatch()) {
+            // write until the queue is empty
+        }
+    }
+
+    synchronized PersistenceServiceStatistics getStatistics() {
+        QueuedRecord oldest = queue.peekFirst();
+        long lag = oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.enqueueTime) : 0;
+        return new PersistenceServiceStatistics(persistenceService.getId(), queue.size(), capacity, lag,
+                storedRecords, failedRecords, batches, lastFlushLatency, maxFlushLatency);
+    }
+
+}
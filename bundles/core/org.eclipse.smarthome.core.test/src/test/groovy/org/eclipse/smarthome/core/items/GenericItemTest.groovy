@@ -10,6 +10,9 @@ package org.eclipse.smarthome.core.items
 import static org.hamcrest.CoreMatchers.*
 import static org.junit.Assert.*
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 import org.eclipse.smarthome.core.events.Event
 import org.eclipse.smarthome.core.events.EventPublisher
 import org.eclipse.smarthome.core.items.events.ItemEventFactory
@@ -119,5 +122,44 @@ class GenericItemTest {
         assertThat item.getStateAs(null), is(nullValue())
     }
 
+    @Test
+    void 'assert that synchronous listeners are notified by the updating thread'() {
+        def item = new TestItem("member1")
+        def notifications = []
+        def listener = [
+            stateUpdated : { updatedItem, state ->
+                notifications.add("updated " + state + " " + Thread.currentThread().getName())
+            },
+            stateChanged : { changedItem, oldState, newState ->
+                notifications.add("changed " + newState + " " + Thread.currentThread().getName())
+            }
+        ] as StateChangeListener
+        item.addStateChangeListener(listener, true)
+
+        item.setState(OnOffType.ON)
+        def threadName = Thread.currentThread().getName()
+        assertThat notifications, is(["updated ON " + threadName, "changed ON " + threadName])
+
+        notifications.clear()
+        item.removeStateChangeListener(listener)
+        item.setState(OnOffType.OFF)
+        assertThat notifications.size(), is(0)
+    }
+
+    @Test
+    void 'assert that asynchronous listeners are all notified'() {
+        def item = new TestItem("member1")
+        def latch = new CountDownLatch(3)
+        3.times {
+            item.addStateChangeListener([
+                stateUpdated : { updatedItem, state -> latch.countDown() },
+                stateChanged : { changedItem, oldState, newState -> }
+            ] as StateChangeListener)
+        }
+
+        item.setState(OnOffType.ON)
+        assertTrue latch.await(5, TimeUnit.SECONDS)
+    }
+
 
 }
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.events;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventFilter;
+import org.eclipse.smarthome.core.events.EventSubscriber;
+import org.eclipse.smarthome.core.events.TopicEventFilter;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the {@link EventSubscriberIndex}.
+ *
+ * @author agent - Initial contribution
+ */
+public class EventSubscriberIndexTest {
+
+    private static final String TYPE_A = "TypeA";
+    private static final String TYPE_B = "TypeB";
+
+    private final Logger logger = LoggerFactory.getLogger(EventSubscriberIndexTest.class);
+
+    private EventSubscriberIndex index;
+
+    private static class TestSubscriber implements EventSubscriber {
+
+        private final Set<String> eventTypes;
+        private final EventFilter eventFilter;
+
+        TestSubscriber(String eventType, EventFilter eventFilter) {
+            this.eventTypes = Collections.singleton(eventType);
+            this.eventFilter = eventFilter;
+        }
+
+        @Override
+        public Set<String> getSubscribedEventTypes() {
+            return eventTypes;
+        }
+
+        @Override
+        public EventFilter getEventFilter() {
+            return eventFilter;
+        }
+
+        @Override
+        public void receive(Event event) {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        index = new EventSubscriberIndex();
+    }
+
+    @Test
+    public void assertThatDeclaredExactTopicIsMatchedOnly() {
+        TestSubscriber subscriber = new TestSubscriber(TYPE_A, null);
+        index.add(subscriber, Collections.singleton("smarthome/items/Light/command"));
+
+        assertThat(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/command"), hasItem(subscriber));
+        assertTrue(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/state").isEmpty());
+        assertTrue(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/command/x").isEmpty());
+        assertTrue(index.getEventSubscribers(TYPE_B, "smarthome/items/Light/command").isEmpty());
+    }
+
+    @Test
+    public void assertThatDeclaredWildcardTopicMatchesSubtopics() {
+        TestSubscriber subscriber = new TestSubscriber(TYPE_A, null);
+        index.add(subscriber, Collections.singleton("smarthome/items/Light/*"));
+
+        assertThat(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/state"), hasItem(subscriber));
+        assertThat(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/Member/statechanged"), hasItem(subscriber));
+        assertTrue(index.getEventSubscribers(TYPE_A, "smarthome/items/Light").isEmpty());
+        assertTrue(index.getEventSubscribers(TYPE_A, "smarthome/items/Other/state").isEmpty());
+    }
+
+    @Test
+    public void assertThatSubscribersWithoutTopicsAndAllTypesAreAlwaysCandidates() {
+        TestSubscriber unfiltered = new TestSubscriber(TYPE_A, null);
+        TestSubscriber custom = new TestSubscriber(TYPE_A, event -> true);
+        TestSubscriber all = new TestSubscriber(EventSubscriber.ALL_EVENT_TYPES, null);
+        index.add(unfiltered, null);
+        index.add(custom, null);
+        index.add(all, null);
+
+        Set<EventSubscriber> subscribers = index.getEventSubscribers(TYPE_A, "some/topic");
+        assertThat(subscribers.size(), is(3));
+        assertThat(index.getEventSubscribers(TYPE_B, "some/topic").size(), is(1));
+    }
+
+    @Test
+    public void assertThatTopicEventFilterIsIndexedByItsLiteralPrefix() {
+        TestSubscriber literal = new TestSubscriber(TYPE_A, new TopicEventFilter("smarthome/some/topic"));
+        TestSubscriber prefix = new TestSubscriber(TYPE_A, new TopicEventFilter("smarthome/items/.*/state"));
+        index.add(literal, null);
+        index.add(prefix, null);
+
+        assertThat(index.getEventSubscribers(TYPE_A, "smarthome/some/topic"), is(Collections.singleton(literal)));
+        assertThat(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/state"),
+                is(Collections.singleton(prefix)));
+        assertTrue(index.getEventSubscribers(TYPE_A, "smarthome/things/thing/status").isEmpty());
+    }
+
+    @Test
+    public void assertThatRegexIsConvertedToSupersetTopic() {
+        assertThat(EventSubscriberIndex.toIndexTopic("smarthome/some/topic"), is("smarthome/some/topic"));
+        assertThat(EventSubscriberIndex.toIndexTopic("smarthome/items/.*"), is("smarthome/items/*"));
+        assertThat(EventSubscriberIndex.toIndexTopic("smarthome/ite.*"), is("smarthome/*"));
+        assertThat(EventSubscriberIndex.toIndexTopic("smarthome/items/a?"), is("smarthome/items/*"));
+        assertThat(EventSubscriberIndex.toIndexTopic("smarthome/?"), is("*"));
+        assertThat(EventSubscriberIndex.toIndexTopic("a/b|c/d"), is("*"));
+        assertThat(EventSubscriberIndex.toIndexTopic(".*"), is("*"));
+    }
+
+    @Test
+    public void assertThatRemovedSubscribersAreNotReturned() {
+        TestSubscriber subscriber = new TestSubscriber(TYPE_A, null);
+        TestSubscriber other = new TestSubscriber(TYPE_A, null);
+        index.add(subscriber, Collections.singleton("smarthome/items/Light/command"));
+        index.add(other, Collections.singleton("smarthome/items/*"));
+
+        index.remove(subscriber);
+
+        assertThat(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/command"),
+                is(Collections.singleton(other)));
+        index.remove(other);
+        assertTrue(index.getEventSubscribers(TYPE_A, "smarthome/items/Light/command").isEmpty());
+    }
+
+    @Test
+    public void assertThatLookupCostDependsOnMatchingSubscribersOnly() {
+        final int subscriberCount = 10000;
+        final int iterations = 20000;
+
+        List<TestSubscriber> subscribers = new ArrayList<>(subscriberCount);
+        for (int i = 0; i < subscriberCount; i++) {
+            TestSubscriber subscriber = new TestSubscriber(TYPE_A,
+                    new TopicEventFilter("smarthome/items/item" + i + "/state"));
+            subscribers.add(subscriber);
+            index.add(subscriber, null);
+        }
+        List<Event> events = new ArrayList<>(subscriberCount);
+        for (int i = 0; i < subscriberCount; i++) {
+            events.add(createEvent("smarthome/items/item" + i + "/state"));
+        }
+
+        long indexedNanos = 0;
+        long linearNanos = 0;
+        int indexedDeliveries = 0;
+        int linearDeliveries = 0;
+        // the first round warms up both code paths
+        for (int round = 0; round < 2; round++) {
+            indexedDeliveries = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Event event = events.get(i % subscriberCount);
+                for (EventSubscriber subscriber : index.getEventSubscribers(TYPE_A, event.getTopic())) {
+                    if (subscriber.getEventFilter().apply(event)) {
+                        indexedDeliveries++;
+                    }
+                }
+            }
+            indexedNanos = System.nanoTime() - start;
+
+            // the dispatching as it was done before: every subscriber of the type is asked
+            linearDeliveries = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations / 100; i++) {
+                Event event = events.get(i % subscriberCount);
+                for (EventSubscriber subscriber : subscribers) {
+                    if (subscriber.getEventFilter().apply(event)) {
+                        linearDeliveries++;
+                    }
+                }
+            }
+            linearNanos = System.nanoTime() - start;
+        }
+
+        assertThat(indexedDeliveries, is(iterations));
+        assertThat(linearDeliveries, is(iterations / 100));
+        logger.info("Dispatching to {} subscribers: indexed {} ns/event, linear {} ns/event", subscriberCount,
+                indexedNanos / iterations, linearNanos / (iterations / 100));
+    }
+
+    private Event createEvent(final String topic) {
+        return new Event() {
+
+            @Override
+            public String getType() {
+                return TYPE_A;
+            }
+
+            @Override
+            public String getTopic() {
+                return topic;
+            }
+
+            @Override
+            public String getPayload() {
+                return "{}";
+            }
+
+            @Override
+            public String getSource() {
+                return null;
+            }
+        };
+    }
+
+}
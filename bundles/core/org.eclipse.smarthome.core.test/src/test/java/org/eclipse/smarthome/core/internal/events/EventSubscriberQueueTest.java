@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.events;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventFilter;
+import org.eclipse.smarthome.core.events.EventSubscriber;
+import org.eclipse.smarthome.core.events.EventSubscriberStatistics;
+import org.eclipse.smarthome.core.internal.events.EventSubscriberQueue.OverflowPolicy;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link EventSubscriberQueue}.
+ *
+ * @author agent - Initial contribution
+ */
+public class EventSubscriberQueueTest {
+
+    private final List<String> received = new ArrayList<>();
+
+    private final LinkedList<Runnable> tasks = new LinkedList<>();
+
+    /** collects the delivery tasks, so that the test decides when they run */
+    private final Executor manualExecutor = tasks::add;
+
+    private final EventSubscriber subscriber = new EventSubscriber() {
+
+        @Override
+        public Set<String> getSubscribedEventTypes() {
+            return Collections.singleton(EventSubscriber.ALL_EVENT_TYPES);
+        }
+
+        @Override
+        public EventFilter getEventFilter() {
+            return null;
+        }
+
+        @Override
+        public void receive(Event event) {
+            received.add(event.getTopic() + "=" + event.getPayload());
+        }
+    };
+
+    @Test
+    public void assertThatEventsAreDeliveredInOrderByOneTask() {
+        EventSubscriberQueue queue = new EventSubscriberQueue(subscriber, manualExecutor, 10,
+                OverflowPolicy.DROP_OLDEST);
+        queue.offer(createEvent("a", "1"));
+        queue.offer(createEvent("b", "2"));
+        queue.offer(createEvent("a", "3"));
+
+        assertThat(tasks.size(), is(1));
+        runTasks();
+
+        assertThat(received, is(Arrays.asList("a=1", "b=2", "a=3")));
+        assertThat(queue.getStatistics().getDeliveredEvents(), is(3L));
+    }
+
+    @Test
+    public void assertThatOldestEventIsDroppedIfQueueIsFull() {
+        EventSubscriberQueue queue = new EventSubscriberQueue(subscriber, manualExecutor, 2,
+                OverflowPolicy.DROP_OLDEST);
+        queue.offer(createEvent("a", "1"));
+        queue.offer(createEvent("b", "2"));
+        queue.offer(createEvent("c", "3"));
+
+        EventSubscriberStatistics statistics = queue.getStatistics();
+        assertThat(statistics.getQueueSize(), is(2));
+        assertThat(statistics.getDroppedEvents(), is(1L));
+
+        runTasks();
+        assertThat(received, is(Arrays.asList("b=2", "c=3")));
+    }
+
+    @Test
+    public void assertThatEventOfSameTopicIsReplacedIfQueueIsFull() {
+        EventSubscriberQueue queue = new EventSubscriberQueue(subscriber, manualExecutor, 2,
+                OverflowPolicy.COALESCE_BY_TOPIC);
+        queue.offer(createEvent("a", "1"));
+        queue.offer(createEvent("b", "2"));
+        queue.offer(createEvent("a", "3"));
+        queue.offer(createEvent("c", "4"));
+
+        runTasks();
+        assertThat(received, is(Arrays.asList("b=2", "c=4")));
+        assertThat(queue.getStatistics().getDroppedEvents(), is(2L));
+    }
+
+    @Test
+    public void assertThatClosedQueueDoesNotDeliver() {
+        EventSubscriberQueue queue = new EventSubscriberQueue(subscriber, manualExecutor, 2, OverflowPolicy.BLOCK);
+        queue.offer(createEvent("a", "1"));
+        queue.close();
+        queue.offer(createEvent("b", "2"));
+
+        runTasks();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void assertThatBlockedPublisherDoesNotQueueAfterClose() throws InterruptedException {
+        EventSubscriberQueue queue = new EventSubscriberQueue(subscriber, manualExecutor, 1, OverflowPolicy.BLOCK);
+        queue.offer(createEvent("a", "1"));
+
+        // the queue is full, so the publisher waits for room
+        Thread publisher = new Thread(() -> queue.offer(createEvent("b", "2")));
+        publisher.start();
+        while (publisher.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        queue.close();
+        publisher.join(1000);
+
+        assertThat(publisher.isAlive(), is(false));
+        assertThat(queue.getStatistics().getQueueSize(), is(0));
+        runTasks();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void assertThatOverflowPolicyIsParsedFromConfiguration() {
+        assertThat(OverflowPolicy.fromConfig("drop-oldest", OverflowPolicy.BLOCK), is(OverflowPolicy.DROP_OLDEST));
+        assertThat(OverflowPolicy.fromConfig("coalesce-by-topic", OverflowPolicy.BLOCK),
+                is(OverflowPolicy.COALESCE_BY_TOPIC));
+        assertThat(OverflowPolicy.fromConfig("unknown", OverflowPolicy.BLOCK), is(OverflowPolicy.BLOCK));
+        assertThat(OverflowPolicy.fromConfig(null, OverflowPolicy.DROP_OLDEST), is(OverflowPolicy.DROP_OLDEST));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.removeFirst().run();
+        }
+    }
+
+    private Event createEvent(final String topic, final String payload) {
+        return new Event() {
+
+            @Override
+            public String getType() {
+                return "TestEvent";
+            }
+
+            @Override
+            public String getTopic() {
+                return topic;
+            }
+
+            @Override
+            public String getPayload() {
+                return payload;
+            }
+
+            @Override
+            public String getSource() {
+                return null;
+            }
+        };
+    }
+
+}
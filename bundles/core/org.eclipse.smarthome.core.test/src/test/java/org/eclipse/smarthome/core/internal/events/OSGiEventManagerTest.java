@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.events;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.events.AbstractEvent;
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventFactory;
+import org.eclipse.smarthome.core.events.EventFilter;
+import org.eclipse.smarthome.core.events.EventSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.osgi.service.event.EventAdmin;
+
+/**
+ * Tests the in-process dispatching and the lazy payload serialization of the {@link OSGiEventManager}.
+ *
+ * @author agent - Initial contribution
+ */
+public class OSGiEventManagerTest {
+
+    private static final String TYPE = "LazyEvent";
+
+    private static final String TOPIC = "smarthome/lazy";
+
+    private static final String PAYLOAD = "{\"value\":1}";
+
+    private static class LazyEvent extends AbstractEvent {
+
+        private LazyEvent(AtomicInteger serializations) {
+            super(TOPIC, () -> {
+                serializations.incrementAndGet();
+                return PAYLOAD;
+            }, null);
+        }
+
+        @Override
+        public String getType() {
+            return TYPE;
+        }
+    }
+
+    private final BlockingQueue<Event> received = new LinkedBlockingQueue<>();
+
+    private final EventSubscriber subscriber = new EventSubscriber() {
+
+        @Override
+        public Set<String> getSubscribedEventTypes() {
+            return Collections.singleton(TYPE);
+        }
+
+        @Override
+        public EventFilter getEventFilter() {
+            return null;
+        }
+
+        @Override
+        public void receive(Event event) {
+            received.add(event);
+        }
+    };
+
+    private final AtomicInteger serializations = new AtomicInteger();
+
+    private OSGiEventManager eventManager;
+
+    private EventAdmin eventAdmin;
+
+    @Before
+    public void setup() {
+        eventAdmin = mock(EventAdmin.class);
+        eventManager = new OSGiEventManager();
+        eventManager.modified(null);
+        eventManager.setEventAdmin(eventAdmin);
+        eventManager.addEventSubscriber(subscriber, null);
+    }
+
+    @Test
+    public void assertThatPayloadIsOnlySerializedOnce() {
+        LazyEvent event = new LazyEvent(serializations);
+        assertThat(serializations.get(), is(0));
+
+        assertThat(event.getPayload(), is(PAYLOAD));
+        assertThat(event.getPayload(), is(PAYLOAD));
+        assertThat(serializations.get(), is(1));
+    }
+
+    @Test
+    public void assertThatPostedEventIsDispatchedInProcess() throws InterruptedException {
+        LazyEvent event = new LazyEvent(serializations);
+        eventManager.post(event);
+
+        org.osgi.service.event.Event osgiEvent = getPostedEvent();
+        assertThat(osgiEvent.getProperty("payload"), is(nullValue()));
+        eventManager.handleEvent(osgiEvent);
+
+        assertThat(received.poll(5, TimeUnit.SECONDS), is(sameInstance((Event) event)));
+        assertThat(serializations.get(), is(0));
+    }
+
+    @Test
+    public void assertThatPayloadIsPublishedForExternalEventHandlers() {
+        eventManager.addExternalEventHandler();
+        eventManager.post(new LazyEvent(serializations));
+
+        org.osgi.service.event.Event osgiEvent = getPostedEvent();
+        assertThat(osgiEvent.getProperty("payload"), is(PAYLOAD));
+        assertThat(serializations.get(), is(1));
+
+        eventManager.removeExternalEventHandler();
+        eventManager.post(new LazyEvent(serializations));
+
+        assertThat(getPostedEvent().getProperty("payload"), is(nullValue()));
+        assertThat(serializations.get(), is(1));
+    }
+
+    @Test
+    public void assertThatEventIsRecreatedWithoutInProcessDispatch() throws Exception {
+        eventManager.modified(Collections.singletonMap("inProcessDispatch", "false"));
+        Event recreated = mock(Event.class);
+        when(recreated.getType()).thenReturn(TYPE);
+        when(recreated.getTopic()).thenReturn(TOPIC);
+        EventFactory eventFactory = mock(EventFactory.class);
+        when(eventFactory.getSupportedEventTypes()).thenReturn(Collections.singleton(TYPE));
+        when(eventFactory.createEvent(TYPE, TOPIC, PAYLOAD, null)).thenReturn(recreated);
+        eventManager.addEventFactory(eventFactory);
+
+        eventManager.post(new LazyEvent(serializations));
+
+        org.osgi.service.event.Event osgiEvent = getPostedEvent();
+        assertThat(osgiEvent.getProperty("payload"), is(PAYLOAD));
+        assertThat(osgiEvent.getProperty("event"), is(nullValue()));
+        eventManager.handleEvent(osgiEvent);
+
+        assertThat(received.poll(5, TimeUnit.SECONDS), is(sameInstance(recreated)));
+    }
+
+    private org.osgi.service.event.Event getPostedEvent() {
+        ArgumentCaptor<org.osgi.service.event.Event> captor = ArgumentCaptor
+                .forClass(org.osgi.service.event.Event.class);
+        verify(eventAdmin, atLeastOnce()).postEvent(captor.capture());
+        return captor.getValue();
+    }
+
+}
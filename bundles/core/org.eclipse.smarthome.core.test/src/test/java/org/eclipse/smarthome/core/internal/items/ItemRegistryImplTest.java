@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.items;
+
+import static java.util.Collections.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.smarthome.core.common.registry.Provider;
+import org.eclipse.smarthome.core.common.registry.ProviderChangeListener;
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.eclipse.smarthome.core.items.ItemProvider;
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the keyed element lookup of the {@link ItemRegistryImpl} without an OSGi environment.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemRegistryImplTest {
+
+    private final Logger logger = LoggerFactory.getLogger(ItemRegistryImplTest.class);
+
+    private TestItemRegistry itemRegistry;
+
+    /** makes the provider handling accessible, which is done by a service tracker within OSGi */
+    private static class TestItemRegistry extends ItemRegistryImpl {
+
+        @Override
+        protected void addProvider(Provider<Item> provider) {
+            super.addProvider(provider);
+        }
+
+        @Override
+        protected void removeProvider(Provider<Item> provider) {
+            super.removeProvider(provider);
+        }
+    }
+
+    private static class TestItemProvider implements ItemProvider {
+
+        private final List<Item> items = new ArrayList<>();
+
+        private final List<ProviderChangeListener<Item>> listeners = new ArrayList<>();
+
+        @Override
+        public void addProviderChangeListener(ProviderChangeListener<Item> listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public Collection<Item> getAll() {
+            return new ArrayList<>(items);
+        }
+
+        @Override
+        public void removeProviderChangeListener(ProviderChangeListener<Item> listener) {
+            listeners.remove(listener);
+        }
+
+        void add(Item item) {
+            items.add(item);
+            listeners.forEach(listener -> listener.added(this, item));
+        }
+
+        void remove(Item item) {
+            items.remove(item);
+            listeners.forEach(listener -> listener.removed(this, item));
+        }
+
+        void update(Item oldItem, Item item) {
+            items.remove(oldItem);
+            items.add(item);
+            listeners.forEach(listener -> listener.updated(this, oldItem, item));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        itemRegistry = new TestItemRegistry();
+    }
+
+    @Test
+    public void assertThatItemsOfProvidersCanBeLookedUp() throws ItemNotFoundException {
+        TestItemProvider provider = new TestItemProvider();
+        provider.items.add(new SwitchItem("Switch1"));
+        itemRegistry.addProvider(provider);
+        provider.add(new NumberItem("Number1"));
+
+        assertThat(itemRegistry.getItem("Switch1").getType(), is("Switch"));
+        assertThat(itemRegistry.getItem("Number1").getType(), is("Number"));
+        assertThat(itemRegistry.get("Unknown"), is(nullValue()));
+    }
+
+    @Test
+    public void assertThatFirstProviderOwnsDuplicateKeys() {
+        TestItemProvider provider1 = new TestItemProvider();
+        TestItemProvider provider2 = new TestItemProvider();
+        itemRegistry.addProvider(provider1);
+        itemRegistry.addProvider(provider2);
+
+        SwitchItem first = new SwitchItem("Item");
+        NumberItem second = new NumberItem("Item");
+        provider1.add(first);
+        provider2.add(second);
+        assertThat(itemRegistry.get("Item"), is(sameInstance(first)));
+        assertThat(itemRegistry.getAll().size(), is(1));
+
+        // removing the rejected duplicate does not affect the registered item
+        provider2.remove(second);
+        assertThat(itemRegistry.get("Item"), is(sameInstance(first)));
+
+        provider1.remove(first);
+        assertThat(itemRegistry.get("Item"), is(nullValue()));
+
+        provider2.add(second);
+        assertThat(itemRegistry.get("Item"), is(sameInstance(second)));
+    }
+
+    @Test
+    public void assertThatUpdatedAndRemovedProvidersAreReflected() {
+        TestItemProvider provider = new TestItemProvider();
+        itemRegistry.addProvider(provider);
+        SwitchItem item = new SwitchItem("Item");
+        provider.add(item);
+
+        SwitchItem updatedItem = new SwitchItem("Item");
+        provider.update(item, updatedItem);
+        assertThat(itemRegistry.get("Item"), is(sameInstance(updatedItem)));
+
+        itemRegistry.removeProvider(provider);
+        assertThat(itemRegistry.get("Item"), is(nullValue()));
+    }
+
+    @Test
+    public void assertThatItemsCanBeQueriedByTypeTagAndPattern() {
+        TestItemProvider provider = new TestItemProvider();
+        itemRegistry.addProvider(provider);
+        SwitchItem light = new SwitchItem("Light");
+        light.addTag("Lighting");
+        SwitchItem fan = new SwitchItem("Fan");
+        fan.addTags("Switchable", "Lighting");
+        NumberItem temperature = new NumberItem("Temperature");
+        temperature.addTag("Lighting");
+        provider.add(light);
+        provider.add(fan);
+        provider.add(temperature);
+
+        assertThat(itemRegistry.getItemsOfType("Switch").size(), is(2));
+        assertTrue(itemRegistry.getItemsOfType("Contact").isEmpty());
+        assertThat(itemRegistry.getItemsByTag("Lighting").size(), is(3));
+        assertThat(itemRegistry.getItemsByTag("Lighting", "Switchable"), is(singletonList(fan)));
+        assertThat(itemRegistry.getItemsByTag().size(), is(3));
+        assertThat(itemRegistry.getItemsByTagAndType("Number", "Lighting"), is(singletonList(temperature)));
+        assertThat(itemRegistry.getItemsByTag(NumberItem.class, "Lighting"), is(singletonList(temperature)));
+        assertThat(itemRegistry.getItems("L?gh*"), is(singletonList(light)));
+        assertThat(itemRegistry.getItems("*a*").size(), is(2));
+
+        provider.remove(fan);
+        assertThat(itemRegistry.getItemsOfType("Switch"), is(singletonList(light)));
+        assertTrue(itemRegistry.getItemsByTag("Switchable").isEmpty());
+    }
+
+    @Test
+    public void assertThatTagsChangedInPlaceAreIndexedOnUpdate() {
+        TestItemProvider provider = new TestItemProvider();
+        itemRegistry.addProvider(provider);
+        SwitchItem light = new SwitchItem("Light");
+        provider.add(light);
+
+        // this is how the REST API adds a tag to a managed item
+        light.addTag("Lighting");
+        provider.update(new SwitchItem("Light"), light);
+        assertThat(itemRegistry.getItemsByTag("Lighting"), is(singletonList(light)));
+
+        light.removeTag("Lighting");
+        assertTrue(itemRegistry.getItemsByTag("Lighting").isEmpty());
+    }
+
+    @Test
+    public void assertThatGroupMembersAreAddedFromIndex() {
+        TestItemProvider provider = new TestItemProvider();
+        itemRegistry.addProvider(provider);
+        SwitchItem member = new SwitchItem("Member");
+        member.addGroupName("Group");
+        provider.add(member);
+        provider.add(new SwitchItem("Other"));
+
+        provider.add(new GroupItem("Group"));
+        assertThat(((GroupItem) itemRegistry.get("Group")).getMembers(), is(singleton(member)));
+    }
+
+    @Test
+    public void assertThatGetItemDoesNotDependOnNumberOfItems() throws ItemNotFoundException {
+        final int itemCount = 20000;
+        final int lookups = 1000000;
+
+        TestItemProvider provider = new TestItemProvider();
+        for (int i = 0; i < itemCount; i++) {
+            provider.items.add(new NumberItem("Number" + i));
+        }
+        itemRegistry.addProvider(provider);
+
+        String[] names = new String[itemCount];
+        Item[] items = new Item[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            names[i] = "Number" + i;
+            items[i] = provider.items.get(i);
+        }
+
+        long nanos = 0;
+        // the first round warms up the code path
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                assertSame(items[i % itemCount], itemRegistry.getItem(names[i % itemCount]));
+            }
+            nanos = System.nanoTime() - start;
+        }
+        logger.info("ItemRegistry.getItem with {} items: {} ns per lookup", itemCount, nanos / lookups);
+
+        assertThat(itemRegistry.getItems().size(), is(itemCount));
+        for (int i = 0; i < itemCount; i++) {
+            assertThat(itemRegistry.get(names[i]), is(sameInstance(items[i])));
+        }
+        assertThat(itemRegistry.get("Number" + itemCount), is(nullValue()));
+        try {
+            itemRegistry.getItem("Number" + itemCount);
+            fail("ItemNotFoundException expected");
+        } catch (ItemNotFoundException e) {
+            // expected
+        }
+    }
+
+}
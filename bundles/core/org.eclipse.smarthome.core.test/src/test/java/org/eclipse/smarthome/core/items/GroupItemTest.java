@@ -28,6 +28,7 @@ import org.eclipse.smarthome.core.library.items.NumberItem;
 import org.eclipse.smarthome.core.library.items.RollershutterItem;
 import org.eclipse.smarthome.core.library.items.SwitchItem;
 import org.eclipse.smarthome.core.library.types.ArithmeticGroupFunction;
+import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.library.types.HSBType;
 import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.library.types.PercentType;
@@ -480,4 +481,29 @@ public class GroupItemTest extends JavaOSGiTest {
         assertThat(((PercentType) newGroupState).intValue(), is(30));
     }
 
+    @Test
+    public void assertThatMemberUpdatesAreCoalescedIfStateCalculationIsDelayed() {
+        events.clear();
+        GroupItem groupItem = new GroupItem("root", new NumberItem("myNumber"), new ArithmeticGroupFunction.Sum());
+        groupItem.setStateCalculationDelay(200, 1000);
+
+        NumberItem member1 = new NumberItem("number1");
+        groupItem.addMember(member1);
+        NumberItem member2 = new NumberItem("number2");
+        groupItem.addMember(member2);
+        groupItem.setEventPublisher(publisher);
+
+        member1.setState(new DecimalType(1));
+        member2.setState(new DecimalType(2));
+        member1.setState(new DecimalType(3));
+        assertThat(events.size(), is(0));
+
+        waitForAssert(() -> assertThat(events.size(), is(1)));
+
+        GroupItemStateChangedEvent change = (GroupItemStateChangedEvent) events.get(0);
+        assertThat(change.getItemState(), is(new DecimalType(5)));
+        assertThat(change.getMemberName(), is("number1"));
+        assertThat(groupItem.getState(), is(new DecimalType(5)));
+    }
+
 }
@@ -9,14 +9,19 @@ package org.eclipse.smarthome.core.library.types;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.GroupFunction;
+import org.eclipse.smarthome.core.items.IncrementalGroupFunction;
+import org.eclipse.smarthome.core.items.IncrementalGroupFunction.Aggregator;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.library.items.DimmerItem;
 import org.eclipse.smarthome.core.library.items.SwitchItem;
@@ -203,6 +208,75 @@ public class ArithmeticGroupFunctionTest {
         assertEquals(new DecimalType("234.95"), state);
     }
 
+    @Test
+    public void testIncrementalCalculationEqualsFullCalculation() {
+        List<IncrementalGroupFunction> functions = Arrays.asList(
+                new ArithmeticGroupFunction.And(OnOffType.ON, OnOffType.OFF),
+                new ArithmeticGroupFunction.Or(OnOffType.ON, OnOffType.OFF),
+                new ArithmeticGroupFunction.NAnd(OnOffType.ON, OnOffType.OFF),
+                new ArithmeticGroupFunction.NOr(OnOffType.ON, OnOffType.OFF), new ArithmeticGroupFunction.Sum(),
+                new ArithmeticGroupFunction.Avg(), new ArithmeticGroupFunction.Min(),
+                new ArithmeticGroupFunction.Max(), new ArithmeticGroupFunction.Count(new StringType("1.*")));
+        State[] states = new State[] { UnDefType.NULL, UnDefType.UNDEF, OnOffType.ON, OnOffType.OFF,
+                new DecimalType("1"), new DecimalType("1.50"), new DecimalType("-3.125"), new DecimalType("10"),
+                new DecimalType("1.0"), new DecimalType("-3.1250"), new DecimalType("10.00") };
+
+        for (IncrementalGroupFunction groupFunction : functions) {
+            Random random = new Random(42);
+            Aggregator aggregator = groupFunction.createAggregator();
+            List<TestItem> members = new ArrayList<>();
+            assertEquals(groupFunction.calculate(new HashSet<Item>(members)), aggregator.getState());
+
+            for (int i = 0; i < 1000; i++) {
+                int operation = random.nextInt(10);
+                if (operation == 0 || members.isEmpty()) {
+                    TestItem member = new TestItem("TestItem" + i, states[random.nextInt(states.length)]);
+                    members.add(member);
+                    aggregator.memberAdded(member);
+                } else if (operation == 1) {
+                    aggregator.memberRemoved(members.remove(random.nextInt(members.size())));
+                } else {
+                    TestItem member = members.get(random.nextInt(members.size()));
+                    member.setState(states[random.nextInt(states.length)]);
+                    aggregator.memberUpdated(member);
+                }
+                State expected = groupFunction.calculate(new HashSet<Item>(members));
+                assertEquals(groupFunction.getClass().getSimpleName() + " after " + i + " operations", expected,
+                        aggregator.getState());
+                assertEquals(expected.toString(), aggregator.getState().toString());
+            }
+        }
+    }
+
+    @Test
+    public void testMinAndMaxOfEqualValuesDoNotDependOnTheOrderOfTheMembers() {
+        List<TestItem> members = Arrays.asList(new TestItem("TestItem1", new DecimalType("1")),
+                new TestItem("TestItem2", new DecimalType("1.00")), new TestItem("TestItem3", new DecimalType("1.0")));
+
+        for (IncrementalGroupFunction groupFunction : Arrays.<IncrementalGroupFunction> asList(
+                new ArithmeticGroupFunction.Min(), new ArithmeticGroupFunction.Max())) {
+            for (int first = 0; first < members.size(); first++) {
+                Aggregator aggregator = groupFunction.createAggregator();
+                for (int i = 0; i < members.size(); i++) {
+                    aggregator.memberAdded(members.get((first + i) % members.size()));
+                }
+                assertEquals("1.00", aggregator.getState().toString());
+                assertEquals("1.00", groupFunction.calculate(new HashSet<Item>(members)).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalCalculationIgnoresItemsWhichAreNoMembers() {
+        IncrementalGroupFunction sum = new ArithmeticGroupFunction.Sum();
+        Aggregator aggregator = sum.createAggregator();
+        aggregator.memberAdded(new TestItem("TestItem1", new DecimalType("2")));
+        aggregator.memberUpdated(new TestItem("TestItem2", new DecimalType("3")));
+        aggregator.memberRemoved(new TestItem("TestItem3", new DecimalType("4")));
+
+        assertEquals(new DecimalType("2"), aggregator.getState());
+    }
+
     class TestItem extends GenericItem {
 
         public TestItem(String name, State state) {
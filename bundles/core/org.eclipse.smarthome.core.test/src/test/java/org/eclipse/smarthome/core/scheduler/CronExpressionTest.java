@@ -7,7 +7,7 @@
  */
 package org.eclipse.smarthome.core.scheduler;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -15,6 +15,10 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.function.Predicate;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -132,4 +136,196 @@ public class CronExpressionTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void specialDayTokens() throws ParseException {
+        assertTimeAfter("0 0 12 L * ?", "2017-02-10 00:00:00", "2017-02-28 12:00:00");
+        assertTimeAfter("0 0 12 L-2 * ?", "2017-02-10 00:00:00", "2017-02-26 12:00:00");
+        assertTimeAfter("0 0 12 LW * ?", "2017-09-01 00:00:00", "2017-09-29 12:00:00");
+        assertTimeAfter("0 0 12 1W * ?", "2017-06-20 00:00:00", "2017-07-03 12:00:00");
+        assertTimeAfter("0 0 12 30W * ?", "2017-04-20 00:00:00", "2017-04-28 12:00:00");
+        assertTimeAfter("0 0 12 ? * 6L", "2017-01-01 00:00:00", "2017-01-27 12:00:00");
+        assertTimeAfter("0 0 12 ? * L", "2017-01-01 00:00:00", "2017-01-07 12:00:00");
+        assertTimeAfter("0 0 12 ? * 2#5", "2017-01-01 00:00:00", "2017-01-30 12:00:00");
+        assertTimeAfter("0 0 0 29 2 ?", "2017-03-01 00:00:00", "2020-02-29 00:00:00");
+        assertTimeAfter("0 0 0 31 * ?", "2017-02-01 00:00:00", "2017-03-31 00:00:00");
+        assertTimeAfter("0 0 0 1 1 ? 2016-2017", "2017-01-01 00:00:00", null);
+    }
+
+    @Test
+    public void getTimeAfterIsExclusive() throws ParseException {
+        assertTimeAfter("0 15 10 * * ?", "2017-05-20 10:15:00", "2017-05-21 10:15:00");
+        assertTimeAfter("0 15 10 * * ?", "2017-05-20 10:14:59.999", "2017-05-20 10:15:00");
+        assertTimeAfter("* * * * * ?", "2017-12-31 23:59:59.500", "2018-01-01 00:00:00");
+    }
+
+    /**
+     * Compares the next fire times of random expressions with the ones found by checking every day separately.
+     */
+    @Test
+    public void getTimeAfterMatchesDayByDaySearch() throws ParseException {
+        final long seed = 42;
+        final Random random = new Random(seed);
+        final String[] timeZones = { "UTC", "Europe/Berlin", "America/New_York", "Australia/Sydney" };
+
+        for (int i = 0; i < 300; i++) {
+            TreeSet<Integer> seconds = randomValues(random, 0, 59);
+            TreeSet<Integer> minutes = randomValues(random, 0, 59);
+            TreeSet<Integer> hours = randomValues(random, 0, 23);
+            TreeSet<Integer> months = randomValues(random, 1, 12);
+            String dayOfMonth = "?";
+            String dayOfWeek = "?";
+            Predicate<Calendar> dayMatcher;
+            if (random.nextBoolean()) {
+                switch (random.nextInt(5)) {
+                    case 0: {
+                        int offset = random.nextInt(4);
+                        dayOfMonth = offset == 0 ? "L" : "L-" + offset;
+                        dayMatcher = c -> c.get(Calendar.DAY_OF_MONTH) == c.getActualMaximum(Calendar.DAY_OF_MONTH)
+                                - offset;
+                        break;
+                    }
+                    case 1: {
+                        dayOfMonth = "LW";
+                        dayMatcher = c -> c.get(Calendar.DAY_OF_MONTH) == getNearestWeekDay(c,
+                                c.getActualMaximum(Calendar.DAY_OF_MONTH));
+                        break;
+                    }
+                    case 2: {
+                        int day = 1 + random.nextInt(31);
+                        dayOfMonth = day + "W";
+                        dayMatcher = c -> day <= c.getActualMaximum(Calendar.DAY_OF_MONTH)
+                                && c.get(Calendar.DAY_OF_MONTH) == getNearestWeekDay(c, day);
+                        break;
+                    }
+                    default: {
+                        TreeSet<Integer> days = randomValues(random, 1, 31);
+                        dayOfMonth = toString(days);
+                        dayMatcher = c -> days.contains(c.get(Calendar.DAY_OF_MONTH));
+                        break;
+                    }
+                }
+            } else {
+                switch (random.nextInt(5)) {
+                    case 0: {
+                        int weekDay = 1 + random.nextInt(7);
+                        dayOfWeek = weekDay + "L";
+                        dayMatcher = c -> c.get(Calendar.DAY_OF_WEEK) == weekDay
+                                && c.get(Calendar.DAY_OF_MONTH) + 7 > c.getActualMaximum(Calendar.DAY_OF_MONTH);
+                        break;
+                    }
+                    case 1: {
+                        int weekDay = 1 + random.nextInt(7);
+                        int instance = 1 + random.nextInt(5);
+                        dayOfWeek = weekDay + "#" + instance;
+                        dayMatcher = c -> c.get(Calendar.DAY_OF_WEEK) == weekDay
+                                && c.get(Calendar.DAY_OF_WEEK_IN_MONTH) == instance;
+                        break;
+                    }
+                    default: {
+                        TreeSet<Integer> weekDays = randomValues(random, 1, 7);
+                        dayOfWeek = toString(weekDays);
+                        dayMatcher = c -> weekDays.contains(c.get(Calendar.DAY_OF_WEEK));
+                        break;
+                    }
+                }
+            }
+            String expression = toString(seconds) + " " + toString(minutes) + " " + toString(hours) + " "
+                    + dayOfMonth + " " + toString(months) + " " + dayOfWeek;
+            TimeZone timeZone = TimeZone.getTimeZone(timeZones[random.nextInt(timeZones.length)]);
+            Date afterTime = new Date(1483228800000L + (long) (random.nextDouble() * 5 * 365 * 86400000L));
+
+            Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTime(afterTime);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            Date expected = null;
+            // searches for 10 years, expressions which match less often are only checked for not matching earlier
+            for (int day = 0; day < 3660 && expected == null; day++) {
+                if (months.contains(calendar.get(Calendar.MONTH) + 1) && dayMatcher.test(calendar)) {
+                    expected = getTimeAfter(calendar, hours, minutes, seconds, afterTime);
+                }
+                calendar.add(Calendar.DATE, 1);
+            }
+
+            CronExpression cronExpression = new CronExpression(expression, afterTime, timeZone);
+            Date actual = cronExpression.getTimeAfter(afterTime);
+            String message = "Expression '" + expression + "' in " + timeZone.getID() + " after " + afterTime
+                    + " (seed " + seed + ", iteration " + i + ")";
+            if (expected != null) {
+                assertEquals(message, expected, actual);
+            } else {
+                assertTrue(message, actual == null || !actual.before(calendar.getTime()));
+            }
+        }
+    }
+
+    private Date getTimeAfter(Calendar day, TreeSet<Integer> hours, TreeSet<Integer> minutes,
+            TreeSet<Integer> seconds, Date afterTime) {
+        Calendar calendar = (Calendar) day.clone();
+        int year = day.get(Calendar.YEAR);
+        int month = day.get(Calendar.MONTH);
+        int dayOfMonth = day.get(Calendar.DAY_OF_MONTH);
+        for (int hour : hours) {
+            for (int minute : minutes) {
+                for (int second : seconds) {
+                    calendar.clear();
+                    calendar.set(year, month, dayOfMonth, hour, minute, second);
+                    if (calendar.getTime().after(afterTime)) {
+                        return calendar.getTime();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private int getNearestWeekDay(Calendar month, int day) {
+        Calendar calendar = (Calendar) month.clone();
+        calendar.set(Calendar.DAY_OF_MONTH, day);
+        switch (calendar.get(Calendar.DAY_OF_WEEK)) {
+            case Calendar.SATURDAY:
+                return day == 1 ? 3 : day - 1;
+            case Calendar.SUNDAY:
+                return day == calendar.getActualMaximum(Calendar.DAY_OF_MONTH) ? day - 2 : day + 1;
+            default:
+                return day;
+        }
+    }
+
+    private TreeSet<Integer> randomValues(Random random, int min, int max) {
+        TreeSet<Integer> values = new TreeSet<>();
+        if (random.nextInt(4) == 0) {
+            for (int value = min; value <= max; value++) {
+                values.add(value);
+            }
+        } else {
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                values.add(min + random.nextInt(max - min + 1));
+            }
+        }
+        return values;
+    }
+
+    private String toString(TreeSet<Integer> values) {
+        StringBuilder builder = new StringBuilder();
+        for (int value : values) {
+            builder.append(builder.length() == 0 ? "" : ",").append(value);
+        }
+        return builder.toString();
+    }
+
+    private void assertTimeAfter(String expression, String afterTime, String expectedTime) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat(
+                afterTime.contains(".") ? "yyyy-MM-dd HH:mm:ss.SSS" : "yyyy-MM-dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date after = format.parse(afterTime);
+        CronExpression cronExpression = new CronExpression(expression, after, TimeZone.getTimeZone("UTC"));
+
+        format.applyPattern("yyyy-MM-dd HH:mm:ss");
+        Date expected = expectedTime != null ? format.parse(expectedTime) : null;
+        assertEquals(expression, expected, cronExpression.getTimeAfter(after));
+    }
+
+}
@@ -9,13 +9,25 @@ package org.eclipse.smarthome.core.scheduler;
 
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.core.scheduler.ExpressionThreadPoolManager.ExpressionThreadPoolExecutor;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ExpressionThreadPoolExecutorTest {
 
+    private final Logger logger = LoggerFactory.getLogger(ExpressionThreadPoolExecutorTest.class);
+
     private ExpressionThreadPoolExecutor scheduler = ExpressionThreadPoolManager.getExpressionScheduledPool("test");
     protected boolean success;
 
@@ -73,4 +85,162 @@ public class ExpressionThreadPoolExecutorTest {
         assertEquals(0, scheduler.getQueue().size());
     }
 
+    @Test
+    public void testManyExpressionsAreExecutedOnTime() throws InterruptedException {
+        final int count = 10000;
+        ExpressionThreadPoolExecutor executor = new ExpressionThreadPoolExecutor("test-many", 4);
+        try {
+            CountDownLatch latch = new CountDownLatch(count);
+            long start = System.currentTimeMillis();
+            List<Long> lateness = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                long time = start + 200 + i % 800;
+                executor.schedule(() -> {
+                    synchronized (lateness) {
+                        lateness.add(System.currentTimeMillis() - time);
+                    }
+                    latch.countDown();
+                }, new OnceExpression(time));
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            for (long late : lateness) {
+                assertTrue("executed " + (-late) + " ms too early", late >= 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void benchmarkScheduleAndRemoveChurn() throws InterruptedException {
+        final int count = 100000;
+        final int churn = 200000;
+        final long period = TimeUnit.MINUTES.toMillis(10);
+
+        ExpressionThreadPoolExecutor executor = new ExpressionThreadPoolExecutor("test-churn", 4);
+        try {
+            Runnable task = () -> {
+            };
+            List<Expression> expressions = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Expression expression = new PeriodicExpression(period, i * period / count);
+                expressions.add(expression);
+                executor.schedule(task, expression);
+            }
+            logger.info("Scheduled {} expressions in {} ms", count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            long nanos = 0;
+            // the first round warms up the code path
+            for (int round = 0; round < 2; round++) {
+                start = System.nanoTime();
+                for (int i = 0; i < churn; i++) {
+                    Expression expression = expressions.get(i % count);
+                    assertTrue(executor.remove(expression));
+                    executor.schedule(task, expression);
+                }
+                nanos = System.nanoTime() - start;
+            }
+            logger.info("Removed and scheduled an expression among {} in {} ns", count, nanos / churn);
+
+            // the monitor thread must not be busy with the expressions which are not due
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long monitorId = -1;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("ESH-test-churn-Monitor")) {
+                    monitorId = thread.getId();
+                }
+            }
+            long cpuStart = threads.getThreadCpuTime(monitorId);
+            Thread.sleep(2000);
+            long cpuNanos = threads.getThreadCpuTime(monitorId) - cpuStart;
+            logger.info("Monitor thread used {} ms of CPU time within 2 s for {} expressions",
+                    TimeUnit.NANOSECONDS.toMillis(cpuNanos), count);
+            assertTrue(cpuNanos < TimeUnit.MILLISECONDS.toNanos(1000));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * An expression which is satisfied once.
+     */
+    private static class OnceExpression extends PeriodicExpression {
+
+        private final long time;
+
+        private OnceExpression(long time) {
+            super(Long.MAX_VALUE, 0);
+            this.time = time;
+        }
+
+        @Override
+        public Date getTimeAfter(Date date) {
+            return date.getTime() < time ? new Date(time) : null;
+        }
+    }
+
+    /**
+     * An expression which is satisfied at a fixed period, without the costs of parsing.
+     */
+    private static class PeriodicExpression implements Expression {
+
+        private final long period;
+
+        private final long offset;
+
+        private PeriodicExpression(long period, long offset) {
+            this.period = period;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(Date date) {
+            return (date.getTime() - offset) % period == 0;
+        }
+
+        @Override
+        public Date getTimeAfter(Date date) {
+            return new Date(((date.getTime() - offset) / period + 1) * period + offset);
+        }
+
+        @Override
+        public Date getFinalFireTime() {
+            return null;
+        }
+
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getDefault();
+        }
+
+        @Override
+        public void setTimeZone(TimeZone timeZone) {
+        }
+
+        @Override
+        public String getExpression() {
+            return period + "/" + offset;
+        }
+
+        @Override
+        public void setExpression(String expression) {
+        }
+
+        @Override
+        public Date getStartDate() {
+            return null;
+        }
+
+        @Override
+        public void setStartDate(Date startTime) {
+        }
+
+        @Override
+        public boolean hasFloatingStartDate() {
+            return true;
+        }
+    }
+
 }
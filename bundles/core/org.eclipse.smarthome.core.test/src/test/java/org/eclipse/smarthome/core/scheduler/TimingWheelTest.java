@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.scheduler;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TimingWheel}.
+ *
+ * @author agent - Initial contribution
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void assertThatValuesExpireAtTheirDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.add("a", 5);
+        wheel.add("b", 64);
+        wheel.add("c", 5000);
+
+        assertThat(wheel.advance(4), is(Collections.<String> emptyList()));
+        assertThat(wheel.advance(5), is(Collections.singletonList("a")));
+        assertThat(wheel.advance(63), is(Collections.<String> emptyList()));
+        assertThat(wheel.advance(64), is(Collections.singletonList("b")));
+        assertThat(wheel.advance(4999), is(Collections.<String> emptyList()));
+        assertThat(wheel.advance(5000), is(Collections.singletonList("c")));
+        assertThat(wheel.size(), is(0));
+        assertThat(wheel.getNextTick(), is(-1L));
+    }
+
+    @Test
+    public void assertThatOverdueValuesExpireWithTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        wheel.advance(200);
+        wheel.add("overdue", 10);
+        assertThat(wheel.getNextTick(), is(201L));
+        assertThat(wheel.advance(201), is(Collections.singletonList("overdue")));
+    }
+
+    @Test
+    public void assertThatCancelledValuesDoNotExpire() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        TimingWheel.Timeout<String> timeout = wheel.add("a", 100);
+        wheel.add("b", 100);
+
+        assertTrue(timeout.isPending());
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(timeout.isPending());
+        assertFalse(wheel.cancel(timeout));
+        assertThat(wheel.advance(100), is(Collections.singletonList("b")));
+    }
+
+    @Test
+    public void assertThatValuesBeyondTheRangeOfTheWheelAreKept() {
+        long range = 1L << (6 * TimingWheel.LEVELS);
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.add("far", 3 * range + 17);
+
+        assertThat(wheel.advance(1 << 20), is(Collections.<String> emptyList()));
+        assertThat(wheel.size(), is(1));
+    }
+
+    @Test
+    public void assertThatEmptyWheelSkipsTicks() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        assertThat(wheel.advance(Long.MAX_VALUE / 2), is(Collections.<String> emptyList()));
+        assertThat(wheel.getCurrentTick(), is(Long.MAX_VALUE / 2 + 1));
+
+        wheel.add("a", Long.MAX_VALUE / 2 + 100);
+        assertThat(wheel.advance(Long.MAX_VALUE / 2 + 100), is(Collections.singletonList("a")));
+    }
+
+    @Test
+    public void assertThatNextTickIsNotLaterThanNextExpiration() {
+        TimingWheel<String> wheel = new TimingWheel<>(3);
+        wheel.add("a", 10);
+        assertThat(wheel.getNextTick(), is(10L));
+
+        wheel.advance(10);
+        wheel.add("b", 1000);
+        long nextTick = wheel.getNextTick();
+        assertTrue(nextTick > 10 && nextTick <= 1000);
+    }
+
+    @Test
+    public void assertThatRandomDeadlinesExpireInOrder() {
+        final Random random = new Random(7);
+        final int count = 20000;
+        final long start = random.nextInt(1 << 20);
+
+        TimingWheel<Integer> wheel = new TimingWheel<>(start);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // mostly short delays, some of them spanning several levels
+            long delay = random.nextInt(4) == 0 ? (long) (random.nextDouble() * (1L << 26))
+                    : random.nextInt(1 << (6 * (1 + random.nextInt(3))));
+            deadlines.put(i, start + delay);
+            timeouts.add(wheel.add(i, start + delay));
+        }
+        for (int i = 0; i < count; i += 3) {
+            wheel.cancel(timeouts.get(i));
+            deadlines.remove(i);
+        }
+        assertThat(wheel.size(), is(deadlines.size()));
+
+        long tick = start;
+        int expired = 0;
+        while (wheel.size() > 0) {
+            long nextTick = wheel.getNextTick();
+            assertTrue(nextTick >= tick);
+            // the ticks in between do not need to be processed one by one
+            for (Integer value : wheel.advance(nextTick)) {
+                assertThat(deadlines.get(value), is(nextTick));
+                expired++;
+            }
+            tick = nextTick + 1;
+        }
+        assertThat(expired, is(deadlines.size()));
+    }
+
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.types;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the {@link TypeParser}.
+ *
+ * @author agent - Initial contribution
+ */
+public class TypeParserTest {
+
+    private final Logger logger = LoggerFactory.getLogger(TypeParserTest.class);
+
+    /**
+     * A type outside of the core type library, which is parsed through its valueOf method.
+     */
+    public static class TestType implements State, Command {
+
+        private final String value;
+
+        private TestType(String value) {
+            this.value = value;
+        }
+
+        public static TestType valueOf(String value) {
+            if (!value.startsWith("test:")) {
+                throw new IllegalArgumentException("Invalid value: " + value);
+            }
+            return new TestType(value.substring(5));
+        }
+
+        @Override
+        public String format(String pattern) {
+            return value;
+        }
+
+        @Override
+        public String toFullString() {
+            return "test:" + value;
+        }
+    }
+
+    @Test
+    public void assertThatCoreTypesAreParsedByName() {
+        assertThat(TypeParser.parseType("DecimalType", "1.5"), is(new DecimalType("1.5")));
+        assertThat(TypeParser.parseType("OnOffType", "ON"), is(OnOffType.ON));
+        assertThat(TypeParser.parseType("HSBType", "120,100,50"), is(new HSBType("120,100,50")));
+        assertThat(TypeParser.parseType("StringType", "text"), is(new StringType("text")));
+    }
+
+    @Test
+    public void assertThatInvalidInputAndUnknownTypesAreNotParsed() {
+        assertThat(TypeParser.parseType("DecimalType", "abc"), is(nullValue()));
+        assertThat(TypeParser.parseType("OnOffType", "MAYBE"), is(nullValue()));
+        assertThat(TypeParser.parseType("UnknownType", "1"), is(nullValue()));
+        assertThat(TypeParser.parseType("TestType", "test:1"), is(nullValue()));
+    }
+
+    @Test
+    public void assertThatFirstAcceptingTypeIsUsed() {
+        List<Class<? extends State>> stateTypes = Arrays.asList(OnOffType.class, PercentType.class, StringType.class);
+        assertThat(TypeParser.parseState(stateTypes, "ON"), is(OnOffType.ON));
+        assertThat(TypeParser.parseState(stateTypes, "50"), is(new PercentType(50)));
+        assertThat(TypeParser.parseState(stateTypes, "text"), is(new StringType("text")));
+
+        List<Class<? extends Command>> commandTypes = Arrays.asList(OnOffType.class, RefreshType.class);
+        assertThat(TypeParser.parseCommand(commandTypes, "REFRESH"), is(RefreshType.REFRESH));
+        assertThat(TypeParser.parseCommand(commandTypes, "text"), is(nullValue()));
+    }
+
+    @Test
+    public void assertThatTypesWithoutRegisteredParserAreParsedByValueOf() {
+        List<Class<? extends State>> stateTypes = Arrays.asList(TestType.class, StringType.class);
+        assertThat(((TestType) TypeParser.parseState(stateTypes, "test:value")).value, is("value"));
+        assertThat(TypeParser.parseState(stateTypes, "value"), is(new StringType("value")));
+    }
+
+    @Test
+    public void assertThatRegisteredParsersAreUsed() {
+        TypeParser.registerParser(TestType.class, value -> new TestType(value));
+        try {
+            assertThat(((TestType) TypeParser.parseType("TestType", "value")).value, is("value"));
+            assertThat(((TestType) TypeParser.parseCommand(Arrays.asList(TestType.class), "value")).value,
+                    is("value"));
+        } finally {
+            TypeParser.unregisterParser(TestType.class);
+        }
+        assertThat(TypeParser.parseType("TestType", "value"), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertThatParsersForTypesWithSameNameAreRejected() {
+        TypeParser.registerParser(TestType.class, TestType::valueOf);
+        try {
+            TypeParser.registerParser(OtherTypes.TestType.class, OtherTypes.TestType::new);
+        } finally {
+            TypeParser.unregisterParser(TestType.class);
+        }
+    }
+
+    @Test
+    public void assertThatParsingIsFasterThanReflection() throws Exception {
+        final int iterations = 200000;
+        List<Class<? extends State>> stateTypes = Arrays.asList(OnOffType.class, DecimalType.class);
+
+        long parserNanos = 0;
+        long reflectionNanos = 0;
+        // the first round warms up both code paths
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                assertNotNull(TypeParser.parseState(stateTypes, Integer.toString(i)));
+            }
+            parserNanos = System.nanoTime() - start;
+
+            // the parsing as it was done before: the valueOf methods are looked up and invoked on every call
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                assertNotNull(parseStateByReflection(stateTypes, Integer.toString(i)));
+            }
+            reflectionNanos = System.nanoTime() - start;
+        }
+        logger.info("Parsing a state: {} ns with registered parsers, {} ns with reflection", parserNanos / iterations,
+                reflectionNanos / iterations);
+    }
+
+    private State parseStateByReflection(List<Class<? extends State>> types, String s) {
+        for (Class<? extends Type> type : types) {
+            try {
+                Method valueOf = type.getMethod("valueOf", String.class);
+                State state = (State) valueOf.invoke(type, s);
+                if (state != null) {
+                    return state;
+                }
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            }
+        }
+        return null;
+    }
+
+    private static class OtherTypes {
+
+        private static class TestType implements State {
+
+            private TestType(String value) {
+            }
+
+            @Override
+            public String format(String pattern) {
+                return "";
+            }
+
+            @Override
+            public String toFullString() {
+                return "";
+            }
+        }
+    }
+
+}
@@ -7,11 +7,14 @@
  */
 package org.eclipse.smarthome.core.thing.internal;
 
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,9 +42,13 @@ import org.eclipse.smarthome.core.thing.profiles.ProfileTypeUID;
 import org.eclipse.smarthome.core.thing.profiles.StateProfile;
 import org.eclipse.smarthome.core.thing.profiles.TriggerProfile;
 import org.eclipse.smarthome.core.thing.type.ChannelKind;
+import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.State;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -74,6 +81,8 @@ public class CommunicationManagerTest {
                     ChannelBuilder.create(TRIGGER_CHANNEL_UID_2, "").withKind(ChannelKind.TRIGGER).build())
             .build();
 
+    private final Logger logger = LoggerFactory.getLogger(CommunicationManagerTest.class);
+
     private CommunicationManager manager;
 
     @Mock
@@ -91,6 +100,8 @@ public class CommunicationManagerTest {
     @Mock
     private EventPublisher eventPublisher;
 
+    private ThingRegistry thingRegistry;
+
     @Before
     public void setup() {
         initMocks(this);
@@ -138,7 +149,7 @@ public class CommunicationManagerTest {
         when(itemRegistry.get(eq(ITEM_NAME_2))).thenReturn(ITEM_2);
         manager.setItemRegistry(itemRegistry);
 
-        ThingRegistry thingRegistry = mock(ThingRegistry.class);
+        thingRegistry = mock(ThingRegistry.class);
         when(thingRegistry.get(eq(THING_UID))).thenReturn(THING);
         manager.setThingRegistry(thingRegistry);
     }
@@ -338,4 +349,100 @@ public class CommunicationManagerTest {
         verifyNoMoreInteractions(mockProfileAdvisor);
     }
 
+    @Test
+    public void testProfileIsNotUsedForRemovedChannel() {
+        manager.receive(ItemEventFactory.createCommandEvent(ITEM_NAME_2, OnOffType.ON));
+        verify(stateProfile).onCommand(same(LINK_2_S2), same(THING), eq(OnOffType.ON));
+
+        // the thing has been updated without the channel
+        Thing updatedThing = ThingBuilder.create(THING_TYPE_UID, THING_UID)
+                .withChannels(ChannelBuilder.create(STATE_CHANNEL_UID_1, "").withKind(ChannelKind.STATE).build())
+                .build();
+        when(thingRegistry.get(eq(THING_UID))).thenReturn(updatedThing);
+
+        manager.receive(ItemEventFactory.createCommandEvent(ITEM_NAME_2, OnOffType.OFF));
+        verify(stateProfile, never()).onCommand(any(ItemChannelLink.class), same(updatedThing), eq(OnOffType.OFF));
+    }
+
+    @Test
+    public void testLinkRemovedWhileFillingTheIndexIsNotRouted() {
+        CommunicationManager manager = new CommunicationManager();
+        manager.setEventPublisher(eventPublisher);
+        manager.setDefaultProfileFactory(new DefaultProfileFactory());
+        manager.addProfileFactory(mockProfileFactory);
+        manager.addProfileAdvisor(mockProfileAdvisor);
+        manager.setItemRegistry(getRegistry(ItemRegistry.class, ITEM_NAME_1, ITEM_1));
+        manager.setThingRegistry(thingRegistry);
+
+        manager.setItemChannelLinkRegistry(new ItemChannelLinkRegistry() {
+            @Override
+            public Stream<ItemChannelLink> stream() {
+                // the stream has been taken before the link is removed
+                Stream<ItemChannelLink> stream = Arrays.asList(LINK_1_S1, LINK_1_S2).stream();
+                manager.removed(LINK_1_S1);
+                return stream;
+            }
+        });
+
+        manager.stateUpdated(STATE_CHANNEL_UID_1, OnOffType.ON);
+        manager.stateUpdated(STATE_CHANNEL_UID_2, OnOffType.ON);
+        verify(stateProfile).stateUpdated(same(eventPublisher), same(LINK_1_S2), eq(OnOffType.ON), same(ITEM_1));
+        verifyNoMoreInteractions(stateProfile);
+    }
+
+    @Test
+    public void testStateUpdated_throughput() {
+        final int[] updates = new int[1];
+        StateProfile countingProfile = new StateProfile() {
+            @Override
+            public void stateUpdated(EventPublisher eventPublisher, ItemChannelLink link, State state, Item item) {
+                updates[0]++;
+            }
+
+            @Override
+            public void postCommand(EventPublisher eventPublisher, ItemChannelLink link, Command command, Item item) {
+            }
+
+            @Override
+            public void onUpdate(ItemChannelLink link, Thing thing, State state) {
+            }
+
+            @Override
+            public void onCommand(ItemChannelLink link, Thing thing, Command command) {
+            }
+        };
+        when(mockProfileFactory.createProfile(eq(new ProfileTypeUID("test:state")))).thenReturn(countingProfile);
+
+        // mocks would record every invocation and dominate the measurement
+        manager.setItemRegistry(getRegistry(ItemRegistry.class, ITEM_NAME_1, ITEM_1));
+        manager.setThingRegistry(getRegistry(ThingRegistry.class, THING_UID, THING));
+
+        // warm up
+        for (int i = 0; i < 100000; i++) {
+            manager.stateUpdated(STATE_CHANNEL_UID_1, OnOffType.ON);
+        }
+        updates[0] = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100000; i++) {
+            manager.stateUpdated(STATE_CHANNEL_UID_1, OnOffType.ON);
+        }
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(100000, updates[0]);
+        logger.info("100000 channel updates took {}ms", duration);
+        // the target is 100000 updates per second, the bound leaves room for slow and busy machines
+        assertTrue("100000 channel updates took " + duration + "ms", duration < 10000);
+    }
+
+    private static <T> T getRegistry(Class<T> registryClass, Object key, Object element) {
+        return registryClass.cast(Proxy.newProxyInstance(registryClass.getClassLoader(),
+                new Class<?>[] { registryClass }, (proxy, method, args) -> {
+                    if ("get".equals(method.getName()) && args.length == 1) {
+                        return key.equals(args[0]) ? element : null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.thing.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.link.ItemChannelLink;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ItemChannelLinkIndex}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemChannelLinkIndexTest {
+
+    private static final String ITEM_NAME_1 = "testItem1";
+    private static final String ITEM_NAME_2 = "testItem2";
+    private static final ThingUID THING_UID = new ThingUID("test", "thing");
+    private static final ChannelUID CHANNEL_UID_1 = new ChannelUID(THING_UID, "channel1");
+    private static final ChannelUID CHANNEL_UID_2 = new ChannelUID(THING_UID, "channel2");
+
+    private final ItemChannelLinkIndex index = new ItemChannelLinkIndex();
+
+    @Test
+    public void assertThatLinksAreIndexedByChannelAndItem() {
+        ItemChannelLink link1 = new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1);
+        ItemChannelLink link2 = new ItemChannelLink(ITEM_NAME_2, CHANNEL_UID_1);
+        index.add(link1);
+        index.add(link2);
+
+        ItemChannelLinkIndex.Entry[] entries = index.getLinks(CHANNEL_UID_1);
+        assertThat(entries.length, is(2));
+        assertThat(entries[0].getLink(), is(sameInstance(link1)));
+        assertThat(entries[0].getThingUID(), is(THING_UID));
+        assertThat(entries[0].isSource(CHANNEL_UID_1.getAsString()), is(true));
+        assertThat(entries[0].isSource(CHANNEL_UID_2.getAsString()), is(false));
+        assertThat(entries[0].isSource(null), is(false));
+        assertThat(entries[1].getLink(), is(sameInstance(link2)));
+
+        assertThat(index.getLinks(ITEM_NAME_1).length, is(1));
+        assertThat(index.getLinks(ITEM_NAME_2).length, is(1));
+        assertThat(index.getLinks(CHANNEL_UID_2).length, is(0));
+    }
+
+    @Test
+    public void assertThatLinkBetweenSameItemAndChannelIsReplaced() {
+        index.add(new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1));
+        ItemChannelLink replacement = new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1);
+        index.add(replacement);
+
+        assertThat(index.getLinks(CHANNEL_UID_1).length, is(1));
+        assertThat(index.getLinks(CHANNEL_UID_1)[0].getLink(), is(sameInstance(replacement)));
+        assertThat(index.getLinks(ITEM_NAME_1).length, is(1));
+        assertThat(index.getLinks(ITEM_NAME_1)[0].getLink(), is(sameInstance(replacement)));
+    }
+
+    @Test
+    public void assertThatUpdatedLinkMovesToTheNewChannel() {
+        ItemChannelLink oldLink = new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1);
+        ItemChannelLink newLink = new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_2);
+        index.add(oldLink);
+
+        // the communication manager applies an update of the registry like this
+        index.remove(oldLink);
+        index.add(newLink);
+
+        assertThat(index.getLinks(CHANNEL_UID_1).length, is(0));
+        assertThat(index.getLinks(CHANNEL_UID_2).length, is(1));
+        assertThat(index.getLinks(CHANNEL_UID_2)[0].getLink(), is(sameInstance(newLink)));
+        assertThat(index.getLinks(ITEM_NAME_1).length, is(1));
+        assertThat(index.getLinks(ITEM_NAME_1)[0].getLink(), is(sameInstance(newLink)));
+    }
+
+    @Test
+    public void assertThatRemovingTheLastLinkLeavesNoEntries() {
+        ItemChannelLink link1 = new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1);
+        ItemChannelLink link2 = new ItemChannelLink(ITEM_NAME_2, CHANNEL_UID_1);
+        index.add(link1);
+        index.add(link2);
+
+        // a link which is not indexed does not change anything
+        index.remove(new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_2));
+        assertThat(index.getLinks(CHANNEL_UID_1).length, is(2));
+
+        index.remove(new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1));
+        assertThat(index.getLinks(CHANNEL_UID_1).length, is(1));
+        assertThat(index.getLinks(CHANNEL_UID_1)[0].getLink(), is(sameInstance(link2)));
+        assertThat(index.getLinks(ITEM_NAME_1).length, is(0));
+
+        index.remove(link2);
+        // the shared empty array is returned once the keys are gone
+        assertThat(index.getLinks(CHANNEL_UID_1), is(sameInstance(index.getLinks(CHANNEL_UID_2))));
+        assertThat(index.getLinks(CHANNEL_UID_1).length, is(0));
+        assertThat(index.getLinks(ITEM_NAME_2), is(sameInstance(index.getLinks("unknown"))));
+    }
+
+    @Test
+    public void assertThatClearRemovesAllLinks() {
+        index.add(new ItemChannelLink(ITEM_NAME_1, CHANNEL_UID_1));
+        index.add(new ItemChannelLink(ITEM_NAME_2, CHANNEL_UID_2));
+        index.clear();
+
+        assertThat(index.getLinks(CHANNEL_UID_1).length, is(0));
+        assertThat(index.getLinks(CHANNEL_UID_2).length, is(0));
+        assertThat(index.getLinks(ITEM_NAME_1).length, is(0));
+        assertThat(index.getLinks(ITEM_NAME_2).length, is(0));
+    }
+
+}
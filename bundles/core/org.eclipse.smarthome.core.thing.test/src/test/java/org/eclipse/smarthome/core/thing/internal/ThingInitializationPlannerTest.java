@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.thing.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.service.ReadyService;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingTypeUID;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
+import org.eclipse.smarthome.core.thing.binding.builder.BridgeBuilder;
+import org.eclipse.smarthome.core.thing.binding.builder.ThingBuilder;
+import org.eclipse.smarthome.core.thing.binding.builder.ThingStatusInfoBuilder;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the {@link ThingInitializationPlanner}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ThingInitializationPlannerTest {
+
+    private static final ThingTypeUID BRIDGE_TYPE_UID = new ThingTypeUID("test", "bridge");
+    private static final ThingTypeUID THING_TYPE_UID = new ThingTypeUID("test", "thing");
+
+    private final Logger logger = LoggerFactory.getLogger(ThingInitializationPlannerTest.class);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void assertThatThingsAreInitializedInTheBackground() throws Exception {
+        ThingHandlerFactory factory = mock(ThingHandlerFactory.class);
+        Map<Thing, ThingHandlerFactory> things = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            things.put(ThingBuilder.create(THING_TYPE_UID, "thing" + i).build(), factory);
+        }
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<ThingUID> initialized = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> completion = new ThingInitializationPlanner(executor, 2).initialize(things,
+                (thing, thingHandlerFactory) -> {
+                    assertThat(thingHandlerFactory, is(sameInstance(factory)));
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    initialized.add(thing.getUID());
+                });
+
+        assertThat(completion.isDone(), is(false));
+        assertTrue(initialized.isEmpty());
+
+        blocked.countDown();
+        completion.get(5, TimeUnit.SECONDS);
+        assertThat(initialized.size(), is(things.size()));
+    }
+
+    @Test
+    public void assertThatThingsOfDifferentFactoriesAreInitializedInParallel() throws Exception {
+        final int factoryCount = 8;
+        final long initializationTime = 200;
+
+        Map<Thing, ThingHandlerFactory> things = new LinkedHashMap<>();
+        for (int i = 0; i < factoryCount; i++) {
+            things.put(BridgeBuilder.create(BRIDGE_TYPE_UID, "bridge" + i).build(), mock(ThingHandlerFactory.class));
+        }
+
+        long start = System.currentTimeMillis();
+        new ThingInitializationPlanner(executor, 1).initialize(things, (thing, factory) -> {
+            try {
+                Thread.sleep(initializationTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).get(5, TimeUnit.SECONDS);
+        long duration = System.currentTimeMillis() - start;
+
+        logger.info("Initialized {} bridges of different factories in {} ms, {} ms each", factoryCount, duration,
+                initializationTime);
+        // one after the other this would take 1600 ms
+        assertTrue(duration < factoryCount * initializationTime);
+    }
+
+    @Test
+    public void assertThatInitializationsPerFactoryAreLimited() throws Exception {
+        ThingHandlerFactory factory = mock(ThingHandlerFactory.class);
+        Map<Thing, ThingHandlerFactory> things = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            things.put(ThingBuilder.create(THING_TYPE_UID, "thing" + i).build(), factory);
+        }
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        new ThingInitializationPlanner(executor, 3).initialize(things, (thing, thingHandlerFactory) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(maxRunning.get(), is(3));
+    }
+
+    @Test
+    public void assertThatFailingInitializationsDoNotBlockOtherThings() throws Exception {
+        ThingHandlerFactory factory = mock(ThingHandlerFactory.class);
+        Thing thing1 = ThingBuilder.create(THING_TYPE_UID, "thing1").build();
+        Thing thing2 = ThingBuilder.create(THING_TYPE_UID, "thing2").build();
+        Map<Thing, ThingHandlerFactory> things = new LinkedHashMap<>();
+        things.put(thing1, factory);
+        things.put(thing2, factory);
+
+        List<ThingUID> initialized = Collections.synchronizedList(new ArrayList<>());
+        new ThingInitializationPlanner(executor, 1).initialize(things, (thing, thingHandlerFactory) -> {
+            initialized.add(thing.getUID());
+            if (thing == thing1) {
+                throw new IllegalStateException("failed");
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(initialized, is(Arrays.asList(thing1.getUID(), thing2.getUID())));
+    }
+
+    @Test
+    public void assertThatReadyMarkerIsRegisteredOnceAllThingsHaveBeenOnline() {
+        ReadyService readyService = mock(ReadyService.class);
+        ThingInitializationPlanner planner = new ThingInitializationPlanner(executor, 1);
+        planner.setReadyService(readyService);
+
+        Thing thing1 = ThingBuilder.create(THING_TYPE_UID, "thing1").build();
+        Thing thing2 = ThingBuilder.create(THING_TYPE_UID, "thing2").build();
+        Thing thing3 = ThingBuilder.create(THING_TYPE_UID, "thing3").build();
+        planner.thingStatusChanged(thing1);
+        planner.thingStatusChanged(thing2);
+        planner.thingStatusChanged(thing3);
+        planner.startTracking();
+        assertThat(planner.getThingsNotOnlineYet().size(), is(3));
+
+        setStatus(planner, thing1, ThingStatus.ONLINE);
+        setStatus(planner, thing1, ThingStatus.OFFLINE);
+        setStatus(planner, thing2, ThingStatus.ONLINE);
+        verify(readyService, never()).markReady(ThingInitializationPlanner.ONLINE_MARKER);
+
+        planner.thingRemoved(thing3.getUID());
+        verify(readyService).markReady(ThingInitializationPlanner.ONLINE_MARKER);
+        assertTrue(planner.getThingsNotOnlineYet().isEmpty());
+
+        planner.setReadyService(null);
+        verify(readyService).unmarkReady(ThingInitializationPlanner.ONLINE_MARKER);
+    }
+
+    @Test
+    public void assertThatReadyMarkerIsRegisteredWithoutThings() {
+        ReadyService readyService = mock(ReadyService.class);
+        ThingInitializationPlanner planner = new ThingInitializationPlanner(executor, 1);
+        planner.setReadyService(readyService);
+        verify(readyService, never()).markReady(ThingInitializationPlanner.ONLINE_MARKER);
+
+        planner.startTracking();
+        verify(readyService).markReady(ThingInitializationPlanner.ONLINE_MARKER);
+    }
+
+    @Test
+    public void assertThatReadyMarkerIsRegisteredIfThingsAreOnlineOnTheirFirstReport() {
+        ReadyService readyService = mock(ReadyService.class);
+        ThingInitializationPlanner planner = new ThingInitializationPlanner(executor, 1);
+        planner.setReadyService(readyService);
+
+        Thing thing1 = ThingBuilder.create(THING_TYPE_UID, "thing1").build();
+        Thing thing2 = ThingBuilder.create(THING_TYPE_UID, "thing2").build();
+        setStatus(planner, thing1, ThingStatus.ONLINE);
+        planner.startTracking();
+        verify(readyService).markReady(ThingInitializationPlanner.ONLINE_MARKER);
+
+        setStatus(planner, thing2, ThingStatus.OFFLINE);
+        assertTrue(planner.getThingsNotOnlineYet().isEmpty());
+    }
+
+    private void setStatus(ThingInitializationPlanner planner, Thing thing, ThingStatus status) {
+        thing.setStatusInfo(ThingStatusInfoBuilder.create(status).build());
+        planner.thingStatusChanged(thing);
+    }
+
+}
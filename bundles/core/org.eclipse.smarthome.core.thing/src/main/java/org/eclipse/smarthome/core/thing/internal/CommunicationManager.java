@@ -57,6 +57,10 @@ import org.slf4j.LoggerFactory;
  *
  * It mainly mediates commands, state updates and triggers from ThingHandlers to the framework and vice versa.
  *
+ * The links are routed by an {@link ItemChannelLinkIndex}, which is kept up to date by the registry change callbacks,
+ * and the profiles are cached per channel, so that routing neither locks nor resolves the profile again once it has
+ * been created.
+ *
  * @author Simon Kaufmann - initial contribution and API, factored out of ThingManger
  *
  */
@@ -73,6 +77,9 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
     private ThingRegistry thingRegistry;
     private ItemRegistry itemRegistry;
     private EventPublisher eventPublisher;
+    private final ItemChannelLinkIndex linkIndex = new ItemChannelLinkIndex();
+    // the UIDs of the links changed by the callbacks while the index is filled, guarded by linkIndex
+    private Set<String> changedWhileFilling;
     private final Map<ChannelUID, Profile> profiles = new ConcurrentHashMap<>();
     private final Map<ProfileFactory, Set<ChannelUID>> profileFactories = new ConcurrentHashMap<>();
     private final Set<ProfileAdvisor> profileAdvisors = new CopyOnWriteArraySet<>();
@@ -103,6 +110,13 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
     }
 
     private Profile getProfile(ItemChannelLink link, Item item, Thing thing) {
+        // the channel might have been removed from the thing since the profile was created
+        if (thing != null && thing.getChannel(link.getLinkedUID().getId()) != null) {
+            Profile profile = profiles.get(link.getLinkedUID());
+            if (profile != null) {
+                return profile;
+            }
+        }
         ProfileTypeUID profileTypeUID = determineProfileTypeUID(link, item, thing);
         Profile profile = getProfile(link, profileTypeUID);
         return profile != null ? profile : new NoOpProfile();
@@ -112,6 +126,10 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
         Profile profile = null;
         if (profileTypeUID != null) {
             logger.trace("Going to use profile {} for link {}", profileTypeUID, link);
+            profile = profiles.get(link.getLinkedUID());
+            if (profile != null) {
+                return profile;
+            }
             synchronized (profiles) {
                 profile = profiles.get(link.getLinkedUID());
                 if (profile == null) {
@@ -209,20 +227,19 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
             return;
         }
 
-        itemChannelLinkRegistry.stream().filter(link -> {
-            // all links for the item
-            return link.getItemName().equals(itemName);
-        }).filter(link -> {
+        final String source = commandEvent.getSource();
+        for (ItemChannelLinkIndex.Entry entry : linkIndex.getLinks(itemName)) {
             // make sure the command event is not sent back to its source
-            return !link.getLinkedUID().toString().equals(commandEvent.getSource());
-        }).forEach(link -> {
-            ChannelUID channelUID = link.getLinkedUID();
-            Thing thing = getThing(channelUID.getThingUID());
+            if (entry.isSource(source)) {
+                continue;
+            }
+            ItemChannelLink link = entry.getLink();
+            Thing thing = getThing(entry.getThingUID());
             Profile profile = getProfile(link, item, thing);
             if (profile instanceof StateProfile) {
                 ((StateProfile) profile).onCommand(link, thing, command);
             }
-        });
+        }
     }
 
     private void receiveUpdate(ItemStateEvent updateEvent) {
@@ -234,20 +251,19 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
             return;
         }
 
-        itemChannelLinkRegistry.stream().filter(link -> {
-            // all links for the item
-            return link.getItemName().equals(itemName);
-        }).filter(link -> {
+        final String source = updateEvent.getSource();
+        for (ItemChannelLinkIndex.Entry entry : linkIndex.getLinks(itemName)) {
             // make sure the update event is not sent back to its source
-            return !link.getLinkedUID().toString().equals(updateEvent.getSource());
-        }).forEach(link -> {
-            ChannelUID channelUID = link.getLinkedUID();
-            Thing thing = getThing(channelUID.getThingUID());
+            if (entry.isSource(source)) {
+                continue;
+            }
+            ItemChannelLink link = entry.getLink();
+            Thing thing = getThing(entry.getThingUID());
             Profile profile = getProfile(link, item, thing);
             if (profile instanceof StateProfile) {
                 ((StateProfile) profile).onUpdate(link, thing, newState);
             }
-        });
+        }
     }
 
     private void receiveTrigger(ChannelTriggeredEvent channelTriggeredEvent) {
@@ -255,10 +271,8 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
         final String event = channelTriggeredEvent.getEvent();
         final Thing thing = getThing(channelUID.getThingUID());
 
-        itemChannelLinkRegistry.stream().filter(link -> {
-            // all links for the channel
-            return link.getLinkedUID().equals(channelUID);
-        }).forEach(link -> {
+        for (ItemChannelLinkIndex.Entry entry : linkIndex.getLinks(channelUID)) {
+            ItemChannelLink link = entry.getLink();
             Item item = itemRegistry.get(link.getItemName());
             if (item != null) {
                 Profile profile = getProfile(link, item, thing);
@@ -266,16 +280,18 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
                     ((TriggerProfile) profile).onTrigger(eventPublisher, link, event, item);
                 }
             }
-        });
+        }
     }
 
     public void stateUpdated(ChannelUID channelUID, State state) {
-        final Thing thing = getThing(channelUID.getThingUID());
+        final ItemChannelLinkIndex.Entry[] entries = linkIndex.getLinks(channelUID);
+        if (entries.length == 0) {
+            return;
+        }
+        final Thing thing = getThing(entries[0].getThingUID());
 
-        itemChannelLinkRegistry.stream().filter(link -> {
-            // all links for the channel
-            return link.getLinkedUID().equals(channelUID);
-        }).forEach(link -> {
+        for (ItemChannelLinkIndex.Entry entry : entries) {
+            ItemChannelLink link = entry.getLink();
             Item item = itemRegistry.get(link.getItemName());
             if (item != null) {
                 Profile profile = getProfile(link, item, thing);
@@ -283,16 +299,18 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
                     ((StateProfile) profile).stateUpdated(eventPublisher, link, state, item);
                 }
             }
-        });
+        }
     }
 
     public void postCommand(ChannelUID channelUID, Command command) {
-        final Thing thing = getThing(channelUID.getThingUID());
+        final ItemChannelLinkIndex.Entry[] entries = linkIndex.getLinks(channelUID);
+        if (entries.length == 0) {
+            return;
+        }
+        final Thing thing = getThing(entries[0].getThingUID());
 
-        itemChannelLinkRegistry.stream().filter(link -> {
-            // all links for the channel
-            return link.getLinkedUID().equals(channelUID);
-        }).forEach(link -> {
+        for (ItemChannelLinkIndex.Entry entry : entries) {
+            ItemChannelLink link = entry.getLink();
             Item item = itemRegistry.get(link.getItemName());
             if (item != null) {
                 Profile profile = getProfile(link, item, thing);
@@ -300,7 +318,7 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
                     ((StateProfile) profile).postCommand(eventPublisher, link, command, item);
                 }
             }
-        });
+        }
     }
 
     public void channelTriggered(Thing thing, ChannelUID channelUID, String event) {
@@ -316,26 +334,62 @@ public class CommunicationManager implements EventSubscriber, RegistryChangeList
 
     @Override
     public void added(ItemChannelLink element) {
-        // nothing to do
+        synchronized (linkIndex) {
+            markChangedWhileFilling(element);
+            linkIndex.add(element);
+        }
     }
 
     @Override
     public void removed(ItemChannelLink element) {
+        synchronized (linkIndex) {
+            markChangedWhileFilling(element);
+            linkIndex.remove(element);
+        }
         cleanup(element.getLinkedUID());
     }
 
     @Override
     public void updated(ItemChannelLink oldElement, ItemChannelLink element) {
+        synchronized (linkIndex) {
+            markChangedWhileFilling(oldElement);
+            markChangedWhileFilling(element);
+            linkIndex.remove(oldElement);
+            linkIndex.add(element);
+        }
         cleanup(oldElement.getLinkedUID());
     }
 
+    private void markChangedWhileFilling(ItemChannelLink link) {
+        if (changedWhileFilling != null) {
+            changedWhileFilling.add(link.getUID());
+        }
+    }
+
     @Reference
     protected void setItemChannelLinkRegistry(ItemChannelLinkRegistry itemChannelLinkRegistry) {
         this.itemChannelLinkRegistry = itemChannelLinkRegistry;
+        // The listener is registered before the index is filled, so that no change is missed. A link which is changed
+        // by a callback in the meantime is left to the callback, as the stream might still return its old state.
+        synchronized (linkIndex) {
+            changedWhileFilling = new HashSet<>();
+        }
         itemChannelLinkRegistry.addRegistryChangeListener(this);
+        itemChannelLinkRegistry.stream().forEach(link -> {
+            synchronized (linkIndex) {
+                if (!changedWhileFilling.contains(link.getUID())) {
+                    linkIndex.add(link);
+                }
+            }
+        });
+        synchronized (linkIndex) {
+            changedWhileFilling = null;
+        }
     }
 
     protected void unsetItemChannelLinkRegistry(ItemChannelLinkRegistry itemChannelLinkRegistry) {
+        itemChannelLinkRegistry.removeRegistryChangeListener(this);
+        linkIndex.clear();
         this.itemChannelLinkRegistry = null;
     }
 
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.thing.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.link.ItemChannelLink;
+
+/**
+ * The {@link ItemChannelLinkIndex} keeps the {@link ItemChannelLink}s by channel and by item for the
+ * {@link CommunicationManager}, so that routing a state update, command or trigger neither has to stream over all
+ * links of the registry nor allocate.
+ *
+ * The links of a channel or an item are held in an array, which is replaced by a copy on every modification. Lookups
+ * do not lock and return the current array, modifications are serialized.
+ *
+ * @author agent - Initial contribution
+ */
+final class ItemChannelLinkIndex {
+
+    /**
+     * A link together with the values derived from its channel UID, which are needed for every routed event.
+     */
+    static final class Entry {
+
+        private final ItemChannelLink link;
+
+        private final ThingUID thingUID;
+
+        private final String channelUID;
+
+        private Entry(ItemChannelLink link) {
+            this.link = link;
+            this.thingUID = link.getLinkedUID().getThingUID();
+            this.channelUID = link.getLinkedUID().getAsString();
+        }
+
+        ItemChannelLink getLink() {
+            return link;
+        }
+
+        ThingUID getThingUID() {
+            return thingUID;
+        }
+
+        /**
+         * Checks if the channel of the link is the source of an event.
+         *
+         * @param source the source of the event, may be null
+         * @return true if the event has been sent by the channel of the link
+         */
+        boolean isSource(String source) {
+            return channelUID.equals(source);
+        }
+
+        private boolean isLink(ItemChannelLink other) {
+            return link.getItemName().equals(other.getItemName()) && link.getLinkedUID().equals(other.getLinkedUID());
+        }
+    }
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final Map<ChannelUID, Entry[]> linksByChannel = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry[]> linksByItem = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the links of a channel.
+     *
+     * @param channelUID the channel UID
+     * @return the links, must not be modified
+     */
+    Entry[] getLinks(ChannelUID channelUID) {
+        Entry[] entries = linksByChannel.get(channelUID);
+        return entries != null ? entries : NO_ENTRIES;
+    }
+
+    /**
+     * Returns the links of an item.
+     *
+     * @param itemName the name of the item
+     * @return the links, must not be modified
+     */
+    Entry[] getLinks(String itemName) {
+        Entry[] entries = linksByItem.get(itemName);
+        return entries != null ? entries : NO_ENTRIES;
+    }
+
+    /**
+     * Adds a link, or replaces a link between the same item and channel.
+     *
+     * @param link the link
+     */
+    synchronized void add(ItemChannelLink link) {
+        Entry entry = new Entry(link);
+        linksByChannel.put(link.getLinkedUID(), with(linksByChannel.get(link.getLinkedUID()), entry));
+        linksByItem.put(link.getItemName(), with(linksByItem.get(link.getItemName()), entry));
+    }
+
+    /**
+     * Removes the link between the item and channel of the given link.
+     *
+     * @param link the link
+     */
+    synchronized void remove(ItemChannelLink link) {
+        update(linksByChannel, link.getLinkedUID(), without(linksByChannel.get(link.getLinkedUID()), link));
+        update(linksByItem, link.getItemName(), without(linksByItem.get(link.getItemName()), link));
+    }
+
+    /**
+     * Removes all links.
+     */
+    synchronized void clear() {
+        linksByChannel.clear();
+        linksByItem.clear();
+    }
+
+    private static Entry[] with(Entry[] entries, Entry entry) {
+        if (entries == null) {
+            return new Entry[] { entry };
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].isLink(entry.link)) {
+                Entry[] copy = entries.clone();
+                copy[i] = entry;
+                return copy;
+            }
+        }
+        Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+        copy[entries.length] = entry;
+        return copy;
+    }
+
+    private static Entry[] without(Entry[] entries, ItemChannelLink link) {
+        if (entries == null) {
+            return null;
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].isLink(link)) {
+                if (entries.length == 1) {
+                    return null;
+                }
+                Entry[] copy = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, copy, 0, i);
+                System.arraycopy(entries, i + 1, copy, i, entries.length - i - 1);
+                return copy;
+            }
+        }
+        return entries;
+    }
+
+    private static <K> void update(Map<K, Entry[]> map, K key, Entry[] entries) {
+        if (entries == null) {
+            map.remove(key);
+        } else {
+            map.put(key, entries);
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.thing.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.eclipse.smarthome.core.service.ReadyMarker;
+import org.eclipse.smarthome.core.service.ReadyService;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ThingInitializationPlanner} registers and initializes the handlers of many things at once, e.g. when a
+ * {@link ThingHandlerFactory} becomes available at startup.
+ *
+ * The things are initialized in parallel and in the background. The number of parallel initializations is limited per
+ * {@link ThingHandlerFactory}, so that a single binding cannot occupy all threads. The things of a batch must not
+ * depend on each other, i.e. the children of bridges are left to the initialization of their bridge.
+ *
+ * In addition the planner measures the time until each tracked thing has been {@link ThingStatus#ONLINE} at least once
+ * and then registers the {@link #ONLINE_MARKER} at the {@link ReadyService}.
+ *
+ * @author agent - Initial contribution
+ */
+final class ThingInitializationPlanner {
+
+    /** the marker which is registered once all things have been ONLINE after the start */
+    static final ReadyMarker ONLINE_MARKER = new ReadyMarker("esh.things", "online");
+
+    /** the number of slowest initializations which are logged for a batch */
+    private static final int SLOWEST_REPORTED = 5;
+
+    private final Logger logger = LoggerFactory.getLogger(ThingInitializationPlanner.class);
+
+    private final Executor executor;
+
+    private volatile int maxInitializationsPerFactory;
+
+    private final Map<ThingHandlerFactory, FactoryQueue> factoryQueues = new HashMap<>();
+
+    private final long startTime = System.nanoTime();
+
+    private final Set<ThingUID> offlineThings = new HashSet<>();
+
+    private final Set<ThingUID> onlineThings = new HashSet<>();
+
+    private boolean tracking = false;
+
+    private boolean startupCompleted = false;
+
+    private ReadyService readyService;
+
+    /**
+     * The initializations of one factory which are waiting for a free slot.
+     */
+    private static class FactoryQueue {
+
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+
+        private int running;
+    }
+
+    /**
+     * The initialization of a thing of a batch.
+     */
+    private static class Initialization {
+
+        private final Thing thing;
+
+        private final ThingHandlerFactory factory;
+
+        private long duration;
+
+        private Initialization(Thing thing, ThingHandlerFactory factory) {
+            this.thing = thing;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Creates a planner.
+     *
+     * @param executor the executor which runs the initializations
+     * @param maxInitializationsPerFactory the maximum number of parallel initializations per factory
+     */
+    ThingInitializationPlanner(Executor executor, int maxInitializationsPerFactory) {
+        this.executor = executor;
+        this.maxInitializationsPerFactory = maxInitializationsPerFactory;
+    }
+
+    void setMaxInitializationsPerFactory(int maxInitializationsPerFactory) {
+        this.maxInitializationsPerFactory = Math.max(1, maxInitializationsPerFactory);
+    }
+
+    /**
+     * Registers and initializes the handlers of the given things in the background. Things which are initialized by
+     * this method must not be initialized by the caller at the same time.
+     *
+     * @param things the things and the factories for their handlers
+     * @param initializer registers and initializes the handler of a thing
+     * @return a future which is completed once all initializations have returned
+     */
+    CompletableFuture<Void> initialize(Map<Thing, ThingHandlerFactory> things,
+            BiConsumer<Thing, ThingHandlerFactory> initializer) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        if (things.isEmpty()) {
+            completion.complete(null);
+            return completion;
+        }
+        long start = System.nanoTime();
+        List<Initialization> initializations = new ArrayList<>();
+        things.forEach((thing, factory) -> initializations.add(new Initialization(thing, factory)));
+        AtomicInteger remaining = new AtomicInteger(initializations.size());
+        for (Initialization initialization : initializations) {
+            submit(initialization, initializer, () -> {
+                if (remaining.decrementAndGet() == 0) {
+                    report(initializations, System.nanoTime() - start);
+                    checkStartupCompleted();
+                    completion.complete(null);
+                }
+            });
+        }
+        return completion;
+    }
+
+    private void submit(Initialization initialization, BiConsumer<Thing, ThingHandlerFactory> initializer,
+            Runnable done) {
+        Runnable task = () -> {
+            long start = System.nanoTime();
+            try {
+                initializer.accept(initialization.thing, initialization.factory);
+            } catch (Exception ex) {
+                logger.error("Registration resp. initialization of thing '{}' has been failed: {}",
+                        initialization.thing.getUID(), ex.getMessage(), ex);
+            } finally {
+                initialization.duration = System.nanoTime() - start;
+                logger.debug("Registration and initialization of thing '{}' took {} ms", initialization.thing.getUID(),
+                        TimeUnit.NANOSECONDS.toMillis(initialization.duration));
+                done.run();
+            }
+        };
+
+        FactoryQueue queue;
+        synchronized (factoryQueues) {
+            queue = factoryQueues.computeIfAbsent(initialization.factory, factory -> new FactoryQueue());
+            if (queue.running >= maxInitializationsPerFactory) {
+                queue.pending.add(task);
+                return;
+            }
+            queue.running++;
+        }
+        execute(queue, task);
+    }
+
+    private void execute(FactoryQueue queue, Runnable task) {
+        executor.execute(() -> {
+            Runnable next = task;
+            while (next != null) {
+                try {
+                    next.run();
+                } finally {
+                    synchronized (factoryQueues) {
+                        next = queue.pending.poll();
+                        if (next == null) {
+                            queue.running--;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void report(List<Initialization> initializations, long duration) {
+        logger.debug("Registered and initialized the handlers of {} things in {} ms", initializations.size(),
+                TimeUnit.NANOSECONDS.toMillis(duration));
+        if (logger.isDebugEnabled() && initializations.size() > 1) {
+            initializations.sort(Comparator.comparingLong(initialization -> -initialization.duration));
+            for (Initialization initialization : initializations.subList(0,
+                    Math.min(SLOWEST_REPORTED, initializations.size()))) {
+                logger.debug("  {}: {} ms", initialization.thing.getUID(),
+                        TimeUnit.NANOSECONDS.toMillis(initialization.duration));
+            }
+        }
+    }
+
+    /**
+     * Sets the service at which the {@link #ONLINE_MARKER} is registered.
+     *
+     * @param readyService the ready service or null
+     */
+    synchronized void setReadyService(ReadyService readyService) {
+        if (startupCompleted && this.readyService != null) {
+            this.readyService.unmarkReady(ONLINE_MARKER);
+        }
+        this.readyService = readyService;
+        if (startupCompleted && readyService != null) {
+            readyService.markReady(ONLINE_MARKER);
+        }
+    }
+
+    /**
+     * Starts to check whether all tracked things have been ONLINE. It is called once the things which exist at the
+     * start are tracked, so the {@link #ONLINE_MARKER} is registered at once if there are no things at all.
+     */
+    synchronized void startTracking() {
+        tracking = true;
+        checkStartupCompleted();
+    }
+
+    /**
+     * Tracks the status of a thing until all things have been ONLINE after the start. Things which have been ONLINE
+     * once are not tracked anymore.
+     *
+     * @param thing the added or updated thing
+     */
+    synchronized void thingStatusChanged(Thing thing) {
+        if (startupCompleted) {
+            return;
+        }
+        if (thing.getStatus() == ThingStatus.ONLINE) {
+            onlineThings.add(thing.getUID());
+            offlineThings.remove(thing.getUID());
+            checkStartupCompleted();
+        } else if (!onlineThings.contains(thing.getUID()) && thing.getStatus() != ThingStatus.REMOVING
+                && thing.getStatus() != ThingStatus.REMOVED) {
+            offlineThings.add(thing.getUID());
+        }
+    }
+
+    /**
+     * Stops tracking the status of a thing.
+     *
+     * @param thingUID the UID of the removed thing
+     */
+    synchronized void thingRemoved(ThingUID thingUID) {
+        if (startupCompleted) {
+            return;
+        }
+        onlineThings.remove(thingUID);
+        offlineThings.remove(thingUID);
+        checkStartupCompleted();
+    }
+
+    private synchronized void checkStartupCompleted() {
+        if (tracking && !startupCompleted && offlineThings.isEmpty()) {
+            startupCompleted = true;
+            onlineThings.clear();
+            logger.info("All things are ONLINE {} ms after the start",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            if (readyService != null) {
+                readyService.markReady(ONLINE_MARKER);
+            }
+        }
+    }
+
+    /**
+     * Returns the UIDs of the things which have not been ONLINE since the start yet.
+     *
+     * @return the UIDs of the things or an empty collection, once all things have been ONLINE
+     */
+    synchronized Collection<ThingUID> getThingsNotOnlineYet() {
+        return new ArrayList<>(offlineThings);
+    }
+
+}
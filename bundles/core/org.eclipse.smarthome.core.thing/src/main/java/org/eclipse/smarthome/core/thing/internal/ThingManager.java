@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -27,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import org.eclipse.smarthome.config.core.ConfigDescription;
 import org.eclipse.smarthome.config.core.ConfigDescriptionParameter;
@@ -68,6 +70,7 @@ import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
@@ -97,13 +100,17 @@ import com.google.common.collect.SetMultimap;
  * @author Kai Kreuzer - Removed usage of itemRegistry and thingLinkRegistry, fixed vetoing mechanism
  * @author Andre Fuechsel - Added the {@link ThingTypeMigrationService} 
  * @author Thomas Höfer - Added localization of thing status info
+ * @author agent - Parallel initialization of the handlers of a factory
  */
-@Component(immediate = true, service = { ThingTypeMigrationService.class })
+@Component(immediate = true, configurationPid = "org.eclipse.smarthome.thingmanager", service = {
+        ThingTypeMigrationService.class })
 public class ThingManager implements ThingTracker, ThingTypeMigrationService, ReadyService.ReadyTracker {
 
     private static final String FORCEREMOVE_THREADPOOL_NAME = "forceRemove";
     private static final String THING_MANAGER_THREADPOOL_NAME = "thingManager";
     private static final String XML_THING_TYPE = "esh.xmlThingTypes";
+    private static final String CONFIG_INITIALIZATIONS_PER_FACTORY = "initializationsPerFactory";
+    private static final int DEFAULT_INITIALIZATIONS_PER_FACTORY = 2;
 
     private Logger logger = LoggerFactory.getLogger(ThingManager.class);
 
@@ -126,6 +133,10 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
 
     private Map<ThingUID, Lock> thingLocks = new HashMap<>();
 
+    private final ThingInitializationPlanner initializationPlanner = new ThingInitializationPlanner(
+            command -> ThreadPoolManager.getPool(THING_MANAGER_THREADPOOL_NAME).execute(command),
+            DEFAULT_INITIALIZATIONS_PER_FACTORY);
+
     private ThingHandlerCallback thingHandlerCallback = new ThingHandlerCallback() {
 
         @Override
@@ -357,6 +368,7 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
     @Override
     public void thingAdded(Thing thing, ThingTrackerEvent thingTrackerEvent) {
         this.things.add(thing);
+        initializationPlanner.thingStatusChanged(thing);
         logger.debug("Thing '{}' is tracked by ThingManager.", thing.getUID());
 
         if (!isHandlerRegistered(thing)) {
@@ -396,6 +408,7 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
         }
 
         this.things.remove(thing);
+        initializationPlanner.thingRemoved(thing.getUID());
     }
 
     @Override
@@ -893,7 +906,25 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
 
     @Activate
     protected void activate(ComponentContext componentContext) {
+        modified(componentContext);
         this.thingRegistry.addThingTracker(this);
+        initializationPlanner.startTracking();
+    }
+
+    @Modified
+    protected void modified(ComponentContext componentContext) {
+        int initializationsPerFactory = DEFAULT_INITIALIZATIONS_PER_FACTORY;
+        Object value = componentContext != null
+                ? componentContext.getProperties().get(CONFIG_INITIALIZATIONS_PER_FACTORY) : null;
+        if (value != null) {
+            try {
+                initializationsPerFactory = Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", value,
+                        CONFIG_INITIALIZATIONS_PER_FACTORY);
+            }
+        }
+        initializationPlanner.setMaxInitializationsPerFactory(initializationsPerFactory);
     }
 
     @Reference(cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC)
@@ -908,9 +939,11 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
     @Reference
     public void setReadyService(ReadyService readyService) {
         readyService.registerTracker(this, new ReadyMarkerFilter().withType(XML_THING_TYPE));
+        initializationPlanner.setReadyService(readyService);
     }
 
     public void unsetReadyService(ReadyService readyService) {
+        initializationPlanner.setReadyService(null);
         readyService.unregisterTracker(this);
     }
 
@@ -928,19 +961,41 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
     }
 
     private void handleThingHandlerFactoryAddition(String bsn) {
+        Map<Thing, ThingHandlerFactory> unhandledThings = new LinkedHashMap<>();
         thingHandlerFactories.stream().filter(it -> {
             return getBundleName(it).equals(bsn);
         }).forEach(thingHandlerFactory -> {
             things.forEach(thing -> {
                 if (thingHandlerFactory.supportsThingType(thing.getThingTypeUID())) {
                     if (!isHandlerRegistered(thing)) {
-                        registerAndInitializeHandler(thing, thingHandlerFactory);
+                        unhandledThings.putIfAbsent(thing, thingHandlerFactory);
                     } else {
                         logger.debug("Thing handler for thing '{}' already registered", thing.getUID());
                     }
                 }
             });
         });
+        // the children of the bridges in this batch only get their status here, their handlers are registered once
+        // the bridge has been initialized (see registerChildHandlers)
+        Set<ThingUID> unhandledThingUIDs = unhandledThings.keySet().stream().map(Thing::getUID)
+                .collect(Collectors.toSet());
+        unhandledThings.entrySet().removeIf(entry -> {
+            if (hasBridge(entry.getKey()) && unhandledThingUIDs.contains(entry.getKey().getBridgeUID())) {
+                registerAndInitializeHandler(entry.getKey(), entry.getValue());
+                return true;
+            }
+            return false;
+        });
+        if (unhandledThings.size() == 1) {
+            Map.Entry<Thing, ThingHandlerFactory> entry = unhandledThings.entrySet().iterator().next();
+            registerAndInitializeHandler(entry.getKey(), entry.getValue());
+        } else {
+            initializationPlanner.initialize(unhandledThings, (thing, thingHandlerFactory) -> {
+                if (thingHandlerFactories.contains(thingHandlerFactory)) {
+                    registerAndInitializeHandler(thing, thingHandlerFactory);
+                }
+            });
+        }
     }
 
     private String getBundleName(ThingHandlerFactory thingHandlerFactory) {
@@ -1043,6 +1098,7 @@ public class ThingManager implements ThingTracker, ThingTypeMigrationService, Re
         ThingStatusInfo oldStatusInfo = thingStatusInfoI18nLocalizationService.getLocalizedThingStatusInfo(thing, null);
         thing.setStatusInfo(thingStatusInfo);
         ThingStatusInfo newStatusInfo = thingStatusInfoI18nLocalizationService.getLocalizedThingStatusInfo(thing, null);
+        initializationPlanner.thingStatusChanged(thing);
         try {
             eventPublisher.post(ThingEventFactory.createStatusInfoEvent(thing.getUID(), newStatusInfo));
             if (!oldStatusInfo.equals(newStatusInfo)) {
@@ -51,6 +51,15 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
 
     protected Map<Provider<E>, Collection<E>> elementMap = new ConcurrentHashMap<Provider<E>, Collection<E>>();
 
+    /**
+     * Index of all registered elements by their key, which is kept in sync by the add, update and remove operations.
+     * An element key can only be provided by one provider at a time: the provider which added an element with the key
+     * first owns it, elements with the same key from any provider are rejected until the owner removes its element.
+     */
+    private final Map<K, E> identifierToElement = new ConcurrentHashMap<>();
+
+    private final Map<K, Provider<E>> identifierToProvider = new ConcurrentHashMap<>();
+
     protected Collection<RegistryChangeListener<E>> listeners = new CopyOnWriteArraySet<RegistryChangeListener<E>>();
 
     protected ManagedProvider<E, K> managedProvider;
@@ -119,20 +128,46 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
     public void added(Provider<E> provider, E element) {
         Collection<E> elements = elementMap.get(provider);
         if (elements != null) {
-            try {
-                K uid = element.getUID();
-                if (uid != null && get(uid) != null) {
-                    logger.warn("{} with key '{}' already exists! Failed to add a second with the same UID!",
-                            element.getClass().getName(), uid);
-                    return;
-                }
-                onAddElement(element);
-                elements.add(element);
-                notifyListenersAboutAddedElement(element);
-            } catch (Exception ex) {
-                logger.warn("Could not add element: {}", ex.getMessage(), ex);
+            addElement(provider, elements, element);
+        }
+    }
+
+    private void addElement(Provider<E> provider, Collection<E> elements, E element) {
+        K uid = element.getUID();
+        if (uid != null) {
+            Provider<E> owner = identifierToProvider.putIfAbsent(uid, provider);
+            if (owner != null) {
+                logger.warn("{} with key '{}' already exists! Failed to add a second with the same UID!",
+                        element.getClass().getName(), uid);
+                return;
             }
         }
+        try {
+            onAddElement(element);
+            elements.add(element);
+            if (uid != null) {
+                identifierToElement.put(uid, element);
+            }
+        } catch (Exception ex) {
+            if (uid != null) {
+                identifierToProvider.remove(uid, provider);
+            }
+            logger.warn("Could not add element: {}", ex.getMessage(), ex);
+            return;
+        }
+        notifyListenersAboutAddedElement(element);
+    }
+
+    private boolean isOwner(Provider<E> provider, E element) {
+        K uid = element.getUID();
+        return uid == null || identifierToProvider.get(uid) == provider;
+    }
+
+    private void removeFromIndex(Provider<E> provider, E element) {
+        K uid = element.getUID();
+        if (uid != null && identifierToProvider.remove(uid, provider)) {
+            identifierToElement.remove(uid);
+        }
     }
 
     @Override
@@ -156,10 +191,11 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
     @Override
     public void removed(Provider<E> provider, E element) {
         Collection<E> elements = elementMap.get(provider);
-        if (elements != null) {
+        if (elements != null && isOwner(provider, element)) {
             try {
                 onRemoveElement(element);
                 elements.remove(element);
+                removeFromIndex(provider, element);
                 notifyListenersAboutRemovedElement(element);
             } catch (Exception ex) {
                 logger.warn("Could not remove element: {}", ex.getMessage(), ex);
@@ -180,6 +216,9 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
                 onUpdateElement(oldElement, element);
                 elements.remove(oldElement);
                 elements.add(element);
+                if (element.getUID() != null && identifierToProvider.get(element.getUID()) == provider) {
+                    identifierToElement.put(element.getUID(), element);
+                }
                 notifyListenersAboutUpdatedElement(oldElement, element);
             } catch (Exception ex) {
                 logger.warn("Could not update element: {}", ex.getMessage(), ex);
@@ -189,14 +228,7 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
 
     @Override
     public E get(K key) {
-        for (final Map.Entry<Provider<E>, Collection<E>> entry : elementMap.entrySet()) {
-            for (final E element : entry.getValue()) {
-                if (key.equals(element.getUID())) {
-                    return element;
-                }
-            }
-        }
-        return null;
+        return identifierToElement.get(key);
     }
 
     @Override
@@ -274,19 +306,7 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
             provider.addProviderChangeListener(this);
             elementMap.put(provider, elements);
             for (E element : elementsOfProvider) {
-                try {
-                    K uid = element.getUID();
-                    if (uid != null && get(uid) != null) {
-                        logger.warn("{} with key'{}' already exists! Failed to add a second with the same UID!",
-                                element.getClass().getName(), uid);
-                        continue;
-                    }
-                    onAddElement(element);
-                    elements.add(element);
-                    notifyListenersAboutAddedElement(element);
-                } catch (Exception ex) {
-                    logger.warn("Could not add element: {}", ex.getMessage(), ex);
-                }
+                addElement(provider, elements, element);
             }
             logger.debug("Provider '{}' has been added.", provider.getClass().getName());
         }
@@ -362,7 +382,12 @@ public abstract class AbstractRegistry<E extends Identifiable<K>, K, P extends P
                 }
             }
 
-            elementMap.remove(provider);
+            Collection<E> elements = elementMap.remove(provider);
+            if (elements != null) {
+                for (E element : elements) {
+                    removeFromIndex(provider, element);
+                }
+            }
 
             provider.removeProviderChangeListener(this);
 
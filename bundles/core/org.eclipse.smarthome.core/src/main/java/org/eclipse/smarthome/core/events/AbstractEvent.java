@@ -7,6 +7,8 @@
  */
 package org.eclipse.smarthome.core.events;
 
+import java.util.function.Supplier;
+
 /**
  * Abstract implementation of the {@link Event} interface.
  * 
@@ -16,7 +18,9 @@ public abstract class AbstractEvent implements Event {
 
     private final String topic;
 
-    private final String payload;
+    private volatile String payload;
+
+    private volatile Supplier<String> payloadSupplier;
 
     private final String source;
 
@@ -33,6 +37,20 @@ public abstract class AbstractEvent implements Event {
         this.source = source;
     }
 
+    /**
+     * Must be called in subclass constructor to create a new event whose payload is only serialized when it is
+     * requested for the first time, e.g. by a subscriber that forwards the event to a remote client.
+     *
+     * @param topic the topic
+     * @param payloadSupplier the supplier of the payload, called at most once
+     * @param source the source
+     */
+    protected AbstractEvent(String topic, Supplier<String> payloadSupplier, String source) {
+        this.topic = topic;
+        this.payloadSupplier = payloadSupplier;
+        this.source = source;
+    }
+
     @Override
     public String getTopic() {
         return topic;
@@ -40,6 +58,15 @@ public abstract class AbstractEvent implements Event {
 
     @Override
     public String getPayload() {
+        if (payloadSupplier != null) {
+            synchronized (this) {
+                Supplier<String> supplier = payloadSupplier;
+                if (supplier != null) {
+                    payload = supplier.get();
+                    payloadSupplier = null;
+                }
+            }
+        }
         return payload;
     }
 
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.events;
+
+import java.util.List;
+
+/**
+ * The {@link EventBusStatistics} is provided by the event bus implementation as OSGi service in order to monitor the
+ * delivery of events to the {@link EventSubscriber}s.
+ *
+ * @author agent - Initial contribution
+ */
+public interface EventBusStatistics {
+
+    /**
+     * Returns a snapshot of the delivery queues of all registered event subscribers.
+     *
+     * @return the statistics per event subscriber (not null)
+     */
+    List<EventSubscriberStatistics> getEventSubscriberStatistics();
+
+}
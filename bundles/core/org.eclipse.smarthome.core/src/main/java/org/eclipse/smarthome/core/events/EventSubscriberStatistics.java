@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.events;
+
+/**
+ * The {@link EventSubscriberStatistics} is a snapshot of the delivery queue of one {@link EventSubscriber}.
+ *
+ * @author agent - Initial contribution
+ */
+public class EventSubscriberStatistics {
+
+    private final String subscriber;
+
+    private final int queueSize;
+
+    private final int queueCapacity;
+
+    private final long lag;
+
+    private final long deliveredEvents;
+
+    private final long droppedEvents;
+
+    /**
+     * Creates a new statistics snapshot.
+     *
+     * @param subscriber the string representation of the event subscriber
+     * @param queueSize the number of events waiting for delivery
+     * @param queueCapacity the maximum number of events waiting for delivery
+     * @param lag the time in milliseconds the oldest waiting event is queued
+     * @param deliveredEvents the number of events delivered so far
+     * @param droppedEvents the number of events dropped or coalesced because the queue was full
+     */
+    public EventSubscriberStatistics(String subscriber, int queueSize, int queueCapacity, long lag,
+            long deliveredEvents, long droppedEvents) {
+        this.subscriber = subscriber;
+        this.queueSize = queueSize;
+        this.queueCapacity = queueCapacity;
+        this.lag = lag;
+        this.deliveredEvents = deliveredEvents;
+        this.droppedEvents = droppedEvents;
+    }
+
+    public String getSubscriber() {
+        return subscriber;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the time in milliseconds the oldest event waiting for delivery is queued.
+     *
+     * @return the lag in milliseconds, 0 if the queue is empty
+     */
+    public long getLag() {
+        return lag;
+    }
+
+    public long getDeliveredEvents() {
+        return deliveredEvents;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    @Override
+    public String toString() {
+        return subscriber + " [queue=" + queueSize + "/" + queueCapacity + ", lag=" + lag + "ms, delivered="
+                + deliveredEvents + ", dropped=" + droppedEvents + "]";
+    }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.events;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.eclipse.smarthome.core.events.EventFilter;
+import org.eclipse.smarthome.core.events.EventSubscriber;
+import org.eclipse.smarthome.core.events.TopicEventFilter;
+
+/**
+ * The {@link EventSubscriberIndex} keeps the registered {@link EventSubscriber}s in one topic trie per event type, so
+ * that looking up the candidates for an event only visits the trie nodes along the event topic instead of every
+ * subscriber of the event type.
+ *
+ * A subscriber is indexed by the topics it declared through the OSGi {@code event.topics} service property (using the
+ * OSGi Event Admin syntax, i.e. an exact topic, a topic prefix ending with {@code /*}, or {@code *}), otherwise by the
+ * literal prefix of the regular expression of its {@link TopicEventFilter}. Subscribers without any topic information
+ * are candidates for all topics. The index is only a pre-selection, the {@link EventFilter} of a subscriber still has
+ * to be applied by the caller.
+ *
+ * Lookups do not lock, modifications are serialized.
+ *
+ * @author agent - Initial contribution
+ */
+final class EventSubscriberIndex {
+
+    private static final String TOPIC_SEPARATOR = "/";
+
+    private static final String WILDCARD = "*";
+
+    private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    private static final class TopicNode {
+
+        private final Map<String, TopicNode> children = new ConcurrentHashMap<>();
+
+        /** subscribers registered for exactly the topic of this node */
+        private final Set<EventSubscriber> exact = new CopyOnWriteArraySet<>();
+
+        /** subscribers registered for all topics below this node */
+        private final Set<EventSubscriber> wildcard = new CopyOnWriteArraySet<>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && exact.isEmpty() && wildcard.isEmpty();
+        }
+    }
+
+    private static final class Registration {
+
+        private final Set<String> eventTypes;
+
+        private final Set<String> topics;
+
+        private Registration(Set<String> eventTypes, Set<String> topics) {
+            this.eventTypes = eventTypes;
+            this.topics = topics;
+        }
+    }
+
+    private final Map<String, TopicNode> rootsByEventType = new ConcurrentHashMap<>();
+
+    private final Map<EventSubscriber, Registration> registrations = new HashMap<>();
+
+    /**
+     * Adds an event subscriber to the index.
+     *
+     * @param eventSubscriber the event subscriber (not null)
+     * @param declaredTopics the topics declared by the {@code event.topics} service property in OSGi Event Admin
+     *            syntax, or null if the subscriber did not declare any
+     */
+    synchronized void add(EventSubscriber eventSubscriber, Collection<String> declaredTopics) {
+        if (registrations.containsKey(eventSubscriber)) {
+            return;
+        }
+        Set<String> eventTypes = new LinkedHashSet<>(eventSubscriber.getSubscribedEventTypes());
+        Set<String> topics = getIndexTopics(eventSubscriber, declaredTopics);
+        for (String eventType : eventTypes) {
+            TopicNode root = rootsByEventType.computeIfAbsent(eventType, type -> new TopicNode());
+            for (String topic : topics) {
+                addToNode(root, topic, eventSubscriber);
+            }
+        }
+        registrations.put(eventSubscriber, new Registration(eventTypes, topics));
+    }
+
+    /**
+     * Removes an event subscriber from the index.
+     *
+     * @param eventSubscriber the event subscriber (not null)
+     */
+    synchronized void remove(EventSubscriber eventSubscriber) {
+        Registration registration = registrations.remove(eventSubscriber);
+        if (registration == null) {
+            return;
+        }
+        for (String eventType : registration.eventTypes) {
+            TopicNode root = rootsByEventType.get(eventType);
+            if (root != null) {
+                for (String topic : registration.topics) {
+                    removeFromNode(root, topic, eventSubscriber);
+                }
+                if (root.isEmpty()) {
+                    rootsByEventType.remove(eventType);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the event subscribers which may be interested in an event of the given type and topic, including the
+     * subscribers of {@link EventSubscriber#ALL_EVENT_TYPES}.
+     *
+     * @param eventType the event type (not null)
+     * @param topic the event topic (not null)
+     * @return the candidate event subscribers (not null)
+     */
+    Set<EventSubscriber> getEventSubscribers(String eventType, String topic) {
+        TopicNode typeRoot = rootsByEventType.get(eventType);
+        TopicNode allRoot = rootsByEventType.get(EventSubscriber.ALL_EVENT_TYPES);
+        if (typeRoot == null && allRoot == null) {
+            return Collections.emptySet();
+        }
+        String[] segments = topic.split(TOPIC_SEPARATOR, -1);
+        Set<EventSubscriber> subscribers = new LinkedHashSet<>();
+        if (typeRoot != null) {
+            collect(typeRoot, segments, subscribers);
+        }
+        if (allRoot != null) {
+            collect(allRoot, segments, subscribers);
+        }
+        return subscribers;
+    }
+
+    private void collect(TopicNode root, String[] segments, Set<EventSubscriber> subscribers) {
+        TopicNode node = root;
+        for (String segment : segments) {
+            subscribers.addAll(node.wildcard);
+            node = node.children.get(segment);
+            if (node == null) {
+                return;
+            }
+        }
+        subscribers.addAll(node.exact);
+    }
+
+    private void addToNode(TopicNode root, String topic, EventSubscriber eventSubscriber) {
+        TopicNode node = root;
+        boolean wildcard = isWildcardTopic(topic);
+        for (String segment : getPathSegments(topic, wildcard)) {
+            node = node.children.computeIfAbsent(segment, s -> new TopicNode());
+        }
+        (wildcard ? node.wildcard : node.exact).add(eventSubscriber);
+    }
+
+    private void removeFromNode(TopicNode root, String topic, EventSubscriber eventSubscriber) {
+        boolean wildcard = isWildcardTopic(topic);
+        String[] segments = getPathSegments(topic, wildcard);
+        TopicNode[] path = new TopicNode[segments.length + 1];
+        path[0] = root;
+        for (int i = 0; i < segments.length; i++) {
+            path[i + 1] = path[i].children.get(segments[i]);
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        TopicNode node = path[segments.length];
+        (wildcard ? node.wildcard : node.exact).remove(eventSubscriber);
+
+        // prune nodes which became empty, e.g. after a rule for a removed item has been disposed
+        for (int i = segments.length; i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].children.remove(segments[i - 1]);
+        }
+    }
+
+    private boolean isWildcardTopic(String topic) {
+        return topic.equals(WILDCARD) || topic.endsWith(TOPIC_SEPARATOR + WILDCARD);
+    }
+
+    private String[] getPathSegments(String topic, boolean wildcard) {
+        if (topic.equals(WILDCARD)) {
+            return new String[0];
+        }
+        String path = wildcard ? topic.substring(0, topic.length() - 2) : topic;
+        return path.split(TOPIC_SEPARATOR, -1);
+    }
+
+    private Set<String> getIndexTopics(EventSubscriber eventSubscriber, Collection<String> declaredTopics) {
+        Set<String> topics = new LinkedHashSet<>();
+        if (declaredTopics != null) {
+            for (String declaredTopic : declaredTopics) {
+                if (declaredTopic == null || declaredTopic.isEmpty()) {
+                    continue;
+                }
+                int wildcardIndex = declaredTopic.indexOf(WILDCARD);
+                if (wildcardIndex >= 0 && wildcardIndex != declaredTopic.length() - 1) {
+                    // not valid in OSGi Event Admin syntax, do not restrict the subscriber at all
+                    topics.add(WILDCARD);
+                } else {
+                    topics.add(declaredTopic);
+                }
+            }
+        }
+        if (topics.isEmpty()) {
+            EventFilter eventFilter = eventSubscriber.getEventFilter();
+            if (eventFilter instanceof TopicEventFilter) {
+                topics.add(toIndexTopic(((TopicEventFilter) eventFilter).getTopicRegex()));
+            } else {
+                topics.add(WILDCARD);
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Converts a topic regular expression into a topic in OSGi Event Admin syntax which matches a superset of the topics
+     * matched by the regular expression.
+     *
+     * @param topicRegex the topic regular expression
+     * @return the exact topic if the expression is a literal, otherwise the topic prefix of the literal part followed
+     *         by the wildcard
+     */
+    static String toIndexTopic(String topicRegex) {
+        if (topicRegex.indexOf('|') >= 0) {
+            return WILDCARD;
+        }
+        int literalEnd = 0;
+        while (literalEnd < topicRegex.length()
+                && REGEX_META_CHARACTERS.indexOf(topicRegex.charAt(literalEnd)) < 0) {
+            literalEnd++;
+        }
+        if (literalEnd == topicRegex.length()) {
+            return topicRegex;
+        }
+        char metaCharacter = topicRegex.charAt(literalEnd);
+        if (metaCharacter == '?' || metaCharacter == '*' || metaCharacter == '{') {
+            // the quantifier makes the preceding character optional
+            literalEnd--;
+        }
+        int separatorIndex = topicRegex.lastIndexOf(TOPIC_SEPARATOR, literalEnd - 1);
+        if (separatorIndex < 0) {
+            return WILDCARD;
+        }
+        return topicRegex.substring(0, separatorIndex) + TOPIC_SEPARATOR + WILDCARD;
+    }
+
+}
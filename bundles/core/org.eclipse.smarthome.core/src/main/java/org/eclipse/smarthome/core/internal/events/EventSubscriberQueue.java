@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.events;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.common.SafeMethodCaller;
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventSubscriber;
+import org.eclipse.smarthome.core.events.EventSubscriberStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link EventSubscriberQueue} delivers the events for one {@link EventSubscriber} in the order they were
+ * dispatched. The events are buffered in a bounded queue and delivered by a task on a shared executor, so that a slow
+ * subscriber neither delays the dispatching thread nor the other subscribers. At most one delivery task per subscriber
+ * is active at any time.
+ *
+ * @author agent - Initial contribution
+ */
+final class EventSubscriberQueue implements Runnable {
+
+    /**
+     * Defines what happens if an event is dispatched to a subscriber whose queue is full.
+     */
+    enum OverflowPolicy {
+        /** the oldest queued event is dropped */
+        DROP_OLDEST,
+        /** a queued event of the same type and topic is replaced, otherwise the oldest queued event is dropped */
+        COALESCE_BY_TOPIC,
+        /** the dispatching thread waits for free space, at most {@link SafeMethodCaller#DEFAULT_TIMEOUT} */
+        BLOCK;
+
+        static OverflowPolicy fromConfig(String value, OverflowPolicy defaultPolicy) {
+            if (value == null || value.trim().isEmpty()) {
+                return defaultPolicy;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return defaultPolicy;
+            }
+        }
+    }
+
+    private static final class QueuedEvent {
+
+        private Event event;
+
+        private final long enqueueTime;
+
+        private QueuedEvent(Event event, long enqueueTime) {
+            this.event = event;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    /** events delivered by one task before the thread is handed over to other subscribers */
+    private static final int MAX_DELIVERIES_PER_RUN = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(EventSubscriberQueue.class);
+
+    private final EventSubscriber eventSubscriber;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final ArrayDeque<QueuedEvent> queue = new ArrayDeque<>();
+
+    private final Map<String, QueuedEvent> queuedByTopic = new HashMap<>();
+
+    // guarded by this
+    private boolean scheduled;
+
+    // guarded by this
+    private boolean closed;
+
+    // guarded by this
+    private long deliveredEvents;
+
+    // guarded by this
+    private long droppedEvents;
+
+    EventSubscriberQueue(EventSubscriber eventSubscriber, Executor executor, int capacity,
+            OverflowPolicy overflowPolicy) {
+        this.eventSubscriber = eventSubscriber;
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Queues an event for delivery.
+     *
+     * @param event the event (not null)
+     */
+    void offer(Event event) {
+        boolean schedule;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity && !makeRoom(event)) {
+                return;
+            }
+            QueuedEvent queuedEvent = new QueuedEvent(event, System.currentTimeMillis());
+            queue.addLast(queuedEvent);
+            if (overflowPolicy == OverflowPolicy.COALESCE_BY_TOPIC) {
+                queuedByTopic.put(getCoalesceKey(event), queuedEvent);
+            }
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    /**
+     * Makes room for the given event in the full queue.
+     *
+     * @return true if the event has to be appended, false if it has been merged into the queue or the queue has been
+     *         closed while waiting for room
+     */
+    private boolean makeRoom(Event event) {
+        switch (overflowPolicy) {
+            case COALESCE_BY_TOPIC:
+                QueuedEvent sameTopic = queuedByTopic.get(getCoalesceKey(event));
+                if (sameTopic != null) {
+                    sameTopic.event = event;
+                    droppedEvents++;
+                    return false;
+                }
+                break;
+            case BLOCK:
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SafeMethodCaller.DEFAULT_TIMEOUT);
+                long remaining;
+                while (queue.size() >= capacity && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (closed) {
+                    // the subscriber has been removed while waiting, so the event is not delivered anymore
+                    return false;
+                }
+                if (queue.size() < capacity) {
+                    return true;
+                }
+                logger.warn("Event subscriber '{}' did not accept events for more than {}ms, dropping the oldest event.",
+                        eventSubscriber, SafeMethodCaller.DEFAULT_TIMEOUT);
+                break;
+            default:
+                break;
+        }
+        QueuedEvent oldest = queue.pollFirst();
+        if (oldest != null) {
+            removeFromTopicMap(oldest);
+            droppedEvents++;
+        }
+        return true;
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            logger.error("Scheduling the event delivery for subscriber '{}' failed: {}", eventSubscriber,
+                    e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < MAX_DELIVERIES_PER_RUN; i++) {
+            Event event;
+            synchronized (this) {
+                QueuedEvent queuedEvent = queue.pollFirst();
+                if (queuedEvent == null) {
+                    scheduled = false;
+                    return;
+                }
+                removeFromTopicMap(queuedEvent);
+                event = queuedEvent.event;
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    notifyAll();
+                }
+            }
+            deliver(event);
+        }
+        // give other subscribers a chance to get the thread
+        synchronized (this) {
+            if (queue.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+        }
+        schedule();
+    }
+
+    private void deliver(Event event) {
+        long start = System.currentTimeMillis();
+        try {
+            eventSubscriber.receive(event);
+        } catch (Throwable t) {
+            logger.error("Dispatching event to subscriber '{}' failed: {}", eventSubscriber, t.getMessage(), t);
+        }
+        long duration = System.currentTimeMillis() - start;
+        if (duration > SafeMethodCaller.DEFAULT_TIMEOUT) {
+            logger.warn("Dispatching event to subscriber '{}' takes more than {}ms.", eventSubscriber,
+                    SafeMethodCaller.DEFAULT_TIMEOUT);
+        }
+        synchronized (this) {
+            deliveredEvents++;
+        }
+    }
+
+    private void removeFromTopicMap(QueuedEvent queuedEvent) {
+        if (overflowPolicy == OverflowPolicy.COALESCE_BY_TOPIC) {
+            queuedByTopic.remove(getCoalesceKey(queuedEvent.event), queuedEvent);
+        }
+    }
+
+    private String getCoalesceKey(Event event) {
+        return event.getType() + '|' + event.getTopic();
+    }
+
+    /**
+     * Discards all queued events and rejects further events.
+     */
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+        queuedByTopic.clear();
+        notifyAll();
+    }
+
+    synchronized EventSubscriberStatistics getStatistics() {
+        QueuedEvent oldest = queue.peekFirst();
+        long lag = oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.enqueueTime) : 0;
+        return new EventSubscriberStatistics(eventSubscriber.toString(), queue.size(), capacity, lag,
+                deliveredEvents, droppedEvents);
+    }
+
+}
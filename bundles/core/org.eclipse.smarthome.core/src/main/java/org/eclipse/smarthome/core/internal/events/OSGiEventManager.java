@@ -10,56 +10,75 @@ package org.eclipse.smarthome.core.internal.events;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
-import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.eclipse.smarthome.core.common.SafeMethodCaller;
-import org.eclipse.smarthome.core.common.SafeMethodCaller.ActionWithException;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.core.events.AbstractEvent;
 import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventBusStatistics;
 import org.eclipse.smarthome.core.events.EventFactory;
 import org.eclipse.smarthome.core.events.EventFilter;
 import org.eclipse.smarthome.core.events.EventPublisher;
 import org.eclipse.smarthome.core.events.EventSubscriber;
+import org.eclipse.smarthome.core.events.EventSubscriberStatistics;
+import org.eclipse.smarthome.core.internal.events.EventSubscriberQueue.OverflowPolicy;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
 
 /**
  * The {@link OSGiEventManager} provides an OSGi based default implementation of the Eclipse SmartHome event bus.
  *
  * The OSGiEventHandler tracks {@link EventSubscriber}s and {@link EventFactory}s, receives OSGi events (by
  * implementing the OSGi {@link EventHandler} interface) and dispatches the received OSGi events as ESH {@link Event}s
- * to the {@link EventSubscriber}s if the provided filter applies.
+ * to the {@link EventSubscriber}s if the provided filter applies. The candidate subscribers of an event are looked up
+ * in an {@link EventSubscriberIndex} by event type and topic, so only the filters of subscribers whose declared topics
+ * match are evaluated.
  *
  * The {@link OSGiEventManager} also serves as {@link EventPublisher} by implementing the EventPublisher interface.
- * Events are send in an asynchronous way via OSGi Event Admin mechanism.
+ * Events are send in an asynchronous way via OSGi Event Admin mechanism. If in-process dispatching is enabled (the
+ * default), the posted {@link Event} instance is passed along with the OSGi event and handed to the subscribers
+ * directly, so neither its payload has to be serialized nor an event has to be recreated by an {@link EventFactory}.
+ * The payload is still put into the OSGi event as long as another {@link EventHandler} is registered for the
+ * "smarthome" topic, since such a handler only knows the properties of the OSGi event.
+ *
+ * Each subscriber gets its own bounded {@link EventSubscriberQueue}, which delivers the events in order on the shared
+ * "events" thread pool. The queue size and the policy for full queues can be configured by {@code subscriberQueueSize}
+ * and {@code overflowPolicy} ({@code block}, {@code drop-oldest} or {@code coalesce-by-topic}) and apply to subscribers
+ * registered afterwards.
  *
  * @author Stefan Bußweiler - Initial contribution
  */
-@Component(immediate = true, property = { "event.topics:String=smarthome" })
-public class OSGiEventManager implements EventHandler, EventPublisher {
+@Component(immediate = true, configurationPid = "org.eclipse.smarthome.eventmanager", property = {
+        "event.topics:String=smarthome" })
+public class OSGiEventManager implements EventHandler, EventPublisher, EventBusStatistics {
 
     @SuppressWarnings("rawtypes")
     private class EventSubscriberServiceTracker extends ServiceTracker {
@@ -74,7 +93,7 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         public Object addingService(ServiceReference reference) {
             EventSubscriber eventSubscriber = (EventSubscriber) this.context.getService(reference);
             if (eventSubscriber != null) {
-                addEventSubscriber(eventSubscriber);
+                addEventSubscriber(eventSubscriber, getDeclaredTopics(reference));
                 return eventSubscriber;
             } else {
                 return null;
@@ -88,21 +107,107 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
 
     }
 
+    /**
+     * Tracks the other OSGi event handlers which receive the events of the event bus.
+     */
+    @SuppressWarnings("rawtypes")
+    private class ExternalEventHandlerServiceTracker extends ServiceTracker {
+
+        @SuppressWarnings("unchecked")
+        public ExternalEventHandlerServiceTracker(BundleContext context) throws InvalidSyntaxException {
+            super(context, context.createFilter(EXTERNAL_EVENT_HANDLER_FILTER), null);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Object addingService(ServiceReference reference) {
+            Object eventHandler = this.context.getService(reference);
+            if (eventHandler == null || eventHandler == OSGiEventManager.this) {
+                return null;
+            }
+            addExternalEventHandler();
+            return eventHandler;
+        }
+
+        @Override
+        public void removedService(ServiceReference reference, Object service) {
+            removeExternalEventHandler();
+        }
+
+    }
+
+    private static final String EXTERNAL_EVENT_HANDLER_FILTER = "(&(" + Constants.OBJECTCLASS + "="
+            + EventHandler.class.getName() + ")(|(" + EventConstants.EVENT_TOPIC + "=smarthome)("
+            + EventConstants.EVENT_TOPIC + "=\\*)))";
+
+    private static final String CONFIG_IN_PROCESS_DISPATCH = "inProcessDispatch";
+
+    private static final String CONFIG_SUBSCRIBER_QUEUE_SIZE = "subscriberQueueSize";
+
+    private static final String CONFIG_OVERFLOW_POLICY = "overflowPolicy";
+
+    private static final String EVENT_PROPERTY = "event";
+
+    private static final String THREAD_POOL_NAME = "events";
+
+    private static final int DEFAULT_SUBSCRIBER_QUEUE_SIZE = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(OSGiEventManager.class);
 
+    private volatile boolean inProcessDispatch = true;
+
+    private volatile int subscriberQueueSize = DEFAULT_SUBSCRIBER_QUEUE_SIZE;
+
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
     private EventAdmin osgiEventAdmin;
 
     private final Map<String, EventFactory> typedEventFactories = new ConcurrentHashMap<String, EventFactory>();
 
-    private final SetMultimap<String, EventSubscriber> typedEventSubscribers = Multimaps
-            .synchronizedSetMultimap(HashMultimap.<String, EventSubscriber> create());
+    private final EventSubscriberIndex eventSubscriberIndex = new EventSubscriberIndex();
+
+    private final Map<EventSubscriber, EventSubscriberQueue> eventSubscriberQueues = new ConcurrentHashMap<>();
 
     private EventSubscriberServiceTracker eventSubscriberServiceTracker;
 
+    private ExternalEventHandlerServiceTracker externalEventHandlerServiceTracker;
+
+    private final AtomicInteger externalEventHandlers = new AtomicInteger();
+
     @Activate
-    protected void activate(ComponentContext componentContext) {
+    protected void activate(ComponentContext componentContext, Map<String, Object> config) {
+        modified(config);
         eventSubscriberServiceTracker = new EventSubscriberServiceTracker(componentContext.getBundleContext());
         eventSubscriberServiceTracker.open();
+        try {
+            externalEventHandlerServiceTracker = new ExternalEventHandlerServiceTracker(
+                    componentContext.getBundleContext());
+            externalEventHandlerServiceTracker.open();
+        } catch (InvalidSyntaxException e) {
+            logger.error("Cannot track the OSGi event handlers of the event bus: {}", e.getMessage(), e);
+        }
+    }
+
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        Object inProcessDispatchConfig = config != null ? config.get(CONFIG_IN_PROCESS_DISPATCH) : null;
+        inProcessDispatch = inProcessDispatchConfig == null
+                || Boolean.parseBoolean(inProcessDispatchConfig.toString());
+
+        Object queueSizeConfig = config != null ? config.get(CONFIG_SUBSCRIBER_QUEUE_SIZE) : null;
+        int queueSize = DEFAULT_SUBSCRIBER_QUEUE_SIZE;
+        if (queueSizeConfig != null) {
+            try {
+                queueSize = Integer.parseInt(queueSizeConfig.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid subscriber queue size '{}' - value must be an integer", queueSizeConfig);
+            }
+        }
+        subscriberQueueSize = queueSize;
+
+        Object overflowPolicyConfig = config != null ? config.get(CONFIG_OVERFLOW_POLICY) : null;
+        overflowPolicy = OverflowPolicy.fromConfig(overflowPolicyConfig != null ? overflowPolicyConfig.toString() : null,
+                OverflowPolicy.BLOCK);
     }
 
     @Deactivate
@@ -110,6 +215,13 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         if (eventSubscriberServiceTracker != null) {
             eventSubscriberServiceTracker.close();
         }
+        if (externalEventHandlerServiceTracker != null) {
+            externalEventHandlerServiceTracker.close();
+        }
+        for (EventSubscriberQueue queue : eventSubscriberQueues.values()) {
+            queue.close();
+        }
+        eventSubscriberQueues.clear();
     }
 
     @Reference
@@ -144,6 +256,12 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
 
     @Override
     public void handleEvent(org.osgi.service.event.Event osgiEvent) {
+        Object eventObj = osgiEvent.getProperty(EVENT_PROPERTY);
+        if (eventObj instanceof Event) {
+            handleEvent((Event) eventObj);
+            return;
+        }
+
         Object typeObj = osgiEvent.getProperty("type");
         Object payloadObj = osgiEvent.getProperty("payload");
         Object topicObj = osgiEvent.getProperty("topic");
@@ -169,7 +287,7 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         EventFactory eventFactory = typedEventFactories.get(type);
 
         if (eventFactory != null) {
-            Set<EventSubscriber> eventSubscribers = getEventSubscribers(type);
+            Set<EventSubscriber> eventSubscribers = eventSubscriberIndex.getEventSubscribers(type, topic);
             if (!eventSubscribers.isEmpty()) {
                 Event eshEvent = createESHEvent(eventFactory, type, payload, topic, source);
                 if (eshEvent != null) {
@@ -181,6 +299,14 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         }
     }
 
+    private void handleEvent(final Event event) {
+        Set<EventSubscriber> eventSubscribers = eventSubscriberIndex.getEventSubscribers(event.getType(),
+                event.getTopic());
+        if (!eventSubscribers.isEmpty()) {
+            dispatchESHEvent(eventSubscribers, event);
+        }
+    }
+
     private Event createESHEvent(final EventFactory eventFactory, final String type, final String payload,
             final String topic, final String source) {
         Event eshEvent = null;
@@ -200,18 +326,11 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
             try {
                 EventFilter filter = eventSubscriber.getEventFilter();
                 if (filter == null || filter.apply(event)) {
-                    SafeMethodCaller.call(new ActionWithException<Void>() {
-
-                        @Override
-                        public Void call() throws Exception {
-                            eventSubscriber.receive(event);
-                            return null;
-                        }
-                    });
+                    EventSubscriberQueue queue = eventSubscriberQueues.get(eventSubscriber);
+                    if (queue != null) {
+                        queue.offer(event);
+                    }
                 }
-            } catch (TimeoutException timeoutException) {
-                logger.warn("Dispatching event to subscriber '{}' takes more than {}ms.", eventSubscriber.toString(),
-                        SafeMethodCaller.DEFAULT_TIMEOUT);
             } catch (Throwable t) {
                 logger.error("Dispatching/filtering event for subscriber '{}' failed: {}",
                         EventSubscriber.class.getName(), t.getMessage(), t);
@@ -219,37 +338,32 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         }
     }
 
-    private Set<EventSubscriber> getEventSubscribers(String eventType) {
-        Set<EventSubscriber> eventTypeSubscribers = typedEventSubscribers.get(eventType);
-        Set<EventSubscriber> allEventTypeSubscribers = typedEventSubscribers.get(EventSubscriber.ALL_EVENT_TYPES);
-
-        Set<EventSubscriber> subscribers = new HashSet<EventSubscriber>();
-        if (eventTypeSubscribers != null) {
-            subscribers.addAll(eventTypeSubscribers);
-        }
-        if (allEventTypeSubscribers != null) {
-            subscribers.addAll(allEventTypeSubscribers);
-        }
-        return subscribers;
-    }
-
     @Override
     public void post(final Event event) throws IllegalArgumentException, IllegalStateException {
         EventAdmin eventAdmin = this.osgiEventAdmin;
-        assertValidArgument(event);
+        boolean inProcess = this.inProcessDispatch;
+        boolean withPayload = !inProcess || externalEventHandlers.get() > 0;
+        // lazily serialized payloads are only forced here if the payload is published
+        assertValidArgument(event, withPayload || !(event instanceof AbstractEvent));
         assertValidState(eventAdmin);
-        postAsOSGiEvent(eventAdmin, event);
+        postAsOSGiEvent(eventAdmin, event, inProcess, withPayload);
     }
 
-    private void postAsOSGiEvent(final EventAdmin eventAdmin, final Event event) throws IllegalStateException {
+    private void postAsOSGiEvent(final EventAdmin eventAdmin, final Event event, final boolean inProcess,
+            final boolean withPayload) throws IllegalStateException {
         try {
             AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
                 @Override
                 public Void run() throws Exception {
-                    Dictionary<String, Object> properties = new Hashtable<String, Object>(3);
+                    Dictionary<String, Object> properties = new Hashtable<String, Object>(5);
                     properties.put("type", event.getType());
-                    properties.put("payload", event.getPayload());
                     properties.put("topic", event.getTopic());
+                    if (inProcess) {
+                        properties.put(EVENT_PROPERTY, event);
+                    }
+                    if (withPayload) {
+                        properties.put("payload", event.getPayload());
+                    }
                     if (event.getSource() != null) {
                         properties.put("source", event.getSource());
                     }
@@ -264,13 +378,15 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         }
     }
 
-    private void assertValidArgument(Event event) throws IllegalArgumentException {
+    private void assertValidArgument(Event event, boolean checkPayload) throws IllegalArgumentException {
         String errorMsg = "The %s of the 'event' argument must not be null or empty.";
         Preconditions.checkArgument(event != null, "Argument 'event' must not be null.");
         Preconditions.checkArgument(event.getType() != null && !event.getType().isEmpty(),
                 String.format(errorMsg, "type"));
-        Preconditions.checkArgument(event.getPayload() != null && !event.getPayload().isEmpty(),
-                String.format(errorMsg, "payload"));
+        if (checkPayload) {
+            Preconditions.checkArgument(event.getPayload() != null && !event.getPayload().isEmpty(),
+                    String.format(errorMsg, "payload"));
+        }
         Preconditions.checkArgument(event.getTopic() != null && !event.getTopic().isEmpty(),
                 String.format(errorMsg, "topic"));
     }
@@ -279,24 +395,54 @@ public class OSGiEventManager implements EventHandler, EventPublisher {
         Preconditions.checkArgument(eventAdmin != null, "The event bus module is not available!");
     }
 
-    private void addEventSubscriber(EventSubscriber eventSubscriber) {
-        Set<String> subscribedEventTypes = eventSubscriber.getSubscribedEventTypes();
-
-        for (String subscribedEventType : subscribedEventTypes) {
-            synchronized (this) {
-                if (!typedEventSubscribers.containsEntry(subscribedEventType, eventSubscriber)) {
-                    typedEventSubscribers.put(subscribedEventType, eventSubscriber);
-                }
-            }
+    @Override
+    public List<EventSubscriberStatistics> getEventSubscriberStatistics() {
+        List<EventSubscriberStatistics> statistics = new ArrayList<>(eventSubscriberQueues.size());
+        for (EventSubscriberQueue queue : eventSubscriberQueues.values()) {
+            statistics.add(queue.getStatistics());
         }
+        return statistics;
+    }
+
+    void addExternalEventHandler() {
+        externalEventHandlers.incrementAndGet();
     }
 
-    private void removeEventSubscriber(EventSubscriber eventSubscriber) {
-        Set<String> subscribedEventTypes = eventSubscriber.getSubscribedEventTypes();
+    void removeExternalEventHandler() {
+        externalEventHandlers.decrementAndGet();
+    }
+
+    void addEventSubscriber(EventSubscriber eventSubscriber, Collection<String> declaredTopics) {
+        eventSubscriberQueues.computeIfAbsent(eventSubscriber, subscriber -> new EventSubscriberQueue(subscriber,
+                ThreadPoolManager.getPool(THREAD_POOL_NAME), subscriberQueueSize, overflowPolicy));
+        eventSubscriberIndex.add(eventSubscriber, declaredTopics);
+    }
 
-        for (String subscribedEventType : subscribedEventTypes) {
-            typedEventSubscribers.remove(subscribedEventType, eventSubscriber);
+    void removeEventSubscriber(EventSubscriber eventSubscriber) {
+        eventSubscriberIndex.remove(eventSubscriber);
+        EventSubscriberQueue queue = eventSubscriberQueues.remove(eventSubscriber);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Collection<String> getDeclaredTopics(ServiceReference reference) {
+        Object topics = reference.getProperty(EventConstants.EVENT_TOPIC);
+        if (topics instanceof String) {
+            return Collections.singleton((String) topics);
+        } else if (topics instanceof String[]) {
+            return Arrays.asList((String[]) topics);
+        } else if (topics instanceof Collection) {
+            List<String> topicList = new ArrayList<>();
+            for (Object topic : (Collection) topics) {
+                if (topic instanceof String) {
+                    topicList.add((String) topic);
+                }
+            }
+            return topicList;
         }
+        return null;
     }
 
 }
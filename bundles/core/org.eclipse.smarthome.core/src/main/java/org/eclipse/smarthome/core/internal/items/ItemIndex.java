@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.internal.items;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.smarthome.core.items.Item;
+
+/**
+ * The {@link ItemIndex} keeps the registered items grouped by their type, their tags and the names of the groups they
+ * belong to, so that the {@link ItemRegistryImpl} does not have to filter all items on every query.
+ *
+ * The index is maintained by the registry whenever an item is added, updated or removed. As tags and group names of
+ * an item can be changed after the item has been created, the index remembers under which keys an item has been
+ * indexed. The tags and group names an item has at the time of a registry update are indexed, callers should
+ * therefore check the candidates returned for a tag.
+ *
+ * Lookups do not lock, modifications are serialized.
+ *
+ * @author agent - Initial contribution
+ */
+final class ItemIndex {
+
+    private static final class Registration {
+
+        private final Item item;
+
+        private final Set<String> tags;
+
+        private final Set<String> groupNames;
+
+        private Registration(Item item) {
+            this.item = item;
+            this.tags = new LinkedHashSet<>(item.getTags());
+            this.groupNames = new LinkedHashSet<>(item.getGroupNames());
+        }
+    }
+
+    private final Map<String, Map<String, Item>> itemsByType = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, Item>> itemsByTag = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, Item>> itemsByGroupName = new ConcurrentHashMap<>();
+
+    private final Map<String, Registration> registrations = new HashMap<>();
+
+    /**
+     * Adds an item to the index. An item which has already been indexed with the same name is replaced.
+     *
+     * @param item the item (not null)
+     */
+    synchronized void add(Item item) {
+        remove(item.getName());
+        Registration registration = new Registration(item);
+        registrations.put(item.getName(), registration);
+        addEntry(itemsByType, item.getType(), item);
+        for (String tag : registration.tags) {
+            addEntry(itemsByTag, tag, item);
+        }
+        for (String groupName : registration.groupNames) {
+            addEntry(itemsByGroupName, groupName, item);
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param item the item (not null)
+     */
+    synchronized void remove(Item item) {
+        Registration registration = registrations.get(item.getName());
+        if (registration != null && registration.item == item) {
+            remove(item.getName());
+        }
+    }
+
+    private void remove(String itemName) {
+        Registration registration = registrations.remove(itemName);
+        if (registration == null) {
+            return;
+        }
+        Item item = registration.item;
+        removeEntry(itemsByType, item.getType(), itemName);
+        for (String tag : registration.tags) {
+            removeEntry(itemsByTag, tag, itemName);
+        }
+        for (String groupName : registration.groupNames) {
+            removeEntry(itemsByGroupName, groupName, itemName);
+        }
+    }
+
+    /**
+     * Returns the items of the given type.
+     *
+     * @param type the item type (not null)
+     * @return a new collection of the items (not null)
+     */
+    Collection<Item> getItemsOfType(String type) {
+        return getEntries(itemsByType, type);
+    }
+
+    /**
+     * Returns the items which had the given tag when they were added or updated.
+     *
+     * @param tag the tag (not null)
+     * @return a new collection of the items (not null)
+     */
+    Collection<Item> getItemsByTag(String tag) {
+        return getEntries(itemsByTag, tag);
+    }
+
+    /**
+     * Returns the items which declared the given group name when they were added or updated.
+     *
+     * @param groupName the name of the group (not null)
+     * @return a new collection of the items (not null)
+     */
+    Collection<Item> getMembers(String groupName) {
+        return getEntries(itemsByGroupName, groupName);
+    }
+
+    private void addEntry(Map<String, Map<String, Item>> index, String key, Item item) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(item.getName(), item);
+        }
+    }
+
+    private void removeEntry(Map<String, Map<String, Item>> index, String key, String itemName) {
+        if (key != null) {
+            Map<String, Item> items = index.get(key);
+            if (items != null) {
+                items.remove(itemName);
+                if (items.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    private Collection<Item> getEntries(Map<String, Map<String, Item>> index, String key) {
+        Map<String, Item> items = key != null ? index.get(key) : null;
+        return items != null ? new ArrayList<>(items.values()) : new ArrayList<>();
+    }
+
+}
@@ -13,9 +13,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.eclipse.smarthome.core.common.registry.AbstractRegistry;
+import org.eclipse.smarthome.core.common.registry.Provider;
 import org.eclipse.smarthome.core.events.EventPublisher;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.GroupItem;
@@ -29,10 +33,15 @@ import org.eclipse.smarthome.core.items.ManagedItemProvider;
 import org.eclipse.smarthome.core.items.events.ItemEventFactory;
 import org.eclipse.smarthome.core.types.StateDescriptionProvider;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This is the main implementing class of the {@link ItemRegistry} interface. It
@@ -44,12 +53,40 @@ import org.osgi.service.component.annotations.ReferencePolicy;
  * @author Stefan Bußweiler - Migration to new event mechanism
  *
  */
-@Component(immediate = true)
+@Component(immediate = true, configurationPid = "org.eclipse.smarthome.itemregistry")
 public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvider> implements ItemRegistry {
 
+    /** the maximum number of compiled item name patterns which are cached */
+    private static final int MAX_CACHED_PATTERNS = 100;
+
+    private static final String CONFIG_GROUP_STATE_CALCULATION_DELAY = "groupStateCalculationDelay";
+
+    private static final String CONFIG_GROUP_STATE_CALCULATION_MAX_DELAY = "groupStateCalculationMaxDelay";
+
+    private static final long DEFAULT_GROUP_STATE_CALCULATION_MAX_DELAY = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(ItemRegistryImpl.class);
+
+    private volatile long groupStateCalculationDelay;
+
+    private volatile long groupStateCalculationMaxDelay = DEFAULT_GROUP_STATE_CALCULATION_MAX_DELAY;
+
     private final List<StateDescriptionProvider> stateDescriptionProviders = Collections
             .synchronizedList(new ArrayList<StateDescriptionProvider>());
 
+    private final ItemIndex itemIndex = new ItemIndex();
+
+    private final Map<String, Pattern> patternCache = Collections
+            .synchronizedMap(new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+                    return size() > MAX_CACHED_PATTERNS;
+                }
+            });
+
     public ItemRegistryImpl() {
         super(ItemProvider.class);
     }
@@ -92,24 +129,17 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
 
     @Override
     public Collection<Item> getItemsOfType(String type) {
-        Collection<Item> matchedItems = new ArrayList<Item>();
-
-        for (Item item : getItems()) {
-            if (item.getType().equals(type)) {
-                matchedItems.add(item);
-            }
-        }
-
-        return matchedItems;
+        return itemIndex.getItemsOfType(type);
     }
 
     @Override
     public Collection<Item> getItems(String pattern) {
-        String regex = pattern.replace("?", ".?").replace("*", ".*?");
+        Pattern regex = patternCache.computeIfAbsent(pattern,
+                p -> Pattern.compile(p.replace("?", ".?").replace("*", ".*?")));
         Collection<Item> matchedItems = new ArrayList<Item>();
 
         for (Item item : getItems()) {
-            if (item.getName().matches(regex)) {
+            if (regex.matcher(item.getName()).matches()) {
                 matchedItems.add(item);
             }
         }
@@ -167,6 +197,8 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
 
         // add the item to all relevant groups
         addToGroupItems(item, item.getGroupNames());
+
+        itemIndex.add(item);
     }
 
     private void injectServices(Item item) {
@@ -175,6 +207,9 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
             genericItem.setEventPublisher(eventPublisher);
             genericItem.setStateDescriptionProviders(stateDescriptionProviders);
         }
+        if (item instanceof GroupItem) {
+            ((GroupItem) item).setStateCalculationDelay(groupStateCalculationDelay, groupStateCalculationMaxDelay);
+        }
     }
 
     private void clearServices(Item item) {
@@ -186,7 +221,7 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
     }
 
     private void addMembersToGroupItem(GroupItem groupItem) {
-        for (Item i : getItems()) {
+        for (Item i : itemIndex.getMembers(groupItem.getName())) {
             if (i.getGroupNames().contains(groupItem.getName())) {
                 groupItem.addMember(i);
             }
@@ -217,12 +252,24 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
     protected void onRemoveElement(Item element) {
         clearServices(element);
         removeFromGroupItems(element, element.getGroupNames());
+        itemIndex.remove(element);
+    }
+
+    @Override
+    public void updated(Provider<Item> provider, Item oldItem, Item item) {
+        if (get(item.getName()) == item) {
+            // the registered item has been changed in place, e.g. a tag has been added through the REST API
+            itemIndex.add(item);
+        }
+        super.updated(provider, oldItem, item);
     }
 
     @Override
     protected void onUpdateElement(Item oldItem, Item item) {
         clearServices(oldItem);
         injectServices(item);
+        itemIndex.remove(oldItem);
+        itemIndex.add(item);
 
         List<String> oldNames = oldItem.getGroupNames();
         List<String> newNames = item.getGroupNames();
@@ -255,8 +302,29 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
 
     @Override
     public Collection<Item> getItemsByTag(String... tags) {
+        if (tags.length == 0) {
+            return getItems();
+        }
+        return filterByTags(getItemsByTagFromIndex(tags), tags);
+    }
+
+    /**
+     * Returns the indexed items of the least used tag as candidates for the given tags.
+     */
+    private Collection<Item> getItemsByTagFromIndex(String... tags) {
+        Collection<Item> candidates = null;
+        for (String tag : tags) {
+            Collection<Item> items = itemIndex.getItemsByTag(tag);
+            if (candidates == null || items.size() < candidates.size()) {
+                candidates = items;
+            }
+        }
+        return candidates;
+    }
+
+    private List<Item> filterByTags(Collection<Item> items, String... tags) {
         List<Item> filteredItems = new ArrayList<Item>();
-        for (Item item : getItems()) {
+        for (Item item : items) {
             if (itemHasTags(item, tags)) {
                 filteredItems.add(item);
             }
@@ -289,13 +357,19 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
 
     @Override
     public Collection<Item> getItemsByTagAndType(String type, String... tags) {
-        List<Item> filteredItems = new ArrayList<Item>();
-        for (Item item : getItemsOfType(type)) {
-            if (itemHasTags(item, tags)) {
-                filteredItems.add(item);
+        Collection<Item> candidates = getItemsOfType(type);
+        if (tags.length > 0) {
+            Collection<Item> taggedItems = getItemsByTagFromIndex(tags);
+            if (taggedItems.size() < candidates.size()) {
+                candidates = new ArrayList<Item>();
+                for (Item item : taggedItems) {
+                    if (item.getType().equals(type)) {
+                        candidates.add(item);
+                    }
+                }
             }
         }
-        return filteredItems;
+        return filterByTags(candidates, tags);
     }
 
     @Override
@@ -325,11 +399,39 @@ public class ItemRegistryImpl extends AbstractRegistry<Item, String, ItemProvide
         postEvent(ItemEventFactory.createUpdateEvent(element, oldElement));
     }
 
-    protected void activate(final ComponentContext componentContext) {
+    @Activate
+    protected void activate(final ComponentContext componentContext, Map<String, Object> config) {
+        modified(config);
         super.activate(componentContext.getBundleContext());
     }
 
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        groupStateCalculationDelay = getLongConfig(config, CONFIG_GROUP_STATE_CALCULATION_DELAY, 0);
+        groupStateCalculationMaxDelay = getLongConfig(config, CONFIG_GROUP_STATE_CALCULATION_MAX_DELAY,
+                DEFAULT_GROUP_STATE_CALCULATION_MAX_DELAY);
+        for (Item item : itemIndex.getItemsOfType(GroupItem.TYPE)) {
+            if (item instanceof GroupItem) {
+                ((GroupItem) item).setStateCalculationDelay(groupStateCalculationDelay,
+                        groupStateCalculationMaxDelay);
+            }
+        }
+    }
+
+    private long getLongConfig(Map<String, Object> config, String key, long defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", value, key);
+            }
+        }
+        return defaultValue;
+    }
+
     @Override
+    @Deactivate
     protected void deactivate() {
         super.deactivate();
     }
@@ -7,6 +7,7 @@
  */
 package org.eclipse.smarthome.core.items;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -53,11 +54,44 @@ abstract public class GenericItem implements ActiveItem {
 
     private static final String ITEM_THREADPOOLNAME = "items";
 
+    /**
+     * A weak reference to a listener in the snapshots, so that the snapshots do not keep a listener reachable which is
+     * released by the {@link #listeners} set.
+     */
+    private static final class ListenerReference extends WeakReference<StateChangeListener> {
+
+        private ListenerReference(StateChangeListener listener) {
+            super(listener);
+        }
+    }
+
+    private static final ListenerReference[] NO_LISTENERS = new ListenerReference[0];
+
+    /**
+     * The number of nested synchronous notifications after which synchronous listeners are notified asynchronously,
+     * which bounds the stack depth for deeply nested or cyclic group hierarchies.
+     */
+    private static final int MAX_SYNCHRONOUS_NOTIFICATION_DEPTH = 16;
+
+    private static final ThreadLocal<int[]> synchronousNotificationDepth = ThreadLocal.withInitial(() -> new int[1]);
+
     protected EventPublisher eventPublisher;
 
+    /**
+     * All registered listeners. Use {@link #addStateChangeListener(StateChangeListener)} and
+     * {@link #removeStateChangeListener(StateChangeListener)} to modify it.
+     */
     protected Set<StateChangeListener> listeners = new CopyOnWriteArraySet<StateChangeListener>(
             Collections.newSetFromMap(new WeakHashMap<StateChangeListener, Boolean>()));
 
+    // guarded by listeners
+    private final Set<StateChangeListener> synchronousListenerSet = Collections
+            .newSetFromMap(new WeakHashMap<StateChangeListener, Boolean>());
+
+    // snapshots of the listeners, which are replaced whenever a listener is added, removed or has been collected
+    private volatile ListenerReference[] asynchronousListeners = NO_LISTENERS;
+    private volatile ListenerReference[] synchronousListeners = NO_LISTENERS;
+
     protected List<String> groupNames = new ArrayList<String>();
 
     protected Set<String> tags = new HashSet<String>();
@@ -198,10 +232,11 @@ abstract public class GenericItem implements ActiveItem {
     protected final void applyState(State state) {
         State oldState = this.state;
         this.state = state;
-        notifyListeners(oldState, state);
+        // the event is sent first, so that it precedes the events of groups which are notified synchronously
         if (!oldState.equals(state)) {
             sendStateChangedEvent(state, oldState);
         }
+        notifyListeners(oldState, state);
     }
 
     private void sendStateChangedEvent(State newState, State oldState) {
@@ -214,26 +249,66 @@ abstract public class GenericItem implements ActiveItem {
         internalSend(command);
     }
 
+    /**
+     * Notifies the listeners about a state update. The asynchronous listeners are notified one after another by a
+     * single task of the item thread pool, the synchronous listeners are notified directly by the calling thread.
+     *
+     * @param oldState the state before the update
+     * @param newState the state after the update
+     */
     protected void notifyListeners(final State oldState, final State newState) {
-        // if nothing has changed, we send update notifications
-        Set<StateChangeListener> clonedListeners = null;
-        clonedListeners = new CopyOnWriteArraySet<StateChangeListener>(listeners);
+        final ListenerReference[] asynchronous = asynchronousListeners;
+        ListenerReference[] synchronous = synchronousListeners;
+        int[] depth = synchronousNotificationDepth.get();
+        if (synchronous.length > 0 && depth[0] >= MAX_SYNCHRONOUS_NOTIFICATION_DEPTH) {
+            notifyListenersAsynchronously(synchronous, oldState, newState);
+            synchronous = NO_LISTENERS;
+        }
+        if (asynchronous.length > 0) {
+            notifyListenersAsynchronously(asynchronous, oldState, newState);
+        }
+        if (synchronous.length > 0) {
+            depth[0]++;
+            try {
+                notifyListeners(synchronous, oldState, newState);
+            } finally {
+                depth[0]--;
+            }
+        }
+    }
+
+    private void notifyListenersAsynchronously(final ListenerReference[] listenerReferences, final State oldState,
+            final State newState) {
         ExecutorService pool = ThreadPoolManager.getPool(ITEM_THREADPOOLNAME);
-        for (final StateChangeListener listener : clonedListeners) {
-            pool.execute(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        listener.stateUpdated(GenericItem.this, newState);
-                        if (newState != null && !newState.equals(oldState)) {
-                            listener.stateChanged(GenericItem.this, oldState, newState);
-                        }
-                    } catch (Exception e) {
-                        logger.warn("failed notifying listener '{}' about state update of item {}: {}", listener,
-                                GenericItem.this.getName(), e.getMessage(), e);
-                    }
-                }
-            });
+        pool.execute(() -> notifyListeners(listenerReferences, oldState, newState));
+    }
+
+    private void notifyListeners(ListenerReference[] listenerReferences, State oldState, State newState) {
+        boolean collected = false;
+        for (ListenerReference listenerReference : listenerReferences) {
+            StateChangeListener listener = listenerReference.get();
+            if (listener != null) {
+                notifyListener(listener, oldState, newState);
+            } else {
+                collected = true;
+            }
+        }
+        if (collected) {
+            synchronized (listeners) {
+                updateListenerSnapshots();
+            }
+        }
+    }
+
+    private void notifyListener(StateChangeListener listener, State oldState, State newState) {
+        try {
+            listener.stateUpdated(this, newState);
+            if (newState != null && !newState.equals(oldState)) {
+                listener.stateChanged(this, oldState, newState);
+            }
+        } catch (Exception e) {
+            logger.warn("failed notifying listener '{}' about state update of item {}: {}", listener, getName(),
+                    e.getMessage(), e);
         }
     }
 
@@ -270,15 +345,50 @@ abstract public class GenericItem implements ActiveItem {
     }
 
     public void addStateChangeListener(StateChangeListener listener) {
+        addStateChangeListener(listener, false);
+    }
+
+    /**
+     * Adds a listener which is notified about state updates of this item.
+     *
+     * Listeners are notified asynchronously by default. A synchronous listener is notified by the thread which updates
+     * the state of the item, so it must return quickly and must not block.
+     *
+     * @param listener the listener
+     * @param synchronous true if the listener should be notified synchronously
+     */
+    public void addStateChangeListener(StateChangeListener listener, boolean synchronous) {
         synchronized (listeners) {
             listeners.add(listener);
+            if (synchronous) {
+                synchronousListenerSet.add(listener);
+            } else {
+                synchronousListenerSet.remove(listener);
+            }
+            updateListenerSnapshots();
         }
     }
 
     public void removeStateChangeListener(StateChangeListener listener) {
         synchronized (listeners) {
             listeners.remove(listener);
+            synchronousListenerSet.remove(listener);
+            updateListenerSnapshots();
+        }
+    }
+
+    private void updateListenerSnapshots() {
+        List<ListenerReference> asynchronous = new ArrayList<ListenerReference>(listeners.size());
+        List<ListenerReference> synchronous = new ArrayList<ListenerReference>(synchronousListenerSet.size());
+        for (StateChangeListener listener : listeners) {
+            if (synchronousListenerSet.contains(listener)) {
+                synchronous.add(new ListenerReference(listener));
+            } else {
+                asynchronous.add(new ListenerReference(listener));
+            }
         }
+        asynchronousListeners = asynchronous.toArray(NO_LISTENERS);
+        synchronousListeners = synchronous.toArray(NO_LISTENERS);
     }
 
     @Override
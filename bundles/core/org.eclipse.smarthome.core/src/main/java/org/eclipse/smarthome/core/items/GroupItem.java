@@ -14,10 +14,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.events.ItemEventFactory;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.State;
@@ -36,6 +38,8 @@ public class GroupItem extends GenericItem implements StateChangeListener {
     @NonNull
     public static final String TYPE = "Group";
 
+    private static final String GROUP_THREADPOOLNAME = "groups";
+
     private final Logger logger = LoggerFactory.getLogger(GroupItem.class);
 
     protected final GenericItem baseItem;
@@ -44,6 +48,26 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 
     protected GroupFunction function;
 
+    /**
+     * Keeps the group state for an {@link IncrementalGroupFunction}, null if the group state has to be calculated over
+     * all members. Access is synchronized on the aggregator.
+     */
+    private final IncrementalGroupFunction.Aggregator aggregator;
+
+    private final GroupFunction aggregatorFunction;
+
+    private volatile long stateCalculationDelay;
+
+    private volatile long maxStateCalculationDelay;
+
+    private final Object pendingCalculationLock = new Object();
+
+    // guarded by pendingCalculationLock
+    private boolean calculationScheduled;
+    private long firstPendingUpdate;
+    private long lastPendingUpdate;
+    private String lastUpdatedMember;
+
     /**
      * Creates a plain GroupItem
      *
@@ -78,6 +102,27 @@ public class GroupItem extends GenericItem implements StateChangeListener {
         }
 
         members = new CopyOnWriteArrayList<Item>();
+
+        if (this.function instanceof IncrementalGroupFunction) {
+            aggregator = ((IncrementalGroupFunction) this.function).createAggregator();
+        } else {
+            aggregator = null;
+        }
+        aggregatorFunction = this.function;
+    }
+
+    /**
+     * Configures the coalescing of member updates. If a delay is set, the group state is not calculated for every
+     * member update, but once no member has been updated for the given delay. To keep the group state live if members
+     * are updated continuously, the group state is calculated at the latest after the maximum delay.
+     *
+     * @param delay the time in milliseconds without member updates after which the group state is calculated, 0 to
+     *            calculate the group state on every member update
+     * @param maxDelay the maximum time in milliseconds between a member update and the calculation of the group state
+     */
+    public void setStateCalculationDelay(long delay, long maxDelay) {
+        this.stateCalculationDelay = Math.max(0, delay);
+        this.maxStateCalculationDelay = Math.max(this.stateCalculationDelay, maxDelay);
     }
 
     /**
@@ -155,14 +200,19 @@ public class GroupItem extends GenericItem implements StateChangeListener {
         if (item == null) {
             throw new IllegalArgumentException("Item must not be null!");
         }
-        members.addIfAbsent(item);
+        if (members.addIfAbsent(item) && aggregator != null) {
+            synchronized (aggregator) {
+                aggregator.memberAdded(item);
+            }
+        }
         registerStateListener(item);
     }
 
     private void registerStateListener(Item item) {
         if (item instanceof GenericItem) {
             GenericItem genericItem = (GenericItem) item;
-            genericItem.addStateChangeListener(this);
+            // the group only recalculates its state, so it is updated directly by the thread updating the member
+            genericItem.addStateChangeListener(this, true);
         }
     }
 
@@ -181,6 +231,12 @@ public class GroupItem extends GenericItem implements StateChangeListener {
         if (index > -1) {
             Item old = members.set(index, newItem);
             unregisterStateListener(old);
+            if (aggregator != null) {
+                synchronized (aggregator) {
+                    aggregator.memberRemoved(old);
+                    aggregator.memberAdded(newItem);
+                }
+            }
         }
         registerStateListener(newItem);
     }
@@ -195,7 +251,11 @@ public class GroupItem extends GenericItem implements StateChangeListener {
         if (item == null) {
             throw new IllegalArgumentException("Item must not be null!");
         }
-        members.remove(item);
+        if (members.remove(item) && aggregator != null) {
+            synchronized (aggregator) {
+                aggregator.memberRemoved(item);
+            }
+        }
         unregisterStateListener(item);
     }
 
@@ -337,17 +397,93 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 
     @Override
     public void stateUpdated(Item item, State state) {
+        if (function != null && baseItem != null && stateCalculationDelay > 0) {
+            if (isAggregated()) {
+                synchronized (aggregator) {
+                    aggregator.memberUpdated(item);
+                }
+            }
+            scheduleStateCalculation(item.getName());
+            return;
+        }
         State oldState = this.state;
         if (function != null && baseItem != null) {
-            State calculatedState = function.calculate(getMembers());
-            calculatedState = ItemUtil.convertToAcceptedState(calculatedState, baseItem);
-            setState(calculatedState);
+            State calculatedState;
+            if (isAggregated()) {
+                synchronized (aggregator) {
+                    aggregator.memberUpdated(item);
+                    calculatedState = aggregator.getState();
+                }
+            } else {
+                calculatedState = function.calculate(getMembers());
+            }
+            applyCalculatedState(calculatedState);
         }
         if (!oldState.equals(this.state)) {
             sendGroupStateChangedEvent(item.getName(), this.state, oldState);
         }
     }
 
+    /**
+     * Custom functions, or a function replaced by a sub class, are calculated over all members.
+     */
+    private boolean isAggregated() {
+        return aggregator != null && function == aggregatorFunction;
+    }
+
+    private void applyCalculatedState(State calculatedState) {
+        setState(ItemUtil.convertToAcceptedState(calculatedState, baseItem));
+    }
+
+    private void scheduleStateCalculation(String memberName) {
+        long now = System.currentTimeMillis();
+        synchronized (pendingCalculationLock) {
+            lastUpdatedMember = memberName;
+            lastPendingUpdate = now;
+            if (calculationScheduled) {
+                return;
+            }
+            calculationScheduled = true;
+            firstPendingUpdate = now;
+        }
+        ThreadPoolManager.getScheduledPool(GROUP_THREADPOOLNAME).schedule(this::calculatePendingState,
+                stateCalculationDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private void calculatePendingState() {
+        String memberName;
+        synchronized (pendingCalculationLock) {
+            long dueTime = Math.min(lastPendingUpdate + stateCalculationDelay,
+                    firstPendingUpdate + maxStateCalculationDelay);
+            long remaining = dueTime - System.currentTimeMillis();
+            if (remaining > 0) {
+                // members have been updated in the meantime
+                ThreadPoolManager.getScheduledPool(GROUP_THREADPOOLNAME).schedule(this::calculatePendingState,
+                        remaining, TimeUnit.MILLISECONDS);
+                return;
+            }
+            calculationScheduled = false;
+            memberName = lastUpdatedMember;
+        }
+        try {
+            State oldState = this.state;
+            State calculatedState;
+            if (isAggregated()) {
+                synchronized (aggregator) {
+                    calculatedState = aggregator.getState();
+                }
+            } else {
+                calculatedState = function.calculate(getMembers());
+            }
+            applyCalculatedState(calculatedState);
+            if (!oldState.equals(this.state)) {
+                sendGroupStateChangedEvent(memberName, this.state, oldState);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed calculating the state of group '{}': {}", getName(), e.getMessage(), e);
+        }
+    }
+
     @Override
     public void setState(State state) {
         State oldState = this.state;
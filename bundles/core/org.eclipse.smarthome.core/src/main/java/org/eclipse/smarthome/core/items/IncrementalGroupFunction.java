@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.items;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * A {@link GroupFunction} which is able to maintain the group state incrementally. Instead of calculating the state
+ * out of the states of all members whenever a member is updated, a {@link GroupItem} keeps an {@link Aggregator}
+ * which only applies the change of the updated member.
+ *
+ * Group functions which do not implement this interface are calculated over all members on every update.
+ *
+ * @author agent - Initial contribution
+ */
+public interface IncrementalGroupFunction extends GroupFunction {
+
+    /**
+     * Creates a new aggregator for this function without any members.
+     *
+     * @return a new aggregator
+     */
+    Aggregator createAggregator();
+
+    /**
+     * Keeps the intermediate result of a group function for the members of one group. The state returned by
+     * {@link #getState()} must be equal to the state calculated by {@link GroupFunction#calculate(java.util.Set)} for
+     * the current members.
+     *
+     * Aggregators are not thread-safe, the group item synchronizes the access.
+     */
+    interface Aggregator {
+
+        /**
+         * Adds a member with its current state.
+         *
+         * @param member the new member
+         */
+        void memberAdded(Item member);
+
+        /**
+         * Applies the current state of a member. Items which are not members are ignored.
+         *
+         * @param member the updated member
+         */
+        void memberUpdated(Item member);
+
+        /**
+         * Removes a member.
+         *
+         * @param member the removed member
+         */
+        void memberRemoved(Item member);
+
+        /**
+         * Returns the group state for the current members.
+         *
+         * @return the group state
+         */
+        State getState();
+    }
+
+    /**
+     * Base class for aggregators which combine one contribution per member, e.g. the numeric value of its state.
+     *
+     * @param <T> the type of the contributions
+     */
+    abstract class ContributionAggregator<T> implements Aggregator {
+
+        private final Map<String, T> contributions = new HashMap<>();
+
+        @Override
+        public void memberAdded(Item member) {
+            if (contributions.containsKey(member.getName())) {
+                memberUpdated(member);
+                return;
+            }
+            T contribution = getContribution(member);
+            contributions.put(member.getName(), contribution);
+            if (contribution != null) {
+                add(contribution);
+            }
+        }
+
+        @Override
+        public void memberUpdated(Item member) {
+            if (!contributions.containsKey(member.getName())) {
+                return;
+            }
+            T contribution = getContribution(member);
+            T oldContribution = contributions.put(member.getName(), contribution);
+            if (oldContribution != null) {
+                remove(oldContribution);
+            }
+            if (contribution != null) {
+                add(contribution);
+            }
+        }
+
+        @Override
+        public void memberRemoved(Item member) {
+            if (!contributions.containsKey(member.getName())) {
+                return;
+            }
+            T oldContribution = contributions.remove(member.getName());
+            if (oldContribution != null) {
+                remove(oldContribution);
+            }
+        }
+
+        /**
+         * Returns the number of members, including those which do not contribute.
+         *
+         * @return the number of members
+         */
+        protected int getMemberCount() {
+            return contributions.size();
+        }
+
+        /**
+         * Determines the contribution of a member from its current state.
+         *
+         * @param member the member
+         * @return the contribution or null, if the member does not contribute to the group state
+         */
+        protected abstract T getContribution(Item member);
+
+        /**
+         * Adds a contribution to the intermediate result.
+         *
+         * @param contribution the contribution (not null)
+         */
+        protected abstract void add(T contribution);
+
+        /**
+         * Removes a contribution, which has been added before, from the intermediate result.
+         *
+         * @param contribution the contribution (not null)
+         */
+        protected abstract void remove(T contribution);
+    }
+
+}
@@ -7,10 +7,11 @@
  */
 package org.eclipse.smarthome.core.items.events;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.smarthome.core.events.AbstractEventFactory;
@@ -23,6 +24,7 @@ import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.Type;
+import org.eclipse.smarthome.core.types.TypeParser;
 import org.eclipse.smarthome.core.types.UnDefType;
 import org.osgi.service.component.annotations.Component;
 
@@ -42,6 +44,9 @@ public class ItemEventFactory extends AbstractEventFactory {
 
     private static final String CORE_LIBRARY_PACKAGE = "org.eclipse.smarthome.core.library.types.";
 
+    /** the parsers by the type names used in the event payloads, e.g. 'Decimal' */
+    private final Map<String, Function<String, ? extends Type>> typeParsers = new ConcurrentHashMap<>();
+
     private static final String ITEM_COMAND_EVENT_TOPIC = "smarthome/items/{itemName}/command";
 
     private static final String ITEM_STATE_EVENT_TOPIC = "smarthome/items/{itemName}/state";
@@ -62,6 +67,9 @@ public class ItemEventFactory extends AbstractEventFactory {
     public ItemEventFactory() {
         super(Sets.newHashSet(ItemCommandEvent.TYPE, ItemStateEvent.TYPE, ItemStateChangedEvent.TYPE,
                 ItemAddedEvent.TYPE, ItemUpdatedEvent.TYPE, ItemRemovedEvent.TYPE, GroupItemStateChangedEvent.TYPE));
+        // the types which are not part of the core type library
+        typeParsers.put(getStateType(UnDefType.NULL), UnDefType::valueOf);
+        typeParsers.put(getCommandType(RefreshType.REFRESH), RefreshType::valueOf);
     }
 
     @Override
@@ -138,8 +146,9 @@ public class ItemEventFactory extends AbstractEventFactory {
 
     private <T> T parseType(String typeName, String valueToParse, Class<T> desiredClass) {
         Object parsedObject = null;
+        Function<String, ? extends Type> typeParser = getTypeParser(typeName);
         String simpleClassName = typeName + TYPE_POSTFIX;
-        parsedObject = parseSimpleClassName(simpleClassName, valueToParse);
+        parsedObject = parseSimpleClassName(typeParser, simpleClassName, valueToParse);
 
         if (parsedObject == null || !desiredClass.isAssignableFrom(parsedObject.getClass())) {
             String parsedObjectClassName = parsedObject != null ? parsedObject.getClass().getName() : "<undefined>";
@@ -151,26 +160,32 @@ public class ItemEventFactory extends AbstractEventFactory {
         return desiredClass.cast(parsedObject);
     }
 
-    private Object parseSimpleClassName(String simpleClassName, String valueToParse) {
-        if (simpleClassName.equals(UnDefType.class.getSimpleName())) {
-            return UnDefType.valueOf(valueToParse);
-        }
-        if (simpleClassName.equals(RefreshType.class.getSimpleName())) {
-            return RefreshType.valueOf(valueToParse);
+    /**
+     * Returns the parser for a type name of an event payload. The parsers are resolved only once per type name.
+     *
+     * @param typeName the type name without the 'Type' postfix
+     * @return the parser or null, if the type is unknown
+     */
+    private Function<String, ? extends Type> getTypeParser(String typeName) {
+        Function<String, ? extends Type> typeParser = typeParsers.get(typeName);
+        if (typeParser == null) {
+            typeParser = TypeParser.getParser(typeName + TYPE_POSTFIX);
+            if (typeParser != null) {
+                typeParsers.put(typeName, typeParser);
+            }
         }
+        return typeParser;
+    }
 
-        try {
-            Class<?> stateClass = Class.forName(CORE_LIBRARY_PACKAGE + simpleClassName);
-            Method valueOfMethod = stateClass.getMethod("valueOf", String.class);
-            return valueOfMethod.invoke(null, valueToParse);
-        } catch (ClassNotFoundException e) {
+    private Object parseSimpleClassName(Function<String, ? extends Type> typeParser, String simpleClassName,
+            String valueToParse) {
+        if (typeParser == null) {
             throw new IllegalArgumentException("Error getting class for simple name: '" + simpleClassName
-                    + "' using package name '" + CORE_LIBRARY_PACKAGE + "'.", e);
-        } catch (NoSuchMethodException | SecurityException e) {
-            throw new IllegalStateException(
-                    "Error getting method #valueOf(String) of class '" + CORE_LIBRARY_PACKAGE + simpleClassName + "'.",
-                    e);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+                    + "' using package name '" + CORE_LIBRARY_PACKAGE + "'.");
+        }
+        try {
+            return typeParser.apply(valueToParse);
+        } catch (RuntimeException e) {
             throw new IllegalStateException("Error invoking #valueOf(String) on class '" + CORE_LIBRARY_PACKAGE
                     + simpleClassName + "' with value '" + valueToParse + "'.", e);
         }
@@ -208,9 +223,9 @@ public class ItemEventFactory extends AbstractEventFactory {
     public static ItemCommandEvent createCommandEvent(String itemName, Command command, String source) {
         assertValidArguments(itemName, command, "command");
         String topic = buildTopic(ITEM_COMAND_EVENT_TOPIC, itemName);
-        ItemEventPayloadBean bean = new ItemEventPayloadBean(getCommandType(command), command.toString());
-        String payload = serializePayload(bean);
-        return new ItemCommandEvent(topic, payload, itemName, command, source);
+        return new ItemCommandEvent(topic,
+                () -> serializePayload(new ItemEventPayloadBean(getCommandType(command), command.toString())),
+                itemName, command, source);
     }
 
     /**
@@ -241,9 +256,9 @@ public class ItemEventFactory extends AbstractEventFactory {
     public static ItemStateEvent createStateEvent(String itemName, State state, String source) {
         assertValidArguments(itemName, state, "state");
         String topic = buildTopic(ITEM_STATE_EVENT_TOPIC, itemName);
-        ItemEventPayloadBean bean = new ItemEventPayloadBean(getStateType(state), state.toFullString());
-        String payload = serializePayload(bean);
-        return new ItemStateEvent(topic, payload, itemName, state, source);
+        return new ItemStateEvent(topic,
+                () -> serializePayload(new ItemEventPayloadBean(getStateType(state), state.toFullString())), itemName,
+                state, source);
     }
 
     /**
@@ -274,20 +289,21 @@ public class ItemEventFactory extends AbstractEventFactory {
     public static ItemStateChangedEvent createStateChangedEvent(String itemName, State newState, State oldState) {
         assertValidArguments(itemName, newState, "state");
         String topic = buildTopic(ITEM_STATE_CHANGED_EVENT_TOPIC, itemName);
-        ItemStateChangedEventPayloadBean bean = new ItemStateChangedEventPayloadBean(getStateType(newState),
-                newState.toFullString(), getStateType(oldState), oldState.toFullString());
-        String payload = serializePayload(bean);
-        return new ItemStateChangedEvent(topic, payload, itemName, newState, oldState);
+        return new ItemStateChangedEvent(topic, () -> serializeStateChangedPayload(newState, oldState), itemName,
+                newState, oldState);
     }
 
     public static GroupItemStateChangedEvent createGroupStateChangedEvent(String itemName, String memberName,
             State newState, State oldState) {
         assertValidArguments(itemName, memberName, newState, "state");
         String topic = buildGroupTopic(GROUPITEM_STATE_CHANGED_EVENT_TOPIC, itemName, memberName);
-        ItemStateChangedEventPayloadBean bean = new ItemStateChangedEventPayloadBean(getStateType(newState),
-                newState.toFullString(), getStateType(oldState), oldState.toFullString());
-        String payload = serializePayload(bean);
-        return new GroupItemStateChangedEvent(topic, payload, itemName, memberName, newState, oldState);
+        return new GroupItemStateChangedEvent(topic, () -> serializeStateChangedPayload(newState, oldState), itemName,
+                memberName, newState, oldState);
+    }
+
+    private static String serializeStateChangedPayload(State newState, State oldState) {
+        return serializePayload(new ItemStateChangedEventPayloadBean(getStateType(newState), newState.toFullString(),
+                getStateType(oldState), oldState.toFullString()));
     }
 
     /**
@@ -14,17 +14,19 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.smarthome.core.items.GroupFunction;
+import org.eclipse.smarthome.core.items.IncrementalGroupFunction;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
 
 /**
  * This interface is only a container for functions that require the core type library
- * for its calculations.
+ * for its calculations. All functions are able to maintain the group state incrementally.
  *
  * @author Kai Kreuzer - Initial contribution and API
  * @author Thomas Eichstädt-Engelen - Added "N" functions
  * @author Gaël L'hopital - Added count function
+ * @author agent - Incremental calculation of the group states
  *
  */
 public interface ArithmeticGroupFunction extends GroupFunction {
@@ -36,7 +38,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
      * Through the getStateAs() method, it can be determined, how many
      * items actually are not in the 'activeState'.
      */
-    static class And implements GroupFunction {
+    static class And implements IncrementalGroupFunction {
 
         protected final State activeState;
         protected final State passiveState;
@@ -64,6 +66,48 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             }
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new ContributionAggregator<Boolean>() {
+
+                private int activeCount;
+
+                @Override
+                protected Boolean getContribution(Item member) {
+                    return activeState.equals(member.getStateAs(activeState.getClass()));
+                }
+
+                @Override
+                protected void add(Boolean active) {
+                    if (active) {
+                        activeCount++;
+                    }
+                }
+
+                @Override
+                protected void remove(Boolean active) {
+                    if (active) {
+                        activeCount--;
+                    }
+                }
+
+                @Override
+                public State getState() {
+                    return getResult(getMemberCount() > 0 && activeCount == getMemberCount());
+                }
+            };
+        }
+
+        /**
+         * Returns the group state for the result of the 'and' operation.
+         *
+         * @param allActive true if all items are of 'activeState'
+         * @return the group state
+         */
+        protected State getResult(boolean allActive) {
+            return allActive ? activeState : passiveState;
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -108,7 +152,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
      * Through the getStateAs() method, it can be determined, how many
      * items actually are in the 'activeState'.
      */
-    static class Or implements GroupFunction {
+    static class Or implements IncrementalGroupFunction {
 
         protected final State activeState;
         protected final State passiveState;
@@ -133,6 +177,48 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return passiveState;
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new ContributionAggregator<Boolean>() {
+
+                private int activeCount;
+
+                @Override
+                protected Boolean getContribution(Item member) {
+                    return activeState.equals(member.getStateAs(activeState.getClass()));
+                }
+
+                @Override
+                protected void add(Boolean active) {
+                    if (active) {
+                        activeCount++;
+                    }
+                }
+
+                @Override
+                protected void remove(Boolean active) {
+                    if (active) {
+                        activeCount--;
+                    }
+                }
+
+                @Override
+                public State getState() {
+                    return getResult(activeCount > 0);
+                }
+            };
+        }
+
+        /**
+         * Returns the group state for the result of the 'or' operation.
+         *
+         * @param anyActive true if at least one item is of 'activeState'
+         * @return the group state
+         */
+        protected State getResult(boolean anyActive) {
+            return anyActive ? activeState : passiveState;
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -184,6 +270,11 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return notResult;
         }
 
+        @Override
+        protected State getResult(boolean allActive) {
+            return allActive ? passiveState : activeState;
+        }
+
     }
 
     /**
@@ -205,12 +296,17 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return notResult;
         }
 
+        @Override
+        protected State getResult(boolean anyActive) {
+            return anyActive ? passiveState : activeState;
+        }
+
     }
 
     /**
      * This calculates the numeric average over all item states of decimal type.
      */
-    static class Avg implements GroupFunction {
+    static class Avg implements IncrementalGroupFunction {
 
         public Avg() {
         }
@@ -235,6 +331,21 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             }
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new DecimalSumAggregator() {
+
+                @Override
+                public State getState() {
+                    if (getCount() > 0) {
+                        return new DecimalType(getSum().divide(BigDecimal.valueOf(getCount()), RoundingMode.HALF_UP));
+                    } else {
+                        return UnDefType.UNDEF;
+                    }
+                }
+            };
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -254,7 +365,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
     /**
      * This calculates the numeric sum over all item states of decimal type.
      */
-    static class Sum implements GroupFunction {
+    static class Sum implements IncrementalGroupFunction {
 
         public Sum() {
         }
@@ -273,6 +384,17 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return new DecimalType(sum);
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new DecimalSumAggregator() {
+
+                @Override
+                public State getState() {
+                    return new DecimalType(getSum());
+                }
+            };
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -292,7 +414,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
     /**
      * This calculates the minimum value of all item states of decimal type.
      */
-    static class Min implements GroupFunction {
+    static class Min implements IncrementalGroupFunction {
 
         public Min() {
         }
@@ -304,7 +426,8 @@ public interface ArithmeticGroupFunction extends GroupFunction {
                 for (Item item : items) {
                     DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
                     if (itemState != null) {
-                        if (min == null || min.compareTo(itemState.toBigDecimal()) > 0) {
+                        if (min == null
+                                || DecimalExtremumAggregator.MINIMUM_ORDER.compare(itemState.toBigDecimal(), min) < 0) {
                             min = itemState.toBigDecimal();
                         }
                     }
@@ -316,6 +439,11 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return UnDefType.UNDEF;
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new DecimalExtremumAggregator(false);
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -335,7 +463,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
     /**
      * This calculates the maximum value of all item states of decimal type.
      */
-    static class Max implements GroupFunction {
+    static class Max implements IncrementalGroupFunction {
 
         public Max() {
         }
@@ -347,7 +475,8 @@ public interface ArithmeticGroupFunction extends GroupFunction {
                 for (Item item : items) {
                     DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
                     if (itemState != null) {
-                        if (max == null || max.compareTo(itemState.toBigDecimal()) < 0) {
+                        if (max == null
+                                || DecimalExtremumAggregator.MAXIMUM_ORDER.compare(itemState.toBigDecimal(), max) > 0) {
                             max = itemState.toBigDecimal();
                         }
                     }
@@ -359,6 +488,11 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return UnDefType.UNDEF;
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new DecimalExtremumAggregator(true);
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -382,7 +516,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
      * Group:Number:COUNT("[5-9]") will count all items having a string state between 5 and 9
      * ...
      */
-    static class Count implements GroupFunction {
+    static class Count implements IncrementalGroupFunction {
 
         protected final Pattern pattern;
 
@@ -408,6 +542,38 @@ public interface ArithmeticGroupFunction extends GroupFunction {
             return new DecimalType(count);
         }
 
+        @Override
+        public Aggregator createAggregator() {
+            return new ContributionAggregator<Boolean>() {
+
+                private int count;
+
+                @Override
+                protected Boolean getContribution(Item member) {
+                    return pattern.matcher(member.getState().toString()).matches();
+                }
+
+                @Override
+                protected void add(Boolean matches) {
+                    if (matches) {
+                        count++;
+                    }
+                }
+
+                @Override
+                protected void remove(Boolean matches) {
+                    if (matches) {
+                        count--;
+                    }
+                }
+
+                @Override
+                public State getState() {
+                    return new DecimalType(count);
+                }
+            };
+        }
+
         @Override
         public State getStateAs(Set<Item> items, Class<? extends State> stateClass) {
             State state = calculate(items);
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.library.types;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.TreeMap;
+
+import org.eclipse.smarthome.core.items.IncrementalGroupFunction.ContributionAggregator;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+
+/**
+ * Keeps the member states of decimal type ordered by their value for the {@link ArithmeticGroupFunction.Min} and
+ * {@link ArithmeticGroupFunction.Max} functions.
+ *
+ * @author agent - Initial contribution
+ */
+class DecimalExtremumAggregator extends ContributionAggregator<BigDecimal> {
+
+    /**
+     * Orders the values for the minimum, the first value is the result. Of equal values with a different scale, like
+     * 1 and 1.0, the one with the largest scale comes first, so that the result does not depend on the order of the
+     * members.
+     */
+    static final Comparator<BigDecimal> MINIMUM_ORDER = Comparator.<BigDecimal> naturalOrder()
+            .thenComparing(BigDecimal::scale, Comparator.reverseOrder());
+
+    /**
+     * Orders the values for the maximum, the last value is the result. Of equal values with a different scale, the
+     * one with the largest scale comes last.
+     */
+    static final Comparator<BigDecimal> MAXIMUM_ORDER = Comparator.<BigDecimal> naturalOrder()
+            .thenComparingInt(BigDecimal::scale);
+
+    private final boolean maximum;
+
+    /** the number of contributions per value */
+    private final TreeMap<BigDecimal, Integer> values;
+
+    /**
+     * Constructor.
+     *
+     * @param maximum true if the maximum value should be returned, false for the minimum value
+     */
+    DecimalExtremumAggregator(boolean maximum) {
+        this.maximum = maximum;
+        this.values = new TreeMap<>(maximum ? MAXIMUM_ORDER : MINIMUM_ORDER);
+    }
+
+    @Override
+    protected BigDecimal getContribution(Item member) {
+        DecimalType itemState = (DecimalType) member.getStateAs(DecimalType.class);
+        return itemState != null ? itemState.toBigDecimal() : null;
+    }
+
+    @Override
+    protected void add(BigDecimal contribution) {
+        values.merge(contribution, 1, Integer::sum);
+    }
+
+    @Override
+    protected void remove(BigDecimal contribution) {
+        values.computeIfPresent(contribution, (value, number) -> number > 1 ? number - 1 : null);
+    }
+
+    @Override
+    public State getState() {
+        if (values.isEmpty()) {
+            return UnDefType.UNDEF;
+        }
+        return new DecimalType(maximum ? values.lastKey() : values.firstKey());
+    }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.library.types;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.TreeMap;
+
+import org.eclipse.smarthome.core.items.IncrementalGroupFunction.ContributionAggregator;
+import org.eclipse.smarthome.core.items.Item;
+
+/**
+ * Keeps the sum and the number of the member states of decimal type for the {@link ArithmeticGroupFunction.Sum} and
+ * {@link ArithmeticGroupFunction.Avg} functions.
+ *
+ * @author agent - Initial contribution
+ */
+abstract class DecimalSumAggregator extends ContributionAggregator<BigDecimal> {
+
+    private BigDecimal sum = BigDecimal.ZERO;
+
+    private int count;
+
+    /**
+     * the number of contributions per scale, as the scale of the sum must not depend on the order of the updates
+     */
+    private final TreeMap<Integer, Integer> scales = new TreeMap<>();
+
+    @Override
+    protected BigDecimal getContribution(Item member) {
+        DecimalType itemState = (DecimalType) member.getStateAs(DecimalType.class);
+        return itemState != null ? itemState.toBigDecimal() : null;
+    }
+
+    @Override
+    protected void add(BigDecimal contribution) {
+        sum = sum.add(contribution);
+        count++;
+        scales.merge(contribution.scale(), 1, Integer::sum);
+    }
+
+    @Override
+    protected void remove(BigDecimal contribution) {
+        sum = sum.subtract(contribution);
+        count--;
+        scales.computeIfPresent(contribution.scale(), (scale, number) -> number > 1 ? number - 1 : null);
+    }
+
+    /**
+     * Returns the sum with the same scale a calculation over all contributions would have.
+     *
+     * @return the sum of all contributions
+     */
+    protected BigDecimal getSum() {
+        int scale = scales.isEmpty() ? 0 : Math.max(0, scales.lastKey());
+        // the sum does not have any non-zero digits beyond the scale of the current contributions
+        return sum.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    protected int getCount() {
+        return count;
+    }
+
+}
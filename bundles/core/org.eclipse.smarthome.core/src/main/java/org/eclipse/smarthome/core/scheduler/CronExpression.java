@@ -8,8 +8,11 @@
 package org.eclipse.smarthome.core.scheduler;
 
 import java.text.ParseException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -30,6 +33,9 @@ import org.slf4j.LoggerFactory;
  * expressions provide the ability to specify complex time combinations such as
  * &quot;At 8:00am every Monday through Friday&quot; or &quot;At 1:30am every
  * last Friday of the month&quot;.
+ * <p>
+ * The next fire time is not searched by expanding candidate dates. Instead the values of the expression parts are kept
+ * as bitmaps, and the fields of the next fire time are determined from them one after another, starting with the year.
  *
  * @author Karel Goderis - Initial contribution
  *
@@ -38,6 +44,8 @@ public final class CronExpression extends AbstractExpression<CronExpressionPart>
 
     private final Logger logger = LoggerFactory.getLogger(CronExpression.class);
 
+    private volatile Schedule schedule;
+
     public enum Month {
         JANUARY("JAN", Calendar.JANUARY, 31),
         FEBRUARY("FEB", Calendar.FEBRUARY, 28) {
@@ -190,6 +198,24 @@ public final class CronExpression extends AbstractExpression<CronExpressionPart>
         super.setStartDate(calendar.getTime());
     }
 
+    @Override
+    protected void applyExpressionParts(boolean searchMode) {
+        Schedule schedule = new Schedule();
+        this.schedule = schedule;
+        if (searchMode) {
+            Date startTime = schedule.getTimeAfter(getStartDate().getTime() - 1000);
+            setCandidates(startTime != null ? new ArrayList<>(Collections.singletonList(startTime)) : new ArrayList<>());
+        } else {
+            // the final fire time is still determined from the candidates
+            super.applyExpressionParts(searchMode);
+        }
+    }
+
+    @Override
+    public Date getTimeAfter(Date afterTime) {
+        return schedule.getTimeAfter(afterTime.getTime());
+    }
+
     @Override
     public boolean isSatisfiedBy(Date date) {
         Calendar testDateCal = Calendar.getInstance(getTimeZone());
@@ -834,8 +860,8 @@ public final class CronExpression extends AbstractExpression<CronExpressionPart>
                     break;
                 }
                 case "*": {
-                    getValueSet().add(MIN_MONTHDAY,
-                            Calendar.getInstance(getTimeZone()).getActualMaximum(Calendar.DAY_OF_MONTH), 1);
+                    // days which do not exist in a month are skipped when the expression is evaluated
+                    getValueSet().add(MIN_MONTHDAY, MAX_MONTHDAY, 1);
                     break;
                 }
                 case "?": {
@@ -1233,4 +1259,207 @@ public final class CronExpression extends AbstractExpression<CronExpressionPart>
     public boolean hasFloatingStartDate() {
         return true;
     }
+
+    /**
+     * The values of the expression parts as bitmaps, which are used to calculate the next fire time.
+     */
+    private final class Schedule {
+
+        private final long seconds;
+        private final long minutes;
+        private final long hours;
+        private final long months;
+        private final BitSet years = new BitSet();
+        private final DayOfMonthExpressionPart dayOfMonth;
+        private final long daysOfMonth;
+        private final DayOfWeekExpressionPart dayOfWeek;
+        private final long daysOfWeek;
+        private final TimeZone timeZone;
+
+        private Schedule() {
+            seconds = toBitmap(getExpressionPart(SecondsExpressionPart.class));
+            minutes = toBitmap(getExpressionPart(MinutesExpressionPart.class));
+            hours = toBitmap(getExpressionPart(HoursExpressionPart.class));
+            months = toBitmap(getExpressionPart(MonthsExpressionPart.class));
+            for (Integer year : getExpressionPart(YearsExpressionPart.class).getValueSet()) {
+                years.set(year);
+            }
+            dayOfMonth = getExpressionPart(DayOfMonthExpressionPart.class);
+            daysOfMonth = toBitmap(dayOfMonth);
+            dayOfWeek = getExpressionPart(DayOfWeekExpressionPart.class);
+            daysOfWeek = toBitmap(dayOfWeek);
+            timeZone = getTimeZone();
+        }
+
+        private long toBitmap(CronExpressionPart part) {
+            long bitmap = 0;
+            for (Integer value : part.getValueSet()) {
+                bitmap |= 1L << value;
+            }
+            return bitmap;
+        }
+
+        /**
+         * Returns the first time with a full second after the given time, which matches all fields.
+         *
+         * @param afterTime the time in milliseconds
+         * @return the next fire time or null, if there is none until the maximum year
+         */
+        private Date getTimeAfter(long afterTime) {
+            Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTimeInMillis(afterTime - Math.floorMod(afterTime, 1000) + 1000);
+            int year = calendar.get(Calendar.YEAR);
+            int month = calendar.get(Calendar.MONTH) + 1;
+            int day = calendar.get(Calendar.DAY_OF_MONTH);
+            int hour = calendar.get(Calendar.HOUR_OF_DAY);
+            int minute = calendar.get(Calendar.MINUTE);
+            int second = calendar.get(Calendar.SECOND);
+
+            int daysYear = 0;
+            int daysMonth = 0;
+            long days = 0;
+            while (true) {
+                if (!years.get(year)) {
+                    year = years.nextSetBit(year);
+                    if (year < 0) {
+                        return null;
+                    }
+                    month = 1;
+                    day = 1;
+                    hour = minute = second = 0;
+                }
+                if (!isSet(months, month)) {
+                    month = nextSetBit(months, month, 12);
+                    day = 1;
+                    hour = minute = second = 0;
+                    if (month < 0) {
+                        year++;
+                        month = 1;
+                        continue;
+                    }
+                }
+                if (year != daysYear || month != daysMonth) {
+                    daysYear = year;
+                    daysMonth = month;
+                    days = getDays(year, month);
+                }
+                if (!isSet(days, day)) {
+                    day = nextSetBit(days, day, 31);
+                    hour = minute = second = 0;
+                    if (day < 0) {
+                        month++;
+                        day = 1;
+                        continue;
+                    }
+                }
+                if (!isSet(hours, hour)) {
+                    hour = nextSetBit(hours, hour, 23);
+                    minute = second = 0;
+                    if (hour < 0) {
+                        day++;
+                        hour = 0;
+                        continue;
+                    }
+                }
+                if (!isSet(minutes, minute)) {
+                    minute = nextSetBit(minutes, minute, 59);
+                    second = 0;
+                    if (minute < 0) {
+                        hour++;
+                        minute = 0;
+                        continue;
+                    }
+                }
+                if (!isSet(seconds, second)) {
+                    second = nextSetBit(seconds, second, 59);
+                    if (second < 0) {
+                        minute++;
+                        second = 0;
+                        continue;
+                    }
+                }
+
+                calendar.clear();
+                calendar.set(year, month - 1, day, hour, minute, second);
+                long time = calendar.getTimeInMillis();
+                if (time > afterTime) {
+                    return new Date(time);
+                }
+                // the local time occurs twice when the daylight saving time ends
+                second++;
+            }
+        }
+
+        /**
+         * Returns the bitmap of the days of the given month, which match the day of month and the day of week part.
+         */
+        private long getDays(int year, int month) {
+            LocalDate first = LocalDate.of(year, month, 1);
+            int lastDay = first.lengthOfMonth();
+            long allDays = (1L << (lastDay + 1)) - 2;
+            // the Calendar constant of the day of week of the first day of the month
+            int firstWeekDay = first.getDayOfWeek().getValue() % 7 + 1;
+
+            long days = 0;
+            if (dayOfMonth.isNotSpecific()) {
+                days = allDays;
+            } else {
+                days = daysOfMonth & allDays;
+                if (dayOfMonth.isLastDayOfMonth() && lastDay - dayOfMonth.monthOffset >= 1) {
+                    days |= 1L << (lastDay - dayOfMonth.monthOffset);
+                }
+                if (dayOfMonth.isLastWeekDayOfMonth()) {
+                    days |= 1L << getNearestWeekDay(lastDay, lastDay, firstWeekDay);
+                }
+                if (dayOfMonth.isNearestWeekDay() && dayOfMonth.weekDay >= 1 && dayOfMonth.weekDay <= lastDay) {
+                    days |= 1L << getNearestWeekDay(dayOfMonth.weekDay, lastDay, firstWeekDay);
+                }
+            }
+
+            if (!dayOfWeek.isNotSpecific()) {
+                long weekDays = 0;
+                for (int day = 1; day <= lastDay; day++) {
+                    int weekDay = getWeekDay(day, firstWeekDay);
+                    if (isSet(daysOfWeek, weekDay) || (dayOfWeek.isLastDayOfWeek() && weekDay == Calendar.SATURDAY)
+                            || (dayOfWeek.isLastDayOfMonth() && weekDay == dayOfWeek.monthOffset && day + 7 > lastDay)
+                            || (dayOfWeek.isInstanceOfWeekday() && weekDay == dayOfWeek.weekDay
+                                    && (day - 1) / 7 + 1 == dayOfWeek.instanceOfMonth)) {
+                        weekDays |= 1L << day;
+                    }
+                }
+                days &= weekDays;
+            }
+            return days;
+        }
+
+        private int getNearestWeekDay(int day, int lastDay, int firstWeekDay) {
+            switch (getWeekDay(day, firstWeekDay)) {
+                case Calendar.SATURDAY:
+                    return day == 1 ? day + 2 : day - 1;
+                case Calendar.SUNDAY:
+                    return day == lastDay ? day - 2 : day + 1;
+                default:
+                    return day;
+            }
+        }
+
+        private int getWeekDay(int day, int firstWeekDay) {
+            return (firstWeekDay - 1 + day - 1) % 7 + 1;
+        }
+
+        private boolean isSet(long bitmap, int value) {
+            return value < 64 && (bitmap & (1L << value)) != 0;
+        }
+
+        /**
+         * Returns the lowest value which is set in the bitmap and not smaller than the given value, or -1.
+         */
+        private int nextSetBit(long bitmap, int value, int max) {
+            if (value > max) {
+                return -1;
+            }
+            long remaining = bitmap & (-1L << value);
+            return remaining == 0 ? -1 : Long.numberOfTrailingZeros(remaining);
+        }
+    }
 }
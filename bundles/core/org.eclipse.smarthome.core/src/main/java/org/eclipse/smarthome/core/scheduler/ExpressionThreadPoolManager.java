@@ -7,20 +7,17 @@
  */
 package org.eclipse.smarthome.core.scheduler;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -71,18 +68,54 @@ public class ExpressionThreadPoolManager extends ThreadPoolManager {
         }
     }
 
+    /**
+     * A scheduled thread pool which executes tasks at the times given by {@link Expression}s.
+     *
+     * The next execution of every scheduled expression is kept in a {@link TimingWheel}, which is advanced by a
+     * monitor thread. Scheduling and removing an expression therefore takes constant time, and only the expressions
+     * which are due are evaluated again, so that the costs do not depend on the number of scheduled expressions.
+     * Tasks are executed with a resolution of {@link #TICK_MILLIS} milliseconds.
+     */
     public static class ExpressionThreadPoolExecutor extends ScheduledThreadPoolExecutor {
 
+        /** the duration of a tick of the timing wheel */
+        static final long TICK_MILLIS = 10;
+
+        private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
         private final Logger logger = LoggerFactory.getLogger(ExpressionThreadPoolExecutor.class);
 
-        private Map<Expression, RunnableWrapper> scheduled = new ConcurrentHashMap<>();
-        private Map<RunnableWrapper, List<ScheduledFuture<?>>> futures = Collections.synchronizedMap(new HashMap<>());
-        private final Lock futuresLock = new ReentrantLock();
-        private final Map<Future<?>, Date> timestamps = Collections.synchronizedMap(new HashMap<Future<?>, Date>());
+        /**
+         * An expression with its task and its next execution.
+         */
+        private static class ScheduledExpression {
+
+            private final Expression expression;
+
+            private final RunnableWrapper task;
+
+            private Date time;
+
+            private TimingWheel.Timeout<ScheduledExpression> timeout;
+
+            private Future<?> future;
+
+            private ScheduledExpression(Expression expression, RunnableWrapper task) {
+                this.expression = expression;
+                this.task = task;
+            }
+        }
+
+        private final Map<Expression, ScheduledExpression> scheduled = new HashMap<>();
+        private final Map<RunnableWrapper, Set<ScheduledExpression>> tasks = new HashMap<>();
+        private final long originNanos = System.nanoTime();
+        private final TimingWheel<ScheduledExpression> wheel = new TimingWheel<>(0);
+        private final Lock wheelLock = new ReentrantLock();
+        private final Condition wakeUpCondition = wheelLock.newCondition();
+        /** the tick until which the monitor thread sleeps, or -1 if it is busy or has nothing to wait for */
+        private long wakeUpTick = -1;
         private volatile Thread monitor;
         private NamedThreadFactory monitorThreadFactory;
-        private final Lock monitoringLock = new ReentrantLock();
-        private final Condition newExpressionCondition = monitoringLock.newCondition();
 
         public ExpressionThreadPoolExecutor(final String poolName, int corePoolSize) {
             this(poolName, corePoolSize, new NamedThreadFactory(poolName), new ThreadPoolExecutor.DiscardPolicy() {
@@ -105,186 +138,51 @@ public class ExpressionThreadPoolManager extends ThreadPoolManager {
             this.monitorThreadFactory = new NamedThreadFactory(threadFactory.getName() + "-" + "Monitor");
         }
 
-        @Override
-        protected void afterExecute(Runnable runnable, Throwable throwable) {
-            logger.trace("Cleaning up after the execution of '{}'", runnable);
-            super.afterExecute(runnable, throwable);
-
-            if (runnable instanceof Future) {
-                Future<?> future = (Future<?>) runnable;
-                try {
-                    futuresLock.lock();
-                    for (Runnable aRunnable : futures.keySet()) {
-                        futures.get(aRunnable).removeIf(entry -> entry == future);
-                    }
-                } finally {
-                    futuresLock.unlock();
-                }
-                timestamps.remove(future);
-            } else {
-                List<ScheduledFuture<?>> obsoleteFutures = new ArrayList<ScheduledFuture<?>>();
-                try {
-                    futuresLock.lock();
-                    List<ScheduledFuture<?>> taskFutures = futures.get(runnable);
-
-                    if (taskFutures != null) {
-                        logger.trace("Runnable '{}' has {} Futures scheduled", runnable, taskFutures.size());
-
-                        for (ScheduledFuture<?> future : taskFutures) {
-                            if (future.isDone()) {
-                                obsoleteFutures.add(future);
-                            }
-                        }
-
-                        logger.trace("Runnable '{}' has {} Futures that will be removed", runnable,
-                                obsoleteFutures.size());
-                        for (Future<?> future : obsoleteFutures) {
-                            taskFutures.remove(future);
-                            timestamps.remove(future);
-                        }
-                    } else {
-                        logger.debug("Runnable '{}' has no Futures scheduled", runnable);
-                    }
-                } finally {
-                    futuresLock.unlock();
-                }
-            }
-
-            if (throwable != null) {
-                Throwable cause = throwable.getCause();
-                if (cause instanceof InterruptedException) {
-                    // Ignore this, might happen when we shutdownNow() the executor. We can't
-                    // log at this point as the logging system might be stopped already.
-                    return;
-                }
-            }
-        }
-
         Runnable monitorTask = new Runnable() {
 
             @Override
             public void run() {
                 logger.debug("Starting the monitor thread '{}'", Thread.currentThread().getName());
-                while (true) {
+                while (!isShutdown()) {
                     try {
-                        Date earliestExecution = null;
-                        final Date now = new Date();
-
-                        List<Expression> finishedExpressions = new ArrayList<Expression>();
-
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("There are {} scheduled expressions", scheduled.keySet().size());
-                            for (Entry<Expression, RunnableWrapper> entry : scheduled.entrySet()) {
-                                logger.trace("  Runnable {} with {}", entry.getValue(), entry.getValue());
-                            }
-                        }
-                        for (Expression e : scheduled.keySet()) {
-                            Date time = e.getTimeAfter(now);
-
-                            if (time != null) {
-                                logger.trace("Expression's '{}' next execution time is {}", e, time);
-
-                                final RunnableWrapper task = scheduled.get(e);
-
-                                if (task != null) {
-                                    try {
-                                        futuresLock.lock();
-                                        List<ScheduledFuture<?>> taskFutures = futures.get(task);
-
-                                        if (taskFutures == null) {
-                                            taskFutures = new ArrayList<ScheduledFuture<?>>();
-                                            futures.put(task, taskFutures);
-                                        }
-
-                                        boolean schedule = false;
-
-                                        long delay = time.getTime() - now.getTime();
-                                        if (taskFutures.size() == 0) {
-                                            // if no futures are currently scheduled, we definitely have to schedule the
-                                            // task
-                                            schedule = true;
-                                        } else {
-                                            // check the time stamp of the last scheduled task if an additional task
-                                            // needs
-                                            // to be scheduled
-                                            Date timestamp = timestamps.get(taskFutures.get(taskFutures.size() - 1));
-
-                                            if (time.after(timestamp)) {
-                                                schedule = true;
-                                            } else {
-                                                logger.trace("The task '{}' is already scheduled to execute in {} ms",
-                                                        task, delay);
-                                            }
-                                        }
-
-                                        if (schedule) {
-                                            logger.debug("Scheduling the task '{}' to execute in {} ms", task, delay);
-                                            ScheduledFuture<?> newFuture = ExpressionThreadPoolExecutor.this
-                                                    .schedule(task, delay, TimeUnit.MILLISECONDS);
-                                            taskFutures.add(newFuture);
-                                            logger.trace("Task '{}' has now {} Futures", task, taskFutures.size());
-                                            timestamps.put(newFuture, time);
-                                        }
-                                        if (logger.isTraceEnabled()) {
-                                            for (ScheduledFuture<?> future : taskFutures) {
-                                                logger.trace("Task {} ({}) will run in {}", task,
-                                                        System.identityHashCode(task),
-                                                        future.getDelay(TimeUnit.MILLISECONDS));
-                                            }
-                                        }
-                                    } finally {
-                                        futuresLock.unlock();
-                                    }
-                                } else {
-                                    logger.trace("Expressions without tasks are not valid");
-                                }
-
-                                if (earliestExecution == null) {
-                                    earliestExecution = time;
-                                } else {
-                                    if (time.before(earliestExecution)) {
-                                        earliestExecution = time;
-                                    }
+                        wheelLock.lock();
+                        try {
+                            List<ScheduledExpression> due = wheel.advance(getTick());
+                            Date now = new Date();
+                            for (ScheduledExpression entry : due) {
+                                logger.trace("Executing the task '{}' of expression '{}'", entry.task,
+                                        entry.expression);
+                                entry.future = submit(entry.task);
+                                // a task which is executed late is not executed again for the times it missed
+                                Date after = entry.time.after(now) ? entry.time : now;
+                                if (!scheduleNext(entry, after)) {
+                                    logger.debug("Expression '{}' has no future executions anymore",
+                                            entry.expression);
+                                    removeEntry(entry);
                                 }
-
-                            } else {
-                                logger.debug("Expression '{}' has no future executions anymore", e);
-                                finishedExpressions.add(e);
                             }
+                        } finally {
+                            wheelLock.unlock();
                         }
 
-                        for (Expression e : finishedExpressions) {
-                            scheduled.remove(e);
-                            logger.trace("Cleaning up finished expression '{}'", e);
-                        }
-
-                        if (earliestExecution != null) {
-                            boolean newExpression = false;
-                            while (!newExpression && new Date().before(earliestExecution)) {
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("Putting the monitor thread '{}' to sleep for {} ms",
-                                            Thread.currentThread().getName(),
-                                            earliestExecution.getTime() - new Date().getTime());
-                                }
-                                try {
-                                    monitoringLock.lock();
-                                    newExpression = newExpressionCondition.await(
-                                            earliestExecution.getTime() - new Date().getTime(), TimeUnit.MILLISECONDS);
-                                    logger.trace("Monitor thread woke again with {}", newExpression);
-                                } finally {
-                                    monitoringLock.unlock();
+                        wheelLock.lock();
+                        try {
+                            wakeUpTick = wheel.getNextTick();
+                            if (isShutdown()) {
+                                break;
+                            } else if (wakeUpTick < 0) {
+                                logger.trace("Putting the monitor thread '{}' to sleep for {} ms",
+                                        Thread.currentThread().getName(), THREAD_MONITOR_SLEEP);
+                                wakeUpCondition.await(THREAD_MONITOR_SLEEP, TimeUnit.MILLISECONDS);
+                            } else {
+                                long delay = wakeUpTick * TICK_NANOS - (System.nanoTime() - originNanos);
+                                if (delay > 0) {
+                                    wakeUpCondition.awaitNanos(delay);
                                 }
                             }
-
-                        } else {
-                            logger.trace("Putting the monitor thread '{}' to sleep for {} ms",
-                                    Thread.currentThread().getName(), THREAD_MONITOR_SLEEP);
-                            try {
-                                monitoringLock.lock();
-                                newExpressionCondition.await(THREAD_MONITOR_SLEEP, TimeUnit.MILLISECONDS);
-                            } finally {
-                                monitoringLock.unlock();
-                            }
+                        } finally {
+                            wakeUpTick = -1;
+                            wheelLock.unlock();
                         }
                     } catch (RejectedExecutionException ex) {
                         logger.error("The executor has already been shut down : '{}'", ex.getMessage());
@@ -294,9 +192,17 @@ public class ExpressionThreadPoolManager extends ThreadPoolManager {
                         logger.trace("The monitor thread was interrupted : '{}'", ex.getMessage());
                     }
                 }
+                logger.debug("Stopping the monitor thread '{}'", Thread.currentThread().getName());
             }
         };
 
+        /**
+         * Schedules a task to be executed at the times given by an expression. A task can be scheduled with several
+         * expressions, an expression which is already scheduled is replaced.
+         *
+         * @param task the task to execute
+         * @param expression the expression which determines the execution times
+         */
         public void schedule(final Runnable task, final Expression expression) {
             if (task == null || expression == null) {
                 throw new IllegalArgumentException("Task cannot be scheduled as task or expression is null.");
@@ -308,88 +214,189 @@ public class ExpressionThreadPoolManager extends ThreadPoolManager {
                     monitor.start();
                 }
             }
-            if (logger.isDebugEnabled()) {
-                if (scheduled.containsValue(wrapper)) {
+            ScheduledExpression entry = new ScheduledExpression(expression, wrapper);
+            wheelLock.lock();
+            try {
+                ScheduledExpression previous = scheduled.get(expression);
+                if (previous != null) {
+                    removeEntry(previous);
+                }
+                if (logger.isDebugEnabled() && tasks.containsKey(wrapper)) {
                     logger.debug("Task {} is already scheduled (potentially with a different expression).", wrapper);
                 }
-            }
-            scheduled.put(expression, wrapper);
-            logger.debug("Scheduled task '{}' using expression '{}'", wrapper, expression);
-            try {
-                monitoringLock.lock();
-                newExpressionCondition.signalAll();
+                if (!scheduleNext(entry, new Date())) {
+                    logger.debug("Expression '{}' has no future executions", expression);
+                    return;
+                }
+                scheduled.put(expression, entry);
+                tasks.computeIfAbsent(wrapper, k -> new LinkedHashSet<>()).add(entry);
+                if (wakeUpTick < 0 || entry.timeout.getDeadline() < wakeUpTick) {
+                    wakeUpCondition.signal();
+                }
             } finally {
-                monitoringLock.unlock();
+                wheelLock.unlock();
             }
+            logger.debug("Scheduled task '{}' using expression '{}'", wrapper, expression);
         }
 
+        /**
+         * Removes a scheduled expression and cancels the executions of its task which have not been started yet.
+         *
+         * @param expression the expression to remove
+         * @return true, if the expression was scheduled
+         */
         public boolean remove(Expression expression) {
             logger.debug("Removing the expression '{}' from the scheduler", expression);
-            RunnableWrapper task = scheduled.remove(expression);
-
-            if (task != null) {
-                return doRemoveFutures(task);
-            } else {
-                return false;
+            boolean cancelled;
+            wheelLock.lock();
+            try {
+                ScheduledExpression entry = scheduled.get(expression);
+                if (entry == null) {
+                    return false;
+                }
+                removeEntry(entry);
+                cancelled = cancelFuture(entry);
+            } finally {
+                wheelLock.unlock();
+            }
+            if (cancelled) {
+                super.purge();
             }
+            return true;
         }
 
+        /**
+         * Removes all expressions a task has been scheduled with. Tasks which have not been scheduled with an
+         * expression are removed from the queue of the pool.
+         *
+         * @param task the task to remove
+         * @return true, if the task was scheduled
+         */
         @Override
         public boolean remove(Runnable task) {
-            RunnableWrapper wrapper = new RunnableWrapper(task);
-            Expression theExpression = null;
-            for (Expression anExpression : scheduled.keySet()) {
-                if (wrapper.equals(scheduled.get(anExpression))) {
-                    theExpression = anExpression;
-                    break;
+            Set<ScheduledExpression> entries;
+            boolean cancelled = false;
+            wheelLock.lock();
+            try {
+                entries = tasks.get(new RunnableWrapper(task));
+                if (entries != null) {
+                    entries = new LinkedHashSet<>(entries);
+                    for (ScheduledExpression entry : entries) {
+                        removeEntry(entry);
+                        cancelled |= cancelFuture(entry);
+                    }
                 }
+            } finally {
+                wheelLock.unlock();
             }
 
-            if (theExpression != null) {
-                return remove(theExpression);
+            if (entries != null) {
+                if (cancelled) {
+                    super.purge();
+                }
+                return true;
             } else {
                 return super.remove(task);
             }
-
         }
 
+        /**
+         * Cancels the executions of a task which have not been started yet. The expressions of the task stay scheduled.
+         *
+         * @param task the task
+         * @return true, if there were executions to cancel
+         */
         public boolean removeFutures(Runnable task) {
-            RunnableWrapper wrapper = new RunnableWrapper(task);
-            return doRemoveFutures(wrapper);
+            logger.trace("Removing Runnable '{}' from the scheduler", task);
+            boolean cancelled = false;
+            wheelLock.lock();
+            try {
+                Set<ScheduledExpression> entries = tasks.get(new RunnableWrapper(task));
+                if (entries != null) {
+                    for (ScheduledExpression entry : entries) {
+                        cancelled |= cancelFuture(entry);
+                    }
+                }
+            } finally {
+                wheelLock.unlock();
+            }
+            if (cancelled) {
+                super.purge();
+            }
+            return cancelled;
         }
 
-        private boolean doRemoveFutures(RunnableWrapper task) {
-            logger.trace("Removing Runnable '{}' from the scheduler", task);
+        @Override
+        public void shutdown() {
+            super.shutdown();
+            wakeUpMonitor();
+        }
 
-            List<Future<?>> obsoleteFutures = new ArrayList<Future<?>>();
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> runnables = super.shutdownNow();
+            wakeUpMonitor();
+            return runnables;
+        }
+
+        private void wakeUpMonitor() {
+            wheelLock.lock();
             try {
-                futuresLock.lock();
-                List<ScheduledFuture<?>> taskFutures = futures.get(task);
-                if (taskFutures != null) {
-                    if (taskFutures.size() != 0) {
-                        logger.trace("Runnable '{}' has {} Futures to be removed", task, taskFutures.size());
-                        for (Future<?> future : taskFutures) {
-                            future.cancel(false);
-                            timestamps.remove(future);
-                            obsoleteFutures.add(future);
-                        }
-                    }
+                wakeUpCondition.signalAll();
+            } finally {
+                wheelLock.unlock();
+            }
+        }
 
-                    for (Future<?> future : obsoleteFutures) {
-                        taskFutures.remove(future);
-                    }
+        private long getTick() {
+            return (System.nanoTime() - originNanos) / TICK_NANOS;
+        }
 
-                    super.purge();
+        /**
+         * Adds the next execution after the given time of an expression to the wheel. Must be called with the lock.
+         *
+         * @return false, if the expression has no further execution
+         */
+        private boolean scheduleNext(ScheduledExpression entry, Date after) {
+            Date time = entry.expression.getTimeAfter(after);
+            if (time == null) {
+                entry.timeout = null;
+                return false;
+            }
+            long delay = TimeUnit.MILLISECONDS.toNanos(time.getTime() - System.currentTimeMillis());
+            long elapsed = System.nanoTime() - originNanos;
+            // rounded up, so that the task is not executed before its time
+            long deadline = delay > 0 ? (elapsed + delay + TICK_NANOS - 1) / TICK_NANOS : 0;
+            entry.time = time;
+            entry.timeout = wheel.add(entry, deadline);
+            logger.trace("Expression's '{}' next execution time is {}", entry.expression, time);
+            return true;
+        }
 
-                    if (taskFutures.size() == 0) {
-                        futures.remove(task);
-                        return true;
-                    }
+        /**
+         * Removes an expression from the wheel and the maps. Must be called with the lock.
+         */
+        private void removeEntry(ScheduledExpression entry) {
+            if (entry.timeout != null) {
+                wheel.cancel(entry.timeout);
+            }
+            scheduled.remove(entry.expression, entry);
+            Set<ScheduledExpression> entries = tasks.get(entry.task);
+            if (entries != null) {
+                entries.remove(entry);
+                if (entries.isEmpty()) {
+                    tasks.remove(entry.task);
                 }
-                return false;
-            } finally {
-                futuresLock.unlock();
             }
         }
+
+        /**
+         * Cancels the last execution of an expression, if it has not been started yet. Must be called with the lock.
+         */
+        private boolean cancelFuture(ScheduledExpression entry) {
+            Future<?> future = entry.future;
+            entry.future = null;
+            return future != null && future.cancel(false);
+        }
     }
 }
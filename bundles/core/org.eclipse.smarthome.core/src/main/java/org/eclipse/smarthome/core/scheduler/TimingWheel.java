@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.core.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed hierarchical timing wheel, which keeps values until a given tick has been reached.
+ *
+ * The wheel consists of {@link #LEVELS} levels of {@link #SLOTS} slots. A slot of the first level holds the values
+ * which are due in exactly one tick, a slot of a higher level covers {@link #SLOTS} slots of the level below. When the
+ * current tick enters the range of a slot of a higher level, its values are distributed over the lower levels
+ * (cascaded). Adding and cancelling a value therefore takes constant time, independent of the number of values.
+ *
+ * Values which are due later than the range of the wheel are kept in its last slots and are cascaded again until they
+ * are in range.
+ *
+ * The wheel is not thread-safe, the caller has to synchronize the access.
+ *
+ * @author agent - Initial contribution
+ *
+ * @param <T> the type of the values
+ */
+final class TimingWheel<T> {
+
+    static final int LEVELS = 6;
+
+    private static final int SLOT_BITS = 6;
+
+    static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /**
+     * A value which has been added to the wheel. The timeout is a member of the doubly linked list of its slot.
+     *
+     * @param <T> the type of the value
+     */
+    static final class Timeout<T> {
+
+        private final T value;
+
+        private final long deadline;
+
+        private int level = -1;
+
+        private int slot;
+
+        private Timeout<T> previous;
+
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        T getValue() {
+            return value;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Indicates whether the timeout is still waiting in the wheel, i.e. it has neither expired nor been cancelled.
+         *
+         * @return true, if the timeout is pending
+         */
+        boolean isPending() {
+            return level >= 0;
+        }
+    }
+
+    private final Timeout<T>[][] slots;
+
+    /** one bit per slot and level, set if the slot is not empty */
+    private final long[] occupied = new long[LEVELS];
+
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * Creates a wheel.
+     *
+     * @param startTick the first tick which will be processed
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(long startTick) {
+        this.slots = new Timeout[LEVELS][SLOTS];
+        this.currentTick = startTick;
+    }
+
+    /**
+     * Adds a value. Values with a deadline which has already been processed expire with the next processed tick.
+     *
+     * @param value the value
+     * @param deadline the tick at which the value expires
+     * @return the timeout, which can be used to cancel the value
+     */
+    Timeout<T> add(T value, long deadline) {
+        Timeout<T> timeout = new Timeout<>(value, deadline);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Removes a value before it expires.
+     *
+     * @param timeout the timeout returned when the value was added
+     * @return true, if the value was pending, false if it has already expired or been cancelled
+     */
+    boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes all ticks up to and including the given tick.
+     *
+     * @param tick the last tick to process
+     * @return the values which have expired, in the order of the processed ticks
+     */
+    List<T> advance(long tick) {
+        List<T> expired = new ArrayList<>();
+        if (size == 0) {
+            // nothing to cascade or expire
+            currentTick = Math.max(currentTick, tick + 1);
+            return expired;
+        }
+        while (currentTick <= tick) {
+            int index = (int) (currentTick & SLOT_MASK);
+            if (index == 0) {
+                for (int level = 1; level < LEVELS; level++) {
+                    int levelIndex = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                    cascade(level, levelIndex);
+                    if (levelIndex != 0) {
+                        break;
+                    }
+                }
+            }
+            currentTick++;
+            Timeout<T> timeout = slots[0][index];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                unlink(timeout);
+                size--;
+                expired.add(timeout.value);
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the next tick which has to be processed, because a value expires or values of a higher level have to be
+     * cascaded. The returned tick may be earlier than the next expiration.
+     *
+     * @return the next tick to process or -1, if the wheel is empty
+     */
+    long getNextTick() {
+        if (size == 0) {
+            return -1;
+        }
+        int index = (int) (currentTick & SLOT_MASK);
+        if (index == 0) {
+            // the current tick starts with a cascade
+            return currentTick;
+        }
+        long pending = occupied[0] & (-1L << index);
+        if (pending != 0) {
+            return currentTick - index + Long.numberOfTrailingZeros(pending);
+        }
+        // the slots before the current index belong to the next round, which starts with a cascade
+        return (currentTick | SLOT_MASK) + 1;
+    }
+
+    /**
+     * Returns the next tick which will be processed.
+     *
+     * @return the current tick
+     */
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Returns the number of pending values.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return size;
+    }
+
+    private void insert(Timeout<T> timeout) {
+        long deadline = Math.max(timeout.deadline, currentTick);
+        long delta = deadline - currentTick;
+        if (delta > MAX_DELTA) {
+            // kept in the last level and cascaded again once the slot is reached
+            deadline = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        link(timeout, level, (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK));
+    }
+
+    private void cascade(int level, int index) {
+        Timeout<T> timeout = slots[level][index];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            unlink(timeout);
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private void link(Timeout<T> timeout, int level, int index) {
+        Timeout<T> head = slots[level][index];
+        timeout.level = level;
+        timeout.slot = index;
+        timeout.previous = null;
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        slots[level][index] = timeout;
+        occupied[level] |= 1L << index;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        int level = timeout.level;
+        int index = timeout.slot;
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[level][index] = timeout.next;
+            if (timeout.next == null) {
+                occupied[level] &= ~(1L << index);
+            }
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+}
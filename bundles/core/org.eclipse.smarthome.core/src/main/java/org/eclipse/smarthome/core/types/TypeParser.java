@@ -7,13 +7,40 @@
  */
 package org.eclipse.smarthome.core.types;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.IncreaseDecreaseType;
+import org.eclipse.smarthome.core.library.types.NextPreviousType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.PlayPauseType;
+import org.eclipse.smarthome.core.library.types.PointType;
+import org.eclipse.smarthome.core.library.types.RawType;
+import org.eclipse.smarthome.core.library.types.RewindFastforwardType;
+import org.eclipse.smarthome.core.library.types.StopMoveType;
+import org.eclipse.smarthome.core.library.types.StringListType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.library.types.UpDownType;
 
 /**
  * This is a helper class that helps parsing a string into an Eclipse SmartHome type (state or command).
  *
+ * The parsers of the core library types are registered upfront, so parsing does not need any reflection. Parsers for
+ * other types can be registered by {@link #registerParser(Class, Function)}, otherwise the static
+ * {@code valueOf(String)} method of a type is looked up once and invoked through a method handle afterwards.
+ *
  * @author Kai Kreuzer - Initial contribution and API
  *
  */
@@ -27,6 +54,143 @@ public final class TypeParser {
 
     private static final String CORE_LIBRARY_PACKAGE = "org.eclipse.smarthome.core.library.types.";
 
+    private static final Function<String, Type> NO_PARSER = input -> null;
+
+    /** the registered parsers by the simple class name of their type */
+    private static final Map<String, Function<String, ? extends Type>> parsersByName = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, Function<String, ? extends Type>> parsersByClass = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the parsers of types without a registered parser, which invoke the valueOf(String) method of the type.
+     */
+    private static final class ValueOfParsers extends ClassValue<Function<String, ? extends Type>> {
+
+        @Override
+        protected Function<String, ? extends Type> computeValue(Class<?> type) {
+            return createValueOfParser(type);
+        }
+    }
+
+    private static final ValueOfParsers valueOfParsers = new ValueOfParsers();
+
+    static {
+        registerParser(DateTimeType.class, DateTimeType::valueOf);
+        registerParser(DecimalType.class, DecimalType::valueOf);
+        registerParser(HSBType.class, HSBType::valueOf);
+        registerParser(IncreaseDecreaseType.class, IncreaseDecreaseType::valueOf);
+        registerParser(NextPreviousType.class, NextPreviousType::valueOf);
+        registerParser(OnOffType.class, OnOffType::valueOf);
+        registerParser(OpenClosedType.class, OpenClosedType::valueOf);
+        registerParser(PercentType.class, PercentType::valueOf);
+        registerParser(PlayPauseType.class, PlayPauseType::valueOf);
+        registerParser(PointType.class, PointType::valueOf);
+        registerParser(RawType.class, RawType::valueOf);
+        registerParser(RewindFastforwardType.class, RewindFastforwardType::valueOf);
+        registerParser(StopMoveType.class, StopMoveType::valueOf);
+        registerParser(StringListType.class, StringListType::valueOf);
+        registerParser(StringType.class, StringType::valueOf);
+        registerParser(UpDownType.class, UpDownType::valueOf);
+    }
+
+    /**
+     * Registers the parser of a type, e.g. the reference to its {@code valueOf(String)} method. Afterwards the type can
+     * be parsed by its simple class name through {@link #parseType(String, String)} as well.
+     *
+     * @param typeClass the class of the type (must not be null)
+     * @param parser the parser, which returns null or throws an exception if the input cannot be parsed (must not be
+     *            null)
+     * @throws IllegalArgumentException if a parser for another type with the same simple class name is registered
+     */
+    public static <T extends Type> void registerParser(Class<T> typeClass, Function<String, T> parser) {
+        if (typeClass == null || parser == null) {
+            throw new IllegalArgumentException("Type class and parser must not be null!");
+        }
+        synchronized (parsersByName) {
+            Function<String, ? extends Type> registeredParser = parsersByName.get(typeClass.getSimpleName());
+            if (registeredParser != null && registeredParser != parsersByClass.get(typeClass)) {
+                throw new IllegalArgumentException(
+                        "A parser for another type named '" + typeClass.getSimpleName() + "' is already registered!");
+            }
+            parsersByName.put(typeClass.getSimpleName(), parser);
+            parsersByClass.put(typeClass, parser);
+        }
+    }
+
+    /**
+     * Removes the parser of a type, which has been registered by {@link #registerParser(Class, Function)}.
+     *
+     * @param typeClass the class of the type
+     */
+    public static void unregisterParser(Class<? extends Type> typeClass) {
+        synchronized (parsersByName) {
+            Function<String, ? extends Type> parser = parsersByClass.remove(typeClass);
+            if (parser != null) {
+                parsersByName.remove(typeClass.getSimpleName(), parser);
+            }
+        }
+    }
+
+    /**
+     * Returns the parser of a type by its simple class name. Types which have not been registered are looked up in the
+     * core type library.
+     *
+     * @param typeName name of the type, for example StringType.
+     * @return the parser or null, if the type is unknown
+     */
+    public static Function<String, ? extends Type> getParser(String typeName) {
+        Function<String, ? extends Type> parser = parsersByName.get(typeName);
+        if (parser != null) {
+            return parser;
+        }
+        try {
+            parser = getParser(Class.forName(CORE_LIBRARY_PACKAGE + typeName));
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        return parser != NO_PARSER ? parser : null;
+    }
+
+    private static Function<String, ? extends Type> getParser(Class<?> type) {
+        Function<String, ? extends Type> parser = parsersByClass.get(type);
+        return parser != null ? parser : valueOfParsers.get(type);
+    }
+
+    private static Function<String, ? extends Type> createValueOfParser(Class<?> type) {
+        if (!Type.class.isAssignableFrom(type)) {
+            return NO_PARSER;
+        }
+        try {
+            Method valueOfMethod = type.getMethod("valueOf", String.class);
+            if (!Modifier.isStatic(valueOfMethod.getModifiers())) {
+                return NO_PARSER;
+            }
+            final MethodHandle valueOf = MethodHandles.publicLookup().unreflect(valueOfMethod)
+                    .asType(MethodType.methodType(Object.class, String.class));
+            return input -> {
+                try {
+                    Object value = valueOf.invokeExact(input);
+                    return value instanceof Type ? (Type) value : null;
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            };
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return NO_PARSER;
+        }
+    }
+
+    private static Type parse(Function<String, ? extends Type> parser, String input) {
+        try {
+            return parser.apply(input);
+        } catch (RuntimeException e) {
+            // the input is not a valid value of the type
+            return null;
+        }
+    }
+
     /**
      * Parses a string into a type.
      *
@@ -35,16 +199,8 @@ public final class TypeParser {
      * @return Parsed type or null, if the type couldn't be parsed.
      */
     public static Type parseType(String typeName, String input) {
-        try {
-            Class<?> stateClass = Class.forName(CORE_LIBRARY_PACKAGE + typeName);
-            Method valueOfMethod = stateClass.getMethod("valueOf", String.class);
-            return (Type) valueOfMethod.invoke(stateClass, input);
-        } catch (ClassNotFoundException e) {
-        } catch (NoSuchMethodException e) {
-        } catch (IllegalAccessException e) {
-        } catch (InvocationTargetException e) {
-        }
-        return null;
+        Function<String, ? extends Type> parser = getParser(typeName);
+        return parser != null ? parse(parser, input) : null;
     }
 
     /**
@@ -62,16 +218,9 @@ public final class TypeParser {
      */
     public static State parseState(List<Class<? extends State>> types, String s) {
         for (Class<? extends Type> type : types) {
-            try {
-                Method valueOf = type.getMethod("valueOf", String.class);
-                State state = (State) valueOf.invoke(type, s);
-                if (state != null) {
-                    return state;
-                }
-            } catch (NoSuchMethodException e) {
-            } catch (IllegalArgumentException e) {
-            } catch (IllegalAccessException e) {
-            } catch (InvocationTargetException e) {
+            Type state = parse(getParser(type), s);
+            if (state instanceof State) {
+                return (State) state;
             }
         }
         return null;
@@ -92,16 +241,9 @@ public final class TypeParser {
      */
     public static Command parseCommand(List<Class<? extends Command>> types, String s) {
         for (Class<? extends Command> type : types) {
-            try {
-                Method valueOf = type.getMethod("valueOf", String.class);
-                Command value = (Command) valueOf.invoke(type, s);
-                if (value != null) {
-                    return value;
-                }
-            } catch (NoSuchMethodException e) {
-            } catch (IllegalArgumentException e) {
-            } catch (IllegalAccessException e) {
-            } catch (InvocationTargetException e) {
+            Type value = parse(getParser(type), s);
+            if (value instanceof Command) {
+                return (Command) value;
             }
         }
         return null;
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.console.internal.extension;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.smarthome.core.events.EventBusStatistics;
+import org.eclipse.smarthome.core.events.EventSubscriberStatistics;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+
+/**
+ * Console command extension to show the delivery queues of the event subscribers.
+ *
+ * @author agent - Initial contribution
+ */
+public class EventsConsoleCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String SUBCMD_QUEUES = "queues";
+
+    private EventBusStatistics eventBusStatistics;
+
+    public EventsConsoleCommandExtension() {
+        super("events", "Show statistics of the event bus.");
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Collections.singletonList(buildCommandUsage(SUBCMD_QUEUES,
+                "lists queue size, lag, delivered and dropped events per event subscriber"));
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        if (args.length == 1 && SUBCMD_QUEUES.equals(args[0])) {
+            List<EventSubscriberStatistics> statistics = eventBusStatistics.getEventSubscriberStatistics();
+            statistics.sort(Comparator.comparingLong(EventSubscriberStatistics::getLag).reversed());
+            for (EventSubscriberStatistics subscriberStatistics : statistics) {
+                console.println(subscriberStatistics.toString());
+            }
+        } else {
+            printUsage(console);
+        }
+    }
+
+    protected void setEventBusStatistics(EventBusStatistics eventBusStatistics) {
+        this.eventBusStatistics = eventBusStatistics;
+    }
+
+    protected void unsetEventBusStatistics(EventBusStatistics eventBusStatistics) {
+        this.eventBusStatistics = null;
+    }
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.console.internal.extension;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.smarthome.core.persistence.PersistenceServiceStatistics;
+import org.eclipse.smarthome.core.persistence.PersistenceStatistics;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+
+/**
+ * Console command extension to show the write queues of the persistence services.
+ *
+ * @author agent - Initial contribution
+ */
+public class PersistenceConsoleCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String SUBCMD_QUEUES = "queues";
+
+    private PersistenceStatistics persistenceStatistics;
+
+    public PersistenceConsoleCommandExtension() {
+        super("persistence", "Show statistics of the persistence services.");
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Collections.singletonList(buildCommandUsage(SUBCMD_QUEUES,
+                "lists queue size, lag, stored records and flush latency per persistence service"));
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        if (args.length == 1 && SUBCMD_QUEUES.equals(args[0])) {
+            List<PersistenceServiceStatistics> statistics = persistenceStatistics.getPersistenceServiceStatistics();
+            statistics.sort(Comparator.comparingLong(PersistenceServiceStatistics::getLag).reversed());
+            for (PersistenceServiceStatistics serviceStatistics : statistics) {
+                console.println(serviceStatistics.toString());
+            }
+        } else {
+            printUsage(console);
+        }
+    }
+
+    protected void setPersistenceStatistics(PersistenceStatistics persistenceStatistics) {
+        this.persistenceStatistics = persistenceStatistics;
+    }
+
+    protected void unsetPersistenceStatistics(PersistenceStatistics persistenceStatistics) {
+        this.persistenceStatistics = null;
+    }
+
+}
@@ -7,6 +7,10 @@
  */
 package org.eclipse.smarthome.io.rest.core.internal.persistence;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -27,6 +31,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.eclipse.smarthome.core.auth.Role;
 import org.eclipse.smarthome.core.items.Item;
@@ -35,6 +40,9 @@ import org.eclipse.smarthome.core.items.ItemRegistry;
 import org.eclipse.smarthome.core.library.types.DateTimeType;
 import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.persistence.AggregateFilterCriteria;
+import org.eclipse.smarthome.core.persistence.AggregateFunction;
+import org.eclipse.smarthome.core.persistence.AggregatedItem;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
 import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
 import org.eclipse.smarthome.core.persistence.HistoricItem;
@@ -52,6 +60,8 @@ import org.eclipse.smarthome.io.rest.RESTResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.stream.JsonWriter;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -65,6 +75,7 @@ import io.swagger.annotations.ApiResponses;
  * @author Chris Jackson - Initial Contribution and add support for ModifiablePersistenceService
  * @author Kai Kreuzer - Refactored to use PersistenceServiceRegistryImpl
  * @author Franck Dechavanne - Added DTOs to ApiResponses
+ * @author agent - Stream and aggregate the item history
  *
  */
 @Path(PersistenceResource.PATH)
@@ -144,9 +155,12 @@ public class PersistenceResource implements RESTResource {
                     + "]", required = false) @QueryParam("endtime") String endTime,
             @ApiParam(value = "Page number of data to return. This parameter will enable paging.", required = false) @QueryParam("page") int pageNumber,
             @ApiParam(value = "The length of each page.", required = false) @QueryParam("pagelength") int pageLength,
-            @ApiParam(value = "Gets one value before and after the requested period.", required = false) @QueryParam("boundary") boolean boundary) {
+            @ApiParam(value = "Gets one value before and after the requested period.", required = false) @QueryParam("boundary") boolean boundary,
+            @ApiParam(value = "Aggregates the data into buckets of this length in milliseconds. Each bucket is returned with its start time. The paging parameters are not used.", required = false) @QueryParam("bucketsize") long bucketSize,
+            @ApiParam(value = "The aggregate function of the buckets. Will default to AVG.", required = false, allowableValues = "AVG,MIN,MAX,SUM,COUNT,LAST") @QueryParam("aggregate") String aggregate) {
 
-        return getItemHistoryDTO(serviceId, itemName, startTime, endTime, pageNumber, pageLength, boundary);
+        return getItemHistoryDTO(serviceId, itemName, startTime, endTime, pageNumber, pageLength, boundary, bucketSize,
+                aggregate);
     }
 
     @DELETE
@@ -192,7 +206,7 @@ public class PersistenceResource implements RESTResource {
     }
 
     private Response getItemHistoryDTO(String serviceId, String itemName, String timeBegin, String timeEnd,
-            int pageNumber, int pageLength, boolean boundary) {
+            int pageNumber, int pageLength, boolean boundary, long bucketSize, String aggregate) {
         // Benchmarking timer...
         long timerStart = System.currentTimeMillis();
 
@@ -215,6 +229,18 @@ public class PersistenceResource implements RESTResource {
 
         QueryablePersistenceService qService = (QueryablePersistenceService) service;
 
+        AggregateFunction function = AggregateFunction.AVG;
+        if (aggregate != null) {
+            try {
+                function = AggregateFunction.valueOf(aggregate.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                return JSONResponse.createErrorResponse(Status.BAD_REQUEST, "Unknown aggregate function: " + aggregate);
+            }
+        }
+        if (bucketSize < 0) {
+            return JSONResponse.createErrorResponse(Status.BAD_REQUEST, "The bucket size must not be negative.");
+        }
+
         Date dateTimeBegin = new Date();
         Date dateTimeEnd = dateTimeBegin;
         if (timeBegin != null) {
@@ -238,33 +264,8 @@ public class PersistenceResource implements RESTResource {
             dateTimeBegin = new Date(dateTimeEnd.getTime() - MILLISECONDS_PER_DAY);
         }
 
-        FilterCriteria filter;
-        Iterable<HistoricItem> result;
-        State state = null;
-
-        Long quantity = 0l;
-
-        ItemHistoryDTO dto = new ItemHistoryDTO();
-        dto.name = itemName;
-
-        filter = new FilterCriteria();
+        FilterCriteria filter = new FilterCriteria();
         filter.setItemName(itemName);
-
-        // If "boundary" is true then we want to get one value before and after the requested period
-        // This is necessary for values that don't change often otherwise data will start after the start of the graph
-        // (or not at all if there's no change during the graph period)
-        if (boundary) {
-            // Get the value before the start time.
-            filter.setEndDate(dateTimeBegin);
-            filter.setPageSize(1);
-            filter.setOrdering(Ordering.DESCENDING);
-            result = qService.query(filter);
-            if (result != null && result.iterator().hasNext()) {
-                dto.addData(dateTimeBegin.getTime(), result.iterator().next().getState());
-                quantity++;
-            }
-        }
-
         if (pageLength == 0) {
             filter.setPageNumber(0);
             filter.setPageSize(Integer.MAX_VALUE);
@@ -272,47 +273,147 @@ public class PersistenceResource implements RESTResource {
             filter.setPageNumber(pageNumber);
             filter.setPageSize(pageLength);
         }
-
         filter.setBeginDate(dateTimeBegin);
         filter.setEndDate(dateTimeEnd);
         filter.setOrdering(Ordering.ASCENDING);
 
-        result = qService.query(filter);
-        if (result != null) {
-            Iterator<HistoricItem> it = result.iterator();
+        // The queries are started before the response is returned, so that a failing service still results in an
+        // error status. Only the remaining rows are fetched while the response is written.
+        final HistoricItem before;
+        final HistoricItem after;
+        final Iterator<HistoricItem> rows;
+        final Iterator<AggregatedItem> buckets;
+        try {
+            // If "boundary" is true then we want to get one value before and after the requested period
+            // This is necessary for values that don't change often otherwise data will start after the start of the
+            // graph (or not at all if there's no change during the graph period)
+            before = boundary ? queryFirst(qService, itemName, null, dateTimeBegin, Ordering.DESCENDING) : null;
+            after = boundary ? queryFirst(qService, itemName, dateTimeEnd, dateTimeEnd, Ordering.ASCENDING) : null;
+            if (bucketSize > 0) {
+                // the service aggregates the buckets, which might be done by its database
+                AggregateFilterCriteria aggregateFilter = new AggregateFilterCriteria().setItemName(itemName)
+                        .setBeginDate(dateTimeBegin).setEndDate(dateTimeEnd).setBucketSize(bucketSize)
+                        .addFunction(function);
+                buckets = qService.aggregate(aggregateFilter).iterator();
+                // a lazy result fetches its first rows here
+                buckets.hasNext();
+                rows = null;
+            } else {
+                Iterable<HistoricItem> result = qService.query(filter);
+                rows = result != null ? result.iterator() : null;
+                if (rows != null) {
+                    // a lazy result fetches its first rows here
+                    rows.hasNext();
+                }
+                buckets = null;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Querying the history of item '{}' from persistence service '{}' failed: {}", itemName,
+                    effectiveServiceId, e.getMessage(), e);
+            return JSONResponse.createErrorResponse(Status.INTERNAL_SERVER_ERROR,
+                    "Querying the persistence service failed: " + e.getMessage());
+        }
 
-            // Iterate through the data
-            while (it.hasNext()) {
-                HistoricItem historicItem = it.next();
-                state = historicItem.getState();
+        final Date begin = dateTimeBegin;
+        final Date end = dateTimeEnd;
+        final AggregateFunction aggregateFunction = function;
+        StreamingOutput stream = output -> {
+            // the JSON of the ItemHistoryDTO is written while iterating over the result, so that the history does not
+            // have to be held in memory
+            JsonWriter writer = new JsonWriter(
+                    new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+            long quantity = 0;
+            boolean complete = false;
+            try {
+                writer.beginObject();
+                writer.name("name").value(itemName);
+                writer.name("data").beginArray();
+
+                if (before != null) {
+                    writeData(writer, begin.getTime(), before.getState());
+                    quantity++;
+                }
 
-                // For 'binary' states, we need to replicate the data
-                // to avoid diagonal lines
-                if (state instanceof OnOffType || state instanceof OpenClosedType) {
-                    dto.addData(historicItem.getTimestamp().getTime(), state);
+                if (buckets != null) {
+                    while (buckets.hasNext()) {
+                        AggregatedItem bucket = buckets.next();
+                        State state = bucket.getValue(aggregateFunction);
+                        if (state != null) {
+                            writeData(writer, bucket.getBeginDate().getTime(), state);
+                            quantity++;
+                        }
+                    }
                 }
 
-                dto.addData(historicItem.getTimestamp().getTime(), state);
-                quantity++;
+                if (rows != null) {
+                    while (rows.hasNext()) {
+                        HistoricItem historicItem = rows.next();
+                        State state = historicItem.getState();
+
+                        // For 'binary' states, we need to replicate the data
+                        // to avoid diagonal lines
+                        if (state instanceof OnOffType || state instanceof OpenClosedType) {
+                            writeData(writer, historicItem.getTimestamp().getTime(), state);
+                        }
+
+                        writeData(writer, historicItem.getTimestamp().getTime(), state);
+                        quantity++;
+                    }
+                }
+
+                if (after != null) {
+                    writeData(writer, end.getTime(), after.getState());
+                    quantity++;
+                }
+
+                writer.endArray();
+                writer.name("datapoints").value(Long.toString(quantity));
+                writer.endObject();
+                complete = true;
+            } catch (IOException | RuntimeException e) {
+                // the status has already been sent, so the response can only be aborted
+                logger.warn("Aborting the history of item '{}' after {} data points: {}", itemName, quantity,
+                        e.getMessage());
+                throw e;
+            } finally {
+                if (complete) {
+                    writer.close();
+                }
+                // otherwise the output is left to the container, which aborts the response instead of ending it as if
+                // the document was complete
             }
-        }
+            logger.debug("Persistence returned {} rows in {}ms", quantity, System.currentTimeMillis() - timerStart);
+        };
+
+        return Response.ok(stream, MediaType.APPLICATION_JSON).build();
+    }
 
-        if (boundary) {
-            // Get the value after the end time.
-            filter.setBeginDate(dateTimeEnd);
-            filter.setPageSize(1);
-            filter.setOrdering(Ordering.ASCENDING);
-            result = qService.query(filter);
-            if (result != null && result.iterator().hasNext()) {
-                dto.addData(dateTimeEnd.getTime(), result.iterator().next().getState());
-                quantity++;
+    private HistoricItem queryFirst(QueryablePersistenceService qService, String itemName, Date begin, Date end,
+            Ordering ordering) {
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName(itemName);
+        filter.setBeginDate(begin);
+        filter.setEndDate(end);
+        filter.setPageSize(1);
+        filter.setOrdering(ordering);
+        Iterable<HistoricItem> result = qService.query(filter);
+        if (result != null) {
+            Iterator<HistoricItem> it = result.iterator();
+            if (it.hasNext()) {
+                return it.next();
             }
         }
+        return null;
+    }
 
-        dto.datapoints = Long.toString(quantity);
-        logger.debug("Persistence returned {} rows in {}ms", dto.datapoints, System.currentTimeMillis() - timerStart);
-
-        return JSONResponse.createResponse(Status.OK, dto, "");
+    /**
+     * Writes a record of {@link ItemHistoryDTO#data}.
+     */
+    private void writeData(JsonWriter writer, long time, State state) throws IOException {
+        writer.beginObject();
+        writer.name("time").value(time);
+        writer.name("state").value(state.toString());
+        writer.endObject();
     }
 
     /**
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.rest.sitemap.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.StateChangeListener;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.eclipse.smarthome.model.sitemap.Widget;
+import org.eclipse.smarthome.test.java.JavaTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+/**
+ * Tests the {@link ItemWidgetIndex}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemWidgetIndexTest extends JavaTest {
+
+    private ItemWidgetIndex index;
+
+    private PageChangeListener page1;
+
+    private PageChangeListener page2;
+
+    @Before
+    public void setup() {
+        index = new ItemWidgetIndex();
+        page1 = mock(PageChangeListener.class);
+        page2 = mock(PageChangeListener.class);
+    }
+
+    @Test
+    public void assertThatPagesAreNotifiedWithTheirOwnWidgets() {
+        SwitchItem item = new SwitchItem("switch");
+        List<Widget> widgets1 = Arrays.asList(mock(Widget.class), mock(Widget.class));
+        List<Widget> widgets2 = Collections.singletonList(mock(Widget.class));
+        index.add(page1, Collections.singletonMap(item, widgets1));
+        index.add(page2, Collections.singletonMap(item, widgets2));
+
+        item.setState(OnOffType.ON);
+
+        waitForAssert(() -> {
+            verify(page1).widgetsChanged(item, widgets1);
+            verify(page2).widgetsChanged(item, widgets2);
+        });
+        assertThat(index.getWidgets("switch").size(), is(2));
+        assertThat(index.getWidgets("switch").get(page1), is(widgets1));
+    }
+
+    @Test
+    public void assertThatReplacedItemInstanceIsListenedTo() {
+        SwitchItem oldItem = new SwitchItem("switch");
+        List<Widget> widgets = Collections.singletonList(mock(Widget.class));
+        index.add(page1, Collections.singletonMap(oldItem, widgets));
+
+        // the item is replaced in the registry and the page is subscribed again
+        SwitchItem newItem = new SwitchItem("switch");
+        index.add(page1, Collections.singletonMap(newItem, widgets));
+
+        oldItem.setState(OnOffType.ON);
+        newItem.setState(OnOffType.ON);
+
+        waitForAssert(() -> verify(page1).widgetsChanged(newItem, widgets));
+        verify(page1, never()).widgetsChanged(same(oldItem), anyListOf(Widget.class));
+    }
+
+    @Test
+    public void assertThatListenerIsRemovedWithTheLastPage() {
+        SwitchItem item = new SwitchItem("switch");
+        List<Widget> widgets = Collections.singletonList(mock(Widget.class));
+        index.add(page1, Collections.singletonMap(item, widgets));
+        index.add(page2, Collections.singletonMap(item, widgets));
+
+        index.remove(page1);
+        assertThat(index.getWidgets("switch").keySet(), is(Collections.singleton(page2)));
+
+        index.remove(page2);
+        assertThat(index.getWidgets("switch").isEmpty(), is(true));
+
+        // the listeners of an item are notified one after another by a single task, so once the listener added last
+        // has been notified, the index would have been notified before it if it were still listening
+        StateChangeListener control = mock(StateChangeListener.class);
+        item.addStateChangeListener(control);
+        item.setState(OnOffType.ON);
+
+        waitForAssert(() -> verify(control).stateChanged(item, UnDefType.NULL, OnOffType.ON));
+        verify(page1, never()).widgetsChanged(Matchers.any(Item.class), anyListOf(Widget.class));
+        verify(page2, never()).widgetsChanged(Matchers.any(Item.class), anyListOf(Widget.class));
+    }
+
+    @Test
+    public void assertThatGroupIsNotifiedOnEveryUpdate() {
+        GroupItem group = new GroupItem("group");
+        List<Widget> widgets = Collections.singletonList(mock(Widget.class));
+        index.add(page1, Collections.singletonMap(group, widgets));
+
+        group.setState(OnOffType.ON);
+        group.setState(OnOffType.ON);
+
+        waitForAssert(() -> verify(page1, times(2)).widgetsChanged(group, widgets));
+    }
+
+}
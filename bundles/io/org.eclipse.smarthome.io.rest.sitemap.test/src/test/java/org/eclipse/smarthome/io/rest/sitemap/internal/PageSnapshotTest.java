@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.rest.sitemap.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.model.sitemap.Sitemap;
+import org.eclipse.smarthome.ui.items.ItemUIRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the validity and the versions of the {@link PageSnapshot}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PageSnapshotTest {
+
+    private Sitemap sitemap;
+
+    private ItemUIRegistry itemUIRegistry;
+
+    private SwitchItem item;
+
+    @Before
+    public void setup() throws ItemNotFoundException {
+        sitemap = mock(Sitemap.class);
+        itemUIRegistry = mock(ItemUIRegistry.class);
+        item = new SwitchItem("switch");
+        item.setState(OnOffType.OFF);
+        when(itemUIRegistry.getItem("switch")).thenReturn(item);
+        when(itemUIRegistry.getItem("unknown")).thenThrow(new ItemNotFoundException("unknown"));
+    }
+
+    @Test
+    public void assertThatSnapshotIsValidWhileItemsAreUnchanged() {
+        PageSnapshot snapshot = PageSnapshot.create(null, page(widget("w1", "Off")), capture("switch", "unknown"));
+        assertThat(snapshot.isValid(sitemap, itemUIRegistry), is(true));
+
+        item.setState(OnOffType.OFF);
+        assertThat(snapshot.isValid(sitemap, itemUIRegistry), is(true));
+
+        item.setState(OnOffType.ON);
+        assertThat(snapshot.isValid(sitemap, itemUIRegistry), is(false));
+    }
+
+    @Test
+    public void assertThatSnapshotIsInvalidForOtherSitemapOrItemInstance() throws ItemNotFoundException {
+        PageSnapshot snapshot = PageSnapshot.create(null, page(widget("w1", "Off")), capture("switch"));
+        assertThat(snapshot.isValid(mock(Sitemap.class), itemUIRegistry), is(false));
+
+        SwitchItem replacedItem = new SwitchItem("switch");
+        replacedItem.setState(OnOffType.OFF);
+        when(itemUIRegistry.getItem("switch")).thenReturn(replacedItem);
+        assertThat(snapshot.isValid(sitemap, itemUIRegistry), is(false));
+    }
+
+    @Test
+    public void assertThatSnapshotOfGroupIsInvalidWhenMemberStatesChange() throws ItemNotFoundException {
+        SwitchItem member = new SwitchItem("member");
+        member.setState(OnOffType.ON);
+        GroupItem group = new GroupItem("group");
+        group.addMember(item);
+        group.addMember(member);
+        group.setState(OnOffType.ON);
+        when(itemUIRegistry.getItem("group")).thenReturn(group);
+
+        PageSnapshot snapshot = PageSnapshot.create(null, page(widget("w1", "Group [1]")), capture("group"));
+        assertThat(snapshot.isValid(sitemap, itemUIRegistry), is(true));
+
+        // the state of the group stays ON, but its label counts two members in state ON now
+        item.setState(OnOffType.ON);
+        assertThat(group.getState(), is(OnOffType.ON));
+        assertThat(snapshot.isValid(sitemap, itemUIRegistry), is(false));
+    }
+
+    @Test
+    public void assertThatVersionIsKeptForEqualPage() {
+        PageSnapshot first = PageSnapshot.create(null, page(widget("w1", "Off")), capture("switch"));
+        PageSnapshot second = PageSnapshot.create(first, page(widget("w1", "Off")), capture("switch"));
+
+        assertThat(second.getVersion(), is(first.getVersion()));
+        assertThat(second.getPage(), is(sameInstance(first.getPage())));
+    }
+
+    @Test
+    public void assertThatOnlyChangedWidgetsAreReturnedSinceAVersion() {
+        PageSnapshot first = PageSnapshot.create(null, page(widget("w1", "Off"), widget("w2", "A"), widget("w3", "B")),
+                capture("switch"));
+        PageSnapshot second = PageSnapshot.create(first, page(widget("w1", "On"), widget("w2", "A")),
+                capture("switch"));
+        assertThat(second.getVersion() > first.getVersion(), is(true));
+        assertThat(second.getPage().version, is(second.getVersion()));
+
+        PageDTO delta = second.getChangesSince(first.getVersion());
+        assertThat(delta.since, is(first.getVersion()));
+        assertThat(delta.version, is(second.getVersion()));
+        assertThat(delta.widgets.size(), is(1));
+        assertThat(delta.widgets.get(0).widgetId, is("w1"));
+        assertThat(delta.removedWidgetIds, is(Collections.singletonList("w3")));
+
+        // nothing has changed since the current version
+        delta = second.getChangesSince(second.getVersion());
+        assertThat(delta.widgets.isEmpty(), is(true));
+        assertThat(delta.removedWidgetIds.isEmpty(), is(true));
+    }
+
+    @Test
+    public void assertThatCompletePageIsReturnedForUnknownVersion() {
+        PageSnapshot first = PageSnapshot.create(null, page(widget("w1", "Off")), capture("switch"));
+        PageSnapshot second = PageSnapshot.create(first, page(widget("w1", "On")), capture("switch"));
+
+        assertThat(second.getChangesSince(first.getVersion() - 1), is(sameInstance(second.getPage())));
+        assertThat(second.getChangesSince(second.getVersion() + 1), is(sameInstance(second.getPage())));
+    }
+
+    private PageSnapshot.Dependencies capture(String... itemNames) {
+        return PageSnapshot.Dependencies.capture(sitemap, itemUIRegistry, Arrays.asList(itemNames));
+    }
+
+    private PageDTO page(WidgetDTO... widgets) {
+        PageDTO page = new PageDTO();
+        page.id = "page";
+        page.title = "Page";
+        page.widgets.addAll(Arrays.asList(widgets));
+        return page;
+    }
+
+    private WidgetDTO widget(String widgetId, String label) {
+        WidgetDTO widget = new WidgetDTO();
+        widget.widgetId = widgetId;
+        widget.label = label;
+        return widget;
+    }
+
+}
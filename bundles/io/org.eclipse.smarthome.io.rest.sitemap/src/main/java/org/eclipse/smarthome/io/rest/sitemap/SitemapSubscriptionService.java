@@ -17,6 +17,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.BasicEList;
 import org.eclipse.emf.common.util.EList;
+import org.eclipse.smarthome.io.rest.sitemap.internal.ItemWidgetIndex;
 import org.eclipse.smarthome.io.rest.sitemap.internal.PageChangeListener;
 import org.eclipse.smarthome.io.rest.sitemap.internal.SitemapEvent;
 import org.eclipse.smarthome.model.core.EventType;
@@ -37,8 +38,11 @@ import org.slf4j.LoggerFactory;
  * events to the subscriber.
  * For this to work correctly, the subscriber needs to make sure that setPageId is called whenever it switches to a new
  * page.
+ * The widgets of all subscribed pages are indexed by their items, so that the event of a changed widget is created once
+ * and sent to all subscriptions of its page.
  *
  * @author Kai Kreuzer - Initial contribution and API
+ * @author agent - Index the widgets of the subscribed pages by item
  */
 public class SitemapSubscriptionService implements ModelRepositoryChangeListener {
 
@@ -65,6 +69,9 @@ public class SitemapSubscriptionService implements ModelRepositoryChangeListener
     /* sitemap+page -> listener */
     private Map<String, PageChangeListener> pageChangeListeners = new ConcurrentHashMap<>();
 
+    /* item name -> widgets of the subscribed pages */
+    private final ItemWidgetIndex itemWidgetIndex = new ItemWidgetIndex();
+
     public SitemapSubscriptionService() {
     }
 
@@ -203,7 +210,8 @@ public class SitemapSubscriptionService implements ModelRepositoryChangeListener
         PageChangeListener listener = pageChangeListeners.get(getValue(sitemapName, pageId));
         if (listener == null) {
             // there is no listener for this page yet, so let's try to create one
-            listener = new PageChangeListener(sitemapName, pageId, itemUIRegistry, collectWidgets(sitemapName, pageId));
+            listener = new PageChangeListener(sitemapName, pageId, itemUIRegistry, collectWidgets(sitemapName, pageId),
+                    itemWidgetIndex);
             pageChangeListeners.put(getValue(sitemapName, pageId), listener);
         }
         if (listener != null) {
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.rest.sitemap.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.smarthome.core.items.GenericItem;
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.StateChangeListener;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.model.sitemap.Widget;
+
+/**
+ * The {@link ItemWidgetIndex} maps items to the widgets of the subscribed sitemap pages which show them or depend on
+ * them for their visibility.
+ *
+ * The index is the only {@link StateChangeListener} of the items, no matter on how many pages they are shown. On a
+ * state change it hands the affected widgets of each page to the {@link PageChangeListener} of the page, so that the
+ * pages do not need to search their widgets for the item.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemWidgetIndex implements StateChangeListener {
+
+    /* item name -> page -> widgets of the page which depend on the item, replaced on every change */
+    private final Map<String, Map<PageChangeListener, List<Widget>>> pagesByItem = new ConcurrentHashMap<>();
+
+    /* item name -> instance of the item the index listens to */
+    private final Map<String, Item> items = new HashMap<>();
+
+    /**
+     * Adds the widgets of a page.
+     *
+     * @param page the listener of the page
+     * @param widgetsByItem the items and the widgets of the page which depend on them
+     */
+    public synchronized void add(PageChangeListener page, Map<Item, List<Widget>> widgetsByItem) {
+        for (Map.Entry<Item, List<Widget>> entry : widgetsByItem.entrySet()) {
+            Item item = entry.getKey();
+            Map<PageChangeListener, List<Widget>> pages = pagesByItem.get(item.getName());
+            Map<PageChangeListener, List<Widget>> newPages = pages != null ? new LinkedHashMap<>(pages)
+                    : new LinkedHashMap<>();
+            newPages.put(page, Collections.unmodifiableList(entry.getValue()));
+            pagesByItem.put(item.getName(), Collections.unmodifiableMap(newPages));
+
+            Item listenedItem = items.get(item.getName());
+            if (listenedItem != item && item instanceof GenericItem) {
+                // the item has been replaced in the registry, only its new instance gets the state changes
+                if (listenedItem != null) {
+                    ((GenericItem) listenedItem).removeStateChangeListener(this);
+                }
+                items.put(item.getName(), item);
+                ((GenericItem) item).addStateChangeListener(this);
+            }
+        }
+    }
+
+    /**
+     * Removes all widgets of a page.
+     *
+     * @param page the listener of the page
+     */
+    public synchronized void remove(PageChangeListener page) {
+        for (String itemName : pagesByItem.keySet()) {
+            Map<PageChangeListener, List<Widget>> pages = pagesByItem.get(itemName);
+            if (!pages.containsKey(page)) {
+                continue;
+            }
+            if (pages.size() == 1) {
+                pagesByItem.remove(itemName);
+                Item item = items.remove(itemName);
+                if (item != null) {
+                    ((GenericItem) item).removeStateChangeListener(this);
+                }
+            } else {
+                Map<PageChangeListener, List<Widget>> newPages = new LinkedHashMap<>(pages);
+                newPages.remove(page);
+                pagesByItem.put(itemName, Collections.unmodifiableMap(newPages));
+            }
+        }
+    }
+
+    /**
+     * Returns the widgets of all pages which depend on the given item.
+     *
+     * @param itemName the name of the item
+     * @return the pages and their widgets, or an empty map
+     */
+    public Map<PageChangeListener, List<Widget>> getWidgets(String itemName) {
+        Map<PageChangeListener, List<Widget>> pages = pagesByItem.get(itemName);
+        return pages != null ? pages : Collections.<PageChangeListener, List<Widget>> emptyMap();
+    }
+
+    @Override
+    public void stateChanged(Item item, State oldState, State newState) {
+        // For all items except group, send an event only when the event state is changed.
+        if (item instanceof GroupItem) {
+            return;
+        }
+        notifyPages(item);
+    }
+
+    @Override
+    public void stateUpdated(Item item, State state) {
+        // For group item only, send an event each time the event state is updated.
+        // It allows updating the group label while the group state is unchanged,
+        // for example the count in label for Group:Switch:OR
+        if (!(item instanceof GroupItem)) {
+            return;
+        }
+        notifyPages(item);
+    }
+
+    private void notifyPages(Item item) {
+        for (Map.Entry<PageChangeListener, List<Widget>> entry : getWidgets(item.getName()).entrySet()) {
+            entry.getKey().widgetsChanged(item, entry.getValue());
+        }
+    }
+
+}
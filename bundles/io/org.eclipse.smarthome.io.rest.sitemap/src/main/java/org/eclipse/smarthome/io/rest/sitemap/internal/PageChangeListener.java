@@ -10,16 +10,15 @@ package org.eclipse.smarthome.io.rest.sitemap.internal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.emf.common.util.EList;
-import org.eclipse.smarthome.core.items.GenericItem;
-import org.eclipse.smarthome.core.items.GroupItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemNotFoundException;
-import org.eclipse.smarthome.core.items.StateChangeListener;
-import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.io.rest.core.item.EnrichedItemDTOMapper;
 import org.eclipse.smarthome.io.rest.sitemap.SitemapSubscriptionService.SitemapSubscriptionCallback;
 import org.eclipse.smarthome.model.sitemap.Frame;
@@ -28,18 +27,21 @@ import org.eclipse.smarthome.model.sitemap.Widget;
 import org.eclipse.smarthome.ui.items.ItemUIRegistry;
 
 /**
- * This is a class that listens on item state change events and creates sitemap events for a dedicated sitemap page.
+ * This is a class that creates sitemap events for a dedicated sitemap page. The widgets of the page are registered
+ * by their items at the {@link ItemWidgetIndex}, which notifies the listener about the widgets affected by an item
+ * state change. The event of each affected widget is created once and sent to all subscriptions of the page.
  *
  * @author Kai Kreuzer - Initial contribution and API
+ * @author agent - Receive the changed widgets from the item widget index
  *
  */
-public class PageChangeListener implements StateChangeListener {
+public class PageChangeListener {
 
     private final String sitemapName;
     private final String pageId;
     private final ItemUIRegistry itemUIRegistry;
+    private final ItemWidgetIndex itemWidgetIndex;
     private EList<Widget> widgets;
-    private Set<Item> items;
     private final List<SitemapSubscriptionCallback> callbacks = Collections
             .synchronizedList(new ArrayList<SitemapSubscriptionCallback>());
     private Set<SitemapSubscriptionCallback> distinctCallbacks = Collections.emptySet();
@@ -51,33 +53,32 @@ public class PageChangeListener implements StateChangeListener {
      * @param pageId the id of the page for which events are created
      * @param itemUIRegistry the ItemUIRegistry which is needed for the functionality
      * @param widgets the list of widgets that are part of the page.
+     * @param itemWidgetIndex the index at which the widgets of the page are registered
      */
-    public PageChangeListener(String sitemapName, String pageId, ItemUIRegistry itemUIRegistry, EList<Widget> widgets) {
+    public PageChangeListener(String sitemapName, String pageId, ItemUIRegistry itemUIRegistry, EList<Widget> widgets,
+            ItemWidgetIndex itemWidgetIndex) {
         this.sitemapName = sitemapName;
         this.pageId = pageId;
         this.itemUIRegistry = itemUIRegistry;
+        this.itemWidgetIndex = itemWidgetIndex;
 
         updateItemsAndWidgets(widgets);
     }
 
     private void updateItemsAndWidgets(EList<Widget> widgets) {
         if (this.widgets != null) {
-            // cleanup statechange listeners in case widgets were removed
-            items = getAllItems(this.widgets);
-            for (Item item : items) {
-                if (item instanceof GenericItem) {
-                    ((GenericItem) item).removeStateChangeListener(this);
-                }
-            }
+            // cleanup the index in case widgets were removed
+            itemWidgetIndex.remove(this);
         }
 
         this.widgets = widgets;
-        items = getAllItems(widgets);
-        for (Item item : items) {
-            if (item instanceof GenericItem) {
-                ((GenericItem) item).addStateChangeListener(this);
-            }
+        Map<Item, Set<Widget>> widgetsByItem = new LinkedHashMap<>();
+        collectWidgetsByItem(widgets, widgetsByItem);
+        Map<Item, List<Widget>> indexedWidgets = new LinkedHashMap<>();
+        for (Map.Entry<Item, Set<Widget>> entry : widgetsByItem.entrySet()) {
+            indexedWidgets.put(entry.getKey(), new ArrayList<>(entry.getValue()));
         }
+        itemWidgetIndex.add(this, indexedWidgets);
     }
 
     public String getSitemapName() {
@@ -103,114 +104,83 @@ public class PageChangeListener implements StateChangeListener {
      * Disposes this instance and releases all resources.
      */
     public void dispose() {
-        for (Item item : items) {
-            if (item instanceof GenericItem) {
-                ((GenericItem) item).removeStateChangeListener(this);
-            } else if (item instanceof GroupItem) {
-                ((GroupItem) item).removeStateChangeListener(this);
-            }
-        }
+        itemWidgetIndex.remove(this);
     }
 
     /**
-     * Collects all items that are represented by a given list of widgets
+     * Collects all items that are represented by a given list of widgets, together with the widgets which show them or
+     * depend on them for their visibility.
      *
      * @param widgets
-     *            the widget list to get the items for added to all bundles containing REST resources
-     * @return all items that are represented by the list of widgets
+     *            the widget list to get the items for
+     * @param widgetsByItem
+     *            the map to which the items and their widgets are added
      */
-    private Set<Item> getAllItems(EList<Widget> widgets) {
-        Set<Item> items = new HashSet<Item>();
+    private void collectWidgetsByItem(List<Widget> widgets, Map<Item, Set<Widget>> widgetsByItem) {
         if (itemUIRegistry != null) {
             for (Widget widget : widgets) {
-                addItemWithName(items, widget.getItem());
+                addWidgetToItem(widgetsByItem, widget.getItem(), widget);
                 if (widget instanceof Frame) {
-                    items.addAll(getAllItems(((Frame) widget).getChildren()));
+                    collectWidgetsByItem(itemUIRegistry.getChildren((Frame) widget), widgetsByItem);
                 }
                 // now scan visibility rules
                 for (VisibilityRule vr : widget.getVisibility()) {
-                    addItemWithName(items, vr.getItem());
+                    addWidgetToItem(widgetsByItem, vr.getItem(), widget);
                 }
             }
         }
-        return items;
     }
 
-    private void addItemWithName(Set<Item> items, String itemName) {
+    private void addWidgetToItem(Map<Item, Set<Widget>> widgetsByItem, String itemName, Widget widget) {
         if (itemName != null) {
             try {
                 Item item = itemUIRegistry.getItem(itemName);
-                items.add(item);
+                Set<Widget> itemWidgets = widgetsByItem.get(item);
+                if (itemWidgets == null) {
+                    itemWidgets = new LinkedHashSet<>();
+                    widgetsByItem.put(item, itemWidgets);
+                }
+                itemWidgets.add(widget);
             } catch (ItemNotFoundException e) {
                 // ignore
             }
         }
     }
 
-    @Override
-    public void stateChanged(Item item, State oldState, State newState) {
-        // For all items except group, send an event only when the event state is changed.
-        if (item instanceof GroupItem) {
-            return;
-        }
-        Set<SitemapEvent> events = constructSitemapEvents(item, widgets);
-        for (SitemapEvent event : events) {
-            for (SitemapSubscriptionCallback callback : distinctCallbacks) {
-                callback.onEvent(event);
-            }
-        }
-    }
-
-    @Override
-    public void stateUpdated(Item item, State state) {
-        // For group item only, send an event each time the event state is updated.
-        // It allows updating the group label while the group state is unchanged,
-        // for example the count in label for Group:Switch:OR
-        if (!(item instanceof GroupItem)) {
+    /**
+     * Sends the events for the widgets of this page which are affected by a state change of the given item.
+     *
+     * @param item the item whose state has changed
+     * @param widgets the widgets of this page which show the item or depend on it for their visibility
+     */
+    void widgetsChanged(Item item, List<Widget> widgets) {
+        Set<SitemapSubscriptionCallback> callbacks = distinctCallbacks;
+        if (callbacks.isEmpty()) {
             return;
         }
-        Set<SitemapEvent> events = constructSitemapEvents(item, widgets);
-        for (SitemapEvent event : events) {
-            for (SitemapSubscriptionCallback callback : distinctCallbacks) {
-                callback.onEvent(event);
-            }
-        }
-    }
-
-    private Set<SitemapEvent> constructSitemapEvents(Item item, List<Widget> widgets) {
-        Set<SitemapEvent> events = new HashSet<>();
         for (Widget w : widgets) {
-            if (w instanceof Frame) {
-                events.addAll(constructSitemapEvents(item, itemUIRegistry.getChildren((Frame) w)));
-            }
-
-            if ((w.getItem() != null && w.getItem().equals(item.getName())) || definesVisibility(w, item.getName())) {
-                SitemapWidgetEvent event = new SitemapWidgetEvent();
-                event.sitemapName = sitemapName;
-                event.pageId = pageId;
-                event.label = itemUIRegistry.getLabel(w);
-                event.labelcolor = itemUIRegistry.getLabelColor(w);
-                event.valuecolor = itemUIRegistry.getValueColor(w);
-                event.widgetId = itemUIRegistry.getWidgetId(w);
-                event.visibility = itemUIRegistry.getVisiblity(w);
-                event.item = EnrichedItemDTOMapper.map(item, false, null, null);
-
-                // adjust the state according to the widget type
-                event.item.state = itemUIRegistry.getState(w).toFullString();
-
-                events.add(event);
+            SitemapEvent event = constructSitemapEvent(item, w);
+            for (SitemapSubscriptionCallback callback : callbacks) {
+                callback.onEvent(event);
             }
         }
-        return events;
     }
 
-    private boolean definesVisibility(Widget w, String name) {
-        for (VisibilityRule vr : w.getVisibility()) {
-            if (name.equals(vr.getItem())) {
-                return true;
-            }
-        }
-        return false;
+    private SitemapEvent constructSitemapEvent(Item item, Widget w) {
+        SitemapWidgetEvent event = new SitemapWidgetEvent();
+        event.sitemapName = sitemapName;
+        event.pageId = pageId;
+        event.label = itemUIRegistry.getLabel(w);
+        event.labelcolor = itemUIRegistry.getLabelColor(w);
+        event.valuecolor = itemUIRegistry.getValueColor(w);
+        event.widgetId = itemUIRegistry.getWidgetId(w);
+        event.visibility = itemUIRegistry.getVisiblity(w);
+        event.item = EnrichedItemDTOMapper.map(item, false, null, null);
+
+        // adjust the state according to the widget type
+        event.item.state = itemUIRegistry.getState(w).toFullString();
+
+        return event;
     }
 
     public void sitemapContentChanged() {
@@ -28,6 +28,13 @@ public class PageDTO {
 
     public List<WidgetDTO> widgets = new ArrayList<WidgetDTO>();
 
+    // the version of the page, only set for requested pages
+    public Long version;
+
+    // only for responses with the changes since a version, which contain only the changed widgets
+    public Long since;
+    public List<String> removedWidgetIds;
+
     public PageDTO() {
     }
 
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.rest.sitemap.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.model.sitemap.Sitemap;
+import org.eclipse.smarthome.ui.items.ItemUIRegistry;
+
+import com.google.gson.Gson;
+
+/**
+ * A {@link PageSnapshot} is a versioned {@link PageDTO} together with the items and states it has been created from.
+ *
+ * As long as the sitemap and the items of the page and their states are unchanged, the snapshot is valid and the page
+ * does not need to be created again. A new snapshot gets a new version only if its content differs from the previous
+ * one. The snapshot also remembers in which version each widget of the page has changed, so that only the widgets
+ * which have changed since a given version can be sent.
+ *
+ * @author agent - Initial contribution
+ */
+final class PageSnapshot {
+
+    /**
+     * Snapshots are created again after this time (in ms) even if none of their items has changed, as the page can
+     * depend on other things, e.g. on transformations.
+     */
+    static final long REVALIDATION_INTERVAL = 60000;
+
+    private static final Gson GSON = new Gson();
+
+    // versions are unique across restarts, so that outdated versions of clients are not taken for current ones
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis());
+
+    private final PageDTO page;
+
+    private final long version;
+
+    /** the first version from which changes can be calculated */
+    private final long baseVersion;
+
+    private final Dependencies dependencies;
+
+    /** widget id -> JSON of the widget */
+    private final Map<String, String> widgetContents;
+
+    /** widget id -> version in which the widget has changed last */
+    private final Map<String, Long> widgetVersions;
+
+    /** widget id -> version in which the widget has been removed */
+    private final Map<String, Long> removedWidgets;
+
+    /**
+     * The sitemap, items and states a page has been created from.
+     */
+    static final class Dependencies {
+
+        private final Sitemap sitemap;
+
+        private final String[] itemNames;
+
+        private final Item[] items;
+
+        /** the states of the items, for groups together with the states of their members */
+        private final Object[] states;
+
+        private final long captureTime = System.currentTimeMillis();
+
+        private Dependencies(Sitemap sitemap, String[] itemNames, Item[] items, Object[] states) {
+            this.sitemap = sitemap;
+            this.itemNames = itemNames;
+            this.items = items;
+            this.states = states;
+        }
+
+        /**
+         * Captures the current items and states a page depends on. This has to be done before the page is created, so
+         * that changes during its creation make the snapshot invalid.
+         *
+         * @param sitemap the sitemap of the page
+         * @param itemUIRegistry the registry to get the items from
+         * @param itemNames the names of the items the page depends on
+         * @return the dependencies
+         */
+        static Dependencies capture(Sitemap sitemap, ItemUIRegistry itemUIRegistry, Collection<String> itemNames) {
+            String[] names = itemNames.toArray(new String[itemNames.size()]);
+            Item[] items = new Item[names.length];
+            Object[] states = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                items[i] = getItem(itemUIRegistry, names[i]);
+                states[i] = items[i] != null ? getState(items[i]) : null;
+            }
+            return new Dependencies(sitemap, names, items, states);
+        }
+
+        private boolean isUnchanged(Sitemap currentSitemap, ItemUIRegistry itemUIRegistry) {
+            if (currentSitemap != sitemap || System.currentTimeMillis() - captureTime > REVALIDATION_INTERVAL) {
+                return false;
+            }
+            for (int i = 0; i < itemNames.length; i++) {
+                Item item = getItem(itemUIRegistry, itemNames[i]);
+                if (item != items[i] || (item != null && !Objects.equals(getState(item), states[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Object getState(Item item) {
+            if (!(item instanceof GroupItem)) {
+                return item.getState();
+            }
+            // the label of a group can show the number of its members in a state, e.g. for Group:Switch:OR, which
+            // changes with the states of the members even if the state of the group stays the same
+            Set<Item> members = ((GroupItem) item).getAllMembers();
+            List<State> states = new ArrayList<>(members.size() + 1);
+            states.add(item.getState());
+            for (Item member : members) {
+                states.add(member.getState());
+            }
+            return states;
+        }
+
+        private static Item getItem(ItemUIRegistry itemUIRegistry, String itemName) {
+            try {
+                return itemUIRegistry.getItem(itemName);
+            } catch (ItemNotFoundException e) {
+                return null;
+            }
+        }
+    }
+
+    private PageSnapshot(PageDTO page, long version, long baseVersion, Dependencies dependencies,
+            Map<String, String> widgetContents, Map<String, Long> widgetVersions, Map<String, Long> removedWidgets) {
+        this.page = page;
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.dependencies = dependencies;
+        this.widgetContents = widgetContents;
+        this.widgetVersions = widgetVersions;
+        this.removedWidgets = removedWidgets;
+    }
+
+    /**
+     * Creates a snapshot for a page.
+     *
+     * @param previous the previous snapshot of the page or null
+     * @param page the created page
+     * @param dependencies the dependencies captured before the page has been created
+     * @return the snapshot, which has the version of the previous snapshot if the page has not changed
+     */
+    static PageSnapshot create(PageSnapshot previous, PageDTO page, Dependencies dependencies) {
+        Map<String, String> widgetContents = new HashMap<>();
+        if (page.widgets != null) {
+            for (WidgetDTO widget : page.widgets) {
+                widgetContents.put(widget.widgetId, GSON.toJson(widget));
+            }
+        }
+        if (previous == null || previous.dependencies.sitemap != dependencies.sitemap) {
+            long version = VERSIONS.incrementAndGet();
+            Map<String, Long> widgetVersions = new HashMap<>();
+            for (String widgetId : widgetContents.keySet()) {
+                widgetVersions.put(widgetId, version);
+            }
+            page.version = version;
+            return new PageSnapshot(page, version, version, dependencies, widgetContents, widgetVersions,
+                    Collections.<String, Long> emptyMap());
+        }
+
+        if (widgetContents.equals(previous.widgetContents) && isPageEqual(page, previous.page)) {
+            // nothing has changed, keep the version and the page
+            return new PageSnapshot(previous.page, previous.version, previous.baseVersion, dependencies,
+                    previous.widgetContents, previous.widgetVersions, previous.removedWidgets);
+        }
+
+        long version = VERSIONS.incrementAndGet();
+        Map<String, Long> widgetVersions = new HashMap<>();
+        for (Map.Entry<String, String> entry : widgetContents.entrySet()) {
+            String widgetId = entry.getKey();
+            boolean changed = !entry.getValue().equals(previous.widgetContents.get(widgetId));
+            widgetVersions.put(widgetId, changed ? version : previous.widgetVersions.get(widgetId));
+        }
+        Map<String, Long> removedWidgets = new HashMap<>();
+        for (Map.Entry<String, Long> entry : previous.removedWidgets.entrySet()) {
+            if (!widgetContents.containsKey(entry.getKey())) {
+                removedWidgets.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String widgetId : previous.widgetContents.keySet()) {
+            if (!widgetContents.containsKey(widgetId)) {
+                removedWidgets.put(widgetId, version);
+            }
+        }
+        page.version = version;
+        return new PageSnapshot(page, version, previous.baseVersion, dependencies, widgetContents, widgetVersions,
+                removedWidgets);
+    }
+
+    private static boolean isPageEqual(PageDTO page, PageDTO other) {
+        return Objects.equals(page.title, other.title) && Objects.equals(page.icon, other.icon)
+                && Objects.equals(page.link, other.link) && page.leaf == other.leaf
+                && Objects.equals(GSON.toJson(page.parent), GSON.toJson(other.parent));
+    }
+
+    /**
+     * Checks whether the page would still be created the same way.
+     *
+     * @param currentSitemap the current sitemap of the page
+     * @param itemUIRegistry the registry to get the current items from
+     * @return true, if the snapshot can be used
+     */
+    boolean isValid(Sitemap currentSitemap, ItemUIRegistry itemUIRegistry) {
+        return dependencies.isUnchanged(currentSitemap, itemUIRegistry);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the complete page.
+     *
+     * @return the page, which must not be modified
+     */
+    PageDTO getPage() {
+        return page;
+    }
+
+    /**
+     * Returns the page with only the widgets which have changed since the given version. If the changes since the
+     * given version are not known, the complete page is returned.
+     *
+     * @param sinceVersion a version of this page known by the client
+     * @return the page with the changed widgets and the ids of removed widgets, or the complete page
+     */
+    PageDTO getChangesSince(long sinceVersion) {
+        if (sinceVersion < baseVersion || sinceVersion > version || page.widgets == null) {
+            return page;
+        }
+        PageDTO delta = new PageDTO();
+        delta.id = page.id;
+        delta.title = page.title;
+        delta.icon = page.icon;
+        delta.link = page.link;
+        delta.parent = page.parent;
+        delta.leaf = page.leaf;
+        delta.version = version;
+        delta.since = sinceVersion;
+        for (WidgetDTO widget : page.widgets) {
+            if (widgetVersions.get(widget.widgetId) > sinceVersion) {
+                delta.widgets.add(widget);
+            }
+        }
+        delta.removedWidgetIds = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : removedWidgets.entrySet()) {
+            if (entry.getValue() > sinceVersion) {
+                delta.removedWidgetIds.add(entry.getKey());
+            }
+        }
+        return delta;
+    }
+
+}
@@ -11,7 +11,10 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Map;
@@ -29,9 +32,12 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
@@ -51,6 +57,7 @@ import org.eclipse.smarthome.io.rest.core.item.EnrichedItemDTOMapper;
 import org.eclipse.smarthome.io.rest.sitemap.SitemapSubscriptionService;
 import org.eclipse.smarthome.io.rest.sitemap.SitemapSubscriptionService.SitemapSubscriptionCallback;
 import org.eclipse.smarthome.model.sitemap.Chart;
+import org.eclipse.smarthome.model.sitemap.ColorArray;
 import org.eclipse.smarthome.model.sitemap.Frame;
 import org.eclipse.smarthome.model.sitemap.Image;
 import org.eclipse.smarthome.model.sitemap.LinkableWidget;
@@ -64,6 +71,7 @@ import org.eclipse.smarthome.model.sitemap.SitemapProvider;
 import org.eclipse.smarthome.model.sitemap.Slider;
 import org.eclipse.smarthome.model.sitemap.Switch;
 import org.eclipse.smarthome.model.sitemap.Video;
+import org.eclipse.smarthome.model.sitemap.VisibilityRule;
 import org.eclipse.smarthome.model.sitemap.Webview;
 import org.eclipse.smarthome.model.sitemap.Widget;
 import org.eclipse.smarthome.ui.items.ItemUIRegistry;
@@ -92,6 +100,7 @@ import io.swagger.annotations.ApiResponses;
  * @author Kai Kreuzer - Initial contribution and API
  * @author Chris Jackson
  * @author Yordan Zhelev - Added Swagger annotations
+ * @author agent - Versioned page snapshots with ETags and changes since a version
  */
 @Path(SitemapResource.PATH_SITEMAPS)
 @RolesAllowed({ Role.USER, Role.ADMIN })
@@ -106,6 +115,8 @@ public class SitemapResource implements RESTResource, SitemapSubscriptionCallbac
 
     private static final long TIMEOUT_IN_MS = 30000;
 
+    private static final int MAX_PAGE_SNAPSHOTS = 500;
+
     private SseBroadcaster broadcaster;
 
     @Context
@@ -122,6 +133,16 @@ public class SitemapResource implements RESTResource, SitemapSubscriptionCallbac
 
     private Map<String, EventOutput> eventOutputs = new MapMaker().weakValues().makeMap();
 
+    /* sitemap+page+locale+uri -> the last created page */
+    @SuppressWarnings("serial")
+    private final Map<String, PageSnapshot> pageSnapshots = Collections
+            .synchronizedMap(new LinkedHashMap<String, PageSnapshot>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PageSnapshot> eldest) {
+                    return size() > MAX_PAGE_SNAPSHOTS;
+                }
+            });
+
     protected void activate() {
         broadcaster = new SseBroadcaster();
         broadcaster.add(this);
@@ -130,6 +151,7 @@ public class SitemapResource implements RESTResource, SitemapSubscriptionCallbac
     protected void deactivate() {
         broadcaster.remove(this);
         broadcaster = null;
+        pageSnapshots.clear();
     }
 
     public void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
@@ -187,13 +209,16 @@ public class SitemapResource implements RESTResource, SitemapSubscriptionCallbac
     @Produces(MediaType.APPLICATION_JSON)
     @ApiOperation(value = "Polls the data for a sitemap.", response = PageDTO.class)
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 304, message = "Not Modified"),
             @ApiResponse(code = 404, message = "Sitemap with requested name does not exist or page does not exist, or page refers to a non-linkable widget"),
             @ApiResponse(code = 400, message = "Invalid subscription id has been provided.") })
-    public Response getPageData(@Context HttpHeaders headers,
+    public Response getPageData(@Context HttpHeaders headers, @Context Request request,
             @HeaderParam(HttpHeaders.ACCEPT_LANGUAGE) @ApiParam(value = "language") String language,
             @PathParam("sitemapname") @ApiParam(value = "sitemap name") String sitemapname,
             @PathParam("pageid") @ApiParam(value = "page id") String pageId,
-            @QueryParam("subscriptionid") @ApiParam(value = "subscriptionid", required = false) String subscriptionId) {
+            @QueryParam("subscriptionid") @ApiParam(value = "subscriptionid", required = false) String subscriptionId,
+            @QueryParam("since") @ApiParam(value = "page version, to get only the widgets changed since then",
+                    required = false) Long since) {
         final Locale locale = LocaleUtil.getLocale(language);
         logger.debug("Received HTTP GET request at '{}'", uriInfo.getPath());
 
@@ -211,8 +236,14 @@ public class SitemapResource implements RESTResource, SitemapSubscriptionCallbac
             // so we do a simply listening for changes on the appropriate items
             blockUnlessChangeOccurs(sitemapname, pageId);
         }
-        Object responseObject = getPageBean(sitemapname, pageId, uriInfo.getBaseUriBuilder().build(), locale);
-        return Response.ok(responseObject).build();
+        PageSnapshot snapshot = getPageSnapshot(sitemapname, pageId, uriInfo.getBaseUriBuilder().build(), locale);
+        EntityTag entityTag = new EntityTag(Long.toString(snapshot.getVersion()));
+        ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        Object responseObject = since != null ? snapshot.getChangesSince(since) : snapshot.getPage();
+        return Response.ok(responseObject).tag(entityTag).build();
     }
 
     /**
@@ -266,6 +297,78 @@ public class SitemapResource implements RESTResource, SitemapSubscriptionCallbac
         return eventOutput;
     }
 
+    /**
+     * Returns the snapshot of a page. The page is only created again, if the sitemap or any of the items the page
+     * depends on have changed since the last snapshot.
+     */
+    private PageSnapshot getPageSnapshot(String sitemapName, String pageId, URI uri, Locale locale) {
+        Sitemap sitemap = getSitemap(sitemapName);
+        if (sitemap == null) {
+            logger.info("Received HTTP GET request at '{}' for the unknown sitemap '{}'.", uri, sitemapName);
+            throw new WebApplicationException(404);
+        }
+        String key = sitemapName + "#" + pageId + "#" + locale + "#" + uri;
+        PageSnapshot previous = pageSnapshots.get(key);
+        if (previous != null && previous.isValid(sitemap, itemUIRegistry)) {
+            return previous;
+        }
+        PageSnapshot.Dependencies dependencies = PageSnapshot.Dependencies.capture(sitemap, itemUIRegistry,
+                getPageItemNames(sitemap, pageId));
+        // throws a 404 if the page does not exist
+        PageDTO page = getPageBean(sitemapName, pageId, uri, locale);
+        PageSnapshot snapshot = PageSnapshot.create(previous, page, dependencies);
+        pageSnapshots.put(key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Collects the names of all items which are used for the widgets of a page, their visibility and colors and for the
+     * titles of the page and its parents.
+     */
+    private Set<String> getPageItemNames(Sitemap sitemap, String pageId) {
+        Set<String> itemNames = new LinkedHashSet<>();
+        if (pageId.equals(sitemap.getName())) {
+            addItemNames(itemUIRegistry.getChildren(sitemap), itemNames);
+        } else {
+            Widget pageWidget = itemUIRegistry.getWidget(sitemap, pageId);
+            if (pageWidget instanceof LinkableWidget) {
+                addItemNames(itemUIRegistry.getChildren((LinkableWidget) pageWidget), itemNames);
+                for (EObject parent = pageWidget; parent instanceof Widget; parent = parent.eContainer()) {
+                    addItemNames((Widget) parent, itemNames);
+                }
+            }
+        }
+        return itemNames;
+    }
+
+    private void addItemNames(EList<Widget> widgets, Set<String> itemNames) {
+        for (Widget widget : widgets) {
+            addItemNames(widget, itemNames);
+            if (widget instanceof Frame) {
+                addItemNames(itemUIRegistry.getChildren((Frame) widget), itemNames);
+            }
+        }
+    }
+
+    private void addItemNames(Widget widget, Set<String> itemNames) {
+        addItemName(widget.getItem(), itemNames);
+        for (VisibilityRule rule : widget.getVisibility()) {
+            addItemName(rule.getItem(), itemNames);
+        }
+        for (ColorArray color : widget.getLabelColor()) {
+            addItemName(color.getItem(), itemNames);
+        }
+        for (ColorArray color : widget.getValueColor()) {
+            addItemName(color.getItem(), itemNames);
+        }
+    }
+
+    private void addItemName(String itemName, Set<String> itemNames) {
+        if (itemName != null) {
+            itemNames.add(itemName);
+        }
+    }
+
     private PageDTO getPageBean(String sitemapName, String pageId, URI uri, Locale locale) {
         Sitemap sitemap = getSitemap(sitemapName);
         if (sitemap != null) {
@@ -11,8 +11,17 @@ import static org.hamcrest.CoreMatchers.*
 import static org.junit.Assert.*
 import static org.junit.matchers.JUnitMatchers.*
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import org.eclipse.smarthome.io.rest.sse.internal.SseEventOutput
+import org.eclipse.smarthome.io.rest.sse.internal.SseEventOutput.OverflowPolicy
+import org.eclipse.smarthome.io.rest.sse.internal.TopicFilterIndex
 import org.eclipse.smarthome.io.rest.sse.internal.util.SseUtil
 import org.eclipse.smarthome.test.OSGiTest
+import org.glassfish.jersey.media.sse.OutboundEvent
 import org.junit.Test
 
 class SseResourceOSGiTest extends OSGiTest {
@@ -99,4 +108,134 @@ class SseResourceOSGiTest extends OSGiTest {
         assertThat "smarthome/items/anyitem/added".matches(regexes[0]), is(true);
         assertThat "smarthome/items/anyitem/removed".matches(regexes[0]), is(false);
     }
+
+    @Test
+    public void testTopicFilterIndex() {
+        def index = new TopicFilterIndex<String>()
+        index.add("client1", SseUtil.convertToRegex("smarthome/items/*/added, smarthome/things"))
+        index.add("client2", SseUtil.convertToRegex("smarthome/items/*/added"))
+        index.add("client3", SseUtil.convertToRegex(""))
+
+        // equal filters of different clients are shared
+        assertThat index.getFilterCount(), is(3)
+
+        assertThat index.getSubscribers("smarthome/items/anyitem/added") as Set, is(["client1", "client2", "client3"] as Set)
+        assertThat index.getSubscribers("smarthome/things/anything/updated") as Set, is(["client1", "client3"] as Set)
+        assertThat index.getSubscribers("smarthome/items/anyitem/removed") as Set, is(["client3"] as Set)
+
+        assertThat index.remove("client3"), is(true)
+        assertThat index.remove("client3"), is(false)
+        assertThat index.getFilterCount(), is(2)
+        assertThat index.getSubscribers("smarthome/items/anyitem/removed").isEmpty(), is(true)
+
+        index.remove("client1")
+        assertThat index.getFilterCount(), is(1)
+        assertThat index.getSubscribers("smarthome/items/anyitem/added") as Set, is(["client2"] as Set)
+        assertThat index.getSubscribers("smarthome/things/anything/updated").isEmpty(), is(true)
+    }
+
+    @Test
+    public void testFullEventOutputCoalescesEventsOfTheSameTopic() {
+        def tasks = []
+        def output = new SseEventOutput("client", "", { tasks << it } as Executor, 3, OverflowPolicy.COALESCE_BY_TOPIC, 0)
+
+        output.offer("smarthome/items/a/state", event("a1"))
+        output.offer("smarthome/items/b/state", event("b1"))
+        output.offer("smarthome/items/a/state", event("a2"))
+        // the queue is full, a2 is replaced by a3 and a1 is dropped for c1
+        output.offer("smarthome/items/a/state", event("a3"))
+        output.offer("smarthome/items/c/state", event("c1"))
+
+        assertThat output.getStatistics().queued, is(3)
+        assertThat output.getStatistics().dropped, is(2L)
+        assertThat tasks.size(), is(1)
+
+        tasks[0].run()
+        assertThat output.getStatistics().queued, is(0)
+        assertThat output.getStatistics().written, is(3L)
+    }
+
+    @Test
+    public void testEventOutputDropsOldestEvents() {
+        def tasks = []
+        def output = new SseEventOutput("client", "", { tasks << it } as Executor, 2, OverflowPolicy.DROP_OLDEST, 0)
+
+        4.times { output.offer("smarthome/items/a/state", event("a" + it)) }
+
+        assertThat output.getStatistics().queued, is(2)
+        assertThat output.getStatistics().dropped, is(2L)
+    }
+
+    @Test
+    public void testSlowClientIsDisconnected() {
+        def tasks = []
+        def output = new SseEventOutput("client", "", { tasks << it } as Executor, 10, OverflowPolicy.DROP_OLDEST, 100)
+
+        output.offer("smarthome/items/a/state", event("a1"))
+        Thread.sleep(200)
+        output.offer("smarthome/items/a/state", event("a2"))
+
+        assertThat output.isDisconnected(), is(true)
+        tasks.each { it.run() }
+        assertThat output.isClosed(), is(true)
+        assertThat output.getStatistics().written, is(0L)
+        assertThat output.getStatistics().dropped, is(1L)
+    }
+
+    @Test
+    public void testClientWithBlockingWriteIsDisconnected() {
+        def writing = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def executor = Executors.newCachedThreadPool()
+        def blockedOutput = new SseEventOutput("blocked", "", executor, 10, OverflowPolicy.DROP_OLDEST, 100) {
+                    @Override
+                    public void write(OutboundEvent event) throws IOException {
+                        writing.countDown()
+                        release.await()
+                        throw new IOException("closed")
+                    }
+                }
+        def output = new SseEventOutput("client", "", executor, 10, OverflowPolicy.DROP_OLDEST, 100)
+
+        try {
+            blockedOutput.offer("smarthome/items/a/state", event("a1"))
+            assertThat writing.await(5, TimeUnit.SECONDS), is(true)
+            assertThat blockedOutput.checkLag(), is(false)
+
+            // the write blocks for longer than the maximum lag
+            Thread.sleep(200)
+            assertThat blockedOutput.checkLag(), is(true)
+            assertThat blockedOutput.isDisconnected(), is(true)
+            waitForAssert { assertThat blockedOutput.isClosed(), is(true) }
+
+            // the other clients are not delayed by the blocked one
+            output.offer("smarthome/items/a/state", event("a1"))
+            waitForAssert { assertThat output.getStatistics().written, is(1L) }
+            assertThat output.isDisconnected(), is(false)
+        } finally {
+            release.countDown()
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    public void testKeepAliveIsOnlyWrittenToIdleClients() {
+        def tasks = []
+        def output = new SseEventOutput("client", "", { tasks << it } as Executor, 10, OverflowPolicy.DROP_OLDEST, 0)
+
+        output.keepAlive(60000)
+        assertThat output.getStatistics().queued, is(0)
+
+        Thread.sleep(100)
+        output.keepAlive(50)
+        output.keepAlive(50)
+        assertThat output.getStatistics().queued, is(1)
+
+        tasks.each { it.run() }
+        assertThat output.getStatistics().written, is(1L)
+    }
+
+    private OutboundEvent event(String data) {
+        new OutboundEvent.Builder().name("message").data(String.class, data).build()
+    }
 }
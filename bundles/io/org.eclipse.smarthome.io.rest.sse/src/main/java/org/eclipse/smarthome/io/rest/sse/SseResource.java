@@ -8,8 +8,15 @@
 package org.eclipse.smarthome.io.rest.sse;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.security.RolesAllowed;
 import javax.inject.Singleton;
@@ -21,17 +28,24 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
 import org.eclipse.smarthome.core.auth.Role;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.io.rest.sse.beans.ConnectionBean;
 import org.eclipse.smarthome.io.rest.sse.internal.SseEventOutput;
+import org.eclipse.smarthome.io.rest.sse.internal.SseEventOutput.OverflowPolicy;
+import org.eclipse.smarthome.io.rest.sse.internal.TopicFilterIndex;
 import org.eclipse.smarthome.io.rest.sse.internal.util.SseUtil;
 import org.glassfish.jersey.media.sse.EventOutput;
-import org.glassfish.jersey.media.sse.SseBroadcaster;
+import org.glassfish.jersey.media.sse.OutboundEvent;
 import org.glassfish.jersey.media.sse.SseFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -42,8 +56,17 @@ import io.swagger.annotations.ApiResponses;
 /**
  * SSE Resource for pushing events to currently listening clients.
  *
+ * Every client has a bounded queue of events which are written by the threads of the "sse" pool of the
+ * {@link ThreadPoolManager}. Its size limits the number of writes which can block at the same time, e.g. for clients
+ * on stalled connections until they are disconnected, and is configured like the size of any other pool. The
+ * size of the queue, the policy for full queues ({@code drop-oldest} or {@code coalesce-by-topic}) and the maximum lag
+ * (in ms) after which a client is disconnected can be configured by {@code queueSize}, {@code overflowPolicy} and
+ * {@code maxLag}.
+ *
  * @author Ivan Iliev - Initial Contribution and API
  * @author Yordan Zhelev - Added Swagger annotations
+ * @author agent - Write events only to the clients with a matching filter
+ * @author agent - Bounded queue per client and connection statistics
  *
  */
 @Path(SseResource.PATH_EVENTS)
@@ -56,9 +79,39 @@ public class SseResource {
 
     private static final String X_ACCEL_BUFFERING_HEADER = "X-Accel-Buffering";
 
-    private final SseBroadcaster broadcaster;
+    private static final String THREAD_POOL_NAME = "sse";
+
+    private static final String CONFIG_QUEUE_SIZE = "queueSize";
+
+    private static final String CONFIG_OVERFLOW_POLICY = "overflowPolicy";
+
+    private static final String CONFIG_MAX_LAG = "maxLag";
+
+    private static final int DEFAULT_QUEUE_SIZE = 500;
+
+    private static final long DEFAULT_MAX_LAG = 30000;
+
+    /** the interval in which the clients which are gone or lagging behind are removed (in ms) */
+    private static final long SWEEP_INTERVAL = 10000;
+
+    /** the time without events after which a keep-alive comment is written to a client (in ms) */
+    private static final long KEEP_ALIVE_INTERVAL = 30000;
+
+    private final Logger logger = LoggerFactory.getLogger(SseResource.class);
+
+    private final TopicFilterIndex<SseEventOutput> eventOutputs;
 
-    private final ExecutorService executorService;
+    private final ScheduledExecutorService executorService;
+
+    private final ExecutorService writerService;
+
+    private ScheduledFuture<?> sweepJob;
+
+    private volatile int queueSize = DEFAULT_QUEUE_SIZE;
+
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE_BY_TOPIC;
+
+    private volatile long maxLag = DEFAULT_MAX_LAG;
 
     @Context
     private UriInfo uriInfo;
@@ -70,8 +123,43 @@ public class SseResource {
     private HttpServletRequest request;
 
     public SseResource() {
-        this.executorService = Executors.newSingleThreadExecutor();
-        this.broadcaster = new SseBroadcaster();
+        this.executorService = Executors.newSingleThreadScheduledExecutor();
+        this.writerService = ThreadPoolManager.getPool(THREAD_POOL_NAME);
+        this.eventOutputs = new TopicFilterIndex<>();
+    }
+
+    protected void activate(Map<String, Object> config) {
+        modified(config);
+        sweepJob = executorService.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    protected void deactivate() {
+        if (sweepJob != null) {
+            sweepJob.cancel(false);
+            sweepJob = null;
+        }
+        executorService.shutdown();
+    }
+
+    protected void modified(Map<String, Object> config) {
+        queueSize = getIntConfig(config, CONFIG_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        maxLag = getIntConfig(config, CONFIG_MAX_LAG, (int) DEFAULT_MAX_LAG);
+        Object overflowPolicyConfig = config != null ? config.get(CONFIG_OVERFLOW_POLICY) : null;
+        overflowPolicy = OverflowPolicy.fromConfig(overflowPolicyConfig != null ? overflowPolicyConfig.toString() : null,
+                OverflowPolicy.COALESCE_BY_TOPIC);
+    }
+
+    private int getIntConfig(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", value, key);
+            }
+        }
+        return defaultValue;
     }
 
     /**
@@ -96,10 +184,11 @@ public class SseResource {
             return Response.status(Status.BAD_REQUEST).build();
         }
 
-        // construct an EventOutput that will only write out events that match
-        // the given filter
-        final EventOutput eventOutput = new SseEventOutput(eventFilter);
-        broadcaster.add(eventOutput);
+        // construct an EventOutput and register it with its filter, so that it
+        // only receives events that match the given filter
+        final SseEventOutput eventOutput = new SseEventOutput(request.getRemoteAddr(), eventFilter,
+                writerService, queueSize, overflowPolicy, maxLag);
+        eventOutputs.add(eventOutput, eventOutput.getRegexFilters());
 
         // Disables proxy buffering when using an nginx http server proxy for this response.
         // This allows you to not disable proxy buffering in nginx and still have working sse
@@ -124,12 +213,51 @@ public class SseResource {
         return eventOutput;
     }
 
+    /**
+     * Returns the statistics of the currently connected clients.
+     *
+     * @return the statistics of the clients
+     */
+    @GET
+    @Path("/connections")
+    @RolesAllowed({ Role.ADMIN })
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Get the statistics of the connected clients.", response = ConnectionBean.class,
+            responseContainer = "List")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
+    public Response getConnections() {
+        List<ConnectionBean> connections = new ArrayList<>();
+        for (SseEventOutput output : eventOutputs.getSubscribers()) {
+            if (output.isDisconnected()) {
+                eventOutputs.remove(output);
+            } else {
+                connections.add(output.getStatistics());
+            }
+        }
+        return Response.ok(connections).build();
+    }
+
+    /**
+     * Removes the clients which are gone from the index, also those whose filters do not match any event, and
+     * disconnects the clients which lag behind. The other clients get a keep-alive comment if they have not received an
+     * event for some time, so that closed connections are noticed.
+     */
+    private void sweep() {
+        for (SseEventOutput output : eventOutputs.getSubscribers()) {
+            if (output.isDisconnected() || output.checkLag()) {
+                eventOutputs.remove(output);
+            } else {
+                output.keepAlive(KEEP_ALIVE_INTERVAL);
+            }
+        }
+    }
+
     /**
      * Broadcasts an event described by the given parameter to all currently
-     * listening clients.
+     * listening clients with a matching topic filter. The event is serialized
+     * only if there is at least one such client. The event is only queued for
+     * each client, so that slow clients do not delay the other ones.
      *
-     * @param sseEventType
-     *            the SSE event type
      * @param event
      *            the event
      */
@@ -137,7 +265,18 @@ public class SseResource {
         executorService.execute(new Runnable() {
             @Override
             public void run() {
-                broadcaster.broadcast(SseUtil.buildEvent(event));
+                Set<SseEventOutput> outputs = eventOutputs.getSubscribers(event.getTopic());
+                if (outputs.isEmpty()) {
+                    return;
+                }
+                OutboundEvent outboundEvent = SseUtil.buildEvent(event);
+                for (SseEventOutput output : outputs) {
+                    if (output.isDisconnected()) {
+                        eventOutputs.remove(output);
+                    } else {
+                        output.offer(event.getTopic(), outboundEvent);
+                    }
+                }
             }
         });
     }
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.rest.sse.beans;
+
+/**
+ * Bean for the statistics of a connected SSE client.
+ *
+ * @author agent - Initial contribution
+ */
+public class ConnectionBean {
+
+    /** the address of the client */
+    public String client;
+
+    /** the topic filter of the client */
+    public String topics;
+
+    /** the time the client has connected, in milliseconds since the epoch */
+    public long connectedSince;
+
+    /** the number of events waiting to be written to the client */
+    public int queued;
+
+    /** the maximum number of events waiting to be written to the client */
+    public int capacity;
+
+    /** the age of the oldest event waiting to be written, in milliseconds */
+    public long lag;
+
+    /** the number of events written to the client */
+    public long written;
+
+    /** the number of events which have been dropped or replaced by a newer event of the same topic */
+    public long dropped;
+
+}
@@ -8,40 +8,379 @@
 package org.eclipse.smarthome.io.rest.sse.internal;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
-import org.eclipse.smarthome.io.rest.sse.beans.EventBean;
+import org.eclipse.smarthome.io.rest.sse.beans.ConnectionBean;
 import org.eclipse.smarthome.io.rest.sse.internal.util.SseUtil;
 import org.glassfish.jersey.media.sse.EventOutput;
 import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * {@link EventOutput} implementation that takes a filter parameter and only writes out events that match this filter.
- * Should only be used when the {@link OutboundEvent}s sent through this {@link EventOutput} contain a data object of
- * type {@link EventBean}
- * 
+ * {@link EventOutput} implementation that takes a filter parameter. The events are not filtered by the output itself,
+ * instead the output is registered with its filters at a {@link TopicFilterIndex}, which selects the outputs an event
+ * is written to.
+ *
+ * The events are buffered in a bounded queue and written by a task on a shared executor, so that a client on a slow
+ * connection neither delays the broadcasting thread nor the other clients. If the queue is full, events are dropped
+ * according to the {@link OverflowPolicy}. A client whose oldest queued event, or the event which is being written, is
+ * older than the maximum lag is disconnected and its connection is closed.
+ *
  * @author Ivan Iliev - Initial contribution and API
- * 
+ * @author agent - Bounded queue per client
+ *
  */
-public class SseEventOutput extends EventOutput {
+public class SseEventOutput extends EventOutput implements Runnable {
 
-    private List<String> regexFilters;
+    /**
+     * Defines what happens if an event is offered to an output whose queue is full.
+     */
+    public enum OverflowPolicy {
+        /** the oldest queued event is dropped */
+        DROP_OLDEST,
+        /** a queued event of the same topic is replaced, otherwise the oldest queued event is dropped */
+        COALESCE_BY_TOPIC;
 
-    public SseEventOutput(String topicFilter) {
+        public static OverflowPolicy fromConfig(String value, OverflowPolicy defaultPolicy) {
+            if (value == null || value.trim().isEmpty()) {
+                return defaultPolicy;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return defaultPolicy;
+            }
+        }
+    }
+
+    private static final class QueuedEvent {
+
+        private final String topic;
+
+        private OutboundEvent event;
+
+        private final long enqueueTime;
+
+        private QueuedEvent(String topic, OutboundEvent event, long enqueueTime) {
+            this.topic = topic;
+            this.event = event;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    /** events written by one task before the thread is handed over to other clients */
+    private static final int MAX_WRITES_PER_RUN = 64;
+
+    /** the topic of the keep-alive comments, which is not used by any event */
+    private static final String KEEP_ALIVE_TOPIC = "";
+
+    private static final OutboundEvent KEEP_ALIVE_EVENT = new OutboundEvent.Builder().comment("keep-alive").build();
+
+    private final Logger logger = LoggerFactory.getLogger(SseEventOutput.class);
+
+    private final String client;
+
+    private final String topicFilter;
+
+    private final List<String> regexFilters;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long maxLag;
+
+    private final long connectedSince = System.currentTimeMillis();
+
+    private final ArrayDeque<QueuedEvent> queue = new ArrayDeque<>();
+
+    private final Map<String, QueuedEvent> queuedByTopic = new HashMap<>();
+
+    // guarded by this
+    private long lastOfferTime = connectedSince;
+
+    // guarded by this
+    private boolean scheduled;
+
+    // guarded by this, the time the event which is being written has been queued, 0 if no event is written
+    private long writtenEventTime;
+
+    // guarded by this
+    private boolean disconnected;
+
+    // guarded by this
+    private long writtenEvents;
+
+    // guarded by this
+    private long droppedEvents;
+
+    /**
+     * Creates an output.
+     *
+     * @param client a description of the client, e.g. its address
+     * @param topicFilter the topic filter of the client
+     * @param executor the executor which writes the events
+     * @param capacity the maximum number of queued events
+     * @param overflowPolicy the policy for a full queue
+     * @param maxLag the maximum age of the oldest queued event in milliseconds before the client is disconnected, 0
+     *            to never disconnect the client
+     */
+    public SseEventOutput(String client, String topicFilter, Executor executor, int capacity,
+            OverflowPolicy overflowPolicy, long maxLag) {
         super();
+        this.client = client;
+        this.topicFilter = topicFilter;
         this.regexFilters = SseUtil.convertToRegex(topicFilter);
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.maxLag = maxLag;
     }
 
-    @Override
-    public void write(OutboundEvent chunk) throws IOException {
-        EventBean event = (EventBean) chunk.getData();
+    /**
+     * Returns the topic filters of this output as regular expressions.
+     *
+     * @return the filters
+     */
+    public List<String> getRegexFilters() {
+        return regexFilters;
+    }
+
+    /**
+     * Queues an event to be written to the client.
+     *
+     * @param topic the topic of the event
+     * @param event the event
+     */
+    public void offer(String topic, OutboundEvent event) {
+        boolean schedule = false;
+        boolean lagging;
+        synchronized (this) {
+            if (disconnected) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            lastOfferTime = now;
+            lagging = disconnectIfLagging(now);
+            if (!lagging) {
+                if (queue.size() >= capacity && !makeRoom(topic, event)) {
+                    return;
+                }
+                QueuedEvent queuedEvent = new QueuedEvent(topic, event, now);
+                queue.addLast(queuedEvent);
+                if (overflowPolicy == OverflowPolicy.COALESCE_BY_TOPIC) {
+                    queuedByTopic.put(topic, queuedEvent);
+                }
+                schedule = !scheduled;
+                scheduled = true;
+            }
+        }
+        if (lagging) {
+            closeConnection();
+        } else if (schedule) {
+            schedule();
+        }
+    }
 
-        for (String filter : regexFilters) {
-            if (event.topic.matches(filter)) {
-                super.write(chunk);
+    /**
+     * Disconnects the client and closes its connection, if it is more than the maximum lag behind. This is checked
+     * periodically, as a client which does not get new events or whose write blocks is not checked by
+     * {@link #offer(String, OutboundEvent)}.
+     *
+     * @return true, if the client has been disconnected
+     */
+    public boolean checkLag() {
+        synchronized (this) {
+            if (disconnected || !disconnectIfLagging(System.currentTimeMillis())) {
+                return false;
+            }
+        }
+        closeConnection();
+        return true;
+    }
+
+    /**
+     * Disconnects the client, if the oldest queued event or the event which is being written is older than the
+     * maximum lag.
+     *
+     * @return true, if the client has been disconnected
+     */
+    private boolean disconnectIfLagging(long now) {
+        if (maxLag <= 0) {
+            return false;
+        }
+        QueuedEvent oldest = queue.peekFirst();
+        long oldestEventTime = writtenEventTime > 0 ? writtenEventTime : oldest != null ? oldest.enqueueTime : now;
+        if (now - oldestEventTime <= maxLag) {
+            return false;
+        }
+        logger.debug("SSE client '{}' is more than {}ms behind, disconnecting it.", client, maxLag);
+        disconnect();
+        return true;
+    }
+
+    /**
+     * Queues a comment to be written to the client, if no event has been queued for the given time. A connection which
+     * has been closed by the client is only noticed when writing to it, so this also finds the clients which are gone.
+     *
+     * @param interval the time without events after which a comment is queued in milliseconds
+     */
+    public void keepAlive(long interval) {
+        synchronized (this) {
+            if (disconnected || System.currentTimeMillis() - lastOfferTime < interval) {
                 return;
             }
         }
+        offer(KEEP_ALIVE_TOPIC, KEEP_ALIVE_EVENT);
+    }
+
+    /**
+     * Makes room for the given event in the full queue.
+     *
+     * @return true if the event has to be appended, false if it has replaced a queued event
+     */
+    private boolean makeRoom(String topic, OutboundEvent event) {
+        if (overflowPolicy == OverflowPolicy.COALESCE_BY_TOPIC) {
+            QueuedEvent sameTopic = queuedByTopic.get(topic);
+            if (sameTopic != null) {
+                // only the latest state of a topic is of interest
+                sameTopic.event = event;
+                droppedEvents++;
+                return false;
+            }
+        }
+        QueuedEvent oldest = queue.pollFirst();
+        if (oldest != null) {
+            removeFromTopicMap(oldest);
+            droppedEvents++;
+        }
+        return true;
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            logger.error("Scheduling the writing of events to SSE client '{}' failed: {}", client, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < MAX_WRITES_PER_RUN; i++) {
+            OutboundEvent event;
+            synchronized (this) {
+                QueuedEvent queuedEvent = disconnected ? null : queue.pollFirst();
+                if (queuedEvent == null) {
+                    scheduled = false;
+                    break;
+                }
+                removeFromTopicMap(queuedEvent);
+                event = queuedEvent.event;
+                writtenEventTime = queuedEvent.enqueueTime;
+            }
+            try {
+                write(event);
+                synchronized (this) {
+                    writtenEventTime = 0;
+                    writtenEvents++;
+                }
+            } catch (IOException e) {
+                // the client has gone away or has been disconnected while the event was written
+                logger.debug("Failed to write event to SSE client '{}': {}", client, e.getMessage());
+                synchronized (this) {
+                    writtenEventTime = 0;
+                    disconnect();
+                    scheduled = false;
+                }
+                break;
+            }
+            if (i == MAX_WRITES_PER_RUN - 1) {
+                // give other clients a chance to get the thread
+                synchronized (this) {
+                    if (queue.isEmpty() || disconnected) {
+                        scheduled = false;
+                        break;
+                    }
+                }
+                schedule();
+                return;
+            }
+        }
+        if (isDisconnected() && !isClosed()) {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Closes the connection of the disconnected client on the executor, as the close might block like a write.
+     */
+    private void closeConnection() {
+        try {
+            executor.execute(this::closeQuietly);
+        } catch (RuntimeException e) {
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            logger.trace("Failed to close SSE connection of client '{}': {}", client, e.getMessage());
+        }
+    }
+
+    private void disconnect() {
+        disconnected = true;
+        droppedEvents += queue.size();
+        queue.clear();
+        queuedByTopic.clear();
+    }
+
+    private void removeFromTopicMap(QueuedEvent queuedEvent) {
+        if (overflowPolicy == OverflowPolicy.COALESCE_BY_TOPIC) {
+            queuedByTopic.remove(queuedEvent.topic, queuedEvent);
+        }
+    }
+
+    /**
+     * Indicates whether the client has been disconnected, because it could not keep up or a write has failed.
+     *
+     * @return true, if no more events are written to the client
+     */
+    public synchronized boolean isDisconnected() {
+        return disconnected || isClosed();
+    }
+
+    /**
+     * Returns the statistics of this output.
+     *
+     * @return the statistics
+     */
+    public synchronized ConnectionBean getStatistics() {
+        ConnectionBean bean = new ConnectionBean();
+        QueuedEvent oldest = queue.peekFirst();
+        bean.client = client;
+        bean.topics = topicFilter;
+        bean.connectedSince = connectedSince;
+        bean.queued = queue.size();
+        bean.capacity = capacity;
+        long oldestEventTime = writtenEventTime > 0 ? writtenEventTime : oldest != null ? oldest.enqueueTime : 0;
+        bean.lag = oldestEventTime > 0 ? Math.max(0, System.currentTimeMillis() - oldestEventTime) : 0;
+        bean.written = writtenEvents;
+        bean.dropped = droppedEvents;
+        return bean;
     }
 
 }
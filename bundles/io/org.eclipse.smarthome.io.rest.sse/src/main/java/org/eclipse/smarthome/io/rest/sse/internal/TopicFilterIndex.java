@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.io.rest.sse.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The {@link TopicFilterIndex} keeps the topic filters of all connected SSE clients and finds the clients which are
+ * interested in a topic.
+ *
+ * Every distinct filter is compiled only once and shared by all clients which use it, so that a topic is matched
+ * against each distinct filter once per event, independent of the number of clients. Subscriptions change rarely
+ * compared to the number of events, therefore the index is copied on every change and can be read without locking.
+ *
+ * @author agent - Initial contribution
+ *
+ * @param <T> the type of the subscribers
+ */
+public class TopicFilterIndex<T> {
+
+    /**
+     * A compiled filter together with its subscribers.
+     */
+    private static class TopicFilter<T> {
+
+        private final Pattern pattern;
+
+        private final Set<T> subscribers;
+
+        private TopicFilter(Pattern pattern, Set<T> subscribers) {
+            this.pattern = pattern;
+            this.subscribers = subscribers;
+        }
+    }
+
+    private final Map<String, Pattern> patterns = new HashMap<>();
+
+    private final Map<String, Set<T>> subscribers = new LinkedHashMap<>();
+
+    private volatile TopicFilter<T>[] filters = newFilters(0);
+
+    /**
+     * Adds a subscriber for the given filters.
+     *
+     * @param subscriber the subscriber
+     * @param regexFilters the filters as regular expressions, see
+     *            {@link org.eclipse.smarthome.io.rest.sse.internal.util.SseUtil#convertToRegex(String)}
+     */
+    public synchronized void add(T subscriber, Collection<String> regexFilters) {
+        for (String regex : regexFilters) {
+            if (!patterns.containsKey(regex)) {
+                patterns.put(regex, Pattern.compile(regex));
+            }
+            Set<T> filterSubscribers = subscribers.get(regex);
+            if (filterSubscribers == null) {
+                filterSubscribers = new LinkedHashSet<>();
+                subscribers.put(regex, filterSubscribers);
+            }
+            filterSubscribers.add(subscriber);
+        }
+        update();
+    }
+
+    /**
+     * Removes a subscriber from all filters. Filters without subscribers are dropped.
+     *
+     * @param subscriber the subscriber
+     * @return true, if the subscriber has been removed, false if it was unknown
+     */
+    public synchronized boolean remove(T subscriber) {
+        boolean removed = false;
+        for (Set<T> filterSubscribers : subscribers.values()) {
+            removed |= filterSubscribers.remove(subscriber);
+        }
+        if (removed) {
+            subscribers.values().removeIf(Set::isEmpty);
+            patterns.keySet().retainAll(subscribers.keySet());
+            update();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the subscribers with at least one filter matching the given topic. A subscriber is contained only once,
+     * even if several of its filters match.
+     *
+     * @param topic the topic of an event
+     * @return the matching subscribers, or an empty set if there are none
+     */
+    public Set<T> getSubscribers(String topic) {
+        Set<T> result = null;
+        for (TopicFilter<T> filter : filters) {
+            if (filter.pattern.matcher(topic).matches()) {
+                if (result == null) {
+                    result = new LinkedHashSet<>(filter.subscribers);
+                } else {
+                    result.addAll(filter.subscribers);
+                }
+            }
+        }
+        return result != null ? result : Collections.<T> emptySet();
+    }
+
+    /**
+     * Returns all subscribers.
+     *
+     * @return the subscribers
+     */
+    public synchronized Set<T> getSubscribers() {
+        Set<T> result = new LinkedHashSet<>();
+        for (Set<T> filterSubscribers : subscribers.values()) {
+            result.addAll(filterSubscribers);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct filters.
+     *
+     * @return the number of filters
+     */
+    public int getFilterCount() {
+        return filters.length;
+    }
+
+    private void update() {
+        TopicFilter<T>[] newFilters = newFilters(subscribers.size());
+        int i = 0;
+        for (Map.Entry<String, Set<T>> entry : subscribers.entrySet()) {
+            newFilters[i++] = new TopicFilter<>(patterns.get(entry.getKey()),
+                    Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+        }
+        filters = newFilters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TopicFilter<T>[] newFilters(int size) {
+        return new TopicFilter[size];
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.model.persistence.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.persistence.AggregateFilterCriteria;
+import org.eclipse.smarthome.core.persistence.AggregateFunction;
+import org.eclipse.smarthome.core.persistence.AggregatedItem;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+
+/**
+ * Tests the default implementation of
+ * {@link org.eclipse.smarthome.core.persistence.QueryablePersistenceService#aggregate}.
+ *
+ * @author agent - Initial contribution
+ */
+@SuppressWarnings("deprecation")
+public class AggregationTest {
+
+    private static class Row implements HistoricItem {
+
+        private final String name;
+        private final long time;
+        private final State state;
+
+        private Row(String name, long time, State state) {
+            this.name = name;
+            this.time = time;
+            this.state = state;
+        }
+
+        @Override
+        public Date getTimestamp() {
+            return new Date(time);
+        }
+
+        @Override
+        public State getState() {
+            return state;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+
+    private final TestPersistenceService service = new TestPersistenceService() {
+        @Override
+        public Iterable<HistoricItem> query(FilterCriteria filter) {
+            assertEquals(Ordering.ASCENDING, filter.getOrdering());
+            return new ArrayList<>(rows);
+        }
+    };
+
+    @Test
+    public void testAggregateWholeRange() {
+        Iterator<AggregatedItem> result = new TestPersistenceService()
+                .aggregate(new AggregateFilterCriteria().setItemName("Test").setBeginDate(new Date(50, 0, 1))
+                        .setEndDate(new Date(112, 0, 1)))
+                .iterator();
+
+        assertTrue(result.hasNext());
+        AggregatedItem aggregate = result.next();
+        assertFalse(result.hasNext());
+        assertEquals("Test", aggregate.getName());
+        assertEquals(new Date(50, 0, 1), aggregate.getBeginDate());
+        assertEquals(new Date(112, 0, 1), aggregate.getEndDate());
+        assertEquals(new DecimalType(63), aggregate.getValue(AggregateFunction.COUNT));
+        assertEquals(new DecimalType(1950), aggregate.getValue(AggregateFunction.MIN));
+        assertEquals(new DecimalType(2012), aggregate.getValue(AggregateFunction.MAX));
+        assertEquals(new DecimalType(124803), aggregate.getValue(AggregateFunction.SUM));
+        assertEquals(new DecimalType(1981), aggregate.getValue(AggregateFunction.AVG));
+        assertEquals(new DecimalType(2012), aggregate.getValue(AggregateFunction.LAST));
+    }
+
+    @Test
+    public void testAggregateBuckets() {
+        rows.add(new Row("A", 1000, new DecimalType(1)));
+        rows.add(new Row("B", 1500, OnOffType.ON));
+        rows.add(new Row("A", 1999, new DecimalType(3)));
+        // nothing between 2000 and 3000
+        rows.add(new Row("A", 3000, new DecimalType(5)));
+        rows.add(new Row("B", 3500, new StringType("text")));
+
+        AggregateFilterCriteria filter = new AggregateFilterCriteria().setBeginDate(new Date(1000))
+                .setBucketSize(1000).addFunction(AggregateFunction.AVG).addFunction(AggregateFunction.COUNT);
+        List<AggregatedItem> result = new ArrayList<>();
+        service.aggregate(filter).forEach(result::add);
+
+        assertEquals(4, result.size());
+        assertBucket(result.get(0), "A", 1000, new DecimalType(2), 2);
+        assertBucket(result.get(1), "B", 1000, new DecimalType(1), 1);
+        assertBucket(result.get(2), "A", 3000, new DecimalType(5), 1);
+        // no numeric states
+        assertBucket(result.get(3), "B", 3000, null, 1);
+        assertNull(result.get(0).getValue(AggregateFunction.MAX));
+    }
+
+    @Test
+    public void testAggregateEmptyResult() {
+        assertFalse(service.aggregate(new AggregateFilterCriteria()).iterator().hasNext());
+    }
+
+    private void assertBucket(AggregatedItem aggregate, String name, long begin, State average, long count) {
+        assertEquals(name, aggregate.getName());
+        assertEquals(new Date(begin), aggregate.getBeginDate());
+        assertEquals(new Date(begin + 1000), aggregate.getEndDate());
+        assertEquals(average, aggregate.getValue(AggregateFunction.AVG));
+        assertEquals(new DecimalType(count), aggregate.getValue(AggregateFunction.COUNT));
+    }
+
+}
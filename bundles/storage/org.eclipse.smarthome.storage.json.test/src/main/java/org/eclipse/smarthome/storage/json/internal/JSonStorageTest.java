@@ -7,11 +7,13 @@
  */
 package org.eclipse.smarthome.storage.json.internal;
 
+import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -20,24 +22,41 @@ import org.apache.commons.io.FileUtils;
 import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.storage.json.internal.JsonStorage;
 import org.eclipse.smarthome.test.java.JavaTest;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 /**
- * This test makes sure that the JSonStorage loads all stored numbers as BigDecimal
+ * This test makes sure that the JSonStorage loads all stored numbers as BigDecimal and tests its journal.
  *
  * @author Stefan Triller - Initial Contribution
+ * @author agent - Tests of the journal
  */
 public class JSonStorageTest extends JavaTest {
 
+    private static final int WRITE_DELAY = 60000;
+
     private JsonStorage<DummyObject> objectStorage;
     private File tmpFile;
 
+    private File file;
+    private File journalFile;
+
     @Before
     public void setUp() throws IOException {
         tmpFile = File.createTempFile("storage-debug", ".json");
         tmpFile.deleteOnExit();
         objectStorage = new JsonStorage<>(tmpFile, this.getClass().getClassLoader(), 0, 0, 0);
+
+        File folder = new File("./runtime/jsonstorage");
+        new File(folder, "backup").mkdirs();
+        file = new File(folder, "TestStorage.json");
+        journalFile = new File(folder, "TestStorage.json" + JsonStorage.JOURNAL_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File("./runtime"));
     }
 
     private void persistAndReadAgain() {
@@ -121,6 +140,151 @@ public class JSonStorageTest extends JavaTest {
         assertEquals(storageString1, storageString2);
     }
 
+    @Test
+    public void assertThatChangesAreAppendedToJournalAndReplayed() throws IOException {
+        JsonStorage<String> storage = createStorage(true, 10);
+        storage.put("Key1", "Value1");
+        storage.put("Key2", "Value2");
+        storage.commitDatabase();
+        assertFalse(file.exists());
+        assertThat(readJournal().size(), is(2));
+
+        storage.put("Key1", "Value3");
+        storage.remove("Key2");
+        storage.commitDatabase();
+        assertThat(readJournal().size(), is(4));
+
+        JsonStorage<String> reopened = createStorage(true, 10);
+        assertThat(reopened.get("Key1"), is("Value3"));
+        assertThat(reopened.containsKey("Key2"), is(false));
+    }
+
+    @Test
+    public void assertThatJournalIsCompacted() throws IOException {
+        JsonStorage<String> storage = createStorage(true, 3);
+        storage.put("Key1", "Value1");
+        storage.put("Key2", "Value2");
+        storage.commitDatabase();
+        assertThat(readJournal().size(), is(2));
+
+        storage.put("Key3", "Value3");
+        storage.commitDatabase();
+        assertTrue(file.exists());
+        assertFalse(journalFile.exists());
+
+        JsonStorage<String> reopened = createStorage(true, 3);
+        assertThat(reopened.getKeys().size(), is(3));
+        assertThat(reopened.get("Key3"), is("Value3"));
+    }
+
+    @Test
+    public void assertThatIncompleteRecordEndsReplay() throws IOException {
+        JsonStorage<String> storage = createStorage(true, 10);
+        storage.put("Key1", "Value1");
+        storage.commitDatabase();
+        storage.put("Key2", "Value2");
+        storage.commitDatabase();
+
+        // simulate a crash while the last record was written
+        List<String> records = readJournal();
+        String damaged = records.get(0) + "\n" + records.get(1).substring(0, records.get(1).length() / 2);
+        FileUtils.writeStringToFile(journalFile, damaged, StandardCharsets.UTF_8.name());
+
+        JsonStorage<String> reopened = createStorage(true, 10);
+        assertThat(reopened.get("Key1"), is("Value1"));
+        assertThat(reopened.containsKey("Key2"), is(false));
+
+        // the damaged journal is not appended to but compacted
+        reopened.put("Key3", "Value3");
+        reopened.commitDatabase();
+        assertFalse(journalFile.exists());
+        assertThat(createStorage(true, 10).getKeys().size(), is(2));
+    }
+
+    @Test
+    public void assertThatJournalIsReplayedIfDisabled() throws IOException {
+        JsonStorage<String> storage = createStorage(true, 10);
+        storage.put("Key1", "Value1");
+        storage.commitDatabase();
+
+        JsonStorage<String> reopened = createStorage(false, 10);
+        assertThat(reopened.get("Key1"), is("Value1"));
+        reopened.put("Key2", "Value2");
+        reopened.commitDatabase();
+        assertFalse(journalFile.exists());
+        assertThat(createStorage(false, 10).getKeys().size(), is(2));
+    }
+
+    @Test
+    public void assertThatFailedJournalAppendIsFollowedByCompaction() throws IOException {
+        JsonStorage<String> storage = createStorage(true, 10);
+        storage.put("Key1", "Value1");
+        storage.commitDatabase();
+
+        // the journal cannot be appended to while it is a directory
+        journalFile.delete();
+        journalFile.mkdir();
+        storage.put("Key2", "Value2");
+        storage.commitDatabase();
+        assertFalse(file.exists());
+
+        journalFile.delete();
+        storage.commitDatabase();
+        assertTrue(file.exists());
+        assertFalse(journalFile.exists());
+        assertThat(createStorage(true, 10).getKeys().size(), is(2));
+    }
+
+    @Test
+    public void assertThatFailedJournalAppendIsRetried() throws IOException {
+        JsonStorage<String> storage = new JsonStorage<>(file, null, 5, 100, WRITE_DELAY, true, 10);
+        storage.put("Key1", "Value1");
+        storage.commitDatabase();
+
+        journalFile.delete();
+        journalFile.mkdir();
+        storage.put("Key2", "Value2");
+        storage.commitDatabase();
+
+        // the retry compacts the journal, which removes the (empty) journal directory
+        waitForAssert(() -> assertTrue(file.exists()));
+        waitForAssert(() -> assertFalse(journalFile.exists()));
+        assertThat(createStorage(true, 10).get("Key2"), is("Value2"));
+    }
+
+    @Test
+    public void assertThatFailedCommitsWriteNoBackupAndBackOff() throws IOException {
+        JsonStorage<String> storage = createStorage(false, 0);
+        File backupFolder = new File(file.getParentFile(), "backup");
+
+        // the database file cannot be written while it is a directory
+        file.mkdir();
+        storage.put("Key1", "Value1");
+        for (int i = 1; i <= 3; i++) {
+            storage.commitDatabase();
+            assertThat(storage.getCommitDelay(), is((long) WRITE_DELAY << i));
+        }
+        assertThat(backupFolder.list().length, is(0));
+        for (int i = 0; i < 10; i++) {
+            storage.commitDatabase();
+        }
+        assertThat(storage.getCommitDelay(), is(JsonStorage.MAX_RETRY_DELAY));
+
+        file.delete();
+        storage.commitDatabase();
+        assertThat(storage.getCommitDelay(), is((long) WRITE_DELAY));
+        assertThat(backupFolder.list().length, is(1));
+        assertThat(createStorage(false, 0).get("Key1"), is("Value1"));
+    }
+
+    private JsonStorage<String> createStorage(boolean journal, int journalCompactionThreshold) {
+        return new JsonStorage<>(file, null, 5, WRITE_DELAY, WRITE_DELAY, journal, journalCompactionThreshold);
+    }
+
+    private List<String> readJournal() throws IOException {
+        return Arrays.asList(FileUtils.readFileToString(journalFile, StandardCharsets.UTF_8.name()).split("\n"));
+    }
+
     private static class DummyObject {
 
         private Configuration configuration = new Configuration();
@@ -7,15 +7,21 @@
  */
 package org.eclipse.smarthome.storage.json.internal;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,6 +37,9 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
 /**
@@ -40,10 +49,16 @@ import com.google.gson.JsonSyntaxException;
  * A deferred write mechanism of WRITE_DELAY milliseconds is used to improve performance.
  * The service keeps backups in a /backup folder, and maintains a maximum of MAX_FILES
  * at any time
+ * <p>
+ * If the journal is enabled, a commit does not rewrite the whole file. Instead the changed entries are appended to a
+ * journal file next to it, one JSON record per line, and synced to disk once per commit. After a number of journal
+ * records the storage is compacted: the file is rewritten (together with a backup) and the journal is discarded.
+ * On startup the journal is replayed on top of the file, independent of whether the journal is enabled.
  *
  * @author Chris Jackson - Initial Contribution
  * @author Stefan Triller - Removed dependency to internal GSon packages
  * @author Simon Kaufmann - Distinguish between inner and outer de-/serialization, keep json structures in map
+ * @author agent - Added the journal and the backoff of failed commits
  */
 @NonNullByDefault
 public class JsonStorage<T> implements Storage<T> {
@@ -58,21 +73,45 @@ public class JsonStorage<T> implements Storage<T> {
     static final String VALUE = "value";
     private final String BACKUP_EXTENSION = "backup";
     private final String SEPARATOR = "--";
+    static final String JOURNAL_EXTENSION = ".journal";
+    static final String KEY = "key";
 
     private final Timer commitTimer;
     private @Nullable TimerTask commitTimerTask = null;
 
     private long deferredSince = 0;
 
+    // the maximum delay of a retry after failed commits in milliseconds
+    static final long MAX_RETRY_DELAY = 10 * 60 * 1000;
+
+    // the number of commits in a row which could not be written
+    private volatile int failedCommits = 0;
+
     private final File file;
+    private final File journalFile;
+    private final boolean journal;
+    private final int journalCompactionThreshold;
+    private int journalRecords = 0;
+    private boolean journalDamaged = false;
+    /** the keys which have been changed since the last commit */
+    private final Set<String> changedKeys = ConcurrentHashMap.newKeySet();
     private final ClassLoader classLoader;
     private final Map<String, StorageEntry> map = new ConcurrentHashMap<String, StorageEntry>();
 
     private transient Gson internalMapper;
     private transient Gson entityMapper;
+    private transient Gson journalMapper;
 
     public JsonStorage(File file, ClassLoader classLoader, int maxBackupFiles, int writeDelay, int maxDeferredPeriod) {
+        this(file, classLoader, maxBackupFiles, writeDelay, maxDeferredPeriod, false, 0);
+    }
+
+    public JsonStorage(File file, ClassLoader classLoader, int maxBackupFiles, int writeDelay, int maxDeferredPeriod,
+            boolean journal, int journalCompactionThreshold) {
         this.file = file;
+        this.journalFile = new File(file.getPath() + JOURNAL_EXTENSION);
+        this.journal = journal;
+        this.journalCompactionThreshold = journalCompactionThreshold;
         this.classLoader = classLoader;
         this.maxBackupFiles = maxBackupFiles;
         this.writeDelay = writeDelay;
@@ -83,6 +122,7 @@ public class JsonStorage<T> implements Storage<T> {
                 .create();
         this.entityMapper = new GsonBuilder().registerTypeAdapter(Configuration.class, new ConfigurationDeserializer())
                 .setPrettyPrinting().create();
+        this.journalMapper = new GsonBuilder().create();
 
         commitTimer = new Timer();
 
@@ -121,6 +161,9 @@ public class JsonStorage<T> implements Storage<T> {
             logger.debug("Opened Json storage file at '{}'.", file.getAbsolutePath());
         }
 
+        if (journalFile.exists()) {
+            replayJournal();
+        }
     }
 
     @Override
@@ -131,6 +174,7 @@ public class JsonStorage<T> implements Storage<T> {
 
         StorageEntry val = new StorageEntry(value.getClass().getName(), entityMapper.toJsonTree(value));
         StorageEntry previousValue = map.put(key, val);
+        changedKeys.add(key);
         deferredCommit();
 
         if (previousValue == null) {
@@ -143,6 +187,7 @@ public class JsonStorage<T> implements Storage<T> {
     @Override
     public @Nullable T remove(String key) {
         StorageEntry removedElement = map.remove(key);
+        changedKeys.add(key);
         deferredCommit();
         if (removedElement == null) {
             return null;
@@ -263,12 +308,87 @@ public class JsonStorage<T> implements Storage<T> {
         return fileTimes;
     }
 
-    private void writeDatabaseFile(File dataFile, String data) {
+    private boolean writeDatabaseFile(File dataFile, String data) {
         try (FileOutputStream outputStream = new FileOutputStream(dataFile, false)) {
             outputStream.write(data.getBytes());
             outputStream.flush();
+            if (journal) {
+                // the journal is discarded afterwards, so the data must have reached the disk
+                outputStream.getFD().sync();
+            }
+            return true;
         } catch (Exception e) {
             logger.error("Error writing JsonDB to {}. Cause {}.", dataFile.getPath(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Applies the records of the journal to the map. A record which cannot be read, e.g. because the system crashed
+     * while it was written, ends the replay.
+     */
+    private void replayJournal() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            JsonParser parser = new JsonParser();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    JsonObject record = parser.parse(line).getAsJsonObject();
+                    String key = record.get(KEY).getAsString();
+                    if (record.has(CLASS)) {
+                        map.put(key, new StorageEntry(record.get(CLASS).getAsString(), record.get(VALUE)));
+                    } else {
+                        map.remove(key);
+                    }
+                    journalRecords++;
+                } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+                    logger.warn("Ignoring the rest of the Json storage journal at '{}' after an invalid record: {}",
+                            journalFile.getAbsolutePath(), e.getMessage());
+                    // records must not be appended to an invalid one, the next commit rewrites the file instead
+                    journalDamaged = true;
+                    break;
+                }
+            }
+            logger.debug("Replayed {} records of the Json storage journal at '{}'.", journalRecords,
+                    journalFile.getAbsolutePath());
+        } catch (IOException e) {
+            logger.error("Error reading JsonDB journal from {}. Cause {}.", journalFile.getPath(), e.getMessage());
+            journalDamaged = true;
+        }
+    }
+
+    /**
+     * Appends the changed entries to the journal and syncs it to the disk.
+     *
+     * @return {@code true} if the records have been written
+     */
+    private boolean appendJournal(Collection<String> keys) {
+        StringBuilder records = new StringBuilder();
+        for (String key : keys) {
+            JsonObject record = new JsonObject();
+            record.addProperty(KEY, key);
+            StorageEntry entry = map.get(key);
+            if (entry != null) {
+                record.addProperty(CLASS, entry.getEntityClassName());
+                record.add(VALUE, (JsonElement) entry.getValue());
+            }
+            records.append(journalMapper.toJson(record)).append('\n');
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(journalFile, true)) {
+            outputStream.write(records.toString().getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+            outputStream.getFD().sync();
+            journalRecords += keys.size();
+            return true;
+        } catch (IOException e) {
+            logger.error("Error writing JsonDB journal to {}. Cause {}.", journalFile.getPath(), e.getMessage());
+            // a partially written record must not be followed by further records, the next commit rewrites the file
+            journalDamaged = true;
+            return false;
         }
     }
 
@@ -279,19 +399,73 @@ public class JsonStorage<T> implements Storage<T> {
      * having to either rename the file later (which may leave a small window for there to
      * be no file if the system crashes during the write process), or to copy the file when
      * writing the backup copy (which would require a read and write, and is thus slower).
+     * <p>
+     * If the journal is enabled, only the changed entries are appended to the journal until it reaches the
+     * compaction threshold.
+     * <p>
+     * If the changes cannot be written, they are kept and the commit is retried. The delay of the retry is doubled
+     * with every failed commit up to {@link #MAX_RETRY_DELAY}, so that e.g. a full disk does not fill the log.
      */
     public void commitDatabase() {
-        String json = internalMapper.toJson(map);
+        if (writeChanges()) {
+            if (failedCommits > 0) {
+                logger.info("JsonDB {} has been written after {} failed attempts.", file.getPath(), failedCommits);
+                failedCommits = 0;
+            }
+        } else {
+            failedCommits++;
+            deferredCommit();
+        }
+    }
+
+    /**
+     * @return the delay of the next commit in milliseconds
+     */
+    long getCommitDelay() {
+        int failures = failedCommits;
+        if (failures == 0) {
+            return writeDelay;
+        }
+        return Math.min(MAX_RETRY_DELAY, Math.max(writeDelay, 1L) << Math.min(failures, 20));
+    }
 
+    /**
+     * @return {@code true} if the changes have been written
+     */
+    private boolean writeChanges() {
         synchronized (map) {
+            deferredSince = 0;
+
+            List<String> keys = new ArrayList<>(changedKeys);
+            changedKeys.removeAll(keys);
+            if (journal && !journalDamaged && journalRecords + keys.size() < journalCompactionThreshold) {
+                if (!keys.isEmpty() && !appendJournal(keys)) {
+                    changedKeys.addAll(keys);
+                    return false;
+                }
+                return true;
+            }
+
+            String json = internalMapper.toJson(map);
+
             // Write the database file
-            writeDatabaseFile(file, json);
+            if (!writeDatabaseFile(file, json)) {
+                // a backup would be written again by every retry
+                changedKeys.addAll(keys);
+                return false;
+            }
 
             // And also write the backup
             writeDatabaseFile(new File(file.getParent() + File.separator + BACKUP_EXTENSION,
                     System.currentTimeMillis() + SEPARATOR + file.getName()), json);
 
-            deferredSince = 0;
+            // The journal is contained in the database file now
+            if (journalFile.exists() && !journalFile.delete()) {
+                logger.warn("Could not delete the Json storage journal at '{}'.", journalFile.getAbsolutePath());
+            }
+            journalRecords = 0;
+            journalDamaged = false;
+            return true;
         }
     }
 
@@ -315,8 +489,8 @@ public class JsonStorage<T> implements Storage<T> {
 
     public synchronized void deferredCommit() {
         // Handle a maximum time for deferring the commit.
-        // This stops a pathological loop preventing saving
-        if (deferredSince != 0 && deferredSince < System.nanoTime() - maxDeferredPeriod) {
+        // This stops a pathological loop preventing saving, unless the commits fail anyway
+        if (failedCommits == 0 && deferredSince != 0 && deferredSince < System.nanoTime() - maxDeferredPeriod) {
             commitDatabase();
         }
         if (deferredSince == 0) {
@@ -333,7 +507,7 @@ public class JsonStorage<T> implements Storage<T> {
         commitTimerTask = new CommitTimerTask();
 
         // Start the timer
-        commitTimer.schedule(commitTimerTask, writeDelay);
+        commitTimer.schedule(commitTimerTask, getCommitDelay());
     }
 
 }
@@ -34,10 +34,14 @@ public class JsonStorageService implements StorageService {
     private final String CFG_MAX_BACKUP_FILES = "backup_files";
     private final String CFG_WRITE_DELAY = "write_delay";
     private final String CFG_MAX_DEFER_DELAY = "max_defer_delay";
+    private final String CFG_JOURNAL = "journal";
+    private final String CFG_JOURNAL_COMPACTION_THRESHOLD = "journal_compaction_threshold";
 
     private int maxBackupFiles = 5;
     private int writeDelay = 500;
     private int maxDeferredPeriod = 60000;
+    private boolean journal = false;
+    private int journalCompactionThreshold = 1000;
 
     private final Map<String, JsonStorage<Object>> storageList = new HashMap<String, JsonStorage<Object>>();
 
@@ -81,6 +85,18 @@ public class JsonStorageService implements StorageService {
             logger.error("Value {} for {} is invalid. Using {}.", properties.get(CFG_MAX_DEFER_DELAY),
                     CFG_MAX_DEFER_DELAY, maxDeferredPeriod);
         }
+        if (properties.get(CFG_JOURNAL) != null) {
+            journal = Boolean.parseBoolean(properties.get(CFG_JOURNAL).toString());
+        }
+        try {
+            if (properties.get(CFG_JOURNAL_COMPACTION_THRESHOLD) != null) {
+                journalCompactionThreshold = Integer
+                        .parseInt(properties.get(CFG_JOURNAL_COMPACTION_THRESHOLD).toString());
+            }
+        } catch (NumberFormatException nfe) {
+            logger.error("Value {} for {} is invalid. Using {}.", properties.get(CFG_JOURNAL_COMPACTION_THRESHOLD),
+                    CFG_JOURNAL_COMPACTION_THRESHOLD, journalCompactionThreshold);
+        }
     }
 
     protected void deactivate() {
@@ -97,7 +113,7 @@ public class JsonStorageService implements StorageService {
 
         if (!storageList.containsKey(name)) {
             storageList.put(name, (JsonStorage<Object>) new JsonStorage<T>(file, classLoader, maxBackupFiles,
-                    writeDelay, maxDeferredPeriod));
+                    writeDelay, maxDeferredPeriod, journal, journalCompactionThreshold));
         }
         return (Storage<T>) storageList.get(name);
     }
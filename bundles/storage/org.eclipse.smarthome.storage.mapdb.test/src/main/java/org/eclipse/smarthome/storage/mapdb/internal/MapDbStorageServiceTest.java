@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.storage.mapdb.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.core.storage.Storage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the commits of the {@link MapDbStorageService}.
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbStorageServiceTest {
+
+    private static final int LONG_DELAY = 60000;
+
+    private File userDataFolder;
+
+    private String previousUserDataFolder;
+
+    private MapDbStorageService service;
+
+    @Before
+    public void setUp() throws IOException {
+        userDataFolder = Files.createTempDirectory("mapdb").toFile();
+        previousUserDataFolder = System.getProperty(ConfigConstants.USERDATA_DIR_PROG_ARGUMENT);
+        System.setProperty(ConfigConstants.USERDATA_DIR_PROG_ARGUMENT, userDataFolder.getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (service != null && !service.getDB().isClosed()) {
+            service.deactivate();
+        }
+        if (previousUserDataFolder != null) {
+            System.setProperty(ConfigConstants.USERDATA_DIR_PROG_ARGUMENT, previousUserDataFolder);
+        } else {
+            System.clearProperty(ConfigConstants.USERDATA_DIR_PROG_ARGUMENT);
+        }
+        try (Stream<Path> paths = Files.walk(userDataFolder.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void assertThatChangesAreCommittedAtOnceWithoutDelay() {
+        service = activate(Collections.emptyMap());
+        service.<String> getStorage("test").put("Key", "Value");
+
+        service.getDB().rollback();
+        assertThat(service.<String> getStorage("test").get("Key"), is("Value"));
+    }
+
+    @Test
+    public void assertThatChangesAreNotCommittedBeforeTheDelay() {
+        service = activate(Collections.singletonMap("commit_delay", LONG_DELAY));
+        service.<String> getStorage("test").put("Key", "Value");
+
+        service.getDB().rollback();
+        assertThat(service.<String> getStorage("test").containsKey("Key"), is(false));
+    }
+
+    @Test
+    public void assertThatChangesAreCommittedAfterTheDelay() throws InterruptedException {
+        service = activate(Collections.singletonMap("commit_delay", 100));
+        Storage<String> storage = service.getStorage("test");
+        storage.put("Key1", "Value1");
+        storage.put("Key2", "Value2");
+
+        Thread.sleep(1000);
+        service.getDB().rollback();
+        assertThat(service.<String> getStorage("test").get("Key1"), is("Value1"));
+        assertThat(service.<String> getStorage("test").get("Key2"), is("Value2"));
+    }
+
+    @Test
+    public void assertThatPendingChangesAreCommittedBeforeClose() {
+        service = activate(Collections.singletonMap("commit_delay", LONG_DELAY));
+        service.<String> getStorage("test").put("Key", "Value");
+        service.deactivate();
+        assertThat(service.getDB().isClosed(), is(true));
+
+        service = activate(Collections.emptyMap());
+        assertThat(service.<String> getStorage("test").get("Key"), is("Value"));
+    }
+
+    private MapDbStorageService activate(Map<String, Object> properties) {
+        MapDbStorageService storageService = new MapDbStorageService();
+        storageService.activate(properties);
+        return storageService;
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.storage.mapdb.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+/**
+ * Tests the JSON and the binary representation of the {@link MapDbStorage} on an in-memory database.
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbStorageTest {
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbStorageTest.class);
+
+    private DB db;
+
+    private final AtomicInteger commits = new AtomicInteger();
+
+    public static class TestEntity {
+
+        public String uid;
+        public String label;
+        public List<String> tags;
+        public Map<String, Object> configuration;
+        public List<TestEntity> children;
+        public boolean enabled;
+        public double factor;
+        public int count;
+
+        public TestEntity() {
+        }
+
+        public TestEntity(int index) {
+            uid = "binding:thing:" + index;
+            label = "Thing ä " + index;
+            tags = Arrays.asList("Lighting", "GroundFloor");
+            configuration = new HashMap<>();
+            configuration.put("host", "192.168.0." + index % 256);
+            configuration.put("refresh", new BigDecimal(index));
+            configuration.put("factor", new BigDecimal("0.25"));
+            configuration.put("enabled", index % 2 == 0);
+            children = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                TestEntity child = new TestEntity();
+                child.uid = uid + ":channel" + i;
+                child.count = -i;
+                children.add(child);
+            }
+            enabled = true;
+            factor = index / 3.0;
+            count = index;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // the storages are not committed by the test, so a transaction would keep all changes on the heap
+        db = DBMaker.newMemoryDB().transactionDisable().make();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void assertThatBinaryValuesAreEqualToJsonValues() {
+        MapDbStorage<TestEntity> jsonStorage = new MapDbStorage<>(db, "json", null);
+        MapDbStorage<TestEntity> binaryStorage = createBinaryStorage("binary");
+
+        TestEntity entity = new TestEntity(42);
+        entity.configuration.put("empty", null);
+        jsonStorage.put("Key", entity);
+        binaryStorage.put("Key", entity);
+
+        TestEntity fromJson = jsonStorage.get("Key");
+        TestEntity fromBinary = binaryStorage.get("Key");
+        assertThat(fromBinary.uid, is(fromJson.uid));
+        assertThat(fromBinary.label, is(fromJson.label));
+        assertThat(fromBinary.tags, is(fromJson.tags));
+        assertThat(fromBinary.configuration, is(fromJson.configuration));
+        assertThat(fromBinary.configuration.get("refresh"), is(new BigDecimal(42)));
+        assertThat(fromBinary.children.get(2).count, is(-2));
+        assertThat(fromBinary.enabled, is(true));
+        assertThat(fromBinary.factor, is(fromJson.factor));
+        assertThat(commits.get(), is(1));
+
+        assertThat(binaryStorage.remove("Key").uid, is(entity.uid));
+        assertThat(binaryStorage.containsKey("Key"), is(false));
+        assertThat(commits.get(), is(2));
+    }
+
+    @Test
+    public void assertThatJsonValuesAreReadByBinaryStorage() {
+        new MapDbStorage<TestEntity>(db, "storage", null).put("Key", new TestEntity(1));
+
+        MapDbStorage<TestEntity> binaryStorage = createBinaryStorage("storage");
+        assertThat(binaryStorage.get("Key").uid, is("binding:thing:1"));
+
+        binaryStorage.put("Key", new TestEntity(2));
+        assertThat(new MapDbStorage<TestEntity>(db, "storage", null).get("Key").uid, is("binding:thing:2"));
+    }
+
+    @Test
+    public void assertThatInvalidBinaryValuesAreNotDeserialized() {
+        MapDbStorage<TestEntity> binaryStorage = createBinaryStorage("storage");
+        byte[] data = new BinaryJsonCodec().encode(TestEntity.class.getName(),
+                new Gson().toJsonTree(new TestEntity(1)));
+        assertThat(binaryStorage.deserialize(Arrays.copyOf(data, data.length - 1)), is(nullValue()));
+        assertThat(binaryStorage.deserialize(new byte[] { 0 }), is(nullValue()));
+    }
+
+    @Test
+    public void compareJsonAndBinaryStorage() {
+        final int entries = 50000;
+        MapDbStorage<TestEntity> jsonStorage = new MapDbStorage<>(db, "json", null, null, () -> {
+        });
+        MapDbStorage<TestEntity> binaryStorage = createBinaryStorage("binary");
+        TestEntity[] entities = new TestEntity[entries];
+        for (int i = 0; i < entries; i++) {
+            entities[i] = new TestEntity(i);
+        }
+
+        // the first round warms up both code paths
+        for (int round = 0; round < 2; round++) {
+            for (MapDbStorage<TestEntity> storage : Arrays.asList(jsonStorage, binaryStorage)) {
+                String name = storage == jsonStorage ? "JSON" : "binary";
+                long start = System.nanoTime();
+                for (int i = 0; i < entries; i++) {
+                    storage.put("Key" + i, entities[i]);
+                }
+                long putNanos = System.nanoTime() - start;
+                TestEntity[] results = new TestEntity[entries];
+                start = System.nanoTime();
+                for (int i = 0; i < entries; i++) {
+                    results[i] = storage.get("Key" + i);
+                }
+                long getNanos = System.nanoTime() - start;
+                for (int i = 0; i < entries; i++) {
+                    assertEntity(results[i], entities[i]);
+                }
+                logger.info("{} entries with {} representation: put {} ms, get {} ms", entries, name,
+                        putNanos / 1000000, getNanos / 1000000);
+            }
+        }
+
+        // the binary representation is more compact than the JSON text
+        Object jsonValue = db.getTreeMap("json").get("Key1");
+        Object binaryValue = db.getTreeMap("binary").get("Key1");
+        assertThat(jsonValue, is(instanceOf(String.class)));
+        assertThat(binaryValue, is(instanceOf(byte[].class)));
+        assertTrue(((byte[]) binaryValue).length < ((String) jsonValue).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private void assertEntity(TestEntity actual, TestEntity expected) {
+        assertNotNull(actual);
+        assertThat(actual.uid, is(expected.uid));
+        assertThat(actual.label, is(expected.label));
+        assertThat(actual.tags, is(expected.tags));
+        assertThat(actual.configuration, is(expected.configuration));
+        assertThat(actual.enabled, is(expected.enabled));
+        assertThat(actual.factor, is(expected.factor));
+        assertThat(actual.count, is(expected.count));
+        assertThat(actual.children.size(), is(expected.children.size()));
+        for (int i = 0; i < expected.children.size(); i++) {
+            assertThat(actual.children.get(i).uid, is(expected.children.get(i).uid));
+            assertThat(actual.children.get(i).count, is(expected.children.get(i).count));
+        }
+    }
+
+    private MapDbStorage<TestEntity> createBinaryStorage(String name) {
+        return new MapDbStorage<>(db, name, null, new BinaryJsonCodec(), commits::incrementAndGet);
+    }
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.storage.mapdb.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Encodes the JSON tree of a stored value in a compact binary form. The tree is produced and consumed by {@code Gson},
+ * so that the stored entities are mapped exactly as with the JSON representation, but the JSON text does not have to
+ * be printed and parsed again.
+ *
+ * The encoded value starts with {@link #FORMAT} followed by the qualified type name of the value and its tree. Every
+ * element of the tree starts with a tag byte, lengths and integral numbers are stored as variable length integers.
+ *
+ * @author agent - Initial contribution
+ */
+public class BinaryJsonCodec {
+
+    /** the first byte of binary encoded values */
+    static final byte FORMAT = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte LONG = 3;
+    private static final byte NUMBER = 4;
+    private static final byte STRING = 5;
+    private static final byte ARRAY = 6;
+    private static final byte OBJECT = 7;
+
+    /**
+     * Encodes the given type name and JSON tree.
+     *
+     * @param typeName the qualified type name of the value
+     * @param element the JSON tree of the value
+     * @return the encoded value
+     */
+    public byte[] encode(String typeName, JsonElement element) {
+        Output out = new Output();
+        out.write(FORMAT);
+        out.writeString(typeName);
+        writeElement(out, element);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the type name of an encoded value.
+     *
+     * @param data the encoded value
+     * @return the qualified type name
+     * @throws JsonParseException if the data is not a valid encoded value
+     */
+    public String decodeTypeName(byte[] data) {
+        return new Input(data).readHeader();
+    }
+
+    /**
+     * Returns the JSON tree of an encoded value.
+     *
+     * @param data the encoded value
+     * @return the JSON tree
+     * @throws JsonParseException if the data is not a valid encoded value
+     */
+    public JsonElement decodeElement(byte[] data) {
+        Input in = new Input(data);
+        in.readHeader();
+        JsonElement element = readElement(in);
+        if (in.position != data.length) {
+            throw new JsonParseException("Unexpected data after the encoded value");
+        }
+        return element;
+    }
+
+    private void writeElement(Output out, JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.write(NULL);
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                Number number = primitive.getAsNumber();
+                if (number instanceof Long || number instanceof Integer || number instanceof Short
+                        || number instanceof Byte) {
+                    out.write(LONG);
+                    out.writeVarLong(number.longValue());
+                } else {
+                    // keeps the textual representation, as the JSON representation does
+                    out.write(NUMBER);
+                    out.writeString(primitive.getAsString());
+                }
+            } else {
+                out.write(STRING);
+                out.writeString(primitive.getAsString());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.write(ARRAY);
+            out.writeVarInt(array.size());
+            for (JsonElement child : array) {
+                writeElement(out, child);
+            }
+        } else {
+            JsonObject object = element.getAsJsonObject();
+            out.write(OBJECT);
+            out.writeVarInt(object.entrySet().size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                out.writeString(entry.getKey());
+                writeElement(out, entry.getValue());
+            }
+        }
+    }
+
+    private JsonElement readElement(Input in) {
+        byte tag = in.read();
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case FALSE:
+                return new JsonPrimitive(false);
+            case TRUE:
+                return new JsonPrimitive(true);
+            case LONG:
+                return new JsonPrimitive(in.readVarLong());
+            case NUMBER:
+                try {
+                    return new JsonPrimitive(new BigDecimal(in.readString()));
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException("Invalid number", e);
+                }
+            case STRING:
+                return new JsonPrimitive(in.readString());
+            case ARRAY:
+                JsonArray array = new JsonArray();
+                for (int i = in.readVarInt(); i > 0; i--) {
+                    array.add(readElement(in));
+                }
+                return array;
+            case OBJECT:
+                JsonObject object = new JsonObject();
+                for (int i = in.readVarInt(); i > 0; i--) {
+                    String name = in.readString();
+                    object.add(name, readElement(in));
+                }
+                return object;
+            default:
+                throw new JsonParseException("Invalid tag " + tag + " at position " + (in.position - 1));
+        }
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+
+        private Output() {
+            super(256);
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value);
+        }
+
+        private void writeVarLong(long value) {
+            // zig-zag encoding keeps small negative numbers short
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                write((int) ((zigZag & 0x7F) | 0x80));
+                zigZag >>>= 7;
+            }
+            write((int) zigZag);
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static class Input {
+
+        private final byte[] data;
+
+        private int position = 0;
+
+        private Input(byte[] data) {
+            this.data = data;
+        }
+
+        private String readHeader() {
+            if (data.length == 0 || read() != FORMAT) {
+                throw new JsonParseException("Unknown format of the encoded value");
+            }
+            return readString();
+        }
+
+        private byte read() {
+            if (position >= data.length) {
+                throw new JsonParseException("Unexpected end of the encoded value");
+            }
+            return data[position++];
+        }
+
+        private int readVarInt() {
+            long value = readVarLong();
+            if (value < 0 || value > data.length - position) {
+                throw new JsonParseException("Invalid length " + value);
+            }
+            return (int) value;
+        }
+
+        private long readVarLong() {
+            long zigZag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = read();
+                zigZag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            }
+            throw new JsonParseException("Invalid variable length number");
+        }
+
+        private String readString() {
+            int length = readVarInt();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+}
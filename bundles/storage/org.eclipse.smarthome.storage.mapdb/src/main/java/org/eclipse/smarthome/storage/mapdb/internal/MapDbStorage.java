@@ -30,6 +30,9 @@ import com.google.gson.GsonBuilder;
  * the given values using their JSON representation (generated by {@code Gson}.
  * This transformation should help maintaining version compatibility of the stored
  * data.
+ * <p>
+ * Values can be stored either as JSON text or with the {@link BinaryJsonCodec}, which encodes the same JSON tree in a
+ * compact binary form. Both representations are read, regardless of the one used for writing.
  *
  * @author Thomas.Eichstaedt-Engelen - Initial Contribution and API
  * @author Alex Tugarev - Loading with Class.forName() if classLoader is null
@@ -45,14 +48,32 @@ public class MapDbStorage<T> implements DeletableStorage<T> {
     private final String name;
     private final DB db;
     private final ClassLoader classLoader;
-    private Map<String, String> map;
+    private final @Nullable BinaryJsonCodec codec;
+    private final Runnable committer;
+    private Map<String, Object> map;
 
     private transient Gson mapper;
 
     public MapDbStorage(DB db, String name, ClassLoader classLoader) {
+        this(db, name, classLoader, null, db::commit);
+    }
+
+    /**
+     * Creates a storage.
+     *
+     * @param db the database
+     * @param name the name of the storage
+     * @param classLoader the class loader for the stored values, may be null
+     * @param codec the codec to store values in binary form, or null to store them as JSON text
+     * @param committer commits the changes of the database, either at once or together with other changes
+     */
+    public MapDbStorage(DB db, String name, ClassLoader classLoader, @Nullable BinaryJsonCodec codec,
+            Runnable committer) {
         this.name = name;
         this.db = db;
         this.classLoader = classLoader;
+        this.codec = codec;
+        this.committer = committer;
         this.map = db.createTreeMap(name).makeOrGet();
         this.mapper = new GsonBuilder().registerTypeAdapterFactory(new PropertiesTypeAdapterFactory()).create();
     }
@@ -69,15 +90,15 @@ public class MapDbStorage<T> implements DeletableStorage<T> {
         if (value == null) {
             return remove(key);
         }
-        String previousValue = map.put(key, serialize(value));
-        db.commit();
+        Object previousValue = map.put(key, serialize(value));
+        committer.run();
         return deserialize(previousValue);
     }
 
     @Override
     public @Nullable T remove(String key) {
-        String removedElement = map.remove(key);
-        db.commit();
+        Object removedElement = map.remove(key);
+        committer.run();
         return deserialize(removedElement);
     }
 
@@ -110,17 +131,22 @@ public class MapDbStorage<T> implements DeletableStorage<T> {
      * of {@code value} while
      * deserializing it afterwards we prepend its qualified type name to the
      * JSON String.
+     * If a codec is set, the JSON tree is encoded in binary form together with the type name instead.
      *
      * @param value the {@code value} to store
-     * @return the JSON document prepended with the qualified type name of {@code value}
+     * @return the JSON document prepended with the qualified type name of {@code value}, or the binary encoded value
      */
-    private String serialize(T value) {
+    private Object serialize(T value) {
 
         if (value == null) {
             throw new IllegalArgumentException("Cannot serialize NULL");
         }
 
         String valueTypeName = value.getClass().getName();
+        BinaryJsonCodec codec = this.codec;
+        if (codec != null) {
+            return codec.encode(valueTypeName, mapper.toJsonTree(value));
+        }
         String valueAsString = mapper.toJson(value);
         String concatValue = valueTypeName + TYPE_SEPARATOR + valueAsString;
 
@@ -133,19 +159,24 @@ public class MapDbStorage<T> implements DeletableStorage<T> {
      * given JSON String. A special classloader (other than the one of the
      * MapDB bundle) is used in order to load the classes in the context of
      * the calling bundle.
+     * Values in binary form are decoded by the {@link BinaryJsonCodec}.
      *
-     * @param json
-     * @return
+     * @param json the stored JSON String or binary encoded value
+     * @return the deserialized value or null, if it could not be deserialized
      */
     @SuppressWarnings("unchecked")
-    public @Nullable T deserialize(@Nullable String json) {
+    public @Nullable T deserialize(@Nullable Object json) {
 
         if (json == null) {
             // nothing to deserialize
             return null;
         }
 
-        String[] concatValue = json.split(TYPE_SEPARATOR);
+        if (json instanceof byte[]) {
+            return deserializeBinary((byte[]) json);
+        }
+
+        String[] concatValue = ((String) json).split(TYPE_SEPARATOR);
         String valueTypeName = concatValue[0];
         String valueAsString = concatValue[1];
 
@@ -169,4 +200,29 @@ public class MapDbStorage<T> implements DeletableStorage<T> {
         return value;
     }
 
+    @SuppressWarnings("unchecked")
+    private @Nullable T deserializeBinary(byte[] data) {
+        BinaryJsonCodec codec = this.codec != null ? this.codec : new BinaryJsonCodec();
+
+        @Nullable
+        T value = null;
+        try {
+            String valueTypeName = codec.decodeTypeName(data);
+            Class<T> loadedValueType = null;
+            if (classLoader == null) {
+                loadedValueType = (Class<T>) Class.forName(valueTypeName);
+            } else {
+                loadedValueType = (Class<T>) classLoader.loadClass(valueTypeName);
+            }
+
+            value = mapper.fromJson(codec.decodeElement(data), loadedValueType);
+            logger.trace("deserialized value '{}' from MapDB", value);
+        } catch (Exception e) {
+            logger.warn("Couldn't deserialize binary value of {} bytes. Root cause is: {}", data.length,
+                    e.getMessage());
+        }
+
+        return value;
+    }
+
 }
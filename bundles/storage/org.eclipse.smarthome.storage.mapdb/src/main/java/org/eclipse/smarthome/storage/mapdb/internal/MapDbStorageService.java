@@ -8,8 +8,13 @@
 package org.eclipse.smarthome.storage.mapdb.internal;
 
 import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.storage.DeletableStorage;
 import org.eclipse.smarthome.core.storage.DeletableStorageService;
 import org.eclipse.smarthome.core.storage.StorageService;
@@ -21,6 +26,9 @@ import org.slf4j.LoggerFactory;
 /**
  * This implementation of {@link StorageService} provides abilities to store
  * data in the lightweight key-value-store <a href="http://www.mapdb.org">MapDB</a>.
+ * <p>
+ * By default every change is committed at once. If a commit delay is configured, the changes within this period are
+ * committed together, which speeds up bulk changes at the price of losing the changes of the last period on a crash.
  *
  * @author Thomas.Eichstaedt-Engelen - Initial Contribution and API
  * @author Alex Tugarev - Added getStorage for name only
@@ -39,7 +47,48 @@ public class MapDbStorageService implements DeletableStorageService {
     /** the folder name to store mapdb databases ({@code mapdb} by default) */
     private String dbFolderName = "mapdb";
 
-    public void activate() {
+    private static final String CFG_CODEC = "codec";
+    private static final String CFG_COMMIT_DELAY = "commit_delay";
+
+    /** stores the values in binary form instead of JSON text */
+    private boolean binary = false;
+
+    /** the time to wait for further changes before committing them (in ms), 0 to commit every change at once */
+    private int commitDelay = 0;
+
+    /** the scheduler of the delayed commits, null if every change is committed at once */
+    private ScheduledExecutorService scheduler;
+
+    /** held while the database is committed or closed */
+    private final Object commitLock = new Object();
+
+    // guarded by commitLock
+    private ScheduledFuture<?> commitJob;
+
+    // guarded by commitLock
+    private boolean closed;
+
+    public void activate(Map<String, Object> properties) {
+        if (properties != null) {
+            Object codec = properties.get(CFG_CODEC);
+            if (codec != null) {
+                binary = "binary".equalsIgnoreCase(codec.toString());
+            }
+            Object delay = properties.get(CFG_COMMIT_DELAY);
+            if (delay != null) {
+                try {
+                    commitDelay = Integer.parseInt(delay.toString());
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", delay,
+                            CFG_COMMIT_DELAY);
+                }
+            }
+        }
+
+        if (commitDelay > 0) {
+            scheduler = ThreadPoolManager.getScheduledPool("mapdb");
+        }
+
         dbFolderName = ConfigConstants.getUserDataFolder() + File.separator + dbFolderName;
         File folder = new File(dbFolderName);
         if (!folder.exists()) {
@@ -53,13 +102,26 @@ public class MapDbStorageService implements DeletableStorageService {
     }
 
     public void deactivate() {
-        db.close();
+        synchronized (commitLock) {
+            // a running commit holds the lock, so it has finished here
+            closed = true;
+            if (commitJob != null) {
+                commitJob.cancel(false);
+                commitJob = null;
+            }
+            db.commit();
+            db.close();
+        }
         logger.debug("Deactivated MapDB Storage Service.");
     }
 
+    DB getDB() {
+        return db;
+    }
+
     @Override
     public <T> DeletableStorage<T> getStorage(String name, ClassLoader classLoader) {
-        return new MapDbStorage<T>(db, name, classLoader);
+        return new MapDbStorage<T>(db, name, classLoader, binary ? new BinaryJsonCodec() : null, this::commit);
     }
 
     @Override
@@ -67,4 +129,30 @@ public class MapDbStorageService implements DeletableStorageService {
         return getStorage(name, null);
     }
 
+    private void commit() {
+        synchronized (commitLock) {
+            if (closed) {
+                logger.debug("Ignoring a commit of the already closed MapDB.");
+            } else if (scheduler == null) {
+                db.commit();
+            } else if (commitJob == null) {
+                commitJob = scheduler.schedule(this::commitChanges, commitDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void commitChanges() {
+        synchronized (commitLock) {
+            commitJob = null;
+            if (closed) {
+                return;
+            }
+            try {
+                db.commit();
+            } catch (RuntimeException e) {
+                logger.error("Error committing changes to MapDB: {}", e.getMessage(), e);
+            }
+        }
+    }
+
 }
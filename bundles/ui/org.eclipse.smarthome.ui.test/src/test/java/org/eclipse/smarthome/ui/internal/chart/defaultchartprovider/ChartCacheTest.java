@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.ui.internal.chart.defaultchartprovider;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ChartCache}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ChartCacheTest {
+
+    private final AtomicInteger renderings = new AtomicInteger();
+
+    private BufferedImage render() {
+        renderings.incrementAndGet();
+        return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void assertThatChartsAreReusedWithinTheirBucket() throws ItemNotFoundException {
+        ChartCache cache = new ChartCache(10);
+        BufferedImage chart = cache.get("a", 5, this::render);
+
+        assertThat(cache.get("a", 5, this::render), is(sameInstance(chart)));
+        assertThat(renderings.get(), is(1));
+
+        // an earlier bucket is rendered, but does not replace the cached chart
+        assertThat(cache.get("a", 4, this::render), is(not(sameInstance(chart))));
+        assertThat(cache.get("a", 5, this::render), is(sameInstance(chart)));
+        assertThat(renderings.get(), is(2));
+
+        BufferedImage next = cache.get("a", 6, this::render);
+        assertThat(next, is(not(sameInstance(chart))));
+        assertThat(cache.get("a", 6, this::render), is(sameInstance(next)));
+        assertThat(renderings.get(), is(3));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void assertThatLeastRecentlyUsedChartsAreRemoved() throws ItemNotFoundException {
+        ChartCache cache = new ChartCache(2);
+        cache.get("a", 0, this::render);
+        cache.get("b", 0, this::render);
+        cache.get("a", 0, this::render);
+        cache.get("c", 0, this::render);
+        assertThat(cache.size(), is(2));
+
+        cache.get("a", 0, this::render);
+        assertThat(renderings.get(), is(3));
+        cache.get("b", 0, this::render);
+        assertThat(renderings.get(), is(4));
+    }
+
+    @Test
+    public void assertThatFailedRenderingsAreNotCached() throws ItemNotFoundException {
+        ChartCache cache = new ChartCache(10);
+        try {
+            cache.get("a", 0, () -> {
+                throw new ItemNotFoundException("item");
+            });
+            fail();
+        } catch (ItemNotFoundException e) {
+            // expected
+        }
+        assertThat(cache.size(), is(0));
+
+        cache.get("a", 0, this::render);
+        assertThat(renderings.get(), is(1));
+    }
+
+    @Test
+    public void assertThatDisabledCacheRendersEveryChart() throws ItemNotFoundException {
+        ChartCache cache = new ChartCache(0);
+        cache.get("a", 0, this::render);
+        cache.get("a", 0, this::render);
+        assertThat(renderings.get(), is(2));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void assertThatConcurrentRequestsWaitForASingleRendering() throws Exception {
+        ChartCache cache = new ChartCache(10);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<BufferedImage> first = executor.submit(() -> cache.get("a", 0, () -> {
+                rendering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return render();
+            }));
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            Future<BufferedImage> second = executor.submit(() -> cache.get("a", 0, this::render));
+            Thread.sleep(50);
+            assertThat(second.isDone(), is(false));
+
+            release.countDown();
+            assertThat(second.get(5, TimeUnit.SECONDS), is(sameInstance(first.get(5, TimeUnit.SECONDS))));
+            assertThat(renderings.get(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.ui.internal.chart.defaultchartprovider;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link LargestTriangleThreeBuckets}.
+ *
+ * @author agent - Initial contribution
+ */
+public class LargestTriangleThreeBucketsTest {
+
+    @Test
+    public void assertThatSmallSeriesAreKept() {
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(new Date(0), new Date(1000), 100);
+        data.add(new Date(0), 1);
+        data.add(new Date(300), 5);
+        data.add(new Date(600), 2);
+        data.add(new Date(1000), 3);
+
+        assertThat(data.getXData(), is(Arrays.asList(new Date(0), new Date(300), new Date(600), new Date(1000))));
+        assertThat(data.getYData(), is(Arrays.<Number> asList(1.0, 5.0, 2.0, 3.0)));
+        assertThat(data.getCount(), is(4));
+    }
+
+    @Test
+    public void assertThatLargeSeriesAreLimitedToTheMaximumNumberOfPoints() {
+        final int count = 1000000;
+        final int maxPoints = 480;
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(new Date(0), new Date(count), maxPoints);
+        for (int i = 0; i <= count; i++) {
+            data.add(new Date(i), Math.sin(i / 10000.0));
+        }
+
+        List<Date> xData = data.getXData();
+        assertTrue(xData.size() <= maxPoints);
+        assertTrue(xData.size() > maxPoints / 2);
+        assertThat(xData.get(0), is(new Date(0)));
+        assertThat(xData.get(xData.size() - 1), is(new Date(count)));
+        for (int i = 1; i < xData.size(); i++) {
+            assertTrue(xData.get(i).after(xData.get(i - 1)));
+        }
+        assertThat(data.getYData().size(), is(xData.size()));
+        assertThat(data.getCount(), is(count + 1));
+    }
+
+    @Test
+    public void assertThatPeaksAreKept() {
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(new Date(0), new Date(10000), 12);
+        for (int i = 0; i <= 10000; i++) {
+            data.add(new Date(i), i == 4321 ? 100 : 0);
+        }
+
+        assertThat(data.getXData().contains(new Date(4321)), is(true));
+        assertThat(data.getYData().contains(100.0), is(true));
+    }
+
+    @Test
+    public void assertThatStepsOfSwitchSeriesAreKept() {
+        final int count = 100000;
+        final int maxPoints = 100;
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(new Date(0), new Date(count), maxPoints);
+        data.add(new Date(0), 0);
+        // the switch changes its state every 70 ms, which is many times per bucket
+        for (int i = 70; i < count; i += 70) {
+            data.addStep(new Date(i), (i / 70) % 2);
+        }
+        data.addStep(new Date(count), 1);
+
+        List<Date> xData = data.getXData();
+        List<Number> yData = data.getYData();
+        assertTrue(xData.size() <= 2 * maxPoints);
+        assertThat(yData.size(), is(xData.size()));
+        for (int i = 1; i < xData.size(); i++) {
+            assertTrue(xData.get(i).after(xData.get(i - 1)));
+            // every change of the value is a step of 1 ms, there are no diagonal lines
+            if (!yData.get(i).equals(yData.get(i - 1))) {
+                assertThat(xData.get(i).getTime() - xData.get(i - 1).getTime(), is(1L));
+            }
+        }
+    }
+
+    @Test
+    public void assertThatShortPulseIsKeptAsStep() {
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(new Date(0), new Date(10000), 12);
+        data.add(new Date(0), 0);
+        data.addStep(new Date(4321), 1);
+        data.addStep(new Date(4322), 0);
+        for (int i = 4323; i <= 10000; i++) {
+            data.add(new Date(i), 0);
+        }
+
+        List<Date> xData = data.getXData();
+        int index = xData.indexOf(new Date(4321));
+        assertTrue(index > 0);
+        assertThat(xData.get(index - 1), is(new Date(4320)));
+        assertThat(data.getYData().get(index - 1), is((Number) 0.0));
+        assertThat(data.getYData().get(index), is((Number) 1.0));
+    }
+
+    @Test
+    public void assertThatEmptySeriesStaysEmpty() {
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(new Date(0), new Date(1000), 100);
+        assertTrue(data.getXData().isEmpty());
+        assertTrue(data.getYData().isEmpty());
+    }
+
+}
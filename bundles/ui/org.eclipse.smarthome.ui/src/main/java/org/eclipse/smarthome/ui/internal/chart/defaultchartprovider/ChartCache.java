@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.ui.internal.chart.defaultchartprovider;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+
+/**
+ * A cache of rendered charts, so that charts which are requested by several clients or refreshed periodically are not
+ * queried and painted again and again.
+ *
+ * A chart is identified by a key, which contains all parameters of the chart except its time range, and a time
+ * bucket. A cached chart is reused as long as it is requested for the same time bucket and replaced once a later
+ * bucket is requested. Concurrent requests of a chart which is not cached yet wait for a single rendering.
+ *
+ * The cache keeps the least recently used charts up to its maximum size.
+ *
+ * @author agent - Initial contribution
+ */
+final class ChartCache {
+
+    /**
+     * Renders a chart which is not cached.
+     */
+    @FunctionalInterface
+    interface Renderer {
+
+        BufferedImage render() throws ItemNotFoundException;
+    }
+
+    private static final class Entry {
+
+        private final long bucket;
+
+        private final FutureTask<BufferedImage> task;
+
+        private Entry(long bucket, FutureTask<BufferedImage> task) {
+            this.bucket = bucket;
+            this.task = task;
+        }
+    }
+
+    private volatile int maxSize;
+
+    // guarded by itself
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize the maximum number of cached charts, 0 disables the cache
+     */
+    ChartCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Changes the maximum number of cached charts. Additional charts are removed with the next rendering.
+     *
+     * @param maxSize the maximum number of cached charts, 0 disables the cache
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        if (maxSize <= 0) {
+            clear();
+        }
+    }
+
+    /**
+     * Returns a cached chart or renders it, if it is not cached for the given time bucket.
+     *
+     * @param key the parameters of the chart
+     * @param bucket the time bucket of the chart, a later bucket replaces the cached chart
+     * @param renderer renders the chart
+     * @return the chart
+     * @throws ItemNotFoundException if the renderer has thrown it, the chart is not cached then
+     */
+    BufferedImage get(String key, long bucket, Renderer renderer) throws ItemNotFoundException {
+        if (maxSize <= 0) {
+            return renderer.render();
+        }
+        FutureTask<BufferedImage> task;
+        boolean render = false;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.bucket < bucket) {
+                entry = new Entry(bucket, new FutureTask<>(renderer::render));
+                entries.put(key, entry);
+                render = true;
+            } else if (entry.bucket > bucket) {
+                // a request for an earlier time range does not replace the cached chart
+                return renderer.render();
+            }
+            task = entry.task;
+        }
+        if (render) {
+            task.run();
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the chart '" + key + "'.");
+        } catch (ExecutionException e) {
+            synchronized (entries) {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.task == task) {
+                    entries.remove(key);
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof ItemNotFoundException) {
+                throw (ItemNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Removes all cached charts.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached charts.
+     *
+     * @return the number of charts
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+}
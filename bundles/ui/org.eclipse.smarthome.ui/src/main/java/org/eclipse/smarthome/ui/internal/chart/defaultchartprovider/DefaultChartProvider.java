@@ -13,13 +13,13 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.StringUtils;
@@ -51,6 +51,11 @@ import org.slf4j.LoggerFactory;
  *
  * See {@link ChartProvider} and {@link ChartServlet} for further details.
  *
+ * Rendered charts are cached for a time bucket, which is as long as one pixel of the chart, but at least
+ * {@code cacheInterval} milliseconds, so that charts which are refreshed periodically are not rendered again before
+ * they would change. The number of cached charts is limited by {@code cacheSize}. The series are downsampled to the
+ * width of the chart.
+ *
  * @author Chris Jackson
  * @author Holger Reichert - Support for themes, DPI, legend hiding
  *
@@ -71,6 +76,18 @@ public class DefaultChartProvider implements ChartProvider {
 
     public static final int DPI_DEFAULT = 96;
 
+    private static final String CONFIG_CACHE_SIZE = "cacheSize";
+
+    private static final String CONFIG_CACHE_INTERVAL = "cacheInterval";
+
+    private static final int DEFAULT_CACHE_SIZE = 50;
+
+    private static final int DEFAULT_CACHE_INTERVAL = 60000;
+
+    private final ChartCache chartCache = new ChartCache(DEFAULT_CACHE_SIZE);
+
+    private volatile long cacheInterval = DEFAULT_CACHE_INTERVAL;
+
     public void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
         this.itemUIRegistry = itemUIRegistry;
     }
@@ -82,26 +99,47 @@ public class DefaultChartProvider implements ChartProvider {
     public void addPersistenceService(PersistenceService service) {
         if (service instanceof QueryablePersistenceService) {
             persistenceServices.put(service.getId(), (QueryablePersistenceService) service);
+            chartCache.clear();
         }
     }
 
     public void removePersistenceService(PersistenceService service) {
         persistenceServices.remove(service.getId());
+        chartCache.clear();
     }
 
     static public Map<String, QueryablePersistenceService> getPersistenceServices() {
         return persistenceServices;
     }
 
-    protected void activate() {
+    protected void activate(Map<String, Object> config) {
         logger.debug("Starting up default chart provider.");
         String themeNames = Arrays.stream(CHART_THEMES_AVAILABLE) //
                 .map(t -> t.getThemeName()) //
                 .collect(Collectors.joining(", "));
         logger.debug("Available themes for default chart provider: {}", themeNames);
+        modified(config);
+    }
+
+    protected void modified(Map<String, Object> config) {
+        chartCache.setMaxSize(getIntConfig(config, CONFIG_CACHE_SIZE, DEFAULT_CACHE_SIZE));
+        cacheInterval = Math.max(1, getIntConfig(config, CONFIG_CACHE_INTERVAL, DEFAULT_CACHE_INTERVAL));
     }
 
     protected void deactivate() {
+        chartCache.clear();
+    }
+
+    private int getIntConfig(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid value '{}' of '{}' - value must be an integer", value, key);
+            }
+        }
+        return defaultValue;
     }
 
     public void destroy() {
@@ -116,7 +154,18 @@ public class DefaultChartProvider implements ChartProvider {
     public BufferedImage createChart(String service, String theme, Date startTime, Date endTime, int height, int width,
             String items, String groups, Integer dpiValue, Boolean legend)
             throws ItemNotFoundException, IllegalArgumentException {
+        // all requests within the same bucket get the same chart, the bucket is at least as long as a pixel
+        long period = endTime.getTime() - startTime.getTime();
+        long interval = Math.max(cacheInterval, period / Math.max(1, width));
+        String key = String.join("|", Objects.toString(service), Objects.toString(theme), Long.toString(period),
+                Integer.toString(height), Integer.toString(width), Objects.toString(items), Objects.toString(groups),
+                Objects.toString(dpiValue), Objects.toString(legend));
+        return chartCache.get(key, Math.floorDiv(endTime.getTime(), interval), () -> renderChart(service, theme,
+                startTime, endTime, height, width, items, groups, dpiValue, legend));
+    }
 
+    private BufferedImage renderChart(String service, String theme, Date startTime, Date endTime, int height,
+            int width, String items, String groups, Integer dpiValue, Boolean legend) throws ItemNotFoundException {
         logger.debug(
                 "Rendering chart: service: '{}', theme: '{}', startTime: '{}', endTime: '{}', width: '{}', height: '{}', items: '{}', groups: '{}', dpi: '{}', legend: '{}'",
                 service, theme, startTime, endTime, width, height, items, groups, dpiValue, legend);
@@ -198,7 +247,8 @@ public class DefaultChartProvider implements ChartProvider {
             String[] itemNames = items.split(",");
             for (String itemName : itemNames) {
                 Item item = itemUIRegistry.getItem(itemName);
-                if (addItem(chart, persistenceService, startTime, endTime, item, seriesCounter, chartTheme, dpi)) {
+                if (addItem(chart, persistenceService, startTime, endTime, item, seriesCounter, chartTheme, dpi,
+                        width)) {
                     seriesCounter++;
                 }
             }
@@ -213,7 +263,7 @@ public class DefaultChartProvider implements ChartProvider {
                     GroupItem groupItem = (GroupItem) item;
                     for (Item member : groupItem.getMembers()) {
                         if (addItem(chart, persistenceService, startTime, endTime, member, seriesCounter, chartTheme,
-                                dpi)) {
+                                dpi, width)) {
                             seriesCounter++;
                         }
                     }
@@ -287,8 +337,17 @@ public class DefaultChartProvider implements ChartProvider {
         }
     }
 
+    private void addData(LargestTriangleThreeBuckets data, Date time, State state) {
+        // For 'binary' states, the changes are steps to avoid diagonal lines
+        if (state instanceof OnOffType || state instanceof OpenClosedType) {
+            data.addStep(time, convertData(state));
+        } else {
+            data.add(time, convertData(state));
+        }
+    }
+
     boolean addItem(Chart chart, QueryablePersistenceService service, Date timeBegin, Date timeEnd, Item item,
-            int seriesCounter, ChartTheme chartTheme, int dpi) {
+            int seriesCounter, ChartTheme chartTheme, int dpi, int width) {
         Color color = chartTheme.getLineColor(seriesCounter);
 
         // Get the item label
@@ -307,9 +366,8 @@ public class DefaultChartProvider implements ChartProvider {
         Iterable<HistoricItem> result;
         FilterCriteria filter;
 
-        // Generate data collections
-        List<Date> xData = new ArrayList<Date>();
-        List<Number> yData = new ArrayList<Number>();
+        // Generate data collections, downsampled to the width of the chart
+        LargestTriangleThreeBuckets data = new LargestTriangleThreeBuckets(timeBegin, timeEnd, width);
 
         // Declare state here so it will hold the last value at the end of the process
         State state = null;
@@ -327,8 +385,7 @@ public class DefaultChartProvider implements ChartProvider {
             HistoricItem historicItem = result.iterator().next();
 
             state = historicItem.getState();
-            xData.add(timeBegin);
-            yData.add(convertData(state));
+            data.add(timeBegin, convertData(state));
         }
 
         // Now, get all the data between the start and end time
@@ -345,26 +402,18 @@ public class DefaultChartProvider implements ChartProvider {
         while (it.hasNext()) {
             HistoricItem historicItem = it.next();
 
-            // For 'binary' states, we need to replicate the data
-            // to avoid diagonal lines
-            if (state instanceof OnOffType || state instanceof OpenClosedType) {
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(historicItem.getTimestamp());
-                cal.add(Calendar.MILLISECOND, -1);
-                xData.add(cal.getTime());
-                yData.add(convertData(state));
-            }
-
             state = historicItem.getState();
-            xData.add(historicItem.getTimestamp());
-            yData.add(convertData(state));
+            addData(data, historicItem.getTimestamp(), state);
         }
 
         // Lastly, add the final state at the endtime
         if (state != null) {
-            xData.add(timeEnd);
-            yData.add(convertData(state));
+            addData(data, timeEnd, state);
         }
+        logger.trace("Downsampled {} points of item '{}' to {} points", data.getCount(), item.getName(),
+                data.getXData().size());
+        List<Date> xData = data.getXData();
+        List<Number> yData = data.getYData();
 
         // Add the new series to the chart - only if there's data elements to display
         // The chart engine will throw an exception if there's no data
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2014-2017 by the respective copyright holders.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.eclipse.smarthome.ui.internal.chart.defaultchartprovider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Downsamples a time series with the "Largest Triangle Three Buckets" algorithm, so that a chart does not have to
+ * draw more points than it has pixels.
+ *
+ * The time range of the chart is divided into buckets of equal length. The first and the last point are always kept,
+ * from every other bucket the point is kept which forms the largest triangle with the point kept from the previous
+ * bucket and the average of the next bucket. Peaks and valleys therefore survive the downsampling.
+ *
+ * The points are added one by one in ascending order of time and only the points of the current and the next bucket
+ * are held in memory, so that the series does not have to be loaded completely.
+ *
+ * Points can be marked as steps, e.g. for the changes of a switch. If a step is kept, the previously kept value is
+ * repeated right before it, so that the chart draws a step instead of a diagonal line. Both points of a step are
+ * therefore either kept or dropped together, which can double the number of kept points.
+ *
+ * @author agent - Initial contribution
+ */
+final class LargestTriangleThreeBuckets {
+
+    /**
+     * The points of one bucket.
+     */
+    private static final class Bucket {
+
+        private long[] times = new long[16];
+
+        private double[] values = new double[16];
+
+        private boolean[] steps = new boolean[16];
+
+        private int size;
+
+        private int index = -1;
+
+        private void add(long time, double value, boolean step) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                steps = Arrays.copyOf(steps, size * 2);
+            }
+            times[size] = time;
+            values[size] = value;
+            steps[size] = step;
+            size++;
+        }
+
+        private void clear() {
+            size = 0;
+            index = -1;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    private final long begin;
+
+    private final long end;
+
+    private final int bucketCount;
+
+    private final List<Date> xData = new ArrayList<>();
+
+    private final List<Number> yData = new ArrayList<>();
+
+    private Bucket current = new Bucket();
+
+    private Bucket next = new Bucket();
+
+    private int count;
+
+    private long selectedTime;
+
+    private double selectedValue;
+
+    private long lastTime;
+
+    private boolean lastStep;
+
+    /**
+     * Creates an empty series.
+     *
+     * @param begin the begin of the time range of the chart
+     * @param end the end of the time range of the chart
+     * @param maxPoints the maximum number of points which are kept, e.g. the width of the chart in pixels
+     */
+    LargestTriangleThreeBuckets(Date begin, Date end, int maxPoints) {
+        this.begin = begin.getTime();
+        this.end = end.getTime();
+        // the first and the last point are kept in addition to one point per bucket
+        this.bucketCount = Math.max(1, maxPoints - 2);
+    }
+
+    /**
+     * Adds a point. The points have to be added in ascending order of time.
+     *
+     * @param time the time of the point
+     * @param value the value of the point
+     */
+    void add(Date time, double value) {
+        add(time, value, false);
+    }
+
+    /**
+     * Adds a point at which the value changes abruptly. The points have to be added in ascending order of time.
+     *
+     * @param time the time of the point
+     * @param value the value from this point on
+     */
+    void addStep(Date time, double value) {
+        add(time, value, true);
+    }
+
+    private void add(Date time, double value, boolean step) {
+        long t = time.getTime();
+        count++;
+        lastTime = t;
+        lastStep = step;
+        if (count == 1) {
+            keep(t, value, step);
+            return;
+        }
+        int index = getBucketIndex(t);
+        if (current.isEmpty() || (index == current.index && next.isEmpty())) {
+            current.index = index;
+            current.add(t, value, step);
+        } else if (next.isEmpty() || index == next.index) {
+            next.index = index;
+            next.add(t, value, step);
+        } else {
+            select(current, averageTime(next), averageValue(next));
+            Bucket bucket = current;
+            current = next;
+            next = bucket;
+            next.clear();
+            next.index = index;
+            next.add(t, value, step);
+        }
+    }
+
+    /**
+     * Returns the number of added points.
+     *
+     * @return the number of points
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the times of the kept points. Has to be called once all points have been added.
+     *
+     * @return the times
+     */
+    List<Date> getXData() {
+        flush();
+        return xData;
+    }
+
+    /**
+     * Returns the values of the kept points. Has to be called once all points have been added.
+     *
+     * @return the values
+     */
+    List<Number> getYData() {
+        flush();
+        return yData;
+    }
+
+    private void flush() {
+        if (current.isEmpty()) {
+            return;
+        }
+        // the last point is always kept
+        Bucket lastBucket = next.isEmpty() ? current : next;
+        lastBucket.size--;
+        double lastValue = lastBucket.values[lastBucket.size];
+        if (!next.isEmpty()) {
+            select(current, averageTime(next), averageValue(next));
+            select(next, lastTime, lastValue);
+        } else {
+            select(current, lastTime, lastValue);
+        }
+        keep(lastTime, lastValue, lastStep);
+        current.clear();
+        next.clear();
+    }
+
+    private int getBucketIndex(long time) {
+        if (end <= begin) {
+            return 0;
+        }
+        long index = (time - begin) * bucketCount / (end - begin);
+        return (int) Math.max(0, Math.min(bucketCount - 1, index));
+    }
+
+    private double averageTime(Bucket bucket) {
+        double sum = 0;
+        for (int i = 0; i < bucket.size; i++) {
+            sum += bucket.times[i] - begin;
+        }
+        return sum / bucket.size + begin;
+    }
+
+    private double averageValue(Bucket bucket) {
+        double sum = 0;
+        for (int i = 0; i < bucket.size; i++) {
+            sum += bucket.values[i];
+        }
+        return sum / bucket.size;
+    }
+
+    /**
+     * Keeps the point of the bucket which forms the largest triangle with the previously kept point and the given
+     * point.
+     */
+    private void select(Bucket bucket, double time, double value) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        // relative times keep the products small
+        double ax = selectedTime - begin;
+        double ay = selectedValue;
+        double cx = time - begin;
+        int selected = 0;
+        double maxArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            double bx = bucket.times[i] - begin;
+            double area = Math.abs((ax - cx) * (bucket.values[i] - ay) - (ax - bx) * (value - ay));
+            if (area > maxArea) {
+                maxArea = area;
+                selected = i;
+            }
+        }
+        keep(bucket.times[selected], bucket.values[selected], bucket.steps[selected]);
+    }
+
+    private void keep(long time, double value, boolean step) {
+        if (step && !xData.isEmpty() && value != selectedValue && time - 1 > selectedTime) {
+            xData.add(new Date(time - 1));
+            yData.add(selectedValue);
+        }
+        selectedTime = time;
+        selectedValue = value;
+        xData.add(new Date(time));
+        yData.add(value);
+    }
+
+}